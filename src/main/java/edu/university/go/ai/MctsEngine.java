@@ -0,0 +1,225 @@
+package edu.university.go.ai;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Picks moves by Monte Carlo tree search with UCT, scoring positions by random playouts.
+ *
+ * <p>Each iteration walks the tree from the position to play, choosing the child with the best
+ * upper confidence bound, adds one unvisited move, and plays the game out from there with random
+ * legal moves that never fill the player's own eyes, on a {@link PlayoutBoard}. The playout ends at
+ * two passes, or when neither side has anything left to play, and is won by whoever leads on
+ * Tromp-Taylor area with the komi. The result is counted on every node the walk passed through.
+ *
+ * <p>Tree moves follow the same rules as playouts, simple ko included, with a pass among them; two
+ * passes in a row end the game where they are. Moves the caller rules out at the root, e.g. under a
+ * superko rule, are never played. The move returned is the one searched most.
+ *
+ * <p>Searching stops at a deadline, checked after every playout, so a move takes its budget and at
+ * most one playout more. An engine keeps no state between moves and is not thread-safe; use one per
+ * game.
+ */
+public final class MctsEngine {
+
+  // Weight of exploration in the upper confidence bound
+  private static final double EXPLORATION = 0.7;
+  // Playouts end after this many moves per point even without two passes
+  private static final int MOVES_PER_POINT = 3;
+
+  /** The move to play, or a pass if {@code x} is negative, with how the search rated it. */
+  public record Choice(int x, int y, double winRate, long playouts) {
+
+    public boolean isPass() {
+      return x < 0;
+    }
+  }
+
+  private final double komi;
+  private final PlayoutRandom random;
+
+  // Reused by every iteration of a search
+  private PlayoutBoard scratch;
+  private final List<Node> path = new ArrayList<>();
+
+  public MctsEngine(double komi) {
+    this(komi, System.nanoTime());
+  }
+
+  /** An engine whose playouts are the same every run for the same {@code seed}. */
+  public MctsEngine(double komi, long seed) {
+    this.komi = komi;
+    this.random = new PlayoutRandom(seed);
+  }
+
+  /**
+   * Search the position on {@code board} for {@code toMove} until {@code deadline}, in {@link
+   * System#nanoTime} terms; a deadline already passed gets a single playout. Only points set in
+   * {@code allowed}, indexed {@code y * size + x}, are played at the root; {@code opponentPassed}
+   * says the last move was a pass, so a pass now would end the game.
+   */
+  public Choice choose(
+      Board board, Color toMove, BitSet allowed, boolean opponentPassed, long deadline) {
+    return search(
+        PlayoutBoard.from(board),
+        PlayoutBoard.code(toMove),
+        allowed,
+        opponentPassed,
+        deadline,
+        Long.MAX_VALUE);
+  }
+
+  // Until the deadline or the number of playouts, whichever comes first
+  Choice search(
+      PlayoutBoard position,
+      int toMove,
+      BitSet allowed,
+      boolean opponentPassed,
+      long deadline,
+      long maxPlayouts) {
+    if (scratch == null || scratch.size != position.size) {
+      scratch = new PlayoutBoard(position.size);
+    }
+    Node root = new Node(PlayoutBoard.PASS, 3 - toMove, opponentPassed ? 1 : 0);
+    root.expand(position, toMove, allowed, random);
+    long playouts = 0;
+    do {
+      iterate(root, position);
+      playouts++;
+    } while (playouts < maxPlayouts && System.nanoTime() < deadline);
+
+    Node best = null;
+    for (Node child : root.children) {
+      if (best == null || child.visits > best.visits) best = child;
+    }
+    double winRate = best.visits == 0 ? 0 : best.wins / best.visits;
+    if (best.move == PlayoutBoard.PASS) {
+      return new Choice(-1, -1, winRate, playouts);
+    }
+    return new Choice(position.x(best.move), position.y(best.move), winRate, playouts);
+  }
+
+  private void iterate(Node root, PlayoutBoard position) {
+    PlayoutBoard board = scratch;
+    board.copyFrom(position);
+    path.clear();
+    path.add(root);
+    Node node = root;
+    // Down the tree while every move of the node has been tried
+    while (node.children != null && node.passes < 2) {
+      Node next = node.select();
+      play(board, next);
+      path.add(next);
+      node = next;
+      if (next.visits == 0) break;
+    }
+    if (node.children == null && node.passes < 2 && node.visits > 0) {
+      node.expand(board, 3 - node.color, null, random);
+      Node next = node.select();
+      play(board, next);
+      path.add(next);
+      node = next;
+    }
+    int toMove = 3 - node.color;
+    int winner = node.passes >= 2 ? winner(board) : playout(board, toMove, node.passes);
+    for (Node n : path) {
+      n.visits++;
+      if (n.color == winner) n.wins++;
+    }
+  }
+
+  private static void play(PlayoutBoard board, Node node) {
+    if (node.move == PlayoutBoard.PASS) {
+      board.pass();
+    } else {
+      board.play(node.color, node.move);
+    }
+  }
+
+  /** Random moves from {@code board} until the game ends; returns the color that won. */
+  int playout(PlayoutBoard board, int toMove, int passes) {
+    int color = toMove;
+    for (int moves = MOVES_PER_POINT * board.size * board.size; passes < 2 && moves > 0; moves--) {
+      int move = board.randomMove(color, random);
+      if (move == PlayoutBoard.PASS) {
+        board.pass();
+        passes++;
+      } else {
+        board.play(color, move);
+        passes = 0;
+      }
+      color = 3 - color;
+    }
+    return winner(board);
+  }
+
+  private int winner(PlayoutBoard board) {
+    return board.score() > komi ? PlayoutBoard.BLACK : PlayoutBoard.WHITE;
+  }
+
+  private static final class Node {
+
+    // Cell played to reach this node, and by which color
+    final int move;
+    final int color;
+    // Passes in a row up to and including this move
+    final int passes;
+    Node[] children;
+    // Untried children are at the end of the array, from here on
+    private int tried;
+    int visits;
+    // Playouts won by color
+    double wins;
+
+    Node(int move, int color, int passes) {
+      this.move = move;
+      this.color = color;
+      this.passes = passes;
+    }
+
+    // One child per legal move of toMove that does not fill its own eye, and a pass, in random
+    // order so untried moves are taken in random order
+    void expand(PlayoutBoard board, int toMove, BitSet allowed, PlayoutRandom random) {
+      List<Node> moves = new ArrayList<>();
+      for (int y = 0; y < board.size; y++) {
+        for (int x = 0; x < board.size; x++) {
+          int p = board.cell(x, y);
+          if ((allowed == null || allowed.get(y * board.size + x))
+              && !board.isEye(toMove, p)
+              && board.isLegal(toMove, p)) {
+            moves.add(new Node(p, toMove, 0));
+          }
+        }
+      }
+      moves.add(new Node(PlayoutBoard.PASS, toMove, passes + 1));
+      children = moves.toArray(new Node[0]);
+      for (int i = children.length - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        Node swap = children[i];
+        children[i] = children[j];
+        children[j] = swap;
+      }
+    }
+
+    Node select() {
+      if (tried < children.length) {
+        return children[tried++];
+      }
+      double logVisits = Math.log(visits);
+      Node best = null;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for (Node child : children) {
+        double value =
+            child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+        if (value > bestValue) {
+          bestValue = value;
+          best = child;
+        }
+      }
+      return best;
+    }
+  }
+}
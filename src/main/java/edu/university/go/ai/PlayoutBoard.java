@@ -0,0 +1,371 @@
+package edu.university.go.ai;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.util.Arrays;
+
+/**
+ * A board cut down to what random playouts need: placing stones, capturing, simple ko, and finding
+ * a random legal move fast. No hash, history or undo; a search copies a position with {@link
+ * #copyFrom} instead, which is a handful of array copies.
+ *
+ * <p>Cells are a padded {@code byte[]} as in {@link Board}. Every chain has an explicit id, the
+ * cell of one of its stones, kept in {@link #chain} for all of them; a merge relabels the smaller
+ * chain. Per chain it counts pseudo-liberties, i.e. (stone, empty neighbor) pairs, with their sum
+ * and sum of squares, so a chain is in atari exactly when all those pairs name one point, which is
+ * {@code count * sumOfSquares == sum * sum}. Empty points are kept in a list with each point's
+ * place in it, so a random one is picked in O(1).
+ *
+ * <p>Colors are the cell codes {@link #BLACK} and {@link #WHITE}, and {@code 3 - color} is the
+ * opponent. Not thread-safe.
+ */
+final class PlayoutBoard {
+
+  static final byte EMPTY = 0;
+  static final byte BLACK = 1;
+  static final byte WHITE = 2;
+  static final byte BORDER = 3;
+
+  /** Move value of a pass. */
+  static final int PASS = -1;
+
+  final int size;
+  final int stride;
+  private final int[] offsets;
+  private final int[] diagonals;
+
+  final byte[] cells;
+  // Per stone: the id of its chain and the next stone of the chain, circularly
+  private final int[] chain;
+  private final int[] nextStone;
+  // Per chain id
+  private final int[] stones;
+  private final int[] libs;
+  private final int[] libSum;
+  private final int[] libSumSquares;
+  // Empty cells, and the place of each in that list
+  private final int[] empty;
+  private final int[] emptyAt;
+  private int emptyCount;
+  private int ko = PASS;
+
+  // Flood fill scratch for score()
+  private final int[] stack;
+  private final int[] marks;
+  private int stamp;
+
+  PlayoutBoard(int size) {
+    this.size = size;
+    this.stride = size + 2;
+    int cellCount = stride * stride;
+    this.offsets = new int[] {1, -1, stride, -stride};
+    this.diagonals = new int[] {stride + 1, stride - 1, -stride + 1, -stride - 1};
+    this.cells = new byte[cellCount];
+    this.chain = new int[cellCount];
+    this.nextStone = new int[cellCount];
+    this.stones = new int[cellCount];
+    this.libs = new int[cellCount];
+    this.libSum = new int[cellCount];
+    this.libSumSquares = new int[cellCount];
+    this.empty = new int[size * size];
+    this.emptyAt = new int[cellCount];
+    this.stack = new int[cellCount];
+    this.marks = new int[cellCount];
+
+    Arrays.fill(cells, BORDER);
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int p = cell(x, y);
+        cells[p] = EMPTY;
+        emptyAt[p] = emptyCount;
+        empty[emptyCount++] = p;
+      }
+    }
+  }
+
+  /** The stones and simple ko of {@code board}. */
+  static PlayoutBoard from(Board board) {
+    PlayoutBoard copy = new PlayoutBoard(board.getSize());
+    for (int y = 0; y < board.getSize(); y++) {
+      for (int x = 0; x < board.getSize(); x++) {
+        Color color = board.get(x, y);
+        // Stones of a legal position never capture each other, whatever the order they go down in
+        if (color != Color.EMPTY) {
+          copy.play(code(color), copy.cell(x, y));
+        }
+      }
+    }
+    int ko = board.getKoPoint();
+    copy.ko = ko < 0 ? PASS : copy.cell(ko % board.getSize(), ko / board.getSize());
+    return copy;
+  }
+
+  static byte code(Color color) {
+    return color == Color.BLACK ? BLACK : color == Color.WHITE ? WHITE : EMPTY;
+  }
+
+  /** Make this board the same position as {@code other}, a board of the same size. */
+  void copyFrom(PlayoutBoard other) {
+    int n = cells.length;
+    System.arraycopy(other.cells, 0, cells, 0, n);
+    System.arraycopy(other.chain, 0, chain, 0, n);
+    System.arraycopy(other.nextStone, 0, nextStone, 0, n);
+    System.arraycopy(other.stones, 0, stones, 0, n);
+    System.arraycopy(other.libs, 0, libs, 0, n);
+    System.arraycopy(other.libSum, 0, libSum, 0, n);
+    System.arraycopy(other.libSumSquares, 0, libSumSquares, 0, n);
+    System.arraycopy(other.emptyAt, 0, emptyAt, 0, n);
+    System.arraycopy(other.empty, 0, empty, 0, other.emptyCount);
+    emptyCount = other.emptyCount;
+    ko = other.ko;
+  }
+
+  int cell(int x, int y) {
+    return (y + 1) * stride + x + 1;
+  }
+
+  int x(int cell) {
+    return cell % stride - 1;
+  }
+
+  int y(int cell) {
+    return cell / stride - 1;
+  }
+
+  int emptyCount() {
+    return emptyCount;
+  }
+
+  int koPoint() {
+    return ko;
+  }
+
+  /** Whether {@code color} may play at {@code p}: empty, not the ko point, and not suicide. */
+  boolean isLegal(int color, int p) {
+    if (cells[p] != EMPTY || p == ko) return false;
+    for (int d = 0; d < 4; d++) {
+      int n = p + offsets[d];
+      byte c = cells[n];
+      if (c == EMPTY) return true;
+      if (c == BORDER) continue;
+      // p is a liberty of the chain, so in atari means p is its last one
+      boolean atari = inAtari(chain[n]);
+      if (c == color ? !atari : atari) return true;
+    }
+    return false;
+  }
+
+  private boolean inAtari(int id) {
+    return (long) libs[id] * libSumSquares[id] == (long) libSum[id] * libSum[id];
+  }
+
+  /**
+   * Whether {@code p} is an eye of {@code color}: all its neighbors are that color or the edge, and
+   * the opponent holds at most one diagonal point, none on the edge. Filling such a point can only
+   * hurt, so playouts never do.
+   */
+  boolean isEye(int color, int p) {
+    for (int d = 0; d < 4; d++) {
+      byte c = cells[p + offsets[d]];
+      if (c != color && c != BORDER) return false;
+    }
+    int other = 3 - color;
+    int bad = 0;
+    boolean edge = false;
+    for (int d = 0; d < 4; d++) {
+      byte c = cells[p + diagonals[d]];
+      if (c == other) {
+        bad++;
+      } else if (c == BORDER) {
+        edge = true;
+      }
+    }
+    // The edge counts as one opponent diagonal
+    return bad + (edge ? 1 : 0) < 2;
+  }
+
+  /**
+   * A legal point for {@code color} that is not its own eye, drawn uniformly from all of them with
+   * {@code random}, or {@link #PASS} if there is none. Points are drawn from the empty list, and
+   * one that is refused is swapped past the end of the range still drawn from, so none is tried
+   * twice.
+   */
+  int randomMove(int color, PlayoutRandom random) {
+    for (int n = emptyCount; n > 0; n--) {
+      int i = random.nextInt(n);
+      int p = empty[i];
+      if (!isEye(color, p) && isLegal(color, p)) return p;
+      int last = empty[n - 1];
+      empty[i] = last;
+      emptyAt[last] = i;
+      empty[n - 1] = p;
+      emptyAt[p] = n - 1;
+    }
+    return PASS;
+  }
+
+  /**
+   * Place a stone of {@code color} at {@code p}, which must be legal, and take what it captures.
+   */
+  void play(int color, int p) {
+    int other = 3 - color;
+    ko = PASS;
+    removeEmpty(p);
+    cells[p] = (byte) color;
+    chain[p] = p;
+    nextStone[p] = p;
+    stones[p] = 1;
+    libs[p] = 0;
+    libSum[p] = 0;
+    libSumSquares[p] = 0;
+    for (int d = 0; d < 4; d++) {
+      int n = p + offsets[d];
+      byte c = cells[n];
+      if (c == EMPTY) {
+        addLiberty(p, n);
+      } else if (c != BORDER) {
+        removeLiberty(chain[n], p);
+      }
+    }
+    for (int d = 0; d < 4; d++) {
+      int n = p + offsets[d];
+      if (cells[n] == color && chain[n] != chain[p]) {
+        merge(chain[p], chain[n]);
+      }
+    }
+    int captured = 0;
+    int lastCaptured = PASS;
+    for (int d = 0; d < 4; d++) {
+      int n = p + offsets[d];
+      if (cells[n] == other && libs[chain[n]] == 0) {
+        captured += stones[chain[n]];
+        lastCaptured = n;
+        remove(chain[n]);
+      }
+    }
+    // A lone stone that took a lone stone and has only that point left
+    int id = chain[p];
+    if (captured == 1 && stones[id] == 1 && libs[id] == 1) {
+      ko = lastCaptured;
+    }
+  }
+
+  /** A pass, which lifts the ko ban. */
+  void pass() {
+    ko = PASS;
+  }
+
+  private void addLiberty(int id, int p) {
+    libs[id]++;
+    libSum[id] += p;
+    libSumSquares[id] += p * p;
+  }
+
+  private void removeLiberty(int id, int p) {
+    libs[id]--;
+    libSum[id] -= p;
+    libSumSquares[id] -= p * p;
+  }
+
+  // The smaller chain joins the larger
+  private void merge(int a, int b) {
+    if (stones[a] < stones[b]) {
+      int swap = a;
+      a = b;
+      b = swap;
+    }
+    int s = b;
+    do {
+      chain[s] = a;
+      s = nextStone[s];
+    } while (s != b);
+    int next = nextStone[a];
+    nextStone[a] = nextStone[b];
+    nextStone[b] = next;
+    stones[a] += stones[b];
+    libs[a] += libs[b];
+    libSum[a] += libSum[b];
+    libSumSquares[a] += libSumSquares[b];
+  }
+
+  private void remove(int id) {
+    int s = id;
+    do {
+      cells[s] = EMPTY;
+      addEmpty(s);
+      s = nextStone[s];
+    } while (s != id);
+    // Only once all are gone, so stones of the chain itself are not given liberties
+    do {
+      for (int d = 0; d < 4; d++) {
+        int n = s + offsets[d];
+        byte c = cells[n];
+        if (c == BLACK || c == WHITE) {
+          addLiberty(chain[n], s);
+        }
+      }
+      s = nextStone[s];
+    } while (s != id);
+  }
+
+  private void addEmpty(int p) {
+    emptyAt[p] = emptyCount;
+    empty[emptyCount++] = p;
+  }
+
+  private void removeEmpty(int p) {
+    int last = empty[--emptyCount];
+    int at = emptyAt[p];
+    empty[at] = last;
+    emptyAt[last] = at;
+  }
+
+  /**
+   * Black's area less White's, Tromp-Taylor: stones, and empty regions that reach stones of one
+   * color only.
+   */
+  int score() {
+    int black = 0;
+    int white = 0;
+    stamp++;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int p = cell(x, y);
+        byte c = cells[p];
+        if (c == BLACK) {
+          black++;
+        } else if (c == WHITE) {
+          white++;
+        } else if (marks[p] != stamp) {
+          int region = 0;
+          int reached = 0;
+          int top = 0;
+          stack[top++] = p;
+          marks[p] = stamp;
+          while (top > 0) {
+            int q = stack[--top];
+            region++;
+            for (int d = 0; d < 4; d++) {
+              int n = q + offsets[d];
+              byte nc = cells[n];
+              if (nc == EMPTY) {
+                if (marks[n] != stamp) {
+                  marks[n] = stamp;
+                  stack[top++] = n;
+                }
+              } else if (nc != BORDER) {
+                reached |= nc;
+              }
+            }
+          }
+          if (reached == BLACK) {
+            black += region;
+          } else if (reached == WHITE) {
+            white += region;
+          }
+        }
+      }
+    }
+    return black - white;
+  }
+}
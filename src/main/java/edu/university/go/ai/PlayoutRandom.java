@@ -0,0 +1,25 @@
+package edu.university.go.ai;
+
+/**
+ * xorshift64*, the random numbers of playouts and tree expansion: plenty for picking moves, and
+ * cheaper than {@link java.util.Random} or {@link java.util.SplittableRandom}. The same seed gives
+ * the same numbers every run. Not thread-safe.
+ */
+final class PlayoutRandom {
+
+  private long state;
+
+  PlayoutRandom(long seed) {
+    this.state = seed == 0 ? 1 : seed;
+  }
+
+  /** A number from 0 to one less than {@code bound}, which must be positive. */
+  int nextInt(int bound) {
+    long x = state;
+    x ^= x >>> 12;
+    x ^= x << 25;
+    x ^= x >>> 27;
+    state = x;
+    return (int) ((((x * 0x2545F4914F6CDD1DL) >>> 32) * bound) >>> 32);
+  }
+}
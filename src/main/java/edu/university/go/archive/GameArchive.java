@@ -0,0 +1,337 @@
+package edu.university.go.archive;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.scoring.GameResult;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only archive of finished games, read back by id through memory mappings.
+ *
+ * <p>Two files in one directory: {@code games.dat} holds the games one after the other, and {@code
+ * games.idx} the offset of each as a long, so game {@code id} is found at {@code 8 * id} of the
+ * index. Ids are given out in order from 0. A game is
+ *
+ * <pre>
+ *  0  int     length of the record in bytes
+ *  4  byte    board size
+ *  5  byte    ending (count, resignation or time)
+ *  6  byte    winner color ordinal
+ *  8  double  komi
+ * 16  double  black score, white score, margin
+ * 40  int     number of moves
+ * 44  byte    length of the black player's name in UTF-8, then the name; the same for white
+ *  .  short   per move: the point y * size + x, or PASS or RESIGN, plus WHITE_BIT for white
+ * </pre>
+ *
+ * <p>Both files are read through read-only {@link MappedByteBuffer}s, one per region of the file,
+ * so the games stay in the page cache and not on the heap however many there are. A mapping reaches
+ * a little past its region, enough that a record starting in it is whole in it. {@link #replay}
+ * decodes moves straight from the mapping onto a board.
+ *
+ * <p>Appending writes the game, then its index entry, without syncing; both survive the process,
+ * and a crash of the machine can leave a torn last game, which opening the archive drops. {@link
+ * #force} makes what was appended survive the machine too.
+ */
+public final class GameArchive implements Closeable {
+
+  static final long REGION_BYTES = 1L << 30;
+  static final int HEADER_BYTES = 44;
+  static final int MAX_MOVES = 65_535;
+  static final int MAX_RECORD = HEADER_BYTES + 2 * 256 + 2 * MAX_MOVES;
+
+  static final int PASS = 0x0FFF;
+  static final int RESIGN = 0x0FFE;
+  static final int WHITE_BIT = 0x8000;
+
+  private static final GameRecord.Ending[] ENDINGS = GameRecord.Ending.values();
+  private static final Color[] COLORS = Color.values();
+
+  private final FileChannel data;
+  private final FileChannel index;
+  private final Mapping dataMap;
+  private final Mapping indexMap;
+
+  // Guarded by this
+  private final ByteBuffer encoded = ByteBuffer.allocateDirect(MAX_RECORD);
+  private final ByteBuffer entry = ByteBuffer.allocateDirect(Long.BYTES);
+  private long end;
+  private volatile long count;
+
+  /** Open the archive in {@code dir}, creating it if there is none. */
+  public GameArchive(Path dir) throws IOException {
+    this(dir, REGION_BYTES);
+  }
+
+  GameArchive(Path dir, long regionBytes) throws IOException {
+    Files.createDirectories(dir);
+    data = open(dir.resolve("games.dat"));
+    index = open(dir.resolve("games.idx"));
+    dataMap = new Mapping(data, regionBytes, MAX_RECORD);
+    indexMap = new Mapping(index, regionBytes, Long.BYTES);
+    recover();
+  }
+
+  private static FileChannel open(Path file) throws IOException {
+    return FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  // Drop index entries whose game is not all there, and whatever follows the last whole game
+  private void recover() throws IOException {
+    long entries = index.size() / Long.BYTES;
+    long dataSize = data.size();
+    end = 0;
+    while (entries > 0) {
+      long offset = readLong(index, (entries - 1) * Long.BYTES);
+      if (offset >= 0 && offset + 4 <= dataSize) {
+        int length = readInt(data, offset);
+        if (length >= HEADER_BYTES && offset + length <= dataSize) {
+          end = offset + length;
+          break;
+        }
+      }
+      entries--;
+    }
+    index.truncate(entries * Long.BYTES);
+    data.truncate(end);
+    count = entries;
+  }
+
+  /* ===== Appending ===== */
+
+  /** Add a game; returns its id. */
+  public synchronized long append(GameRecord game) throws IOException {
+    byte[] black = name(game.black());
+    byte[] white = name(game.white());
+    List<Move> moves = game.moves();
+    if (game.size() < 1 || game.size() > 52) {
+      throw new IllegalArgumentException("Board size must be 1 to 52: " + game.size());
+    }
+    if (moves.size() > MAX_MOVES) {
+      throw new IllegalArgumentException("Too many moves to archive: " + moves.size());
+    }
+
+    GameResult result = game.result();
+    encoded.clear();
+    encoded
+        .putInt(0)
+        .put((byte) game.size())
+        .put((byte) game.ending().ordinal())
+        .put((byte) result.winner().ordinal())
+        .put((byte) 0)
+        .putDouble(game.komi())
+        .putDouble(result.blackScore())
+        .putDouble(result.whiteScore())
+        .putDouble(result.margin())
+        .putInt(moves.size())
+        .put((byte) black.length)
+        .put(black)
+        .put((byte) white.length)
+        .put(white);
+    for (Move move : moves) {
+      int point =
+          move.isPass() ? PASS : move.isResign() ? RESIGN : move.y() * game.size() + move.x();
+      encoded.putShort((short) (move.color() == Color.WHITE ? point | WHITE_BIT : point));
+    }
+    encoded.putInt(0, encoded.position()).flip();
+
+    long offset = end;
+    while (encoded.hasRemaining()) {
+      data.write(encoded, offset + encoded.position());
+    }
+    entry.clear().putLong(offset).flip();
+    long id = count;
+    while (entry.hasRemaining()) {
+      index.write(entry, id * Long.BYTES + entry.position());
+    }
+    end = offset + encoded.limit();
+    count = id + 1;
+    return id;
+  }
+
+  /** Put every game appended so far on disk. */
+  public synchronized void force() throws IOException {
+    data.force(false);
+    index.force(false);
+  }
+
+  private static byte[] name(String name) {
+    byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 255) {
+      throw new IllegalArgumentException("Player name too long to archive: " + name);
+    }
+    return bytes;
+  }
+
+  /* ===== Reading ===== */
+
+  /** Number of games; ids run from 0 to one less. */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Play game {@code id} on {@code board}, which is cleared first and must have the game's size.
+   * Nothing is allocated. Returns the number of moves, passes and resignation included.
+   */
+  public int replay(long id, Board board) throws IOException {
+    long offset = offset(id);
+    ByteBuffer map = record(offset);
+    int at = dataMap.within(offset);
+    int size = map.get(at + 4);
+    if (board.getSize() != size) {
+      throw new IllegalArgumentException("Game " + id + " is played on " + size + "x" + size);
+    }
+    int moves = map.getInt(at + 40);
+    int p = at + HEADER_BYTES;
+    p += 1 + (map.get(p) & 0xFF);
+    p += 1 + (map.get(p) & 0xFF);
+
+    board.clear();
+    for (int i = 0; i < moves; i++, p += 2) {
+      int move = map.getShort(p) & 0xFFFF;
+      int point = move & ~WHITE_BIT;
+      if (point >= RESIGN) continue;
+      Color color = (move & WHITE_BIT) != 0 ? Color.WHITE : Color.BLACK;
+      if (!board.placeStone(color, point % size, point / size)) {
+        throw new IllegalStateException("Game " + id + " does not replay at move " + (i + 1));
+      }
+    }
+    return moves;
+  }
+
+  /** Game {@code id} in full; moves carry the player's name as their id. */
+  public GameRecord read(long id) throws IOException {
+    long offset = offset(id);
+    ByteBuffer map = record(offset);
+    int at = dataMap.within(offset);
+    int size = map.get(at + 4);
+    GameResult result =
+        new GameResult(
+            map.getDouble(at + 16),
+            map.getDouble(at + 24),
+            COLORS[map.get(at + 6)],
+            map.getDouble(at + 32));
+    int count = map.getInt(at + 40);
+    int p = at + HEADER_BYTES;
+    String black = string(map, p);
+    p += 1 + (map.get(p) & 0xFF);
+    String white = string(map, p);
+    p += 1 + (map.get(p) & 0xFF);
+
+    List<Move> moves = new ArrayList<>(count);
+    for (int i = 0; i < count; i++, p += 2) {
+      int move = map.getShort(p) & 0xFFFF;
+      int point = move & ~WHITE_BIT;
+      Color color = (move & WHITE_BIT) != 0 ? Color.WHITE : Color.BLACK;
+      String player = color == Color.BLACK ? black : white;
+      if (point == PASS) {
+        moves.add(Move.pass(color, player));
+      } else if (point == RESIGN) {
+        moves.add(Move.resign(color, player));
+      } else {
+        moves.add(new Move(color, point % size, point / size, player));
+      }
+    }
+    return new GameRecord(
+        black, white, size, map.getDouble(at + 8), result, ENDINGS[map.get(at + 5)], moves);
+  }
+
+  // Null for an empty name
+  private static String string(ByteBuffer map, int at) {
+    int length = map.get(at) & 0xFF;
+    if (length == 0) return null;
+    byte[] bytes = new byte[length];
+    map.get(at + 1, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long offset(long id) throws IOException {
+    if (id < 0 || id >= count) {
+      throw new IllegalArgumentException("No game " + id + " in the archive");
+    }
+    long position = id * Long.BYTES;
+    return indexMap.at(position, Long.BYTES).getLong(indexMap.within(position));
+  }
+
+  // The mapping holding the whole game at offset
+  private ByteBuffer record(long offset) throws IOException {
+    int length = dataMap.at(offset, 4).getInt(dataMap.within(offset));
+    return dataMap.at(offset, length);
+  }
+
+  private static long readLong(FileChannel channel, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+    while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {}
+    return buffer.getLong(0);
+  }
+
+  private static int readInt(FileChannel channel, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+    while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {}
+    return buffer.getInt(0);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    data.force(false);
+    index.force(false);
+    data.close();
+    index.close();
+  }
+
+  /**
+   * A growing file read through one read-only mapping per region. A mapping reaches {@code reach}
+   * bytes past its region, so an item starting in it is whole in it; the mapping of the last region
+   * is redone when the file has grown and an item past its end is asked for.
+   */
+  private static final class Mapping {
+
+    private final FileChannel channel;
+    private final long region;
+    private final int reach;
+    private MappedByteBuffer[] maps = new MappedByteBuffer[1];
+
+    Mapping(FileChannel channel, long region, int reach) {
+      this.channel = channel;
+      this.region = region;
+      this.reach = reach;
+    }
+
+    // The mapping holding the length bytes at position, which start at within(position) in it
+    synchronized ByteBuffer at(long position, int length) throws IOException {
+      int r = (int) (position / region);
+      if (r >= maps.length) {
+        maps = Arrays.copyOf(maps, Math.max(r + 1, maps.length * 2));
+      }
+      MappedByteBuffer map = maps[r];
+      if (map == null || within(position) + length > map.capacity()) {
+        long base = r * region;
+        map =
+            channel.map(
+                FileChannel.MapMode.READ_ONLY,
+                base,
+                Math.min(region + reach, channel.size() - base));
+        maps[r] = map;
+      }
+      return map;
+    }
+
+    int within(long position) {
+      return (int) (position % region);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package edu.university.go.archive;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.scoring.GameResult;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A finished game as {@link GameArchive} keeps it: who played, the board size and komi, the count,
+ * how the game ended and every move. {@code result.winner()} is the actual winner, also when the
+ * game ended by resignation or on time. Player names may be null.
+ */
+public record GameRecord(
+    String black,
+    String white,
+    int size,
+    double komi,
+    GameResult result,
+    Ending ending,
+    List<Move> moves) {
+
+  public enum Ending {
+    COUNT,
+    RESIGNATION,
+    TIME
+  }
+
+  /** The result as SGF writes it, e.g. {@code W+R}, {@code B+T} or {@code B+3.5}; 0 for a draw. */
+  public String sgfResult() {
+    char winner = result.winner() == Color.BLACK ? 'B' : 'W';
+    return switch (ending) {
+      case RESIGNATION -> winner + "+R";
+      case TIME -> winner + "+T";
+      case COUNT ->
+          result.margin() == 0
+              ? "0"
+              : winner + "+" + String.format(Locale.ROOT, "%.1f", result.margin());
+    };
+  }
+}
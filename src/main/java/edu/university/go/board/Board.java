@@ -2,23 +2,136 @@ package edu.university.go.board;
 
 import java.util.*;
 
+/**
+ * Go board stored as a flat, padded {@code byte[]}.
+ *
+ * <p>Every intersection maps to one cell of a {@code (size + 2) x (size + 2)} array whose outer
+ * ring is filled with a border marker, so neighbor walks never need bounds checks. Neighbors are
+ * reached through four precomputed offsets. Chain and liberty searches use a preallocated stack and
+ * a generation-stamped mark array, which lets {@link #placeStone} run without allocating.
+ *
+ * <p>Chains are tracked persistently as a union-find over cell indices (union by size, path
+ * halving). Each root stores the chain size and its pseudo-liberty count, i.e. the number of
+ * (stone, empty neighbor) pairs, and the stones of a chain are linked in a circular list. A chain
+ * is dead exactly when its pseudo-liberty count is zero, so capture and suicide checks only look at
+ * the four neighbors of the played point.
+ *
+ * <p>Public methods check the coordinates they are given, as the plain grid did: {@link #get}
+ * throws for a point off the board, and {@link #isLegal} and {@link #placeStone} refuse it. Only
+ * internal loops address cells unchecked.
+ *
+ * <p>The board also maintains a 64-bit {@link Zobrist} hash of the position, updated with one XOR
+ * per stone placed or removed.
+ *
+ * <p>{@link #play} and {@link #undo} make and take back moves without copying the board, for search
+ * code that explores many variations. Undo records come from a per-board pool, so once the pool has
+ * grown to the deepest line explored, make/unmake sequences do not allocate.
+ */
 public class Board {
 
+  // Cell codes
+  private static final byte EMPTY = 0;
+  private static final byte BLACK = 1;
+  private static final byte WHITE = 2;
+  private static final byte BORDER = 3;
+
+  private static final Color[] COLORS = {Color.EMPTY, Color.BLACK, Color.WHITE, Color.EMPTY};
+
   private final int size;
-  private final Color[][] grid;
+  private final int stride;
+  private final byte[] cells;
+  private final int[] offsets;
+  // Point index y * size + x of every cell, so hot paths need no division
+  private final int[] pointIndex;
+  private final long[] zobrist;
+  private long hash = 0L;
+  private int koPoint = -1;
+
+  // Last change, for observers that update incrementally
+  private long version = 0;
+  private int lastMove = -1;
+  private final int[] lastCaptured;
+  private int lastCapturedCount = 0;
+
+  // Union-find chain bookkeeping, indexed by cell
+  private final int[] parent;
+  private final int[] nextStone;
+  private final int[] chainSize;
+  private final int[] liberties;
+  private boolean chainsDirty = false;
+
+  // Pool of undo records, used as a stack by play/undo
+  private UndoRecord[] undoStack = new UndoRecord[16];
+  private int undoDepth = 0;
+
+  // Result of legalMoves, reused between calls
+  private final BitSet legalMoves;
+
+  // Scratch space for searches (reused between calls)
+  private final int[] stack;
+  private final int[] marks;
+  private int stamp = 0;
 
   public Board(int size) {
     this.size = size;
-    this.grid = new Color[size][size];
-    for (int i = 0; i < size; i++) Arrays.fill(grid[i], Color.EMPTY);
+    this.stride = size + 2;
+    this.cells = new byte[stride * stride];
+    this.offsets = new int[] {1, -1, stride, -stride};
+    this.pointIndex = new int[cells.length];
+    this.zobrist = Zobrist.table(size);
+    this.parent = new int[cells.length];
+    this.nextStone = new int[cells.length];
+    this.chainSize = new int[cells.length];
+    this.liberties = new int[cells.length];
+    this.stack = new int[cells.length];
+    this.marks = new int[cells.length];
+    this.legalMoves = new BitSet(size * size);
+    this.lastCaptured = new int[size * size];
+
+    Arrays.fill(cells, BORDER);
+    for (int y = 0; y < size; y++) {
+      Arrays.fill(cells, pos(0, y), pos(0, y) + size, EMPTY);
+      for (int x = 0; x < size; x++) {
+        pointIndex[pos(x, y)] = y * size + x;
+      }
+    }
+  }
+
+  // Copy constructor used by clone()
+  private Board(Board other) {
+    this.size = other.size;
+    this.stride = other.stride;
+    this.cells = other.cells.clone();
+    this.offsets = other.offsets;
+    this.pointIndex = other.pointIndex;
+    this.zobrist = other.zobrist;
+    this.hash = other.hash;
+    this.koPoint = other.koPoint;
+    this.version = other.version;
+    this.lastMove = other.lastMove;
+    this.lastCaptured = other.lastCaptured.clone();
+    this.lastCapturedCount = other.lastCapturedCount;
+    this.parent = other.parent.clone();
+    this.nextStone = other.nextStone.clone();
+    this.chainSize = other.chainSize.clone();
+    this.liberties = other.liberties.clone();
+    this.chainsDirty = other.chainsDirty;
+    this.stack = new int[cells.length];
+    this.marks = new int[cells.length];
+    this.legalMoves = new BitSet(size * size);
   }
 
   public int getSize() {
     return size;
   }
 
+  /**
+   * Color at (x, y).
+   *
+   * @throws ArrayIndexOutOfBoundsException if (x, y) is off the board
+   */
   public Color get(int x, int y) {
-    return grid[x][y];
+    return COLORS[cells[checkedPos(x, y)]];
   }
 
   /**
@@ -31,8 +144,128 @@ public class Board {
    */
   public void setColor(int x, int y, Color color) {
     if (isInside(x, y)) {
-      grid[x][y] = color;
+      int p = pos(x, y);
+      hash ^= stoneKey(p, cells[p]);
+      cells[p] = code(color);
+      hash ^= stoneKey(p, cells[p]);
+      chainsDirty = true;
+      koPoint = -1;
+      changed(-1);
+    }
+  }
+
+  /**
+   * Remove every stone, so one board can be reused for game after game of the same size. Pending
+   * undo records are dropped.
+   */
+  public void clear() {
+    for (int y = 0; y < size; y++) {
+      Arrays.fill(cells, pos(0, y), pos(0, y) + size, EMPTY);
+    }
+    hash = 0L;
+    koPoint = -1;
+    undoDepth = 0;
+    chainsDirty = true;
+    changed(-1);
+  }
+
+  /**
+   * Point a simple ko forbids retaking right now, as an index {@code y * size + x}, or -1. Set when
+   * the last move captured exactly one stone with a lone stone that is left in atari.
+   */
+  public int getKoPoint() {
+    return koPoint;
+  }
+
+  /** Counter bumped by every change to the board (placements, undo, setColor). */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Index ({@code y * size + x}) of the stone placed by the most recent change, or -1 if that
+   * change was not a placement.
+   */
+  public int getLastMove() {
+    return lastMove;
+  }
+
+  /** Number of stones captured by the most recent placement. */
+  public int getLastCapturedCount() {
+    return lastCapturedCount;
+  }
+
+  /** Index of the i-th stone captured by the most recent placement. */
+  public int getLastCaptured(int i) {
+    return lastCaptured[i];
+  }
+
+  /** Zobrist hash of the current position. */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * Zobrist hash of the position that placing a stone at (x, y) would produce, computed without
+   * modifying the board. The move must be legal (see {@link #isLegal}).
+   */
+  public long hashAfter(Color color, int x, int y) {
+    int p = checkedPos(x, y);
+    ensureChains();
+    byte own = code(color);
+    byte enemy = code(color.opposite());
+    long result = hash ^ stoneKey(p, own);
+
+    int mark = nextStamp();
+    for (int d : offsets) {
+      int n = p + d;
+      if (cells[n] != enemy) continue;
+      int root = find(n);
+      if (marks[root] == mark || liberties[root] != contacts(p, root)) continue;
+      marks[root] = mark;
+
+      int s = root;
+      do {
+        result ^= stoneKey(s, enemy);
+        s = nextStone[s];
+      } while (s != root);
     }
+    return result;
+  }
+
+  /** Whether a stone of the given color may be placed at (x, y): inside, empty and not suicide. */
+  public boolean isLegal(Color color, int x, int y) {
+    if (!isInside(x, y) || color == Color.EMPTY) return false;
+    int p = pos(x, y);
+    if (cells[p] != EMPTY) return false;
+    ensureChains();
+    return !isSuicide(p, code(color));
+  }
+
+  /**
+   * All points where a stone of the given color may be placed (empty and not suicide), as bits
+   * indexed {@code y * size + x}. Computed in one sweep from the pseudo-liberty counts of each
+   * point's neighbors; ko is not considered here, see {@link
+   * edu.university.go.validators.KoValidator#legalMoves}.
+   *
+   * <p>The returned set is owned by the board and overwritten by the next call.
+   */
+  public BitSet legalMoves(Color color) {
+    legalMoves.clear();
+    if (color == Color.EMPTY) return legalMoves;
+
+    ensureChains();
+    byte own = code(color);
+    int index = 0;
+    for (int y = 0; y < size; y++) {
+      int p = pos(0, y);
+      for (int x = 0; x < size; x++, p++, index++) {
+        if (cells[p] == EMPTY && !isSuicide(p, own)) {
+          legalMoves.set(index);
+        }
+      }
+    }
+    return legalMoves;
   }
 
   // Check if the given coordinates are inside the board
@@ -42,13 +275,21 @@ public class Board {
 
   // Get neighboring points of a given point
   public List<Point> neighbors(Point p) {
-    List<Point> result = new ArrayList<>();
-    int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-    for (int[] d : dirs) {
-      int nx = p.x + d[0];
-      int ny = p.y + d[1];
-      if (isInside(nx, ny)) {
-        result.add(new Point(nx, ny));
+    List<Point> result = new ArrayList<>(4);
+    if (!isInside(p.x, p.y)) {
+      // Off the board there is no padding to stop at, so check each neighbor
+      for (int[] d : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+        if (isInside(p.x + d[0], p.y + d[1])) {
+          result.add(Point.of(p.x + d[0], p.y + d[1]));
+        }
+      }
+      return result;
+    }
+    int from = pos(p.x, p.y);
+    for (int d : offsets) {
+      int n = from + d;
+      if (cells[n] != BORDER) {
+        result.add(Point.of(xOf(n), yOf(n)));
       }
     }
     return result;
@@ -57,80 +298,425 @@ public class Board {
   // Get the chain of a stone
   public Chain getChain(Point start) {
     Color color = get(start.x, start.y);
-    Chain chain = new Chain(color);
-    Set<Point> visited = new HashSet<>();
-
-    dfs(start, color, visited, chain);
-    return chain;
-  }
-
-  // Search to find connected stones
-  private void dfs(Point p, Color color, Set<Point> visited, Chain chain) {
-    if (visited.contains(p)) return;
-    visited.add(p);
-    chain.add(p);
-
-    for (Point n : neighbors(p)) {
-      if (get(n.x, n.y) == color) {
-        dfs(n, color, visited, chain);
+    int p = pos(start.x, start.y);
+    if (cells[p] == EMPTY) {
+      // Empty points are not tracked by the union-find, collect the empty region instead
+      Chain chain = new Chain(color, null, size, null);
+      int top = collectChain(p);
+      for (int i = 0; i < top; i++) {
+        chain.addIndex(pointIndex(stack[i]));
       }
+      return chain;
     }
+
+    ensureChains();
+    Chain chain = new Chain(color, start, size, this);
+    int s = p;
+    do {
+      chain.addIndex(pointIndex(s));
+      s = nextStone[s];
+    } while (s != p);
+    return chain;
   }
 
   // Count empty spaces for a chain
   public int countLiberties(Chain chain) {
-    Set<Point> liberties = new HashSet<>();
+    int mark = nextStamp();
+    int liberties = 0;
 
     for (Point p : chain.getStones()) {
-      for (Point n : neighbors(p)) {
-        if (get(n.x, n.y) == Color.EMPTY) {
-          liberties.add(n);
+      if (!isInside(p.x, p.y)) {
+        for (Point q : neighbors(p)) {
+          int n = pos(q.x, q.y);
+          if (cells[n] == EMPTY && marks[n] != mark) {
+            marks[n] = mark;
+            liberties++;
+          }
+        }
+        continue;
+      }
+      int from = pos(p.x, p.y);
+      for (int d : offsets) {
+        int n = from + d;
+        if (cells[n] == EMPTY && marks[n] != mark) {
+          marks[n] = mark;
+          liberties++;
         }
       }
     }
-    return liberties.size();
+    return liberties;
   }
 
   public boolean placeStone(Color color, int x, int y) {
-    if (!isInside(x, y)) return false;
-    if (grid[x][y] != Color.EMPTY) return false;
+    if (!isInside(x, y) || color == Color.EMPTY) return false;
+    int p = pos(x, y);
+    if (cells[p] != EMPTY) return false;
+
+    ensureChains();
+    byte own = code(color);
+
+    // Check the suicide rule before touching anything
+    if (isSuicide(p, own)) {
+      return false;
+    }
 
-    grid[x][y] = color;
+    place(p, own, null);
+    return true;
+  }
+
+  /**
+   * Play a stone and return a record that {@link #undo} can use to take it back. Records must be
+   * undone in reverse order and are reused afterwards.
+   *
+   * @return the undo record, or null if the move is illegal (nothing is changed)
+   */
+  public UndoRecord play(Color color, int x, int y) {
+    if (!isLegal(color, x, y)) return null;
+
+    if (undoDepth == undoStack.length) {
+      undoStack = Arrays.copyOf(undoStack, undoDepth * 2);
+    }
+    UndoRecord record = undoStack[undoDepth];
+    if (record == null) {
+      record = new UndoRecord();
+      undoStack[undoDepth] = record;
+    }
+    undoDepth++;
+
+    int p = pos(x, y);
+    record.move = pointIndex(p);
+    record.color = code(color);
+    record.capturedCount = 0;
+    record.previousKoPoint = koPoint;
+    record.previousHash = hash;
+
+    place(p, record.color, record);
+    return record;
+  }
+
+  /**
+   * Take back the most recent {@link #play}, restoring stones, hash and ko point exactly. Chains
+   * around the move are rebuilt, so the cost is proportional to the size of those chains.
+   *
+   * @throws IllegalStateException if the record is not the last one played
+   */
+  public void undo(UndoRecord record) {
+    if (undoDepth == 0 || undoStack[undoDepth - 1] != record) {
+      throw new IllegalStateException("Undo records must be undone in reverse order");
+    }
+    undoDepth--;
+
+    int p = posOf(record.move);
+    byte enemy = record.color == BLACK ? WHITE : BLACK;
+    cells[p] = EMPTY;
+    for (int i = 0; i < record.capturedCount; i++) {
+      cells[posOf(record.captured[i])] = enemy;
+    }
+    hash = record.previousHash;
+    koPoint = record.previousKoPoint;
+    changed(-1);
+
+    // Re-derive every chain that touches a changed cell
+    int mark = nextStamp();
+    rebuildAround(p, mark);
+    for (int i = 0; i < record.capturedCount; i++) {
+      int c = posOf(record.captured[i]);
+      rebuildChain(c, mark);
+      rebuildAround(c, mark);
+    }
+  }
+
+  // Put a stone on an empty, legal cell and resolve captures
+  private void place(int p, byte own, UndoRecord record) {
+    changed(pointIndex(p));
+    cells[p] = own;
+    hash ^= stoneKey(p, own);
+    parent[p] = p;
+    nextStone[p] = p;
+    chainSize[p] = 1;
+    liberties[p] = 0;
+
+    // The new stone takes one pseudo-liberty from every adjacent chain
+    for (int d : offsets) {
+      int n = p + d;
+      byte c = cells[n];
+      if (c == EMPTY) {
+        liberties[p]++;
+      } else if (c != BORDER) {
+        liberties[find(n)]--;
+      }
+    }
+
+    // Join friendly chains
+    for (int d : offsets) {
+      int n = p + d;
+      if (cells[n] == own) {
+        union(find(p), find(n));
+      }
+    }
 
     // Check enemy chains
-    for (Point n : neighbors(new Point(x, y))) {
-      if (get(n.x, n.y) == color.opposite()) {
-        Chain enemy = getChain(n);
-        if (countLiberties(enemy) == 0) {
-          removeChain(enemy);
+    byte enemy = own == BLACK ? WHITE : BLACK;
+    int capturedStones = 0;
+    int lastCaptured = -1;
+    for (int d : offsets) {
+      int n = p + d;
+      if (cells[n] == enemy) {
+        int root = find(n);
+        if (liberties[root] == 0) {
+          capturedStones += chainSize[root];
+          lastCaptured = root;
+          removeChain(root, record);
         }
       }
     }
 
-    // Check the suicide rule
-    Chain own = getChain(new Point(x, y));
-    if (countLiberties(own) == 0) {
-      grid[x][y] = Color.EMPTY;
-      return false;
+    // A single stone that captured a single stone and has one liberty left is a ko shape
+    int root = find(p);
+    if (capturedStones == 1 && chainSize[root] == 1 && liberties[root] == 1) {
+      koPoint = pointIndex(lastCaptured);
+    } else {
+      koPoint = -1;
     }
+  }
 
+  // A move is suicide if it has no empty neighbor, fills the last liberty of every friendly chain
+  // it touches, and captures nothing
+  private boolean isSuicide(int p, byte own) {
+    for (int d : offsets) {
+      int n = p + d;
+      byte c = cells[n];
+      if (c == EMPTY) return false;
+      if (c == BORDER) continue;
+      int root = find(n);
+      boolean lastLiberty = liberties[root] == contacts(p, root);
+      if (c == own ? !lastLiberty : lastLiberty) return false;
+    }
     return true;
   }
 
-  // Remove a chain
-  private void removeChain(Chain chain) {
-    for (Point p : chain.getStones()) {
-      grid[p.x][p.y] = Color.EMPTY;
+  // Number of pseudo-liberties the chain `root` has at the empty cell p
+  private int contacts(int p, int root) {
+    int count = 0;
+    for (int d : offsets) {
+      int n = p + d;
+      byte c = cells[n];
+      if (c != EMPTY && c != BORDER && find(n) == root) count++;
+    }
+    return count;
+  }
+
+  private int find(int p) {
+    while (parent[p] != p) {
+      parent[p] = parent[parent[p]];
+      p = parent[p];
+    }
+    return p;
+  }
+
+  private void union(int a, int b) {
+    if (a == b) return;
+    if (chainSize[a] < chainSize[b]) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    parent[b] = a;
+    chainSize[a] += chainSize[b];
+    liberties[a] += liberties[b];
+
+    // Splice the two circular stone lists
+    int t = nextStone[a];
+    nextStone[a] = nextStone[b];
+    nextStone[b] = t;
+  }
+
+  // Remove the chain rooted at `root`, giving its cells back as liberties to adjacent chains
+  private void removeChain(int root, UndoRecord record) {
+    int s = root;
+    do {
+      if (record != null) record.addCaptured(pointIndex(s));
+      lastCaptured[lastCapturedCount++] = pointIndex(s);
+      hash ^= stoneKey(s, cells[s]);
+      cells[s] = EMPTY;
+      s = nextStone[s];
+    } while (s != root);
+
+    do {
+      for (int d : offsets) {
+        int n = s + d;
+        byte c = cells[n];
+        if (c != EMPTY && c != BORDER) {
+          liberties[find(n)]++;
+        }
+      }
+      s = nextStone[s];
+    } while (s != root);
+  }
+
+  // Rebuild the union-find after raw setColor writes
+  private void ensureChains() {
+    if (!chainsDirty) return;
+    chainsDirty = false;
+
+    int mark = nextStamp();
+    for (int start = 0; start < cells.length; start++) {
+      rebuildChain(start, mark);
+    }
+  }
+
+  // Rebuild the chains of all stones next to cell p
+  private void rebuildAround(int p, int mark) {
+    for (int d : offsets) {
+      rebuildChain(p + d, mark);
+    }
+  }
+
+  // Re-derive root, stone list, size and pseudo-liberties of the chain at `start` from the cells,
+  // unless it is not a stone or was already rebuilt under `mark`
+  private void rebuildChain(int start, int mark) {
+    byte c = cells[start];
+    if (c == EMPTY || c == BORDER || marks[start] == mark) return;
+
+    int top = 0;
+    int read = 0;
+    int libs = 0;
+    stack[top++] = start;
+    marks[start] = mark;
+    while (read < top) {
+      int s = stack[read++];
+      for (int d : offsets) {
+        int n = s + d;
+        if (cells[n] == EMPTY) {
+          libs++;
+        } else if (cells[n] == c && marks[n] != mark) {
+          marks[n] = mark;
+          stack[top++] = n;
+        }
+      }
+    }
+
+    for (int i = 0; i < top; i++) {
+      parent[stack[i]] = start;
+      nextStone[stack[i]] = stack[(i + 1) % top];
+    }
+    chainSize[start] = top;
+    liberties[start] = libs;
+  }
+
+  /* package-private - answered from the union-find for Chain */
+  boolean isChainCaptured(Point stone) {
+    int p = pos(stone.x, stone.y);
+    byte c = cells[p];
+    if (c == EMPTY || c == BORDER) return false;
+    ensureChains();
+    return liberties[find(p)] == 0;
+  }
+
+  Set<Point> chainLiberties(Point stone) {
+    Set<Point> result = new HashSet<>();
+    int p = pos(stone.x, stone.y);
+    byte c = cells[p];
+    if (c == EMPTY || c == BORDER) return result;
+    ensureChains();
+
+    int mark = nextStamp();
+    int s = p;
+    do {
+      for (int d : offsets) {
+        int n = s + d;
+        if (cells[n] == EMPTY && marks[n] != mark) {
+          marks[n] = mark;
+          result.add(Point.of(xOf(n), yOf(n)));
+        }
+      }
+      s = nextStone[s];
+    } while (s != p);
+    return result;
+  }
+
+  // Collect the chain containing cell `start` into stack[0..result)
+  private int collectChain(int start) {
+    byte color = cells[start];
+    int mark = nextStamp();
+    int top = 0;
+    int read = 0;
+    stack[top++] = start;
+    marks[start] = mark;
+
+    while (read < top) {
+      int p = stack[read++];
+      for (int d : offsets) {
+        int n = p + d;
+        if (cells[n] == color && marks[n] != mark) {
+          marks[n] = mark;
+          stack[top++] = n;
+        }
+      }
     }
+    return top;
+  }
+
+  private void changed(int move) {
+    version++;
+    lastMove = move;
+    lastCapturedCount = 0;
+  }
+
+  private int nextStamp() {
+    if (++stamp == 0) {
+      Arrays.fill(marks, 0);
+      stamp = 1;
+    }
+    return stamp;
+  }
+
+  // Cell of (x, y), unchecked: off the board it is a border cell or a cell of another row
+  private int pos(int x, int y) {
+    return (y + 1) * stride + x + 1;
+  }
+
+  // Cell of (x, y), for public entry points that take coordinates from callers
+  private int checkedPos(int x, int y) {
+    if (!isInside(x, y)) {
+      throw new ArrayIndexOutOfBoundsException(
+          "Point " + x + "," + y + " is off the " + size + "x" + size + " board");
+    }
+    return pos(x, y);
+  }
+
+  private int xOf(int pos) {
+    return pos % stride - 1;
+  }
+
+  private int yOf(int pos) {
+    return pos / stride - 1;
+  }
+
+  private int pointIndex(int pos) {
+    return pointIndex[pos];
+  }
+
+  private int posOf(int index) {
+    return pos(index % size, index / size);
+  }
+
+  private long stoneKey(int pos, byte code) {
+    if (code != BLACK && code != WHITE) return 0L;
+    return zobrist[pointIndex(pos) * 2 + code - 1];
+  }
+
+  private static byte code(Color color) {
+    return switch (color) {
+      case BLACK -> BLACK;
+      case WHITE -> WHITE;
+      case EMPTY -> EMPTY;
+    };
   }
 
   // Create a deep copy of the board
   public Board clone() {
-    Board copy = new Board(size);
-    for (int i = 0; i < size; i++) {
-      System.arraycopy(grid[i], 0, copy.grid[i], 0, size);
-    }
-    return copy;
+    return new Board(this);
   }
 
   // Check if two boards are equal (for KO)
@@ -138,40 +724,42 @@ public class Board {
   public boolean equals(Object obj) {
     if (!(obj instanceof Board)) return false;
     Board other = (Board) obj;
-    return Arrays.deepEquals(grid, other.grid);
+    return size == other.size && Arrays.equals(cells, other.cells);
   }
 
   @Override
   public int hashCode() {
-    return Arrays.deepHashCode(grid);
+    return Long.hashCode(hash);
   }
 
   public List<Point> getCapturedStones(Color color, int x, int y) {
     List<Point> capturedPoints = new ArrayList<>();
-    Set<Point> capturedSet = new HashSet<>();
 
     // Check if position is valid first
-    if (!isInside(x, y) || grid[x][y] != Color.EMPTY) {
+    if (!isInside(x, y) || cells[pos(x, y)] != EMPTY) {
       return capturedPoints;
     }
 
-    // Temporarily place the stone to check what will be captured
-    grid[x][y] = color;
+    ensureChains();
+    int p = pos(x, y);
+    byte enemy = code(color.opposite());
+    int mark = nextStamp();
 
-    // Check enemy chains
-    for (Point n : neighbors(new Point(x, y))) {
-      if (get(n.x, n.y) == color.opposite()) {
-        Chain enemy = getChain(n);
-        if (countLiberties(enemy) == 0) {
-          capturedSet.addAll(enemy.getStones());
-        }
-      }
-    }
+    // An enemy chain dies if all of its pseudo-liberties are at p
+    for (int d : offsets) {
+      int n = p + d;
+      if (cells[n] != enemy) continue;
+      int root = find(n);
+      if (marks[root] == mark || liberties[root] != contacts(p, root)) continue;
+      marks[root] = mark;
 
-    // Restore the board
-    grid[x][y] = Color.EMPTY;
+      int s = root;
+      do {
+        capturedPoints.add(Point.of(xOf(s), yOf(s)));
+        s = nextStone[s];
+      } while (s != root);
+    }
 
-    capturedPoints.addAll(capturedSet);
     return capturedPoints;
   }
 }
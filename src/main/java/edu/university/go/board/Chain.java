@@ -1,22 +1,64 @@
 package edu.university.go.board;
 
+import java.util.AbstractSet;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class Chain {
   private final Color color;
-  private final Set<Point> stones = new HashSet<>();
+
+  // Stones keyed by point index (y * size + x)
+  private final int size;
+  private final BitSet stones = new BitSet();
+  private int count = 0;
+  private final Set<Point> stoneView = new StoneView();
+
+  // Stone the chain was read from, if it came from Board.getChain, and that board and its version
+  // then; once the board has changed, the snapshot may no longer be the chain at the anchor
+  private final Point anchor;
+  private final Board source;
+  private final long version;
 
   public Chain(Color color) {
+    this(color, null, Point.MAX_SIZE, null);
+  }
+
+  /* package-private - chains produced by Board.getChain */
+  Chain(Color color, Point anchor, int size, Board source) {
     this.color = color;
+    this.anchor = anchor;
+    this.size = size;
+    this.source = source;
+    this.version = source == null ? -1 : source.getVersion();
   }
 
+  /**
+   * Add a stone.
+   *
+   * @throws IllegalArgumentException if the point has a negative coordinate, or one too large for
+   *     the board the chain is on ({@link Point#MAX_SIZE} for chains built by hand)
+   */
   public void add(Point p) {
-    stones.add(p);
+    if (p.x < 0 || p.x >= size || p.y < 0 || p.y >= size) {
+      throw new IllegalArgumentException(
+          "Point " + p.x + "," + p.y + " is outside a " + size + "x" + size + " board");
+    }
+    addIndex(p.index(size));
   }
 
+  void addIndex(int index) {
+    if (!stones.get(index)) {
+      stones.set(index);
+      count++;
+    }
+  }
+
+  /** Stones of the chain; a read-only view backed by the chain's index set. */
   public Set<Point> getStones() {
-    return stones;
+    return stoneView;
   }
 
   public Color getColor() {
@@ -24,8 +66,12 @@ public class Chain {
   }
 
   public Set<Point> getLiberties(Board board) {
+    if (tracksBoard(board)) {
+      return board.chainLiberties(anchor);
+    }
+
     Set<Point> liberties = new HashSet<>();
-    for (Point stone : stones) {
+    for (Point stone : stoneView) {
       for (Point neighbor : board.neighbors(stone)) {
         if (board.get(neighbor.x, neighbor.y) == Color.EMPTY) {
           liberties.add(neighbor);
@@ -36,10 +82,57 @@ public class Chain {
   }
 
   public boolean isCaptured(Board board) {
+    if (tracksBoard(board)) {
+      return board.isChainCaptured(anchor);
+    }
     return getLiberties(board).isEmpty();
   }
 
   public int size() {
-    return stones.size();
+    return count;
+  }
+
+  // Whether the board's union-find still holds exactly this chain's stones: the board it was read
+  // from, unchanged since; otherwise the answer comes from the snapshot's own stones
+  private boolean tracksBoard(Board board) {
+    return anchor != null
+        && color != Color.EMPTY
+        && board == source
+        && board.getVersion() == version;
+  }
+
+  private class StoneView extends AbstractSet<Point> {
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Point)) return false;
+      Point p = (Point) o;
+      return p.x >= 0 && p.x < size && p.y >= 0 && stones.get(p.index(size));
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+      return new Iterator<>() {
+        private int next = stones.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public Point next() {
+          if (next < 0) throw new NoSuchElementException();
+          Point p = Point.fromIndex(next, size);
+          next = stones.nextSetBit(next + 1);
+          return p;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
   }
 }
@@ -1,8 +1,28 @@
 package edu.university.go.board;
 
-import java.util.Objects;
-
+/**
+ * Board coordinate.
+ *
+ * <p>Points are immutable, so {@link #of} hands out canonical instances from a shared table instead
+ * of allocating. One table serves every board size up to {@link #MAX_SIZE}, since a point's
+ * coordinates do not depend on the board it is used with. Code that keeps sets of points should key
+ * them by {@link #index(int)} instead.
+ */
 public class Point {
+
+  /** Largest board size with canonical points. */
+  public static final int MAX_SIZE = 25;
+
+  private static final Point[] TABLE = new Point[MAX_SIZE * MAX_SIZE];
+
+  static {
+    for (int y = 0; y < MAX_SIZE; y++) {
+      for (int x = 0; x < MAX_SIZE; x++) {
+        TABLE[y * MAX_SIZE + x] = new Point(x, y);
+      }
+    }
+  }
+
   public final int x;
   public final int y;
 
@@ -11,6 +31,24 @@ public class Point {
     this.y = y;
   }
 
+  /** Canonical point for (x, y); coordinates outside the table get a fresh instance. */
+  public static Point of(int x, int y) {
+    if (x >= 0 && x < MAX_SIZE && y >= 0 && y < MAX_SIZE) {
+      return TABLE[y * MAX_SIZE + x];
+    }
+    return new Point(x, y);
+  }
+
+  /** Point for an index produced by {@link #index(int)} on a board of the given size. */
+  public static Point fromIndex(int index, int size) {
+    return of(index % size, index / size);
+  }
+
+  /** Flat index of this point on a board of the given size: {@code y * size + x}. */
+  public int index(int size) {
+    return y * size + x;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -21,6 +59,6 @@ public class Point {
 
   @Override
   public int hashCode() {
-    return Objects.hash(x, y);
+    return 31 * x + y;
   }
 }
@@ -0,0 +1,53 @@
+package edu.university.go.board;
+
+/**
+ * Everything {@link Board#undo} needs to take back one {@link Board#play}: the point played, the
+ * stones it captured, and the ko point and hash from before the move.
+ *
+ * <p>Records are owned and recycled by the board that produced them, so a record is only valid
+ * until it has been passed to {@link Board#undo}. Point indices are {@code y * size + x}.
+ */
+public final class UndoRecord {
+
+  int move;
+  byte color;
+  int[] captured = new int[8];
+  int capturedCount;
+  int previousKoPoint;
+  long previousHash;
+
+  UndoRecord() {}
+
+  void addCaptured(int index) {
+    if (capturedCount == captured.length) {
+      int[] grown = new int[captured.length * 2];
+      System.arraycopy(captured, 0, grown, 0, capturedCount);
+      captured = grown;
+    }
+    captured[capturedCount++] = index;
+  }
+
+  /** Index of the point the stone was played on. */
+  public int move() {
+    return move;
+  }
+
+  public int capturedCount() {
+    return capturedCount;
+  }
+
+  /** Index of the i-th captured stone. */
+  public int captured(int i) {
+    return captured[i];
+  }
+
+  /** Ko point before the move, or -1. */
+  public int previousKoPoint() {
+    return previousKoPoint;
+  }
+
+  /** {@link Board#getHash()} before the move. */
+  public long previousHash() {
+    return previousHash;
+  }
+}
@@ -0,0 +1,52 @@
+package edu.university.go.board;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist keys for position hashing.
+ *
+ * <p>Every (point, color) pair gets a fixed random 64-bit key and a position hash is the XOR of the
+ * keys of all stones on the board. Keys are derived from a fixed seed, so the same position always
+ * hashes to the same value for a given board size, across boards and across runs.
+ */
+public final class Zobrist {
+
+  private static final long SEED = 0x5DEECE66DL;
+  private static final Map<Integer, long[]> TABLES = new ConcurrentHashMap<>();
+
+  private Zobrist() {
+    // utility class
+  }
+
+  /**
+   * Key table for a board size, laid out as {@code keys[index * 2 + c]} where {@code index = y *
+   * size + x} and {@code c} is 0 for black and 1 for white.
+   */
+  static long[] table(int size) {
+    return TABLES.computeIfAbsent(size, Zobrist::generate);
+  }
+
+  /** Key of a single stone. */
+  public static long key(int size, Color color, int x, int y) {
+    if (color == Color.EMPTY) return 0L;
+    return table(size)[(y * size + x) * 2 + (color == Color.BLACK ? 0 : 1)];
+  }
+
+  private static long[] generate(int size) {
+    long[] keys = new long[size * size * 2];
+    long state = SEED ^ ((long) size << 32);
+    for (int i = 0; i < keys.length; i++) {
+      state += 0x9E3779B97F4A7C15L;
+      keys[i] = mix(state);
+    }
+    return keys;
+  }
+
+  // splitmix64 finalizer
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
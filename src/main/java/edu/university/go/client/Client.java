@@ -1,34 +1,109 @@
 package edu.university.go.client;
 
+import edu.university.go.protocol.BinaryCodec;
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
+/**
+ * Connection to a game server. Speaks the text protocol, or with {@code binary} set the {@link
+ * BinaryCodec} frames; either way commands are sent and replies received as text lines.
+ */
 public class Client {
 
   private final String host;
   private final int port;
+  private final boolean binary;
 
   private Socket socket;
   private BufferedReader in;
   private PrintWriter out;
 
+  // Binary mode
+  private InputStream rawIn;
+  private OutputStream rawOut;
+  private final BinaryCodec sendCodec = new BinaryCodec();
+  private final BinaryCodec receiveCodec = new BinaryCodec();
+  private final ByteBuffer sendBuffer = ByteBuffer.allocate(BinaryCodec.MAX_FRAME + 2);
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocate(BinaryCodec.MAX_FRAME + 2);
+  private final StringBuilder line = new StringBuilder(128);
+
   public Client(String host, int port) {
+    this(host, port, false);
+  }
+
+  public Client(String host, int port, boolean binary) {
     this.host = host;
     this.port = port;
+    this.binary = binary;
   }
 
   public void connect() throws IOException {
     socket = new Socket(host, port);
-    in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-    out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+    if (!binary) {
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+      out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+      return;
+    }
+
+    rawIn = new BufferedInputStream(socket.getInputStream());
+    rawOut = new BufferedOutputStream(socket.getOutputStream());
+    rawOut.write(BinaryCodec.MAGIC);
+    rawOut.write(BinaryCodec.VERSION);
+    rawOut.flush();
+    // The server greets in text before it sees the upgrade, then repeats it as a frame
+    int b;
+    while ((b = rawIn.read()) >= 0 && b != '\n') {
+      // skip
+    }
   }
 
   public void send(String command) {
-    out.println(command);
+    if (!binary) {
+      out.println(command);
+      return;
+    }
+    synchronized (sendBuffer) {
+      sendBuffer.clear();
+      sendCodec.encodeCommand(command, sendBuffer);
+      try {
+        rawOut.write(sendBuffer.array(), 0, sendBuffer.position());
+        rawOut.flush();
+      } catch (IOException e) {
+        System.err.println("Error sending to server: " + e.getMessage());
+      }
+    }
   }
 
   public String receive() throws IOException {
-    return in.readLine();
+    if (!binary) {
+      return in.readLine();
+    }
+    return readFrame() ? line.toString() : null;
+  }
+
+  // Next frame decoded into `line`, or false at end of stream
+  private boolean readFrame() throws IOException {
+    receiveBuffer.clear();
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = rawIn.read();
+      if (b < 0) return false;
+      receiveBuffer.put((byte) b);
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) break;
+      if (shift > 0) throw new IOException("Bad frame length");
+    }
+    int header = receiveBuffer.position();
+    if (rawIn.readNBytes(receiveBuffer.array(), header, length) < length) return false;
+    receiveBuffer.position(0).limit(header + length);
+    line.setLength(0);
+    try {
+      receiveCodec.decodeReply(receiveBuffer, line);
+    } catch (RuntimeException e) {
+      throw new IOException("Bad frame: " + e.getMessage(), e);
+    }
+    return true;
   }
 
   public void close() throws IOException {
@@ -42,7 +117,7 @@ public class Client {
 
   /**
    * Start listening for messages from the server in a background thread. Calls the provided
-   * callback when messages arrive.
+   * callback when messages arrive; heartbeat PINGs are answered here and not passed on.
    *
    * @param callback Function to call with incoming messages
    */
@@ -52,8 +127,12 @@ public class Client {
             () -> {
               try {
                 String line;
-                while ((line = in.readLine()) != null) {
-                  callback.accept(line);
+                while ((line = receive()) != null) {
+                  if (line.equals("PING")) {
+                    send("PONG");
+                  } else {
+                    callback.accept(line);
+                  }
                 }
               } catch (IOException e) {
                 System.err.println("Error reading from server: " + e.getMessage());
@@ -46,8 +46,8 @@ public class EnhancedGameController {
 
     Color currentColor = game.getCurrentTurn();
 
-    // Save board state before the move for Ko rule validation
-    Board boardBeforeMove = board.clone();
+    // Save the position hash before the move for Ko rule validation
+    long hashBeforeMove = board.getHash();
 
     // Check for Ko violation
     if (koValidator.isKoViolation(board, x, y, currentColor)) {
@@ -91,8 +91,8 @@ public class EnhancedGameController {
         }
       }
 
-      // Update state for Ko after move succeeded (pass the board BEFORE the move)
-      koValidator.updateState(boardBeforeMove);
+      // Update state for Ko after move succeeded (pass the hash BEFORE the move)
+      koValidator.updateState(hashBeforeMove);
 
       // Reset passes
       consecutivePasses = 0;
@@ -0,0 +1,14 @@
+package edu.university.go.game;
+
+class Finished implements GameState {
+
+  @Override
+  public void addPlayer(Game game, String playerId) {
+    throw new IllegalStateException("Game is over");
+  }
+
+  @Override
+  public void makeMove(Game game, Move move) {
+    throw new IllegalStateException("Game is over");
+  }
+}
@@ -3,15 +3,24 @@ package edu.university.go.game;
 import edu.university.go.board.Board;
 import edu.university.go.board.Color;
 import edu.university.go.validators.KoRule;
+import edu.university.go.validators.KoValidator;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Game {
 
   private final Board board;
   private GameState state;
   private Color currentTurn = Color.BLACK;
-  private final KoRule koRule = new KoRule();
+  private final KoValidator koRule;
+  // Null for an untimed game
+  private final GameClock clock;
+  private Color timedOut;
+  // Moves accepted so far, passes and a resignation included
+  private final List<Move> moves = new ArrayList<>();
 
   public int blackPlacedStones = 0;
   public int whitePlacedStones = 0;
@@ -34,10 +43,26 @@ public class Game {
     return whitePassStones;
   }
 
-  private final List<GameObserver> observers = new ArrayList<>();
+  // Observers may be added from another thread than the one making moves
+  private final List<GameObserver> observers = new CopyOnWriteArrayList<>();
 
   public Game(Board board) {
+    this(board, new KoRule());
+  }
+
+  /**
+   * Create a game with a specific repetition rule, e.g. {@link
+   * edu.university.go.validators.SuperkoRule} for AGA, Chinese or NZ rulesets.
+   */
+  public Game(Board board, KoValidator koRule) {
+    this(board, koRule, null);
+  }
+
+  /** Create a game played on {@code clock}, or untimed if it is null. */
+  public Game(Board board, KoValidator koRule, GameClock clock) {
     this.board = board;
+    this.koRule = koRule;
+    this.clock = clock;
     this.state = new WaitingForPlayers();
   }
 
@@ -54,6 +79,72 @@ public class Game {
     this.state = state;
   }
 
+  /**
+   * End the game if the player to move has run out of time, see {@link GameClock}. Returns whether
+   * it ended; the loser is then {@link #getTimedOut}.
+   */
+  public boolean checkTime() {
+    if (state instanceof InProgress && hasFlagFallen()) {
+      timeOut(currentTurn);
+      return true;
+    }
+    return false;
+  }
+
+  /** Whether the game has ended, by passes, resignation or time. */
+  public boolean isOver() {
+    return state instanceof Finished;
+  }
+
+  /** Clock of a timed game, or null. */
+  public GameClock getClock() {
+    return clock;
+  }
+
+  /** Moves played so far, oldest first, e.g. to write the game to SGF. */
+  public List<Move> getMoves() {
+    return Collections.unmodifiableList(moves);
+  }
+
+  void record(Move move) {
+    moves.add(move);
+  }
+
+  /** The player who lost on time, or null. */
+  public Color getTimedOut() {
+    return timedOut;
+  }
+
+  void startClock() {
+    if (clock != null) {
+      clock.start(currentTurn);
+    }
+  }
+
+  void punchClock(Color mover) {
+    if (clock != null) {
+      clock.punch(mover);
+    }
+  }
+
+  boolean hasFlagFallen() {
+    return clock != null && clock.hasFlagFallen();
+  }
+
+  void timeOut(Color loser) {
+    timedOut = loser;
+    end();
+  }
+
+  // No more moves; stops the clock and tells the observers
+  void end() {
+    setState(new Finished());
+    if (clock != null) {
+      clock.stop();
+    }
+    notifyObservers(GameEvent.GAME_ENDED);
+  }
+
   void switchTurn() {
     currentTurn = currentTurn.opposite();
   }
@@ -66,10 +157,15 @@ public class Game {
     return board;
   }
 
-  public KoRule getKoRule() {
+  public KoValidator getKoRule() {
     return koRule;
   }
 
+  /** Legal points for the player to move, ko included (see {@link Board#legalMoves}). */
+  public BitSet getLegalMoves() {
+    return koRule.legalMoves(board, currentTurn);
+  }
+
   /* ===== Observer ===== */
 
   public void addObserver(GameObserver observer) {
@@ -0,0 +1,131 @@
+package edu.university.go.game;
+
+import edu.university.go.board.Color;
+import java.util.function.LongSupplier;
+
+/**
+ * The two players' clocks under one {@link TimeControl}. Only the player to move has a running
+ * clock; {@link #punch} stops it and starts the opponent's.
+ *
+ * <p>Main time runs down first. Under Fischer the increment is added after every move, and a player
+ * whose main time is used up has lost. Under byoyomi a player then plays in periods: a move within
+ * the current period keeps it, every period that passes entirely is lost, and the flag falls when
+ * the last one runs out.
+ *
+ * <p>Not thread-safe; the game's session uses it from one thread at a time.
+ */
+public final class GameClock {
+
+  private final TimeControl control;
+  private final LongSupplier millis;
+  // Indexed by side(color); main time left and byoyomi periods left as of the last punch
+  private final long[] main = new long[2];
+  private final int[] periods = new int[2];
+  private Color running;
+  private long since;
+
+  public GameClock(TimeControl control) {
+    this(control, () -> System.nanoTime() / 1_000_000);
+  }
+
+  /** With its own time source, in milliseconds. */
+  public GameClock(TimeControl control, LongSupplier millis) {
+    this.control = control;
+    this.millis = millis;
+    for (int i = 0; i < 2; i++) {
+      main[i] = control.mainMillis();
+      periods[i] = control.periods();
+    }
+  }
+
+  public TimeControl getTimeControl() {
+    return control;
+  }
+
+  /** Start the first player's clock. */
+  void start(Color first) {
+    running = first;
+    since = millis.getAsLong();
+  }
+
+  /**
+   * Charge {@code mover} for the time since their clock started and start the opponent's. The
+   * caller checks {@link #hasFlagFallen} first; a move that still comes in late keeps the player at
+   * no time left rather than failing.
+   */
+  void punch(Color mover) {
+    if (running != mover) {
+      throw new IllegalStateException("Clock of " + mover + " is not running");
+    }
+    long now = millis.getAsLong();
+    long elapsed = now - since;
+    int i = side(mover);
+    if (elapsed <= main[i]) {
+      main[i] = main[i] - elapsed + control.incrementMillis();
+    } else if (control.isByoyomi()) {
+      // Lose the periods used up, keep the one the move was made in
+      long lost = (elapsed - main[i]) / control.periodMillis();
+      periods[i] = (int) Math.max(1, periods[i] - lost);
+      main[i] = 0;
+    } else {
+      main[i] = control.incrementMillis();
+    }
+    running = mover.opposite();
+    since = now;
+  }
+
+  /** Stop both clocks, e.g. when the game is over. */
+  void stop() {
+    if (running != null) {
+      int i = side(running);
+      long elapsed = millis.getAsLong() - since;
+      main[i] = Math.max(0, main[i] - elapsed);
+      running = null;
+    }
+  }
+
+  /** Whose clock runs, or null before the game or after it. */
+  public Color getRunning() {
+    return running;
+  }
+
+  /** Milliseconds until the running player's flag falls; {@link Long#MAX_VALUE} if none runs. */
+  public long millisUntilFlag() {
+    if (running == null) {
+      return Long.MAX_VALUE;
+    }
+    return untilFlag(side(running), millis.getAsLong() - since);
+  }
+
+  public boolean hasFlagFallen() {
+    return millisUntilFlag() <= 0;
+  }
+
+  /** Main time {@code color} has left right now; 0 once in byoyomi. */
+  public long getMainMillis(Color color) {
+    int i = side(color);
+    return Math.max(0, main[i] - elapsed(color));
+  }
+
+  /** Byoyomi periods {@code color} has left right now, counting the current one. */
+  public int getPeriods(Color color) {
+    int i = side(color);
+    long over = elapsed(color) - main[i];
+    if (over <= 0 || !control.isByoyomi()) {
+      return periods[i];
+    }
+    return (int) Math.max(0, periods[i] - over / control.periodMillis());
+  }
+
+  private long untilFlag(int i, long elapsed) {
+    return main[i] + periods[i] * control.periodMillis() - elapsed;
+  }
+
+  private long elapsed(Color color) {
+    return color == running ? millis.getAsLong() - since : 0;
+  }
+
+  private static int side(Color color) {
+    return color == Color.BLACK ? 0 : 1;
+  }
+}
@@ -29,28 +29,38 @@ class InProgress implements GameState {
       throw new IllegalStateException("Not your turn");
     }
 
+    // A move after flag-fall loses on time instead
+    if (game.hasFlagFallen()) {
+      game.timeOut(move.color());
+      return;
+    }
+
     // Handle PASS and RESIGN moves
     if (move.isPass()) {
       consecutivePasses++;
+      game.getKoRule().onPass(game.getBoard(), move.color());
       if (move.color() == Color.BLACK) {
         game.blackPassStones++;
       } else {
         game.whitePassStones++;
       }
+      game.punchClock(move.color());
       game.switchTurn();
+      game.record(move);
       game.notifyObservers(GameEvent.MOVE_PLAYED);
 
       // Check if game should end after 2 consecutive passes
       if (consecutivePasses >= 2) {
-        game.notifyObservers(GameEvent.GAME_ENDED);
+        game.end();
       }
 
       return;
     }
 
     if (move.isResign()) {
+      game.record(move);
       game.notifyObservers(GameEvent.MOVE_PLAYED);
-      game.notifyObservers(GameEvent.GAME_ENDED);
+      game.end();
       // Game ends, no turn switch needed
       return;
     }
@@ -61,8 +71,8 @@ class InProgress implements GameState {
     // Handle regular stone placement
     Board board = game.getBoard();
 
-    // Clone the board before the move for Ko rule updates
-    Board boardBefore = board.clone();
+    // Remember the position hash before the move for Ko rule updates
+    long hashBefore = board.getHash();
 
     // Check Ko rule violation before placing the stone
     if (game.getKoRule().isKoViolation(board, move.x(), move.y(), move.color())) {
@@ -76,13 +86,15 @@ class InProgress implements GameState {
     }
 
     // Update Ko rule state after successful move
-    game.getKoRule().updateState(boardBefore);
+    game.getKoRule().updateState(hashBefore, move.color());
     if (move.color() == Color.BLACK) {
       game.blackPlacedStones++;
     } else {
       game.whitePlacedStones++;
     }
+    game.punchClock(move.color());
     game.switchTurn();
+    game.record(move);
     game.notifyObservers(GameEvent.MOVE_PLAYED);
   }
 }
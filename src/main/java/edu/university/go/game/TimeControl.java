@@ -0,0 +1,87 @@
+package edu.university.go.game;
+
+/**
+ * Time allowed per player: main time, then either a Fischer increment added after every move or
+ * Japanese byoyomi periods. All durations are in milliseconds.
+ *
+ * <p>Written as {@code none}, {@code fischer:<main>+<increment>} or {@code
+ * byoyomi:<main>+<periods>x<period>}, in seconds, e.g. {@code fischer:300+5} or {@code
+ * byoyomi:600+5x30}.
+ */
+public record TimeControl(long mainMillis, long incrementMillis, int periods, long periodMillis) {
+
+  /** No clock at all. */
+  public static final TimeControl NONE = new TimeControl(0, 0, 0, 0);
+
+  public TimeControl {
+    if (mainMillis < 0 || incrementMillis < 0 || periods < 0 || periodMillis < 0) {
+      throw new IllegalArgumentException("Time control values must not be negative");
+    }
+    if (periods > 0 && (periodMillis == 0 || incrementMillis > 0)) {
+      throw new IllegalArgumentException("Byoyomi needs a period length and no increment");
+    }
+  }
+
+  public static TimeControl fischer(long mainMillis, long incrementMillis) {
+    return new TimeControl(mainMillis, incrementMillis, 0, 0);
+  }
+
+  public static TimeControl byoyomi(long mainMillis, int periods, long periodMillis) {
+    if (periods < 1) {
+      throw new IllegalArgumentException("Byoyomi needs at least one period");
+    }
+    return new TimeControl(mainMillis, 0, periods, periodMillis);
+  }
+
+  public boolean isUntimed() {
+    return mainMillis == 0 && periods == 0;
+  }
+
+  public boolean isByoyomi() {
+    return periods > 0;
+  }
+
+  /**
+   * Parse the written form described above.
+   *
+   * @throws IllegalArgumentException if it is not one
+   */
+  public static TimeControl parse(String text) {
+    String s = text.trim().toLowerCase();
+    try {
+      if (s.equals("none")) {
+        return NONE;
+      }
+      if (s.startsWith("fischer:")) {
+        String[] parts = s.substring("fischer:".length()).split("\\+");
+        if (parts.length == 2) {
+          return fischer(seconds(parts[0]), seconds(parts[1]));
+        }
+      }
+      if (s.startsWith("byoyomi:")) {
+        String[] parts = s.substring("byoyomi:".length()).split("[+x]");
+        if (parts.length == 3) {
+          return byoyomi(seconds(parts[0]), Integer.parseInt(parts[1]), seconds(parts[2]));
+        }
+      }
+    } catch (NumberFormatException e) {
+      // fall through
+    }
+    throw new IllegalArgumentException("Unknown time control: " + text);
+  }
+
+  private static long seconds(String s) {
+    return Long.parseLong(s) * 1000;
+  }
+
+  @Override
+  public String toString() {
+    if (isUntimed()) {
+      return "none";
+    }
+    if (isByoyomi()) {
+      return "byoyomi:" + mainMillis / 1000 + "+" + periods + "x" + periodMillis / 1000;
+    }
+    return "fischer:" + mainMillis / 1000 + "+" + incrementMillis / 1000;
+  }
+}
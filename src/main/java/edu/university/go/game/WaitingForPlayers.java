@@ -14,6 +14,7 @@ class WaitingForPlayers implements GameState {
       // Reset Ko rule at start
       game.getKoRule().reset();
       game.setState(new InProgress(players));
+      game.startClock();
       game.notifyObservers(GameEvent.GAME_STARTED);
     }
   }
@@ -0,0 +1,398 @@
+package edu.university.go.index;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.sgf.SgfListener;
+import edu.university.go.sgf.SgfReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link PositionIndex} from SGF collections on several threads.
+ *
+ * <p>The collections are cut into chunks of whole game trees, large files at top-level {@code (}
+ * found by a quick scan, and the threads take chunks in order. Each thread replays its chunks with
+ * its own {@link SgfReader}, collects (key, value) pairs for positions and patterns in two arrays,
+ * and sorts and writes each array as a run file when it fills up. A thread takes chunks in order,
+ * so its pairs come in value order and only need sorting by key. Once every chunk is read, the
+ * games of each chunk have their ids, and the runs of each kind are merged into one sorted file.
+ *
+ * <p>While building, a value is {@code chunk << 40 | game in chunk << 16 | move}; the merge turns
+ * it into {@code game id << 16 | move}, which keeps the order.
+ */
+final class IndexBuilder {
+
+  // Pairs per run buffer; two buffers and a scratch one for sorting, of 16 bytes a pair, per thread
+  static final int RUN_PAIRS = 1 << 20;
+  private static final int SCAN_BUFFER = 1 << 16;
+  // Largest board SGF allows
+  private static final int MAX_SIZE = 52;
+  static final long MIN_CHUNK = 16L << 20;
+  private static final long MAX_CHUNK = 256L << 20;
+  private static final int MAX_CHUNKS = 1 << 24;
+  private static final long MAX_GAMES_PER_CHUNK = 1L << 24;
+
+  private record Chunk(int collection, Path file, long start, long end) {}
+
+  private final Path dir;
+  private final int threads;
+  private final int runPairs;
+  private final long minChunk;
+  private final Path runsDir;
+  private final List<Path> positionRuns = new ArrayList<>();
+  private final List<Path> patternRuns = new ArrayList<>();
+
+  IndexBuilder(Path dir, int threads, int runPairs, long minChunk) {
+    this.dir = dir;
+    this.threads = threads;
+    this.runPairs = runPairs;
+    this.minChunk = minChunk;
+    this.runsDir = dir.resolve("runs");
+  }
+
+  /** Index every game of {@code collections}, files or directories of .sgf files, in order. */
+  void build(List<Path> collections) throws IOException {
+    List<Path> files = files(collections);
+    List<Chunk> chunks = chunks(files);
+    Files.createDirectories(runsDir);
+    long[] games = new long[chunks.size()];
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      Queue<Integer> next = new ConcurrentLinkedQueue<>();
+      for (int c = 0; c < chunks.size(); c++) {
+        next.add(c);
+      }
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        workers.add(
+            pool.submit(
+                () -> {
+                  new Worker(thread).run(chunks, next, games);
+                  return null;
+                }));
+      }
+      await(workers);
+
+      // Ids run through the chunks in order
+      long[] firstGame = new long[chunks.size()];
+      long total = 0;
+      for (int c = 0; c < chunks.size(); c++) {
+        firstGame[c] = total;
+        total += games[c];
+      }
+      writeCollections(files, chunks, firstGame, games);
+      await(
+          List.of(
+              pool.submit(() -> merge(positionRuns, PositionIndex.POSITIONS, firstGame)),
+              pool.submit(() -> merge(patternRuns, PositionIndex.PATTERNS, firstGame))));
+    } finally {
+      pool.shutdownNow();
+      try (Stream<Path> runs = Files.list(runsDir)) {
+        for (Path run : runs.toList()) {
+          Files.delete(run);
+        }
+      }
+      Files.delete(runsDir);
+    }
+  }
+
+  private static void await(List<Future<?>> futures) throws IOException {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while building the index", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException io) throw io;
+      if (cause instanceof UncheckedIOException io) throw io.getCause();
+      if (cause instanceof RuntimeException runtime) throw runtime;
+      throw new IOException(cause);
+    }
+  }
+
+  private Void merge(List<Path> runs, String name, long[] firstGame) throws IOException {
+    Runs.merge(
+        runs,
+        dir.resolve(name),
+        value ->
+            (firstGame[(int) (value >>> 40)] + (value >>> 16 & 0xFFFFFF)) << 16 | value & 0xFFFF);
+    return null;
+  }
+
+  // Lines of first game id, number of games and file
+  private void writeCollections(
+      List<Path> files, List<Chunk> chunks, long[] firstGame, long[] games) throws IOException {
+    long[] first = new long[files.size()];
+    long[] count = new long[files.size()];
+    for (int c = chunks.size() - 1; c >= 0; c--) {
+      first[chunks.get(c).collection()] = firstGame[c];
+      count[chunks.get(c).collection()] += games[c];
+    }
+    try (BufferedWriter out =
+        Files.newBufferedWriter(dir.resolve(PositionIndex.COLLECTIONS), StandardCharsets.UTF_8)) {
+      for (int f = 0; f < files.size(); f++) {
+        out.write(first[f] + "\t" + count[f] + "\t" + files.get(f).toAbsolutePath());
+        out.newLine();
+      }
+    }
+  }
+
+  private static List<Path> files(List<Path> collections) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (Path path : collections) {
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> walk = Files.walk(path)) {
+          walk.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".sgf"))
+              .filter(Files::isRegularFile)
+              .sorted()
+              .forEach(files::add);
+        }
+      } else {
+        files.add(path);
+      }
+    }
+    return files;
+  }
+
+  // Large files are cut so every thread has work; small ones are a chunk each
+  private List<Chunk> chunks(List<Path> files) throws IOException {
+    long total = 0;
+    for (Path file : files) {
+      total += Files.size(file);
+    }
+    long target = Math.max(minChunk, Math.min(MAX_CHUNK, total / (4L * threads)));
+    List<Chunk> chunks = new ArrayList<>();
+    for (int f = 0; f < files.size(); f++) {
+      Path file = files.get(f);
+      long size = Files.size(file);
+      long start = 0;
+      if (size > target) {
+        for (long cut : cuts(file, target)) {
+          chunks.add(new Chunk(f, file, start, cut));
+          start = cut;
+        }
+      }
+      chunks.add(new Chunk(f, file, start, size));
+    }
+    if (chunks.size() > MAX_CHUNKS) {
+      throw new IllegalArgumentException("Too many collections to index: " + chunks.size());
+    }
+    return chunks;
+  }
+
+  // Offsets of the first top-level '(' at or after every multiple of step, past the start of the
+  // file. Brackets inside property values do not count.
+  private static List<Long> cuts(Path file, long step) throws IOException {
+    List<Long> cuts = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+    long next = step;
+    long offset = 0;
+    int depth = 0;
+    boolean inValue = false;
+    boolean escaped = false;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (channel.read(buffer.clear()) > 0) {
+        byte[] bytes = buffer.array();
+        for (int i = 0, n = buffer.position(); i < n; i++) {
+          byte b = bytes[i];
+          if (inValue) {
+            if (escaped) {
+              escaped = false;
+            } else if (b == '\\') {
+              escaped = true;
+            } else if (b == ']') {
+              inValue = false;
+            }
+          } else if (b == '(') {
+            if (depth == 0 && offset + i >= next) {
+              cuts.add(offset + i);
+              next = (offset + i) / step * step + step;
+            }
+            depth++;
+          } else if (depth > 0) {
+            if (b == ')') {
+              depth--;
+            } else if (b == '[') {
+              inValue = true;
+            }
+          }
+        }
+        offset += buffer.position();
+      }
+    }
+    return cuts;
+  }
+
+  /** One thread's reader, scratch hashes and run buffers. */
+  private final class Worker implements SgfListener {
+
+    private final int thread;
+    private final SgfReader reader = new SgfReader();
+    private final Symmetries[] symmetries = new Symmetries[MAX_SIZE + 1];
+    private final long[] positions = new long[2 * runPairs];
+    private final long[] patterns = new long[2 * runPairs];
+    private final long[] scratch = new long[2 * runPairs];
+    private int positionCount;
+    private int patternCount;
+    private int runs;
+
+    // Game being replayed
+    private long chunk;
+    private long game;
+    private int move;
+    private long version;
+    private Symmetries hashes;
+
+    Worker(int thread) {
+      this.thread = thread;
+    }
+
+    void run(List<Chunk> chunks, Queue<Integer> next, long[] games) throws IOException {
+      Integer c;
+      while ((c = next.poll()) != null) {
+        Chunk read = chunks.get(c);
+        chunk = c;
+        game = -1;
+        try (InputStream in = new Slice(read.file(), read.start(), read.end())) {
+          games[c] = reader.read(in, this);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException(read.file() + ": " + e.getMessage(), e);
+        }
+        if (games[c] > MAX_GAMES_PER_CHUNK) {
+          throw new IllegalArgumentException(read.file() + ": too many games in one chunk");
+        }
+      }
+      flushPositions();
+      flushPatterns();
+    }
+
+    @Override
+    public void gameStarted(SgfReader.GameInfo info, Board board) {
+      game++;
+      move = 0;
+      int size = board.getSize();
+      if (symmetries[size] == null) {
+        symmetries[size] = new Symmetries(size);
+      }
+      hashes = symmetries[size];
+      hashes.reset(board);
+      version = board.getVersion();
+      // Setup stones such as a handicap; the empty board is in every game
+      if (board.getHash() != 0) {
+        addPosition(hashes.positionKey());
+      }
+    }
+
+    @Override
+    public void movePlayed(Board board, Color color, int x, int y) {
+      move++;
+      if (x < 0 || move > 0xFFFF) return;
+      // Setup stones between moves change the board without a move of their own
+      if (board.getVersion() == version + 1) {
+        hashes.played(board);
+      } else {
+        hashes.reset(board);
+      }
+      version = board.getVersion();
+      addPosition(hashes.positionKey());
+      addPattern(hashes.patternKey(board, x, y));
+    }
+
+    private long value() {
+      return chunk << 40 | (game & 0xFFFFFF) << 16 | move;
+    }
+
+    private void addPosition(long key) {
+      if (positionCount == runPairs) flushPositions();
+      positions[2 * positionCount] = key;
+      positions[2 * positionCount + 1] = value();
+      positionCount++;
+    }
+
+    private void addPattern(long key) {
+      if (patternCount == runPairs) flushPatterns();
+      patterns[2 * patternCount] = key;
+      patterns[2 * patternCount + 1] = value();
+      patternCount++;
+    }
+
+    private void flushPositions() {
+      positionCount = flush(positions, positionCount, PositionIndex.POSITIONS, positionRuns);
+    }
+
+    private void flushPatterns() {
+      patternCount = flush(patterns, patternCount, PositionIndex.PATTERNS, patternRuns);
+    }
+
+    // Called from SgfListener methods too, hence unchecked
+    private int flush(long[] pairs, int count, String kind, List<Path> runList) {
+      if (count == 0) return 0;
+      Path run = runsDir.resolve(kind + "-" + thread + "-" + runs++);
+      try {
+        Runs.write(pairs, count, scratch, run);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      synchronized (runList) {
+        runList.add(run);
+      }
+      return 0;
+    }
+  }
+
+  /** The bytes of a file from start to end. */
+  private static final class Slice extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    Slice(Path file, long start, long end) throws IOException {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position >= end) return -1;
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+      int n = channel.read(buffer, position);
+      if (n > 0) position += n;
+      return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package edu.university.go.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A merged run of {@link Runs} read through read-only memory mappings, so looking a key up costs a
+ * binary search in the page cache and no heap however large the file.
+ *
+ * <p>The file is mapped in regions of a whole number of pairs, so no pair straddles two mappings.
+ * Every {@link #SAMPLE}th key is also kept on the heap, a few KB per million pairs, so a search
+ * touches the mapping only within one stretch of that many pairs.
+ */
+final class PairFile implements Closeable {
+
+  static final long REGION_BYTES = 1L << 30;
+  static final int SAMPLE = 4096;
+  private static final int PAIR_BYTES = 2 * Long.BYTES;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] regions;
+  private final long regionPairs;
+  private final long count;
+  private final int sample;
+  // Key of pair i * sample
+  private final long[] samples;
+
+  PairFile(Path file) throws IOException {
+    this(file, REGION_BYTES, SAMPLE);
+  }
+
+  PairFile(Path file, long regionBytes, int sample) throws IOException {
+    this.sample = sample;
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    long size = channel.size();
+    regionPairs = regionBytes / PAIR_BYTES;
+    count = size / PAIR_BYTES;
+    regions = new MappedByteBuffer[(int) ((count + regionPairs - 1) / regionPairs)];
+    for (int r = 0; r < regions.length; r++) {
+      long base = r * regionPairs * PAIR_BYTES;
+      regions[r] =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              base,
+              Math.min(regionPairs * PAIR_BYTES, count * PAIR_BYTES - base));
+    }
+    samples = new long[(int) ((count + sample - 1) / sample)];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = key((long) i * sample);
+    }
+  }
+
+  long size() {
+    return count;
+  }
+
+  long key(long i) {
+    return regions[(int) (i / regionPairs)].getLong((int) (i % regionPairs) * PAIR_BYTES);
+  }
+
+  long value(long i) {
+    return regions[(int) (i / regionPairs)].getLong(
+        (int) (i % regionPairs) * PAIR_BYTES + Long.BYTES);
+  }
+
+  /**
+   * Index of the first pair whose key is {@code key} or greater; {@link #size} if there is none.
+   */
+  long first(long key) {
+    // The pair is past the last sample below the key, and not past the first sample at or above it
+    int s = Arrays.binarySearch(samples, key);
+    int above = s >= 0 ? s : -s - 1;
+    // Equal samples are not told apart, so step back to the first
+    while (above > 0 && samples[above - 1] == key) above--;
+    long lo = above == 0 ? 0 : (long) (above - 1) * sample + 1;
+    long hi = Math.min(count, (long) above * sample);
+    while (lo < hi) {
+      long mid = (lo + hi) >>> 1;
+      if (key(mid) < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
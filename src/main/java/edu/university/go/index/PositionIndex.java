@@ -0,0 +1,145 @@
+package edu.university.go.index;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the games of SGF collections that reached a position, or played a local pattern, in any
+ * rotation or reflection.
+ *
+ * <p>Every game is replayed through {@link Board} when the index is built, and every position after
+ * a stone is placed is keyed by the smallest of its 8 symmetric Zobrist hashes; so is the 5x5
+ * pattern around that stone, edge included. Positions after setup stones, such as a handicap, count
+ * as move 0. Matches are by hash, so two different positions sharing a 64-bit key would be found
+ * together, which is not expected to happen in practice.
+ *
+ * <p>An index is a directory: {@code positions.dat} and {@code patterns.dat} are (key, value) pairs
+ * of longs sorted by key, the value being {@code game id << 16 | move}, and {@code collections.txt}
+ * gives the collection each game id came from. Game ids run from 0 through the collections in the
+ * order given, and through each collection in file order. The pair files are read through memory
+ * mappings, so a lookup is a binary search in the page cache however large the index.
+ *
+ * <p>Lookups are thread-safe.
+ */
+public final class PositionIndex implements Closeable {
+
+  static final String POSITIONS = "positions.dat";
+  static final String PATTERNS = "patterns.dat";
+  static final String COLLECTIONS = "collections.txt";
+
+  /** A game of the index and the number of moves played in it, passes included. */
+  public record Hit(long game, int move) {}
+
+  /** The collection a game came from, and the game's place in it counting from 0. */
+  public record Source(Path collection, long game) {}
+
+  private final PairFile positions;
+  private final PairFile patterns;
+  // Per collection, sorted by first id
+  private final long[] firstGame;
+  private final long[] gameCount;
+  private final Path[] collections;
+
+  /**
+   * Index {@code collections}, SGF files or directories searched for them, into {@code dir} on as
+   * many threads as there are cores. An index already in {@code dir} is replaced.
+   */
+  public static PositionIndex build(List<Path> collections, Path dir) throws IOException {
+    return build(collections, dir, Runtime.getRuntime().availableProcessors());
+  }
+
+  /** The same on {@code threads} threads. */
+  public static PositionIndex build(List<Path> collections, Path dir, int threads)
+      throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Need at least one thread: " + threads);
+    }
+    Files.createDirectories(dir);
+    new IndexBuilder(dir, threads, IndexBuilder.RUN_PAIRS, IndexBuilder.MIN_CHUNK)
+        .build(collections);
+    return new PositionIndex(dir);
+  }
+
+  /** Open the index built in {@code dir}. */
+  public PositionIndex(Path dir) throws IOException {
+    List<String> lines = Files.readAllLines(dir.resolve(COLLECTIONS), StandardCharsets.UTF_8);
+    firstGame = new long[lines.size()];
+    gameCount = new long[lines.size()];
+    collections = new Path[lines.size()];
+    for (int i = 0; i < lines.size(); i++) {
+      String[] fields = lines.get(i).split("\t", 3);
+      firstGame[i] = Long.parseLong(fields[0]);
+      gameCount[i] = Long.parseLong(fields[1]);
+      collections[i] = Path.of(fields[2]);
+    }
+    positions = new PairFile(dir.resolve(POSITIONS));
+    patterns = new PairFile(dir.resolve(PATTERNS));
+  }
+
+  /** Number of games indexed; ids run from 0 to one less. */
+  public long games() {
+    int last = collections.length - 1;
+    return last < 0 ? 0 : firstGame[last] + gameCount[last];
+  }
+
+  /** Games that reached the position on {@code board}, at most {@code limit}, by game and move. */
+  public List<Hit> findPosition(Board board, int limit) {
+    Symmetries hashes = new Symmetries(board.getSize());
+    hashes.reset(board);
+    return find(positions, hashes.positionKey(), limit);
+  }
+
+  /**
+   * Games where a stone was played at the center of the 5x5 pattern around (x, y) of {@code board},
+   * at most {@code limit}, by game and move. The stone's color is part of the pattern.
+   */
+  public List<Hit> findPattern(Board board, int x, int y, int limit) {
+    if (!board.isInside(x, y) || board.get(x, y) == Color.EMPTY) {
+      throw new IllegalArgumentException("No stone at " + x + "," + y + " to center a pattern on");
+    }
+    return find(patterns, new Symmetries(board.getSize()).patternKey(board, x, y), limit);
+  }
+
+  private static List<Hit> find(PairFile pairs, long key, int limit) {
+    List<Hit> hits = new ArrayList<>();
+    for (long i = pairs.first(key);
+        i < pairs.size() && pairs.key(i) == key && hits.size() < limit;
+        i++) {
+      long value = pairs.value(i);
+      hits.add(new Hit(value >>> 16, (int) (value & 0xFFFF)));
+    }
+    return hits;
+  }
+
+  /** Where game {@code game} of the index came from. */
+  public Source source(long game) {
+    if (game < 0 || game >= games()) {
+      throw new IllegalArgumentException("No game " + game + " in the index");
+    }
+    // The last collection starting at or before the game; empty ones start where the next does
+    int lo = 0;
+    int hi = collections.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (firstGame[mid] <= game) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return new Source(collections[lo], game - firstGame[lo]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    positions.close();
+    patterns.close();
+  }
+}
@@ -0,0 +1,170 @@
+package edu.university.go.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Sorted runs of (key, value) pairs of longs, the form {@link PositionIndex} is built and stored
+ * in.
+ *
+ * <p>Pairs are held interleaved in a {@code long[]}, key first, and ordered by key, then value,
+ * both signed. A run file is the pairs as big-endian longs with nothing around them.
+ */
+final class Runs {
+
+  private static final int IO_BUFFER = 1 << 20;
+  private static final int MERGE_BUFFER = 1 << 16;
+  // Radix sort digits: 4 passes of 16 bits cover a long, and end back in the array sorted; fewer
+  // passes over memory beat smaller digits here
+  private static final int DIGIT_BITS = 16;
+  private static final int PASSES = 4;
+
+  private Runs() {
+    // utility class
+  }
+
+  /**
+   * Sort the first {@code count} pairs of {@code pairs} by key, keeping pairs of the same key in
+   * the order they are in, as the pairs of a run are added in value order. {@code scratch} is as
+   * long as {@code pairs}.
+   */
+  static void sort(long[] pairs, int count, long[] scratch) {
+    // Least significant digit first, the sign bit flipped so negative keys come first
+    int[] starts = new int[1 << DIGIT_BITS];
+    long[] from = pairs;
+    long[] to = scratch;
+    for (int pass = 0; pass < PASSES; pass++) {
+      int shift = pass * DIGIT_BITS;
+      Arrays.fill(starts, 0);
+      for (int i = 0; i < count; i++) {
+        starts[digit(from[2 * i], shift)]++;
+      }
+      int sum = 0;
+      for (int d = 0; d < starts.length; d++) {
+        int n = starts[d];
+        starts[d] = sum;
+        sum += n;
+      }
+      for (int i = 0; i < count; i++) {
+        long key = from[2 * i];
+        int at = 2 * starts[digit(key, shift)]++;
+        to[at] = key;
+        to[at + 1] = from[2 * i + 1];
+      }
+      long[] swap = from;
+      from = to;
+      to = swap;
+    }
+  }
+
+  private static int digit(long key, int shift) {
+    return (int) ((key ^ Long.MIN_VALUE) >>> shift) & ((1 << DIGIT_BITS) - 1);
+  }
+
+  /** Sort the first {@code count} pairs and write them to {@code file}. */
+  static void write(long[] pairs, int count, long[] scratch, Path file) throws IOException {
+    sort(pairs, count, scratch);
+    ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+    LongBuffer longs = buffer.asLongBuffer();
+    try (FileChannel out = create(file)) {
+      for (int i = 0; i < 2 * count; ) {
+        int n = Math.min(longs.capacity(), 2 * count - i);
+        longs.clear();
+        longs.put(pairs, i, n);
+        buffer.clear().limit(n * Long.BYTES);
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+        i += n;
+      }
+    }
+  }
+
+  /**
+   * Merge sorted runs into one sorted file, passing every value through {@code values}, which must
+   * keep their order. Returns the number of pairs written.
+   */
+  static long merge(List<Path> runs, Path file, LongUnaryOperator values) throws IOException {
+    List<Cursor> open = new ArrayList<>();
+    PriorityQueue<Cursor> queue = new PriorityQueue<>();
+    ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+    long written = 0;
+    try (FileChannel out = create(file)) {
+      for (Path run : runs) {
+        Cursor cursor = new Cursor(run);
+        open.add(cursor);
+        if (cursor.next()) queue.add(cursor);
+      }
+      Cursor cursor;
+      while ((cursor = queue.poll()) != null) {
+        if (buffer.remaining() < 2 * Long.BYTES) {
+          drain(buffer, out);
+        }
+        buffer.putLong(cursor.key).putLong(values.applyAsLong(cursor.value));
+        written++;
+        if (cursor.next()) queue.add(cursor);
+      }
+      drain(buffer, out);
+    } finally {
+      for (Cursor c : open) {
+        c.channel.close();
+      }
+    }
+    return written;
+  }
+
+  private static FileChannel create(Path file) throws IOException {
+    return FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static final class Cursor implements Comparable<Cursor> {
+
+    final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MERGE_BUFFER).limit(0);
+    long key;
+    long value;
+
+    Cursor(Path run) throws IOException {
+      channel = FileChannel.open(run, StandardOpenOption.READ);
+    }
+
+    boolean next() throws IOException {
+      if (buffer.remaining() < 2 * Long.BYTES) {
+        buffer.compact();
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {}
+        buffer.flip();
+        if (buffer.remaining() < 2 * Long.BYTES) return false;
+      }
+      key = buffer.getLong();
+      value = buffer.getLong();
+      return true;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      int byKey = Long.compare(key, other.key);
+      return byKey != 0 ? byKey : Long.compare(value, other.value);
+    }
+  }
+}
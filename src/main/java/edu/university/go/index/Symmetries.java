@@ -0,0 +1,181 @@
+package edu.university.go.index;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.board.Zobrist;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist hashes of a position under all 8 symmetries of the board, and of the local pattern around
+ * a stone, for {@link PositionIndex}.
+ *
+ * <p>Symmetry {@code s} maps (x, y) by swapping x and y if bit 0 is set, then mirroring x if bit 1
+ * is and y if bit 2 is; symmetry 0 is the identity, so its hash is {@link Board#getHash}. The key
+ * of a position is the smallest of its 8 hashes, which is the same for a position and all its
+ * rotations and reflections. Hashes follow a game incrementally from the stones placed and captured
+ * by each move.
+ *
+ * <p>A pattern is the square of {@link #PATTERN_SIZE} points centered on a stone, with the points
+ * off the board as a fourth state, so a pattern at the edge only matches at the edge. Its key is
+ * taken over the same 8 symmetries of the square.
+ *
+ * <p>One instance per board size; not thread-safe. The key tables are shared by all instances.
+ */
+final class Symmetries {
+
+  static final int COUNT = 8;
+  static final int PATTERN_RADIUS = 2;
+  static final int PATTERN_SIZE = 2 * PATTERN_RADIUS + 1;
+
+  private static final int PATTERN_POINTS = PATTERN_SIZE * PATTERN_SIZE;
+  // A point of a pattern holds a Color, by ordinal, or is off the board
+  private static final int OFF_BOARD = 3;
+  private static final int PATTERN_STATES = 4;
+  // Keys of every state at each point of the pattern under every symmetry, at
+  // [(point * PATTERN_STATES + state) * COUNT + s], 0 for empty; fixed like Zobrist's keys
+  private static final long[] PATTERN_KEYS = symmetric(patternKeys(), PATTERN_SIZE, PATTERN_STATES);
+
+  // Zobrist keys as Board uses them under every symmetry, at [(point * 2 + color) * COUNT + s]
+  // with color 0 for black and 1 for white, by board size
+  private static final Map<Integer, long[]> KEYS = new ConcurrentHashMap<>();
+
+  private final int size;
+  private final long[] keys;
+  private final long[] hashes = new long[COUNT];
+
+  Symmetries(int size) {
+    this.size = size;
+    this.keys = KEYS.computeIfAbsent(size, Symmetries::keys);
+  }
+
+  private static long[] keys(int size) {
+    long[] zobrist = new long[size * size * 2];
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        zobrist[(y * size + x) * 2] = Zobrist.key(size, Color.BLACK, x, y);
+        zobrist[(y * size + x) * 2 + 1] = Zobrist.key(size, Color.WHITE, x, y);
+      }
+    }
+    return symmetric(zobrist, size, 2);
+  }
+
+  // Per point and state, the keys of where the symmetries take it, side by side
+  private static long[] symmetric(long[] keys, int size, int states) {
+    int[][] map = map(size);
+    long[] symmetric = new long[keys.length * COUNT];
+    for (int point = 0; point < size * size; point++) {
+      for (int state = 0; state < states; state++) {
+        for (int s = 0; s < COUNT; s++) {
+          symmetric[(point * states + state) * COUNT + s] = keys[map[s][point] * states + state];
+        }
+      }
+    }
+    return symmetric;
+  }
+
+  /** Hash every stone of {@code board}. */
+  void reset(Board board) {
+    Arrays.fill(hashes, 0L);
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        Color color = board.get(x, y);
+        if (color != Color.EMPTY) {
+          toggle(y * size + x, color == Color.BLACK ? 0 : 1);
+        }
+      }
+    }
+  }
+
+  /** Follow the placement just made on {@code board}, and its captures. */
+  void played(Board board) {
+    int point = board.getLastMove();
+    int color = board.get(point % size, point / size) == Color.BLACK ? 0 : 1;
+    toggle(point, color);
+    for (int i = 0, n = board.getLastCapturedCount(); i < n; i++) {
+      toggle(board.getLastCaptured(i), 1 - color);
+    }
+  }
+
+  private void toggle(int point, int color) {
+    int at = (point * 2 + color) * COUNT;
+    for (int s = 0; s < COUNT; s++) {
+      hashes[s] ^= keys[at + s];
+    }
+  }
+
+  /** Hash of the position under symmetry {@code s}. */
+  long hash(int s) {
+    return hashes[s];
+  }
+
+  /** The same for a position and all its rotations and reflections. */
+  long positionKey() {
+    return min(hashes);
+  }
+
+  /** Key of the pattern centered on (x, y) of {@code board}. */
+  long patternKey(Board board, int x, int y) {
+    // Every point is XORed in, an empty one with keys of 0, as branching on whether a point is
+    // empty costs more than the XORs; one local per symmetry keeps the hashes in registers
+    long h0 = 0, h1 = 0, h2 = 0, h3 = 0, h4 = 0, h5 = 0, h6 = 0, h7 = 0;
+    int point = 0;
+    for (int dy = -PATTERN_RADIUS; dy <= PATTERN_RADIUS; dy++) {
+      for (int dx = -PATTERN_RADIUS; dx <= PATTERN_RADIUS; dx++, point++) {
+        int state =
+            board.isInside(x + dx, y + dy) ? board.get(x + dx, y + dy).ordinal() : OFF_BOARD;
+        int at = (point * PATTERN_STATES + state) * COUNT;
+        h0 ^= PATTERN_KEYS[at];
+        h1 ^= PATTERN_KEYS[at + 1];
+        h2 ^= PATTERN_KEYS[at + 2];
+        h3 ^= PATTERN_KEYS[at + 3];
+        h4 ^= PATTERN_KEYS[at + 4];
+        h5 ^= PATTERN_KEYS[at + 5];
+        h6 ^= PATTERN_KEYS[at + 6];
+        h7 ^= PATTERN_KEYS[at + 7];
+      }
+    }
+    return Math.min(
+        Math.min(Math.min(h0, h1), Math.min(h2, h3)), Math.min(Math.min(h4, h5), Math.min(h6, h7)));
+  }
+
+  private static long min(long[] values) {
+    long min = values[0];
+    for (int s = 1; s < COUNT; s++) {
+      min = Math.min(min, values[s]);
+    }
+    return min;
+  }
+
+  private static int[][] map(int size) {
+    int[][] map = new int[COUNT][size * size];
+    for (int s = 0; s < COUNT; s++) {
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          int tx = (s & 1) != 0 ? y : x;
+          int ty = (s & 1) != 0 ? x : y;
+          if ((s & 2) != 0) tx = size - 1 - tx;
+          if ((s & 4) != 0) ty = size - 1 - ty;
+          map[s][y * size + x] = ty * size + tx;
+        }
+      }
+    }
+    return map;
+  }
+
+  // splitmix64, seeded apart from Zobrist's
+  private static long[] patternKeys() {
+    long[] keys = new long[PATTERN_POINTS * PATTERN_STATES];
+    long state = 0x2545F4914F6CDD1DL;
+    for (int i = 0; i < keys.length; i++) {
+      if (i % PATTERN_STATES == Color.EMPTY.ordinal()) continue;
+      state += 0x9E3779B97F4A7C15L;
+      long z = state;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      keys[i] = z ^ (z >>> 31);
+    }
+    return keys;
+  }
+}
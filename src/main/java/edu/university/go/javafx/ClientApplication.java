@@ -3,6 +3,7 @@ package edu.university.go.javafx;
 import edu.university.go.board.Color;
 import edu.university.go.client.Client;
 import edu.university.go.game.EnhancedGameController;
+import edu.university.go.protocol.BoardSync;
 import java.io.IOException;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -26,11 +27,13 @@ public class ClientApplication extends Application {
   private String serverHost = "localhost"; // Default server host
   private int serverPort = 9999; // Default server port
   private int boardSize = 19; // Default board size
+  private boolean binaryProtocol = true; // Binary frames unless --protocol=text
 
   private Color myColor = null; // The color assigned to this client by the server
   private StringBuilder boardBuffer =
       new StringBuilder(); // Buffer for accumulating board update lines from server
   private boolean gameStarted = false; // Flag indicating if the game has started
+  private final BoardSync boardSync = new BoardSync(); // Applies SNAPSHOT/DELTA board updates
   private BorderPane root; // Main layout container
 
   // Local tracking of game state (since server manages logic, not local controller)
@@ -62,6 +65,9 @@ public class ClientApplication extends Application {
         System.out.println("Invalid port format. Using default: " + serverPort);
       }
     }
+    if (params.containsKey("protocol")) {
+      binaryProtocol = !"text".equalsIgnoreCase(params.get("protocol"));
+    }
     // NOTE: For network client, board size comes from server, NOT from parameters
     // The size parameter is ignored for network games
     System.out.println("Starting client with: host=" + serverHost + ", port=" + serverPort);
@@ -104,9 +110,12 @@ public class ClientApplication extends Application {
             () -> {
               try {
                 System.out.println("[ClientApp] Connecting to " + serverHost + ":" + serverPort);
-                client = new Client(serverHost, serverPort);
+                client = new Client(serverHost, serverPort, binaryProtocol);
                 client.connect();
                 client.receiveAsync(this::handleServerMessage);
+                // Ask for delta board updates, then take the next free seat in the lobby
+                client.send("UPDATES DELTA");
+                client.send("JOIN");
 
                 Platform.runLater(
                     () -> {
@@ -141,21 +150,7 @@ public class ClientApplication extends Application {
           if (message.trim().isEmpty()) {
             // End of board update block
             if (boardBuffer.length() > 0) {
-              if (!gameStarted) {
-                System.out.println("[ClientApp] Received first board update - Game started!");
-                gameStarted = true;
-                // Create game display if not already created
-                if (controller == null) {
-                  System.out.println(
-                      "[ClientApp] Creating display at board update because controller is null");
-                  createGameDisplay();
-                } else {
-                  System.out.println(
-                      "[ClientApp] Not creating display at board update, controller already exists with size: "
-                          + boardSize);
-                }
-                infoPanel.enableGameControls();
-              }
+              startGameOnFirstBoard();
               parseAndUpdateBoard(boardBuffer.toString());
               boardBuffer = new StringBuilder();
             }
@@ -165,13 +160,18 @@ public class ClientApplication extends Application {
           String trimmed = message.trim();
 
           if (trimmed.startsWith("CONNECTED ")
+              || trimmed.startsWith("JOINED ")
               || trimmed.startsWith("COLOR ")
               || trimmed.startsWith("BOARDSIZE ")
               || trimmed.startsWith("EVENT ")
               || trimmed.startsWith("ERROR ")
               || trimmed.startsWith("CAPTURED ")
               || trimmed.startsWith("TURN ")
-              || trimmed.startsWith("RESULT ")) {
+              || trimmed.startsWith("SCORE ")
+              || trimmed.startsWith("RESULT ")
+              || trimmed.startsWith("UPDATES ")
+              || trimmed.startsWith("SNAPSHOT ")
+              || trimmed.startsWith("DELTA ")) {
 
             int spaceIndex = trimmed.indexOf(' ');
             String command = spaceIndex > 0 ? trimmed.substring(0, spaceIndex) : trimmed;
@@ -179,7 +179,12 @@ public class ClientApplication extends Application {
 
             switch (command) {
               case "CONNECTED":
-                infoPanel.updateConnectedAs(data);
+                // CONNECTED <playerId> <resumeToken>
+                infoPanel.updateConnectedAs(data.split(" ")[0]);
+                break;
+              case "JOINED":
+                System.out.println("[ClientApp] Joined game " + data);
+                primaryStage.setTitle("Go Game - Network Client (game " + data + ")");
                 break;
               case "BOARDSIZE":
                 try {
@@ -233,6 +238,16 @@ public class ClientApplication extends Application {
                   System.err.println("[ClientApp] Invalid turn color: " + data);
                 }
                 break;
+              case "SCORE":
+                try {
+                  // Format: SCORE BLACK_TERRITORY WHITE_TERRITORY BLACK_AREA WHITE_AREA
+                  String[] parts = data.split(" ");
+                  infoPanel.updateScoreEstimate(
+                      Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+                } catch (Exception e) {
+                  System.err.println("[ClientApp] Error parsing SCORE: " + e.getMessage());
+                }
+                break;
               case "RESULT":
                 try {
                   // Format: RESULT WINNER BLACK_SCORE WHITE_SCORE MARGIN
@@ -257,6 +272,13 @@ public class ClientApplication extends Application {
                   System.err.println("[ClientApp] Error parsing RESULT: " + e.getMessage());
                 }
                 break;
+              case "UPDATES":
+                System.out.println("[ClientApp] Board updates: " + data);
+                break;
+              case "SNAPSHOT":
+              case "DELTA":
+                applyBoardUpdate(trimmed);
+                break;
               case "EVENT":
                 handleServerEvent(data);
                 break;
@@ -385,6 +407,45 @@ public class ClientApplication extends Application {
     client.send("RESIGN");
   }
 
+  /** Marks the game as started when the first board arrives, creating the display if needed. */
+  private void startGameOnFirstBoard() {
+    if (gameStarted) return;
+    System.out.println("[ClientApp] Received first board update - Game started!");
+    gameStarted = true;
+    // Create game display if not already created
+    if (controller == null) {
+      System.out.println("[ClientApp] Creating display at board update because controller is null");
+      createGameDisplay();
+    } else {
+      System.out.println(
+          "[ClientApp] Not creating display at board update, controller already exists with size: "
+              + boardSize);
+    }
+    infoPanel.enableGameControls();
+  }
+
+  /**
+   * Applies a SNAPSHOT or DELTA line to the local board. Asks the server for a fresh snapshot if
+   * the update does not follow the previous one.
+   *
+   * @param line The update line as received.
+   */
+  private void applyBoardUpdate(String line) {
+    if (line.startsWith(BoardSync.SNAPSHOT)) {
+      startGameOnFirstBoard();
+    }
+    if (controller == null) {
+      createGameDisplay();
+    }
+
+    if (!boardSync.apply(line, controller.getBoard())) {
+      System.err.println("[ClientApp] Board update out of sequence, resyncing: " + line);
+      client.send("RESYNC");
+      return;
+    }
+    boardCanvas.redraw();
+  }
+
   /**
    * Parses the board state text from the server and updates the local board. Uses setColor to
    * directly sync the state, handling captures by setting EMPTY where needed.
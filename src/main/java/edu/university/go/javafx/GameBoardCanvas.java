@@ -115,7 +115,7 @@ public class GameBoardCanvas extends Canvas implements GameObserver {
     int py = (int) Math.round((y - MARGIN) / cellSize);
 
     if (px >= 0 && px < board.getSize() && py >= 0 && py < board.getSize()) {
-      return new Point(py, px);
+      return Point.of(py, px);
     }
     return null;
   }
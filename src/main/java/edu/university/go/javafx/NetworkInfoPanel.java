@@ -11,6 +11,7 @@ public class NetworkInfoPanel extends VBox {
   private final Label currentPlayerLabel;
   private final Label capturedBlackLabel;
   private final Label capturedWhiteLabel;
+  private final Label scoreEstimateLabel;
   private final Button passButton;
   private final Button resignButton;
 
@@ -37,6 +38,10 @@ public class NetworkInfoPanel extends VBox {
     capturedWhiteLabel = new Label("⚪ White: 0");
     capturedWhiteLabel.setStyle("-fx-font-size: 11;");
 
+    // Live territory estimate
+    scoreEstimateLabel = new Label("⚫ 0 : 0 ⚪");
+    scoreEstimateLabel.setStyle("-fx-font-size: 11;");
+
     // Buttons
     passButton = new Button("Pass");
     passButton.setPrefWidth(200);
@@ -61,6 +66,9 @@ public class NetworkInfoPanel extends VBox {
             capturedBlackLabel,
             capturedWhiteLabel,
             new Label(""),
+            new Label("Territory estimate:"),
+            scoreEstimateLabel,
+            new Label(""),
             passButton,
             resignButton);
   }
@@ -88,6 +96,10 @@ public class NetworkInfoPanel extends VBox {
     capturedWhiteLabel.setText("⚪ White: " + capturedWhite);
   }
 
+  public void updateScoreEstimate(int blackTerritory, int whiteTerritory) {
+    scoreEstimateLabel.setText("⚫ " + blackTerritory + " : " + whiteTerritory + " ⚪");
+  }
+
   public void updateCurrentTurn(edu.university.go.board.Color color) {
     String icon = color == edu.university.go.board.Color.BLACK ? "⚫" : "⚪";
     String colorText = color == edu.university.go.board.Color.BLACK ? "BLACK" : "WHITE";
@@ -0,0 +1,604 @@
+package edu.university.go.protocol;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.GameEvent;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of the line protocol.
+ *
+ * <p>The server always greets with the text line {@code CONNECTED <playerId>}. A client switches
+ * its connection to binary by sending {@link #MAGIC} and {@link #VERSION} as its first two bytes;
+ * the server then repeats the greeting as a binary frame and talks binary from there on. Clients
+ * that start with anything else (e.g. telnet) stay on the text protocol.
+ *
+ * <p>Each frame is a varint length, a 1-byte opcode and its payload. Points are 2 bytes: {@code x,
+ * y} for moves, the index {@code y * size + x} for board updates. Counters, sequence numbers and
+ * string lengths are unsigned LEB128 varints. Every frame stands for exactly one text line, and a
+ * line without a compact form travels as a {@link #TEXT} frame, so both protocols share one
+ * vocabulary.
+ *
+ * <p>Encoding reads the line in place and decoding writes into caller-supplied or reused buffers,
+ * so neither allocates. An instance holds the scratch state of one connection and is not
+ * thread-safe.
+ */
+public final class BinaryCodec {
+
+  public static final byte MAGIC = (byte) 0xB1;
+  public static final byte VERSION = 1;
+
+  /** Largest frame body; its length always fits a 2-byte varint. */
+  public static final int MAX_FRAME = (1 << 14) - 1;
+
+  // Client to server
+  public static final int MOVE = 0x01;
+  public static final int PASS = 0x02;
+  public static final int RESIGN = 0x03;
+  public static final int JOIN = 0x04;
+  public static final int CREATE = 0x05;
+  public static final int LIST = 0x06;
+  public static final int UPDATES = 0x07;
+  public static final int RESYNC = 0x08;
+
+  // Server to client
+  public static final int CONNECTED = 0x41;
+  public static final int JOINED = 0x42;
+  public static final int CREATED = 0x43;
+  public static final int BOARDSIZE = 0x44;
+  public static final int COLOR = 0x45;
+  public static final int TURN = 0x46;
+  public static final int CAPTURED = 0x47;
+  public static final int SCORE = 0x48;
+  public static final int EVENT = 0x49;
+  public static final int RESULT = 0x4A;
+  public static final int ERROR = 0x4B;
+  public static final int GAMES = 0x4C;
+  public static final int GAME = 0x4D;
+  public static final int UPDATES_MODE = 0x4E;
+  public static final int SNAPSHOT = 0x4F;
+  public static final int DELTA = 0x50;
+
+  // Either direction: a line in its text form
+  public static final int TEXT = 0x7F;
+
+  private static final GameEvent[] EVENTS = GameEvent.values();
+  private static final Color[] COLORS = {Color.EMPTY, Color.BLACK, Color.WHITE};
+
+  private final StringBuilder scratch = new StringBuilder(64);
+  // Read position in the line being encoded or the frame being decoded
+  private int at;
+
+  /* ===== Client to server ===== */
+
+  /** Encode one text command as a frame. */
+  public void encodeCommand(CharSequence line, ByteBuffer out) {
+    int start = out.position();
+    int body = beginFrame(out);
+    at = 0;
+    if (!compactCommand(line, out)) {
+      out.position(body);
+      putText(line, 0, line.length(), out);
+    }
+    endFrame(out, start);
+  }
+
+  private boolean compactCommand(CharSequence s, ByteBuffer out) {
+    if (keyword(s, "MOVE", true)) {
+      long x = space(s) ? uint(s) : -1;
+      long y = space(s) ? uint(s) : -1;
+      int color = space(s) ? colorWord(s) : -1;
+      if (x < 0 || x > 255 || y < 0 || y > 255 || color < 1 || !end(s)) return false;
+      out.put((byte) MOVE).put((byte) x).put((byte) y).put((byte) color);
+      return true;
+    }
+    if (keyword(s, "PASS", true)) return single(s, PASS, out);
+    if (keyword(s, "RESIGN", true)) return single(s, RESIGN, out);
+    if (keyword(s, "LIST", true)) return single(s, LIST, out);
+    if (keyword(s, "RESYNC", true)) return single(s, RESYNC, out);
+    if (keyword(s, "JOIN", true)) {
+      out.put((byte) JOIN);
+      if (end(s)) return true;
+      int from = at + 1;
+      if (!space(s) || !token(s) || !end(s)) return false;
+      putString(s, from, at, out);
+      return true;
+    }
+    if (keyword(s, "CREATE", true)) {
+      out.put((byte) CREATE);
+      if (end(s)) return true;
+      long size = space(s) ? uint(s) : -1;
+      if (size < 1 || size > 255) return false;
+      out.put((byte) size);
+      if (end(s)) return true;
+      int from = at + 1;
+      if (!space(s) || !token(s) || !end(s)) return false;
+      putString(s, from, at, out);
+      return true;
+    }
+    if (keyword(s, "UPDATES", true)) {
+      if (!space(s)) return false;
+      int mode = keyword(s, "DELTA", true) ? 1 : keyword(s, "TEXT", true) ? 0 : -1;
+      if (mode < 0 || !end(s)) return false;
+      out.put((byte) UPDATES).put((byte) mode);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Decode one command frame from {@code in} into {@code sink}. Returns false, consuming nothing,
+   * if the frame is not complete yet.
+   *
+   * @throws IllegalArgumentException if the input is not a valid frame
+   */
+  public boolean decodeCommand(ByteBuffer in, CommandSink sink) {
+    int end = frameEnd(in);
+    if (end < 0) return false;
+    int op = in.get(at++) & 0xFF;
+    switch (op) {
+      case MOVE -> sink.move(in.get(at++) & 0xFF, in.get(at++) & 0xFF, color(in.get(at++)));
+      case PASS -> sink.pass();
+      case RESIGN -> sink.resign();
+      case LIST -> sink.list();
+      case RESYNC -> sink.resync();
+      case JOIN -> sink.join(at < end ? getString(in) : clearScratch());
+      case CREATE -> {
+        int size = at < end ? in.get(at++) & 0xFF : 0;
+        sink.create(size, at < end ? getString(in) : clearScratch());
+      }
+      case UPDATES -> sink.updates(in.get(at++) == 1);
+      case TEXT -> sink.text(getString(in));
+      default -> throw new IllegalArgumentException("Unknown opcode " + op);
+    }
+    if (at != end) {
+      throw new IllegalArgumentException("Bad frame for opcode " + op);
+    }
+    in.position(end);
+    return true;
+  }
+
+  /* ===== Server to client ===== */
+
+  /** Encode one text reply as a frame. */
+  public void encodeReply(CharSequence line, ByteBuffer out) {
+    int start = out.position();
+    int body = beginFrame(out);
+    at = 0;
+    if (!compactReply(line, out)) {
+      out.position(body);
+      putText(line, 0, line.length(), out);
+    }
+    endFrame(out, start);
+  }
+
+  private boolean compactReply(CharSequence s, ByteBuffer out) {
+    if (keyword(s, "CONNECTED", false)) return rest(s, CONNECTED, out);
+    if (keyword(s, "JOINED", false)) return rest(s, JOINED, out);
+    if (keyword(s, "CREATED", false)) return rest(s, CREATED, out);
+    if (keyword(s, "BOARDSIZE", false)) {
+      long size = space(s) ? uint(s) : -1;
+      if (size < 0 || size > 255 || !end(s)) return false;
+      out.put((byte) BOARDSIZE).put((byte) size);
+      return true;
+    }
+    if (keyword(s, "COLOR", false) || keyword(s, "TURN", false)) {
+      int op = s.charAt(0) == 'C' ? COLOR : TURN;
+      int color = space(s) ? colorWord(s) : -1;
+      if (color < 0 || !end(s)) return false;
+      out.put((byte) op).put((byte) color);
+      return true;
+    }
+    if (keyword(s, "CAPTURED", false)) return varints(s, CAPTURED, 2, out);
+    if (keyword(s, "SCORE", false)) return varints(s, SCORE, 4, out);
+    if (keyword(s, "GAMES", false)) return varints(s, GAMES, 1, out);
+    if (keyword(s, "EVENT", false)) {
+      if (!space(s)) return false;
+      for (GameEvent event : EVENTS) {
+        int mark = at;
+        if (keyword(s, event.name(), false) && end(s)) {
+          out.put((byte) EVENT).put((byte) event.ordinal());
+          return true;
+        }
+        at = mark;
+      }
+      return false;
+    }
+    if (keyword(s, "RESULT", false)) {
+      int winner = space(s) ? colorWord(s) : -1;
+      if (winner < 0) return false;
+      out.put((byte) RESULT).put((byte) winner);
+      for (int i = 0; i < 3; i++) {
+        long tenths = space(s) ? tenths(s) : -1;
+        if (tenths < 0) return false;
+        putVarint(out, tenths);
+      }
+      return end(s);
+    }
+    if (keyword(s, "ERROR", false)) {
+      out.put((byte) ERROR);
+      putString(s, at, s.length(), out);
+      return true;
+    }
+    if (keyword(s, "GAME", false)) {
+      int from = at + 1;
+      if (!space(s) || !token(s)) return false;
+      out.put((byte) GAME);
+      putString(s, from, at, out);
+      for (int i = 0; i < 2; i++) {
+        long n = space(s) ? uint(s) : -1;
+        if (n < 0) return false;
+        putVarint(out, n);
+      }
+      return end(s);
+    }
+    if (keyword(s, "UPDATES", false)) {
+      if (!space(s)) return false;
+      int mode = keyword(s, "DELTA", false) ? 1 : keyword(s, "TEXT", false) ? 0 : -1;
+      if (mode < 0 || !end(s)) return false;
+      out.put((byte) UPDATES_MODE).put((byte) mode);
+      return true;
+    }
+    if (keyword(s, "SNAPSHOT", false)) {
+      long seq = space(s) ? uint(s) : -1;
+      long size = space(s) ? uint(s) : -1;
+      if (seq < 0 || size < 1 || size > 25 || !space(s) || s.length() - at != size * size) {
+        return false;
+      }
+      out.put((byte) SNAPSHOT);
+      putVarint(out, seq);
+      out.put((byte) size);
+      // Four cells per byte, two bits each
+      int packed = 0;
+      int cells = (int) (size * size);
+      for (int i = 0; i < cells; i++) {
+        int code = cellCode(s.charAt(at + i));
+        if (code < 0) return false;
+        packed |= code << ((i & 3) * 2);
+        if ((i & 3) == 3 || i == cells - 1) {
+          out.put((byte) packed);
+          packed = 0;
+        }
+      }
+      at += cells;
+      return true;
+    }
+    if (keyword(s, "DELTA", false)) {
+      long seq = space(s) ? uint(s) : -1;
+      int color = space(s) && at < s.length() ? cellCode(s.charAt(at++)) : -1;
+      if (seq < 0 || color < 1) return false;
+      out.put((byte) DELTA);
+      putVarint(out, seq);
+      out.put((byte) color);
+      do {
+        long point = space(s) ? uint(s) : -1;
+        if (point < 0 || point > 0xFFFF) return false;
+        out.putShort((short) point);
+      } while (!end(s));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Decode one reply frame from {@code in}, appending its text form to {@code line}. Returns false,
+   * consuming nothing, if the frame is not complete yet.
+   *
+   * @throws IllegalArgumentException if the input is not a valid frame
+   */
+  public boolean decodeReply(ByteBuffer in, StringBuilder line) {
+    int end = frameEnd(in);
+    if (end < 0) return false;
+    int op = in.get(at++) & 0xFF;
+    switch (op) {
+      case CONNECTED -> appendRest(in, line.append("CONNECTED"));
+      case JOINED -> appendRest(in, line.append("JOINED"));
+      case CREATED -> appendRest(in, line.append("CREATED"));
+      case BOARDSIZE -> line.append("BOARDSIZE ").append(in.get(at++) & 0xFF);
+      case COLOR -> line.append("COLOR ").append(color(in.get(at++)));
+      case TURN -> line.append("TURN ").append(color(in.get(at++)));
+      case CAPTURED -> appendVarints(in, line.append("CAPTURED"), 2);
+      case SCORE -> appendVarints(in, line.append("SCORE"), 4);
+      case GAMES -> appendVarints(in, line.append("GAMES"), 1);
+      case EVENT -> line.append("EVENT ").append(EVENTS[in.get(at++)]);
+      case RESULT -> {
+        line.append("RESULT ").append(color(in.get(at++)));
+        for (int i = 0; i < 3; i++) {
+          long tenths = getVarint(in);
+          line.append(' ').append(tenths / 10).append('.').append(tenths % 10);
+        }
+      }
+      case ERROR -> line.append("ERROR").append(getString(in));
+      case GAME -> appendVarints(in, line.append("GAME ").append(getString(in)), 2);
+      case UPDATES_MODE -> line.append("UPDATES ").append(in.get(at++) == 1 ? "DELTA" : "TEXT");
+      case SNAPSHOT -> {
+        line.append("SNAPSHOT ").append(getVarint(in));
+        int size = in.get(at++) & 0xFF;
+        line.append(' ').append(size).append(' ');
+        for (int i = 0; i < size * size; i++) {
+          int packed = in.get(at + i / 4);
+          line.append(".BW?".charAt((packed >> ((i & 3) * 2)) & 3));
+        }
+        at += (size * size + 3) / 4;
+      }
+      case DELTA -> {
+        line.append("DELTA ").append(getVarint(in)).append(' ');
+        line.append(in.get(at++) == 1 ? 'B' : 'W');
+        while (at < end) {
+          line.append(' ').append(in.getShort(at) & 0xFFFF);
+          at += 2;
+        }
+      }
+      case TEXT -> line.append(getString(in));
+      default -> throw new IllegalArgumentException("Unknown opcode " + op);
+    }
+    if (at != end) {
+      throw new IllegalArgumentException("Bad frame for opcode " + op);
+    }
+    in.position(end);
+    return true;
+  }
+
+  /* ===== Frames ===== */
+
+  // Reserve a 2-byte length; endFrame shortens it to 1 byte when the body allows
+  private static int beginFrame(ByteBuffer out) {
+    out.position(out.position() + 2);
+    return out.position();
+  }
+
+  private static void endFrame(ByteBuffer out, int start) {
+    int end = out.position();
+    int length = end - start - 2;
+    if (length > MAX_FRAME) {
+      throw new IllegalArgumentException("Frame too long: " + length);
+    }
+    if (length < 0x80) {
+      out.put(start, (byte) length);
+      for (int i = start + 2; i < end; i++) {
+        out.put(i - 1, out.get(i));
+      }
+      out.position(end - 1);
+    } else {
+      out.put(start, (byte) (0x80 | (length & 0x7F)));
+      out.put(start + 1, (byte) (length >>> 7));
+    }
+  }
+
+  // End of the frame at the buffer's position, or -1 if incomplete; leaves `at` on the opcode
+  private int frameEnd(ByteBuffer in) {
+    int p = in.position();
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (p >= in.limit()) return -1;
+      int b = in.get(p++);
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) break;
+      if (shift >= 7) {
+        throw new IllegalArgumentException("Frame length too long");
+      }
+    }
+    if (length == 0) {
+      throw new IllegalArgumentException("Empty frame");
+    }
+    if (in.limit() - p < length) return -1;
+    at = p;
+    return p + length;
+  }
+
+  /* ===== Encoding helpers, reading the line at `at` ===== */
+
+  private boolean keyword(CharSequence s, String word, boolean ignoreCase) {
+    int n = word.length();
+    if (s.length() - at < n) return false;
+    for (int i = 0; i < n; i++) {
+      char c = s.charAt(at + i);
+      if (ignoreCase && c >= 'a' && c <= 'z') {
+        c -= 'a' - 'A';
+      }
+      if (c != word.charAt(i)) return false;
+    }
+    if (at + n < s.length() && s.charAt(at + n) != ' ' && s.charAt(at + n) != ':') return false;
+    at += n;
+    return true;
+  }
+
+  private boolean space(CharSequence s) {
+    if (at < s.length() && s.charAt(at) == ' ') {
+      at++;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean end(CharSequence s) {
+    return at == s.length();
+  }
+
+  // Skip a non-empty run of non-space characters
+  private boolean token(CharSequence s) {
+    int from = at;
+    while (at < s.length() && s.charAt(at) != ' ') {
+      at++;
+    }
+    return at > from;
+  }
+
+  // Unsigned decimal without sign or leading zeros, or -1
+  private long uint(CharSequence s) {
+    int from = at;
+    long value = 0;
+    while (at < s.length() && s.charAt(at) >= '0' && s.charAt(at) <= '9' && at - from < 15) {
+      value = value * 10 + (s.charAt(at++) - '0');
+    }
+    if (at == from || (s.charAt(from) == '0' && at - from > 1)) return -1;
+    if (at < s.length() && s.charAt(at) != ' ') return -1;
+    return value;
+  }
+
+  // A number written with exactly one decimal, in tenths, or -1
+  private long tenths(CharSequence s) {
+    int from = at;
+    while (at < s.length() && s.charAt(at) != '.' && s.charAt(at) != ' ') {
+      at++;
+    }
+    if (at + 2 > s.length() || s.charAt(at) != '.') return -1;
+    int dot = at;
+    at = from;
+    long whole = uintUntil(s, dot);
+    char digit = s.charAt(dot + 1);
+    at = dot + 2;
+    if (whole < 0 || digit < '0' || digit > '9' || (at < s.length() && s.charAt(at) != ' ')) {
+      return -1;
+    }
+    return whole * 10 + (digit - '0');
+  }
+
+  private long uintUntil(CharSequence s, int to) {
+    if (to == at || to - at > 15 || (s.charAt(at) == '0' && to - at > 1)) return -1;
+    long value = 0;
+    for (int i = at; i < to; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') return -1;
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private int colorWord(CharSequence s) {
+    if (keyword(s, "EMPTY", false)) return 0;
+    if (keyword(s, "BLACK", false)) return 1;
+    if (keyword(s, "WHITE", false)) return 2;
+    return -1;
+  }
+
+  private static int cellCode(char c) {
+    return c == '.' ? 0 : c == 'B' ? 1 : c == 'W' ? 2 : -1;
+  }
+
+  private boolean single(CharSequence s, int op, ByteBuffer out) {
+    if (!end(s)) return false;
+    out.put((byte) op);
+    return true;
+  }
+
+  // KEYWORD followed by one space and an arbitrary rest
+  private boolean rest(CharSequence s, int op, ByteBuffer out) {
+    if (!space(s)) return false;
+    out.put((byte) op);
+    putString(s, at, s.length(), out);
+    return true;
+  }
+
+  private boolean varints(CharSequence s, int op, int count, ByteBuffer out) {
+    out.put((byte) op);
+    for (int i = 0; i < count; i++) {
+      long n = space(s) ? uint(s) : -1;
+      if (n < 0) return false;
+      putVarint(out, n);
+    }
+    return end(s);
+  }
+
+  private static void putText(CharSequence s, int from, int to, ByteBuffer out) {
+    out.put((byte) TEXT);
+    putString(s, from, to, out);
+  }
+
+  /* ===== Primitives ===== */
+
+  static void putVarint(ByteBuffer out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private long getVarint(ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.get(at++);
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+
+  // Varint byte length, then UTF-8
+  static void putString(CharSequence s, int from, int to, ByteBuffer out) {
+    int length = 0;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+    }
+    putVarint(out, length);
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < to
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        out.put((byte) (0xF0 | (cp >> 18))).put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+        out.put((byte) (0x80 | ((cp >> 6) & 0x3F))).put((byte) (0x80 | (cp & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogate: two bytes of '?' keep the announced length
+        out.put((byte) '?').put((byte) '?');
+      } else {
+        out.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        out.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  // Decode a string into the scratch buffer
+  private CharSequence getString(ByteBuffer in) {
+    int length = (int) getVarint(in);
+    int to = at + length;
+    scratch.setLength(0);
+    while (at < to) {
+      int b = in.get(at++) & 0xFF;
+      if (b < 0x80) {
+        scratch.append((char) b);
+      } else if (b < 0xE0) {
+        scratch.append((char) (((b & 0x1F) << 6) | (in.get(at++) & 0x3F)));
+      } else if (b < 0xF0) {
+        int c = ((b & 0x0F) << 12) | ((in.get(at++) & 0x3F) << 6) | (in.get(at++) & 0x3F);
+        scratch.append((char) c);
+      } else {
+        int cp =
+            ((b & 0x07) << 18)
+                | ((in.get(at++) & 0x3F) << 12)
+                | ((in.get(at++) & 0x3F) << 6)
+                | (in.get(at++) & 0x3F);
+        scratch.append(Character.highSurrogate(cp)).append(Character.lowSurrogate(cp));
+      }
+    }
+    return scratch;
+  }
+
+  private CharSequence clearScratch() {
+    scratch.setLength(0);
+    return scratch;
+  }
+
+  private void appendRest(ByteBuffer in, StringBuilder line) {
+    line.append(' ').append(getString(in));
+  }
+
+  private void appendVarints(ByteBuffer in, StringBuilder line, int count) {
+    for (int i = 0; i < count; i++) {
+      line.append(' ').append(getVarint(in));
+    }
+  }
+
+  private static Color color(byte code) {
+    if (code < 0 || code >= COLORS.length) {
+      throw new IllegalArgumentException("Bad color " + code);
+    }
+    return COLORS[code];
+  }
+}
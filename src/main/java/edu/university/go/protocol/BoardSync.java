@@ -0,0 +1,130 @@
+package edu.university.go.protocol;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+
+/**
+ * Incremental board updates, for clients that asked for them with {@code UPDATES DELTA}.
+ *
+ * <p>Instead of the whole text board after every move, such a client gets one full snapshot when
+ * the game starts (or when it asks with {@code RESYNC}) and then one short line per board change:
+ *
+ * <pre>
+ * SNAPSHOT seq size cells            cells: size*size of '.', 'B', 'W', row by row
+ * DELTA seq color point [captured]*  color: B or W; points are indices y * size + x
+ * </pre>
+ *
+ * The sequence number counts board changes since the snapshot, so passes and resignations do not
+ * produce a delta. The client side of this class applies both messages to a local {@link Board} and
+ * reports a gap in the sequence so the caller can ask for a resync.
+ */
+public class BoardSync {
+
+  public static final String SNAPSHOT = "SNAPSHOT";
+  public static final String DELTA = "DELTA";
+
+  private long sequence = -1;
+
+  /** Full board, row by row. */
+  public static String snapshot(long seq, Board board) {
+    int size = board.getSize();
+    StringBuilder sb = new StringBuilder(SNAPSHOT.length() + 24 + size * size);
+    sb.append(SNAPSHOT).append(' ').append(seq).append(' ').append(size).append(' ');
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        sb.append(symbol(board.get(x, y)));
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * The most recent placement on {@code board} and the stones it captured, see {@link
+   * Board#getLastMove}. Only valid right after a single placement.
+   */
+  public static String delta(long seq, Board board) {
+    int size = board.getSize();
+    int move = board.getLastMove();
+    if (move < 0) {
+      throw new IllegalStateException("Last board change was not a placement");
+    }
+    Color color = board.get(move % size, move / size);
+    StringBuilder sb = new StringBuilder(32);
+    sb.append(DELTA).append(' ').append(seq).append(' ').append(symbol(color)).append(' ');
+    sb.append(move);
+    for (int i = 0; i < board.getLastCapturedCount(); i++) {
+      sb.append(' ').append(board.getLastCaptured(i));
+    }
+    return sb.toString();
+  }
+
+  /** Sequence number of the last update applied, or -1 before the first snapshot. */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Apply a SNAPSHOT or DELTA line to {@code board}. Returns false, leaving the board untouched, if
+   * the line does not follow the last one applied or cannot be read; the client should then send
+   * {@code RESYNC}.
+   */
+  public boolean apply(String line, Board board) {
+    String[] parts = line.trim().split(" ");
+    try {
+      if (SNAPSHOT.equals(parts[0]) && parts.length == 4) {
+        long seq = Long.parseLong(parts[1]);
+        int size = Integer.parseInt(parts[2]);
+        String cells = parts[3];
+        if (size != board.getSize() || cells.length() != size * size) {
+          return false;
+        }
+        for (int i = 0; i < cells.length(); i++) {
+          board.setColor(i % size, i / size, color(cells.charAt(i)));
+        }
+        sequence = seq;
+        return true;
+      }
+
+      if (DELTA.equals(parts[0]) && parts.length >= 4) {
+        long seq = Long.parseLong(parts[1]);
+        if (sequence < 0 || seq != sequence + 1) {
+          return false;
+        }
+        int size = board.getSize();
+        Color color = color(parts[2].charAt(0));
+        int move = Integer.parseInt(parts[3]);
+        int[] captured = new int[parts.length - 4];
+        for (int i = 0; i < captured.length; i++) {
+          captured[i] = Integer.parseInt(parts[i + 4]);
+          if (captured[i] < 0 || captured[i] >= size * size) {
+            return false;
+          }
+        }
+        if (color == Color.EMPTY || move < 0 || move >= size * size) {
+          return false;
+        }
+        board.setColor(move % size, move / size, color);
+        for (int point : captured) {
+          board.setColor(point % size, point / size, Color.EMPTY);
+        }
+        sequence = seq;
+        return true;
+      }
+    } catch (RuntimeException e) {
+      // malformed, fall through
+    }
+    return false;
+  }
+
+  private static char symbol(Color color) {
+    if (color == Color.BLACK) return 'B';
+    if (color == Color.WHITE) return 'W';
+    return '.';
+  }
+
+  private static Color color(char symbol) {
+    if (symbol == 'B') return Color.BLACK;
+    if (symbol == 'W') return Color.WHITE;
+    return Color.EMPTY;
+  }
+}
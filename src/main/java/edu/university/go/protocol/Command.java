@@ -1,20 +1,177 @@
 package edu.university.go.protocol;
 
+/**
+ * A parsed client command: its type and the arguments after the keyword.
+ *
+ * <p>Built either whole from strings, or as a reusable holder that {@link StreamingCommandParser}
+ * refills for every line. A holder does not copy its arguments: it keeps their offsets in the
+ * parsed input and the int value of each numeric one, so reading a command from it allocates
+ * nothing. Its contents are only valid until the next line is parsed into it.
+ */
 public class Command {
 
-  private final CommandType type;
-  private final String[] args;
+  /** Arguments a reusable holder keeps; further ones are counted but not kept. */
+  public static final int MAX_ARGS = 8;
+
+  // Value of an argument that is not a decimal int
+  static final long NO_INT = Long.MIN_VALUE;
+
+  private CommandType type;
+  private String[] args;
+
+  // Reusable holder only
+  private CharSequence source;
+  private int argCount;
+  private int[] argStart;
+  private int[] argEnd;
+  private long[] argValue;
 
   public Command(CommandType type, String[] args) {
     this.type = type;
     this.args = args;
+    this.argCount = args.length;
+  }
+
+  /** An empty holder for {@link StreamingCommandParser} to fill. */
+  public Command() {
+    this.type = CommandType.UNKNOWN;
+    this.argStart = new int[MAX_ARGS];
+    this.argEnd = new int[MAX_ARGS];
+    this.argValue = new long[MAX_ARGS];
   }
 
   public CommandType getType() {
     return type;
   }
 
+  /** The arguments as strings; a holder copies them out of its input. */
   public String[] getArgs() {
-    return args;
+    if (source == null) {
+      return args;
+    }
+    String[] copy = new String[Math.min(argCount, MAX_ARGS)];
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = getArg(i);
+    }
+    return copy;
+  }
+
+  /** Number of arguments after the keyword, including any a holder did not keep. */
+  public int getArgCount() {
+    return argCount;
+  }
+
+  /** Argument {@code i} as a string, copied out of the input for a holder. */
+  public String getArg(int i) {
+    if (source == null) {
+      return args[i];
+    }
+    return source.subSequence(argStart[checked(i)], argEnd[i]).toString();
+  }
+
+  /** Whether argument {@code i} is a decimal int, as {@link Integer#parseInt} would accept it. */
+  public boolean isInt(int i) {
+    return value(i) != NO_INT;
+  }
+
+  /** Argument {@code i} as an int; only meaningful if {@link #isInt} holds. */
+  public int getInt(int i) {
+    return (int) value(i);
+  }
+
+  /** Whether argument {@code i} is exactly {@code word}. */
+  public boolean argEquals(int i, String word) {
+    return matches(i, word, false);
+  }
+
+  public boolean argEqualsIgnoreCase(int i, String word) {
+    return matches(i, word, true);
+  }
+
+  /* ===== Filled by StreamingCommandParser ===== */
+
+  void reset(CharSequence source) {
+    this.source = source;
+    this.type = CommandType.UNKNOWN;
+    this.argCount = 0;
+  }
+
+  void setType(CommandType type) {
+    this.type = type;
+  }
+
+  void addArg(int start, int end) {
+    if (argCount < MAX_ARGS) {
+      argStart[argCount] = start;
+      argEnd[argCount] = end;
+      argValue[argCount] = decode(source, start, end);
+    }
+    argCount++;
+  }
+
+  private long value(int i) {
+    if (source == null) {
+      return decode(args[i], 0, args[i].length());
+    }
+    return argValue[checked(i)];
+  }
+
+  private boolean matches(int i, String word, boolean ignoreCase) {
+    if (source == null) {
+      return ignoreCase ? word.equalsIgnoreCase(args[i]) : word.equals(args[i]);
+    }
+    int start = argStart[checked(i)];
+    return regionMatches(source, start, argEnd[i], word, ignoreCase);
+  }
+
+  private int checked(int i) {
+    if (i < 0 || i >= Math.min(argCount, MAX_ARGS)) {
+      throw new IndexOutOfBoundsException("No argument " + i);
+    }
+    return i;
+  }
+
+  /** Whether {@code text[start, end)} is {@code word}. */
+  static boolean regionMatches(
+      CharSequence text, int start, int end, String word, boolean ignoreCase) {
+    if (end - start != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      char a = text.charAt(start + i);
+      char b = word.charAt(i);
+      if (a != b && !(ignoreCase && Character.toUpperCase(a) == Character.toUpperCase(b))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** {@code text[start, end)} as a decimal int, or {@link #NO_INT}. */
+  static long decode(CharSequence text, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+      negative = text.charAt(i) == '-';
+      i++;
+    }
+    if (i == end) {
+      return NO_INT;
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return NO_INT;
+      }
+      value = value * 10 + (c - '0');
+      if (value > 1L << 31) {
+        return NO_INT;
+      }
+    }
+    if (negative) {
+      value = -value;
+    }
+    return value > Integer.MAX_VALUE ? NO_INT : value;
   }
 }
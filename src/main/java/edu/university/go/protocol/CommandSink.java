@@ -0,0 +1,33 @@
+package edu.university.go.protocol;
+
+import edu.university.go.board.Color;
+
+/**
+ * Receiver of decoded client commands, one call per command.
+ *
+ * <p>{@link CharSequence} arguments are views of the decoder's scratch buffer and are only valid
+ * during the call; copy them to keep them.
+ */
+public interface CommandSink {
+
+  void move(int x, int y, Color color);
+
+  void pass();
+
+  void resign();
+
+  void list();
+
+  /** Join a specific game, or quick match when {@code gameId} is empty. */
+  void join(CharSequence gameId);
+
+  /** Open a game; 0 and an empty rule name mean the server defaults. */
+  void create(int boardSize, CharSequence koRule);
+
+  void updates(boolean delta);
+
+  void resync();
+
+  /** Any other command, in its text form. */
+  void text(CharSequence line);
+}
@@ -2,9 +2,18 @@ package edu.university.go.protocol;
 
 public enum CommandType {
   JOIN,
+  WATCH,
+  CREATE,
+  BOT,
+  LIST,
   MOVE,
   PASS,
   RESIGN,
+  UPDATES,
+  RESYNC,
+  PING,
+  PONG,
+  RESUME,
   QUIT,
   UNKNOWN
 }
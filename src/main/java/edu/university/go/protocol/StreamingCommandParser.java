@@ -0,0 +1,107 @@
+package edu.university.go.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tokenizes a text command line in place into a reusable {@link Command}.
+ *
+ * <p>Accepts the same lines as {@code CommandParser}: tokens are separated by runs of whitespace
+ * (any char up to {@code ' '}), the keyword is matched case-insensitively, and unknown keywords
+ * give {@link CommandType#UNKNOWN}. Nothing is copied: the holder points back into the input, and
+ * numeric arguments are decoded while scanning. Bytes are read as ISO-8859-1, which is exact for
+ * the ASCII vocabulary of the protocol.
+ *
+ * <p>An instance holds the scratch state of one connection and is not thread-safe.
+ */
+public final class StreamingCommandParser {
+
+  private static final CommandType[] KEYWORDS = CommandType.values();
+
+  private final ByteView bytes = new ByteView();
+
+  /** Parse {@code line} into {@code into}; returns its type. */
+  public CommandType parse(CharSequence line, Command into) {
+    into.reset(line);
+    int end = line.length();
+    int i = 0;
+    boolean first = true;
+    while (true) {
+      while (i < end && line.charAt(i) <= ' ') {
+        i++;
+      }
+      if (i == end) {
+        return into.getType();
+      }
+      int start = i;
+      while (i < end && line.charAt(i) > ' ') {
+        i++;
+      }
+      if (first) {
+        into.setType(keyword(line, start, i));
+        first = false;
+      } else {
+        into.addArg(start, i);
+      }
+    }
+  }
+
+  /**
+   * Parse the bytes {@code [from, to)} of {@code buffer}, ignoring its position and limit. The
+   * holder reads from the buffer until the next parse, so the bytes must stay put until then.
+   */
+  public CommandType parse(ByteBuffer buffer, int from, int to, Command into) {
+    return parse(bytes.wrap(buffer, from, to), into);
+  }
+
+  private static CommandType keyword(CharSequence line, int start, int end) {
+    for (CommandType type : KEYWORDS) {
+      if (type != CommandType.UNKNOWN
+          && Command.regionMatches(line, start, end, type.name(), true)) {
+        return type;
+      }
+    }
+    return CommandType.UNKNOWN;
+  }
+
+  // Bytes of a buffer region as chars, reused for every line
+  private static final class ByteView implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int from;
+    private int length;
+
+    ByteView wrap(ByteBuffer buffer, int from, int to) {
+      this.buffer = buffer;
+      this.from = from;
+      this.length = to - from;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return (char) (buffer.get(from + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      StringBuilder sb = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+        sb.append(charAt(i));
+      }
+      return sb;
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length).toString();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package edu.university.go.scoring;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.GameEvent;
+import edu.university.go.game.GameObserver;
+
+/**
+ * Live territory and area estimate, kept up to date move by move.
+ *
+ * <p>Every empty point carries a region label, and every label keeps its size and border mask (see
+ * {@link RegionScorer}). After a placement only the region the stone landed in and the regions next
+ * to captured stones are relabeled, by flood-filling from the placed stone's empty neighbors and
+ * from the captured points. Everything else keeps its label. The tracker falls back to a full
+ * relabel when the board changed in any other way (undo, setColor, or a missed event), which it
+ * detects through {@link Board#getVersion()}.
+ */
+public class LiveScoreTracker implements GameObserver {
+
+  private final Board board;
+  private final int size;
+
+  // Region label per point, -1 for stones
+  private final int[] region;
+  private final int[] regionSize;
+  private final byte[] regionMask;
+  private final int[] retiredAt;
+
+  private final int[] freeLabels;
+  private int freeCount = 0;
+
+  // Flood-fill scratch
+  private final int[] queue;
+  private final int[] visited;
+  private int tail;
+  private int round = 0;
+
+  private int blackTerritory;
+  private int whiteTerritory;
+  private int blackStones;
+  private int whiteStones;
+  private long seenVersion;
+
+  public LiveScoreTracker(Board board) {
+    this.board = board;
+    this.size = board.getSize();
+    int n = size * size;
+    this.region = new int[n];
+    this.regionSize = new int[n];
+    this.regionMask = new byte[n];
+    this.retiredAt = new int[n];
+    this.freeLabels = new int[n];
+    this.queue = new int[n];
+    this.visited = new int[n];
+    rebuild();
+  }
+
+  @Override
+  public void onGameEvent(GameEvent event) {
+    if (event != GameEvent.INVALID_MOVE) {
+      sync();
+    }
+  }
+
+  /** Bring the estimate up to date with the board. */
+  public void sync() {
+    long version = board.getVersion();
+    if (version == seenVersion) return;
+    if (version == seenVersion + 1 && board.getLastMove() >= 0) {
+      applyPlacement();
+      seenVersion = version;
+    } else {
+      rebuild();
+    }
+  }
+
+  // Relabel every region from scratch
+  private void rebuild() {
+    round++;
+    freeCount = 0;
+    for (int label = size * size - 1; label >= 0; label--) {
+      freeLabels[freeCount++] = label;
+    }
+    blackTerritory = 0;
+    whiteTerritory = 0;
+    blackStones = 0;
+    whiteStones = 0;
+
+    for (int i = 0; i < size * size; i++) {
+      Color c = colorAt(i);
+      region[i] = -1;
+      if (c == Color.BLACK) blackStones++;
+      else if (c == Color.WHITE) whiteStones++;
+    }
+    for (int i = 0; i < size * size; i++) {
+      if (colorAt(i) == Color.EMPTY && visited[i] != round) {
+        flood(i);
+      }
+    }
+    seenVersion = board.getVersion();
+  }
+
+  // Update after the single placement recorded by the board
+  private void applyPlacement() {
+    round++;
+    int move = board.getLastMove();
+    int captured = board.getLastCapturedCount();
+    Color mover = colorAt(move);
+
+    if (mover == Color.BLACK) {
+      blackStones++;
+      whiteStones -= captured;
+    } else {
+      whiteStones++;
+      blackStones -= captured;
+    }
+
+    // The stone's own region is always affected, even if nothing is left of it
+    retire(region[move]);
+    region[move] = -1;
+    visited[move] = round;
+
+    int x = move % size;
+    int y = move / size;
+    if (x > 0) floodIfNew(move - 1);
+    if (x < size - 1) floodIfNew(move + 1);
+    if (y > 0) floodIfNew(move - size);
+    if (y < size - 1) floodIfNew(move + size);
+
+    for (int i = 0; i < captured; i++) {
+      floodIfNew(board.getLastCaptured(i));
+    }
+  }
+
+  private void floodIfNew(int start) {
+    if (visited[start] != round && colorAt(start) == Color.EMPTY) {
+      flood(start);
+    }
+  }
+
+  // Label the empty region containing start, retiring any old labels found in it
+  private void flood(int start) {
+    int head = 0;
+    int mask = 0;
+    tail = 0;
+    queue[tail++] = start;
+    visited[start] = round;
+
+    while (head < tail) {
+      int p = queue[head++];
+      int old = region[p];
+      if (old >= 0 && retiredAt[old] != round) {
+        retire(old);
+      }
+
+      int x = p % size;
+      int y = p / size;
+      if (x > 0) mask |= visit(p - 1);
+      if (x < size - 1) mask |= visit(p + 1);
+      if (y > 0) mask |= visit(p - size);
+      if (y < size - 1) mask |= visit(p + size);
+    }
+
+    int label = freeLabels[--freeCount];
+    retiredAt[label] = round; // fresh this round, never retire it again
+    regionSize[label] = tail;
+    regionMask[label] = (byte) mask;
+    for (int i = 0; i < tail; i++) {
+      region[queue[i]] = label;
+    }
+    addContribution(label, 1);
+  }
+
+  // Queue an empty neighbor, or return the border bit of a stone
+  private int visit(int n) {
+    Color c = colorAt(n);
+    if (c == Color.BLACK) return RegionScorer.BLACK_MASK;
+    if (c == Color.WHITE) return RegionScorer.WHITE_MASK;
+    if (visited[n] != round) {
+      visited[n] = round;
+      queue[tail++] = n;
+    }
+    return 0;
+  }
+
+  private void retire(int label) {
+    if (label < 0) return;
+    addContribution(label, -1);
+    retiredAt[label] = round;
+    freeLabels[freeCount++] = label;
+  }
+
+  private void addContribution(int label, int sign) {
+    if (regionMask[label] == RegionScorer.BLACK_MASK) {
+      blackTerritory += sign * regionSize[label];
+    } else if (regionMask[label] == RegionScorer.WHITE_MASK) {
+      whiteTerritory += sign * regionSize[label];
+    }
+  }
+
+  private Color colorAt(int index) {
+    return board.get(index % size, index / size);
+  }
+
+  public int getBlackTerritory() {
+    return blackTerritory;
+  }
+
+  public int getWhiteTerritory() {
+    return whiteTerritory;
+  }
+
+  /** Area score for black: stones plus territory. */
+  public int getBlackArea() {
+    return blackStones + blackTerritory;
+  }
+
+  /** Area score for white: stones plus territory. */
+  public int getWhiteArea() {
+    return whiteStones + whiteTerritory;
+  }
+}
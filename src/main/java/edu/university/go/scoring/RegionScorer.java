@@ -0,0 +1,152 @@
+package edu.university.go.scoring;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+
+/**
+ * Territory scorer that labels empty regions with a single raster-order union-find pass.
+ *
+ * <p>Each empty point is joined with its empty left and upper neighbors, and every stone next to an
+ * empty point ORs its color bit into that region's border mask. A region bordered only by black
+ * ({@link #BLACK_MASK}) or only by white ({@link #WHITE_MASK}) is that color's territory. All state
+ * lives in primitive arrays sized once per board size, so scoring the same size again allocates
+ * nothing.
+ */
+public class RegionScorer {
+
+  public static final int BLACK_MASK = 1;
+  public static final int WHITE_MASK = 2;
+
+  private final int size;
+  private final int[] parent;
+  private final byte[] masks;
+  private final byte[] owners;
+
+  private int blackTerritory;
+  private int whiteTerritory;
+  private int blackStones;
+  private int whiteStones;
+
+  public RegionScorer(int size) {
+    this.size = size;
+    this.parent = new int[size * size];
+    this.masks = new byte[size * size];
+    this.owners = new byte[size * size];
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /** Label all regions of the board and recount territory and stones. */
+  public void score(Board board) {
+    if (board.getSize() != size) {
+      throw new IllegalArgumentException("Scorer is for " + size + "x" + size + " boards");
+    }
+    blackStones = 0;
+    whiteStones = 0;
+
+    // Pass 1: union empty points, collect border colors per region
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int i = y * size + x;
+        int bit = bit(board.get(x, y));
+        if (bit == 0) {
+          parent[i] = i;
+          masks[i] = 0;
+        } else if (bit == BLACK_MASK) {
+          blackStones++;
+        } else {
+          whiteStones++;
+        }
+
+        if (x > 0) link(i, i - 1, bit, bit(board.get(x - 1, y)));
+        if (y > 0) link(i, i - size, bit, bit(board.get(x, y - 1)));
+      }
+    }
+
+    // Pass 2: resolve every point's owner
+    blackTerritory = 0;
+    whiteTerritory = 0;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int i = y * size + x;
+        int bit = bit(board.get(x, y));
+        if (bit != 0) {
+          owners[i] = (byte) bit;
+          continue;
+        }
+        int mask = masks[find(i)];
+        owners[i] = (byte) mask;
+        if (mask == BLACK_MASK) blackTerritory++;
+        else if (mask == WHITE_MASK) whiteTerritory++;
+      }
+    }
+  }
+
+  // Connect point i with its already-visited neighbor n
+  private void link(int i, int n, int bitI, int bitN) {
+    if (bitI == 0 && bitN == 0) {
+      union(i, n);
+    } else if (bitI == 0) {
+      masks[find(i)] |= (byte) bitN;
+    } else if (bitN == 0) {
+      masks[find(n)] |= (byte) bitI;
+    }
+  }
+
+  private int find(int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private void union(int a, int b) {
+    a = find(a);
+    b = find(b);
+    if (a == b) return;
+    // Keep the smaller index as root so roots stay stable in raster order
+    if (b < a) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    parent[b] = a;
+    masks[a] |= masks[b];
+  }
+
+  private static int bit(Color color) {
+    return switch (color) {
+      case BLACK -> BLACK_MASK;
+      case WHITE -> WHITE_MASK;
+      case EMPTY -> 0;
+    };
+  }
+
+  public int getBlackTerritory() {
+    return blackTerritory;
+  }
+
+  public int getWhiteTerritory() {
+    return whiteTerritory;
+  }
+
+  public int getBlackStones() {
+    return blackStones;
+  }
+
+  public int getWhiteStones() {
+    return whiteStones;
+  }
+
+  /**
+   * Owner mask of a point ({@code y * size + x}) after {@link #score}: for stones the stone's color
+   * bit, for empty points the border mask of their region ({@link #BLACK_MASK}, {@link
+   * #WHITE_MASK}, both for dame, 0 for a region touching no stones).
+   */
+  public int getOwnerMask(int index) {
+    return owners[index];
+  }
+}
@@ -2,7 +2,6 @@ package edu.university.go.scoring;
 
 import edu.university.go.board.Board;
 import edu.university.go.board.Color;
-import java.util.Map;
 
 public class ScoreCalculator {
 
@@ -17,14 +16,19 @@ public class ScoreCalculator {
   // Calculate final scores and determine the winner
   public GameResult calculateScore(Board board, int capturedByBlack, int capturedByWhite) {
     // Calculate territory
-    Map<Color, Integer> territory = territoryCounter.calculateTerritory(board);
+    RegionScorer territory = territoryCounter.scorerFor(board);
+    territory.score(board);
 
-    double blackScore = territory.get(Color.BLACK) + capturedByBlack;
-    double whiteScore = territory.get(Color.WHITE) + capturedByWhite + komi;
+    double blackScore = territory.getBlackTerritory() + capturedByBlack;
+    double whiteScore = territory.getWhiteTerritory() + capturedByWhite + komi;
 
     Color winner = blackScore > whiteScore ? Color.BLACK : Color.WHITE;
     double margin = Math.abs(blackScore - whiteScore);
 
     return new GameResult(blackScore, whiteScore, winner, margin);
   }
+
+  public double getKomi() {
+    return komi;
+  }
 }
@@ -0,0 +1,146 @@
+package edu.university.go.server;
+
+import edu.university.go.ai.MctsEngine;
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.GameClock;
+import edu.university.go.game.Move;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A seat played by {@link MctsEngine}: a client handler with no connection, which the session tells
+ * of its color and turns through {@link #onSeated} and {@link #onTurn}, and which answers with
+ * moves as a client would. Nothing the session sends is written anywhere, and no text board is
+ * formatted for it.
+ *
+ * <p>The hooks run on the session's mailbox thread, so on its turn the bot copies the position
+ * there, then searches on the thinking pool and posts its move back like any player. It has {@link
+ * #THINK_MILLIS} a move from its turn unless told otherwise, and in a timed game never more than a
+ * tenth of what is left before its flag would fall; time spent waiting for a thinker counts. A move
+ * the game refuses, e.g. under superko, is answered with a pass.
+ */
+class BotPlayer extends ClientHandler {
+
+  // Thinking time per move unless the registry sets another
+  static final long THINK_MILLIS = 1000;
+
+  /** Where bots search, a thread per core shared by every bot on the server. */
+  static final Executor THINKERS = newThinkerPool();
+
+  private final GameSession game;
+  private final Executor thinkers;
+  private final long thinkMillis;
+  private final MctsEngine engine;
+
+  // Only used on the session's mailbox thread
+  private Color color;
+
+  BotPlayer(GameSession game, Executor thinkers, long thinkMillis) {
+    super(null, null, game);
+    this.game = game;
+    this.thinkers = thinkers;
+    this.thinkMillis = thinkMillis;
+    this.engine = new MctsEngine(game.getKomi());
+  }
+
+  private static Executor newThinkerPool() {
+    AtomicLong threads = new AtomicLong();
+    return Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        task -> {
+          Thread thread = new Thread(task, "bot-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /** Take the next free seat of the game. */
+  void sit() {
+    game.addPlayer(getPlayerId(), this);
+  }
+
+  /** Take back the seat {@code playerId} had in a game rebuilt from the journal. */
+  void sitBack(String playerId) {
+    playAs(playerId);
+    game.resumePlayer(playerId, this);
+  }
+
+  @Override
+  boolean wantsDeltas() {
+    // Reads the board itself, so the session formats no text board on its account
+    return true;
+  }
+
+  @Override
+  void onSeated(Color color) {
+    this.color = color;
+  }
+
+  @Override
+  void onTurn(Color toMove) {
+    if (toMove == color) {
+      think();
+    }
+  }
+
+  @Override
+  void onMoveRefused(Move move, String reason) {
+    // A game that ended while the bot was thinking takes no pass either
+    if (!game.getGame().isOver()) {
+      game.handlePass(getPlayerId());
+    }
+  }
+
+  @Override
+  void seatRefused(GameSession refused) {
+    System.out.println("[BotPlayer] No seat for " + getPlayerId() + " in game " + refused.getId());
+  }
+
+  // On the mailbox thread: copy the position, then search off it
+  private void think() {
+    Game position = game.getGame();
+    Board board = position.getBoard().clone();
+    BitSet legal = (BitSet) position.getLegalMoves().clone();
+    List<Move> moves = position.getMoves();
+    boolean opponentPassed = !moves.isEmpty() && moves.get(moves.size() - 1).isPass();
+    long budget = thinkMillis;
+    GameClock clock = position.getClock();
+    if (clock != null && !clock.getTimeControl().isUntimed()) {
+      budget = Math.min(budget, Math.max(1, clock.millisUntilFlag() / 10));
+    }
+    // From the turn, not from when a thinker is free; a search that waited past it plays at once
+    long deadline = System.nanoTime() + budget * 1_000_000;
+    Color me = color;
+    String id = getPlayerId();
+    thinkers.execute(
+        () -> {
+          MctsEngine.Choice choice;
+          try {
+            choice = engine.choose(board, me, legal, opponentPassed, deadline);
+          } catch (RuntimeException e) {
+            System.out.println("[BotPlayer] Search failed, passing: " + e);
+            game.handlePass(id);
+            return;
+          }
+          System.out.println(
+              "[BotPlayer] "
+                  + id
+                  + " plays "
+                  + (choice.isPass() ? "PASS" : choice.x() + "," + choice.y())
+                  + " after "
+                  + choice.playouts()
+                  + " playouts, win rate "
+                  + String.format("%.2f", choice.winRate()));
+          if (choice.isPass()) {
+            game.handlePass(id);
+          } else {
+            game.handleMove(new Move(me, choice.x(), choice.y(), id));
+          }
+        });
+  }
+}
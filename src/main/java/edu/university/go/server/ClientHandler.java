@@ -2,72 +2,764 @@ package edu.university.go.server;
 
 import edu.university.go.board.Color;
 import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import edu.university.go.protocol.BinaryCodec;
+import edu.university.go.protocol.Command;
+import edu.university.go.protocol.CommandSink;
+import edu.university.go.protocol.CommandType;
+import edu.university.go.protocol.StreamingCommandParser;
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-class ClientHandler implements Runnable {
+/**
+ * One client connection. Text lines are parsed in place by a {@link StreamingCommandParser}, binary
+ * frames are decoded straight into the {@link CommandSink} methods, and both end up in the same
+ * lobby and game logic.
+ *
+ * <p>Replies go into a bounded {@link Outbox} and are written out in batches: after each command
+ * here, and after each event by the session. A client whose outbox fills up is handled by its
+ * {@link SlowConsumerPolicy}.
+ *
+ * <p>Once open, a connection is checked on the shared {@link TimingWheel}: a client that has sent
+ * nothing for a heartbeat interval gets a {@code PING}, and one silent for {@link #IDLE_BEATS}
+ * intervals is closed. The greeting {@code CONNECTED <playerId> <token>} carries a resume token; a
+ * player whose connection drops can send {@code RESUME <token>} on a new one to get their seat
+ * back.
+ */
+class ClientHandler implements Runnable, CommandSink {
+
+  // Most games a LIST reply shows
+  private static final int LIST_LIMIT = 50;
+  private static final Color[] COLORS = Color.values();
+
+  // Lines an outbox holds before its client counts as too slow; about 40 text board updates
+  static final int OUTBOX_CAPACITY = 1024;
+
+  // Socket writers of the thread-per-connection transports. An outbox writes one batch at a time,
+  // so a client that stopped reading holds at most one of them; past that, batches wait their turn
+  static final int WRITER_THREADS = Math.max(32, 8 * Runtime.getRuntime().availableProcessors());
+  static final Executor WRITERS = newWriterPool();
+
+  // Quiet time before a PING, and the intervals without input after which a client is dropped
+  static final long HEARTBEAT_MILLIS = 15_000;
+  static final int IDLE_BEATS = 3;
+
+  private static final SecureRandom TOKENS = new SecureRandom();
 
   private final Socket socket;
-  private final GameSession session;
-  private final String playerId = UUID.randomUUID().toString();
+  private final SessionRegistry registry;
+  // Set by this handler's thread, cleared by the session's when a seat is refused
+  private volatile GameSession session;
+  // Whether session is a game this client only watches
+  private volatile boolean spectating;
+  // Both taken over from the old connection on RESUME
+  private volatile String playerId = UUID.randomUUID().toString();
+  private volatile String resumeToken = newToken();
+
+  private volatile Outbox outbox;
+  private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.SNAPSHOT;
+  private Executor writers = WRITERS;
+  // Under SNAPSHOT, set from an overflow until the client read everything written before it
+  private final AtomicBoolean behind = new AtomicBoolean();
+  // Board updates as BoardSync deltas instead of text boards
+  private volatile boolean deltaUpdates;
 
-  private PrintWriter out;
-  private BufferedReader in;
+  private TimingWheel timers = TimingWheel.shared();
+  private long heartbeatMillis = HEARTBEAT_MILLIS;
+  private volatile long lastHeard = System.nanoTime();
+  private volatile TimingWheel.Timeout heartbeat;
+  private volatile boolean gone;
 
+  // Text commands are parsed in place into one reused holder, on the reading thread
+  private final StreamingCommandParser parser = new StreamingCommandParser();
+  private final Command command = new Command();
+
+  // Attached to a fixed session
   ClientHandler(Socket socket, GameSession session) {
+    this(socket, null, session);
+  }
+
+  ClientHandler(Socket socket, SessionRegistry registry, GameSession session) {
     this.socket = socket;
+    this.registry = registry;
     this.session = session;
   }
 
+  // Starts in the lobby of the registry
+  static ClientHandler inLobby(Socket socket, SessionRegistry registry) {
+    return new ClientHandler(socket, registry, null);
+  }
+
+  // Driven by a non-blocking transport instead of run()
+  static ClientHandler inLobby(Connection connection, SessionRegistry registry) {
+    ClientHandler handler = new ClientHandler(null, registry, null);
+    // Non-blocking writes, so batches go out on the flushing thread
+    handler.outbox = new Outbox(connection, OUTBOX_CAPACITY, Mailbox.DIRECT);
+    return handler;
+  }
+
+  ClientHandler slowConsumers(SlowConsumerPolicy policy) {
+    this.slowConsumerPolicy = policy;
+    return this;
+  }
+
+  // Where run() writes its socket; WRITERS unless set
+  ClientHandler writers(Executor writers) {
+    this.writers = writers;
+    return this;
+  }
+
+  // Heartbeat interval and the wheel it runs on; HEARTBEAT_MILLIS on the shared wheel unless set
+  ClientHandler heartbeats(TimingWheel timers, long intervalMillis) {
+    this.timers = timers;
+    this.heartbeatMillis = intervalMillis;
+    return this;
+  }
+
+  private static String newToken() {
+    byte[] bytes = new byte[16];
+    TOKENS.nextBytes(bytes);
+    return HexFormat.of().formatHex(bytes);
+  }
+
+  private static Executor newWriterPool() {
+    AtomicLong threads = new AtomicLong();
+    return Executors.newFixedThreadPool(
+        WRITER_THREADS,
+        task -> {
+          Thread thread = new Thread(task, "writer-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Blocking transport: read commands from the socket on the calling thread until it closes. The
+   * first byte decides between text lines and binary frames.
+   */
   @Override
   public void run() {
     try {
-      in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-      out = new PrintWriter(socket.getOutputStream(), true);
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      OutputStream out = socket.getOutputStream();
+      outbox = new Outbox(new StreamConnection(this, socket, out, null), OUTBOX_CAPACITY, writers);
 
-      session.addPlayer(playerId, this);
-      send("CONNECTED " + playerId);
+      opened();
 
-      String line;
-      while ((line = in.readLine()) != null) {
-        handleCommand(line);
+      in.mark(1);
+      if (in.read() == (BinaryCodec.MAGIC & 0xFF)) {
+        if (in.read() != BinaryCodec.VERSION) {
+          send("ERROR: Unsupported binary protocol version");
+          flush();
+          return;
+        }
+        outbox.switchTo(new StreamConnection(this, socket, out, new BinaryCodec()));
+        upgraded();
+        readFrames(in);
+      } else {
+        in.reset();
+        readLines(in);
       }
 
     } catch (IOException e) {
-      send("ERROR: connection lost");
+      // Nobody left to tell
+      System.out.println("[ClientHandler] Connection of " + playerId + " lost: " + e.getMessage());
+    } finally {
+      closed();
     }
   }
 
-  public void handleCommand(String line) {
-    String[] parts = line.trim().split("\\s+");
-    String command = parts.length > 0 ? parts[0].toUpperCase() : "";
+  // Lines are split in one reused buffer and parsed in place, as on the NIO transport
+  private void readLines(InputStream in) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(NioTransport.MAX_LINE);
+    byte[] bytes = buffer.array();
+    int end = 0;
+    while (true) {
+      int n = in.read(bytes, end, bytes.length - end);
+      heard();
+      if (n < 0) {
+        if (end > 0) {
+          handleLine(buffer, 0, end);
+          flush();
+        }
+        return;
+      }
+      int start = 0;
+      for (int i = end; i < end + n; i++) {
+        if (bytes[i] == '\n') {
+          handleLine(buffer, start, i);
+          start = i + 1;
+        }
+      }
+      end += n - start;
+      System.arraycopy(bytes, start, bytes, 0, end);
+      flush();
+      if (end == bytes.length) {
+        send("ERROR: Line too long");
+        flush();
+        return;
+      }
+    }
+  }
 
-    if ("MOVE".equals(command) && parts.length == 4) {
-      // format: MOVE x y COLOR
+  // Frames are read whole into one reused buffer, then decoded in place
+  private void readFrames(InputStream in) throws IOException {
+    BinaryCodec codec = new BinaryCodec();
+    ByteBuffer frame = ByteBuffer.allocate(BinaryCodec.MAX_FRAME + 2);
+    byte[] bytes = frame.array();
+    while (true) {
+      frame.clear();
+      int length = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = in.read();
+        if (b < 0) return;
+        if (shift > 7) {
+          send("ERROR: Bad frame");
+          flush();
+          return;
+        }
+        frame.put((byte) b);
+        length |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) break;
+      }
+      int header = frame.position();
+      if (in.readNBytes(bytes, header, length) < length) return;
+      heard();
+      frame.position(0).limit(header + length);
       try {
-        int x = Integer.parseInt(parts[1]);
-        int y = Integer.parseInt(parts[2]);
-        Color color = Color.valueOf(parts[3]);
-        session.handleMove(new Move(color, x, y, playerId));
-      } catch (Exception e) {
-        System.err.println("Error parsing MOVE command: " + e.getMessage());
-        session.handleMove(new Move(Color.BLACK, -1, -1, playerId));
-      }
-    } else if ("PASS".equals(command)) {
+        codec.decodeCommand(frame, this);
+      } catch (RuntimeException e) {
+        send("ERROR: Bad frame");
+        flush();
+        return;
+      }
+      flush();
+    }
+  }
+
+  /** Called once by the transport when the connection is up. */
+  void opened() {
+    if (session != null) {
+      session.addPlayer(playerId, this);
+    }
+    send("CONNECTED " + playerId + " " + resumeToken);
+    flush();
+    heard();
+    heartbeat = timers.schedule(this::beat, heartbeatMillis);
+  }
+
+  /** Called by the transport once the client switched to binary; repeats the greeting. */
+  void upgraded() {
+    send("CONNECTED " + playerId + " " + resumeToken);
+    flush();
+  }
+
+  /** Called once by the transport after the connection is gone. */
+  void closed() {
+    gone = true;
+    TimingWheel.Timeout h = heartbeat;
+    if (h != null) {
+      h.cancel();
+    }
+    GameSession current = session;
+    if (current == null) return;
+    if (registry != null && !spectating) {
+      // The seat is held for a while in case the client comes back with RESUME
+      current.disconnectPlayer(playerId, this);
+    } else {
+      current.removePlayer(playerId);
+    }
+  }
+
+  /** Called by the transport whenever the client sent something. */
+  void heard() {
+    lastHeard = System.nanoTime();
+  }
+
+  // On the wheel's thread, once per interval while the connection is open
+  private void beat() {
+    if (gone) return;
+    long quiet = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastHeard);
+    if (quiet >= IDLE_BEATS * heartbeatMillis) {
+      System.out.println("[ClientHandler] Closing idle client " + playerId);
+      close();
+      return;
+    }
+    if (quiet >= heartbeatMillis) {
+      send("PING");
+      flush();
+    }
+    heartbeat = timers.schedule(this::beat, heartbeatMillis);
+  }
+
+  /** Close the connection; the transport then calls {@link #closed}. */
+  void close() {
+    Outbox o = outbox;
+    if (o != null) {
+      o.close();
+    }
+  }
+
+  /** Handle one text command line and write out the replies. */
+  public void handleCommand(CharSequence line) {
+    parser.parse(line, command);
+    dispatch(command);
+    flush();
+  }
+
+  /**
+   * Handle the text command line in {@code buffer[from, to)}, parsed in place. Replies stay queued
+   * until the transport calls {@link #flush}, typically once per read.
+   */
+  void handleLine(ByteBuffer buffer, int from, int to) {
+    parser.parse(buffer, from, to, command);
+    dispatch(command);
+  }
+
+  private void dispatch(Command c) {
+    switch (c.getType()) {
+      case UPDATES -> {
+        // format: UPDATES DELTA|TEXT
+        if (c.getArgCount() == 1
+            && (c.argEqualsIgnoreCase(0, "DELTA") || c.argEqualsIgnoreCase(0, "TEXT"))) {
+          updates(c.argEqualsIgnoreCase(0, "DELTA"));
+        } else {
+          send("ERROR: Usage UPDATES DELTA|TEXT");
+        }
+      }
+      // format: LIST -> GAMES n, then GAME id size players per open game
+      case LIST -> list();
+      // format: JOIN <id>, or JOIN for a quick match
+      case JOIN -> join(c.getArgCount() > 0 ? c.getArg(0) : "");
+      // format: WATCH <id> -> WATCHING <id>, then the game as its players see it
+      case WATCH -> {
+        if (c.getArgCount() == 1) {
+          watch(c.getArg(0));
+        } else {
+          send("ERROR: Usage WATCH <id>");
+        }
+      }
+      case CREATE, BOT -> {
+        // format: CREATE|BOT [size] [koRule] [timeControl]
+        if (c.getArgCount() > 0 && !c.isInt(0)) {
+          send("ERROR: For input string: \"" + c.getArg(0) + "\"");
+          return;
+        }
+        create(
+            c.getArgCount() > 0 ? c.getInt(0) : 0,
+            c.getArgCount() > 1 ? c.getArg(1) : "",
+            c.getArgCount() > 2 ? c.getArg(2) : "",
+            c.getType() == CommandType.BOT);
+      }
+      case MOVE -> {
+        // format: MOVE x y COLOR
+        if (c.getArgCount() != 3) {
+          invalid();
+          return;
+        }
+        Color color = color(c, 2);
+        if (!c.isInt(0) || !c.isInt(1) || color == null) {
+          System.err.println("Error parsing MOVE command: " + String.join(" ", c.getArgs()));
+          invalid();
+          return;
+        }
+        move(c.getInt(0), c.getInt(1), color);
+      }
       // format: PASS
-      session.handlePass(playerId);
-    } else if ("RESIGN".equals(command)) {
+      case PASS -> pass();
       // format: RESIGN
-      session.handleResign(playerId);
+      case RESIGN -> resign();
+      // format: RESYNC -> SNAPSHOT
+      case RESYNC -> resync();
+      // format: PING -> PONG; any input counts as a heartbeat, so PONG needs no reply
+      case PING -> send("PONG");
+      case PONG -> {}
+      // format: RESUME <token> -> RESUMED <id>, then the game as it stands
+      case RESUME -> {
+        if (c.getArgCount() == 1) {
+          resume(c.getArg(0));
+        } else {
+          send("ERROR: Usage RESUME <token>");
+        }
+      }
+      default -> invalid();
+    }
+  }
+
+  // Color named by argument i, spelled as the enum constant, or null
+  private static Color color(Command c, int i) {
+    for (Color color : COLORS) {
+      if (c.argEquals(i, color.name())) {
+        return color;
+      }
+    }
+    return null;
+  }
+
+  /* ===== Commands, from either protocol ===== */
+
+  @Override
+  public void move(int x, int y, Color color) {
+    GameSession game = seat();
+    if (game != null) {
+      game.handleMove(new Move(color, x, y, playerId));
+    }
+  }
+
+  @Override
+  public void pass() {
+    GameSession game = seat();
+    if (game != null) {
+      game.handlePass(playerId);
+    }
+  }
+
+  @Override
+  public void resign() {
+    GameSession game = seat();
+    if (game != null) {
+      game.handleResign(playerId);
+    }
+  }
+
+  @Override
+  public void resync() {
+    GameSession game = game();
+    if (game != null) {
+      game.resync(playerId);
+    }
+  }
+
+  @Override
+  public void updates(boolean delta) {
+    deltaUpdates = delta;
+    send("UPDATES " + (delta ? "DELTA" : "TEXT"));
+  }
+
+  @Override
+  public void text(CharSequence line) {
+    handleCommand(line);
+  }
+
+  // For invalid commands
+  private void invalid() {
+    GameSession game = seat();
+    if (game != null) {
+      game.handleMove(new Move(Color.BLACK, -1, -1, playerId));
+    }
+  }
+
+  // Current game, or null after telling the client it is not in one
+  private GameSession game() {
+    GameSession current = currentSession();
+    if (current == null) {
+      send("ERROR: Not in a game, use CREATE, JOIN <id> or LIST");
+    }
+    return current;
+  }
+
+  // Current game if this client plays in it, or null after telling it why not
+  private GameSession seat() {
+    GameSession current = game();
+    if (current != null && spectating) {
+      send("ERROR: Spectators cannot play");
+      return null;
+    }
+    return current;
+  }
+
+  private GameSession currentSession() {
+    GameSession current = session;
+    // Back to the lobby once the game is over
+    if (current != null && current.isFinished() && registry != null) {
+      session = null;
+      spectating = false;
+      return null;
+    }
+    return current;
+  }
+
+  @Override
+  public void list() {
+    if (!lobbyAvailable()) return;
+    List<GameSession> open = registry.listOpen(LIST_LIMIT);
+    send("GAMES " + open.size());
+    for (GameSession s : open) {
+      send("GAME " + s.getId() + " " + s.getBoardSize() + " " + s.getPlayerCount());
+    }
+  }
+
+  @Override
+  public void create(int boardSize, CharSequence koRule) {
+    create(boardSize, koRule, "", false);
+  }
+
+  // An empty ko rule or time control means the server's default; a bot takes the second seat
+  private void create(
+      int boardSize, CharSequence koRule, CharSequence timeControl, boolean againstBot) {
+    if (!lobbyAvailable() || inGame()) return;
+    int size = boardSize > 0 ? boardSize : registry.getDefaultBoardSize();
+    String rule = koRule.length() > 0 ? koRule.toString() : registry.getDefaultKoRule();
+    if (size != 9 && size != 13 && size != 19) {
+      send("ERROR: Board size must be 9, 13, or 19");
+      return;
+    }
+    GameSession target;
+    try {
+      TimeControl clock =
+          timeControl.length() > 0
+              ? TimeControl.parse(timeControl.toString())
+              : registry.getDefaultTimeControl();
+      target = registry.create(size, rule, clock);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      send("ERROR: " + e.getMessage());
+      return;
+    }
+    send("CREATED " + target.getId());
+    take(target);
+    if (againstBot) {
+      registry.seatBot(target);
+    }
+  }
+
+  @Override
+  public void join(CharSequence gameId) {
+    if (!lobbyAvailable() || inGame()) return;
+    GameSession target;
+    if (gameId.length() > 0) {
+      target = registry.get(gameId.toString());
+      if (target == null) {
+        send("ERROR: No game " + gameId);
+        return;
+      }
     } else {
-      // For invalid commands
-      session.handleMove(new Move(Color.BLACK, -1, -1, playerId));
+      // quick match
+      try {
+        target = registry.quickMatch();
+      } catch (IllegalStateException e) {
+        send("ERROR: " + e.getMessage());
+        return;
+      }
+    }
+    take(target);
+  }
+
+  void watch(CharSequence gameId) {
+    if (!lobbyAvailable() || inGame()) return;
+    GameSession target = registry.get(gameId.toString());
+    if (target == null || target.isFinished()) {
+      send("ERROR: No game " + gameId);
+      return;
+    }
+    send("WATCHING " + target.getId());
+    spectating = true;
+    session = target;
+    target.addSpectator(playerId, this);
+  }
+
+  void resume(String token) {
+    if (!lobbyAvailable() || inGame()) return;
+    SessionRegistry.Seat seat = registry.seat(token);
+    if (seat == null || seat.session().isFinished()) {
+      send("ERROR: Nothing to resume");
+      return;
+    }
+    playerId = seat.playerId();
+    resumeToken = token;
+    spectating = false;
+    session = seat.session();
+    send("RESUMED " + seat.session().getId());
+    seat.session().resumePlayer(playerId, this);
+  }
+
+  private boolean lobbyAvailable() {
+    if (registry == null) {
+      send("ERROR: Lobby is not available");
+      return false;
+    }
+    return true;
+  }
+
+  private boolean inGame() {
+    GameSession current = currentSession();
+    if (current != null) {
+      send("ERROR: Already in game " + current.getId());
+      return true;
+    }
+    return false;
+  }
+
+  private void take(GameSession target) {
+    send("JOINED " + target.getId());
+    spectating = false;
+    session = target;
+    registry.holdSeat(resumeToken, target, playerId);
+    target.addPlayer(playerId, this);
+  }
+
+  boolean wantsDeltas() {
+    return deltaUpdates;
+  }
+
+  String getResumeToken() {
+    return resumeToken;
+  }
+
+  String getPlayerId() {
+    return playerId;
+  }
+
+  // Under the id a journal knew this seat by, for a bot seated again in a recovered game
+  void playAs(String playerId) {
+    this.playerId = playerId;
+  }
+
+  /** Called by a session that could not seat this player. */
+  void seatRefused(GameSession refused) {
+    if (session == refused) {
+      session = null;
+      if (registry != null) {
+        registry.releaseSeat(resumeToken);
+      }
     }
   }
 
+  /** Called by the session, on its mailbox thread, with the color this player is seated as. */
+  void onSeated(Color color) {}
+
+  /** Called by the session, on its mailbox thread, whenever {@code toMove} is to play. */
+  void onTurn(Color toMove) {}
+
+  /** Called by the session when the game refused a stone this player placed. */
+  void onMoveRefused(Move move, String reason) {
+    send("ERROR: " + reason);
+  }
+
+  /** Queue a line for the client; it goes out with the next {@link #flush}. */
   void send(String msg) {
-    out.println(msg);
-    out.flush(); // Ensure message is sent immediately
+    Outbox o = outbox;
+    if (o != null && !behind.get() && !o.offer(msg)) {
+      fellBehind();
+    }
+  }
+
+  /** Queue an update shared with other connections, see {@link SharedUpdate}. */
+  void send(SharedUpdate update) {
+    Outbox o = outbox;
+    if (o != null && !behind.get() && !o.offer(update)) {
+      fellBehind();
+    }
+  }
+
+  /** Write out everything queued by {@link #send}, without blocking on the socket. */
+  void flush() {
+    Outbox o = outbox;
+    if (o != null) {
+      o.flush();
+    }
+  }
+
+  /** Write nothing, whoever flushes, until {@link #release}; see {@link Outbox#hold}. */
+  void hold() {
+    Outbox o = outbox;
+    if (o != null) {
+      o.hold();
+    }
+  }
+
+  /** Write out what was held, and what is sent from now on with each {@link #flush}. */
+  void release() {
+    Outbox o = outbox;
+    if (o != null) {
+      o.release();
+    }
+  }
+
+  /** Called when more output is waiting for the client than its connection may hold. */
+  void fellBehind() {
+    Outbox o = outbox;
+    o.clear();
+    if (slowConsumerPolicy == SlowConsumerPolicy.DISCONNECT) {
+      System.out.println("[ClientHandler] Dropping slow client " + playerId);
+      o.close();
+    } else if (behind.compareAndSet(false, true)) {
+      System.out.println("[ClientHandler] " + playerId + " fell behind, skipping to the board");
+    }
+  }
+
+  /** Called by the connection whenever everything it was given has been written. */
+  void drained() {
+    if (behind.compareAndSet(true, false)) {
+      GameSession current = session;
+      if (current != null) {
+        current.refresh(playerId);
+      }
+    }
+  }
+
+  /**
+   * Socket output for the thread-per-connection transports, as text lines or binary frames. Each
+   * batch from the {@link Outbox} is encoded into one buffer and written with a single call, on the
+   * outbox's writer thread.
+   */
+  private static final class StreamConnection implements Connection {
+
+    private final ClientHandler handler;
+    private final Socket socket;
+    private final OutputStream out;
+    // Binary mode only
+    private final BinaryCodec codec;
+    // Writer thread only; grows to the largest batch
+    private ByteBuffer batch = ByteBuffer.allocate(8192);
+
+    StreamConnection(ClientHandler handler, Socket socket, OutputStream out, BinaryCodec codec) {
+      this.handler = handler;
+      this.socket = socket;
+      this.out = out;
+      this.codec = codec;
+    }
+
+    @Override
+    public void write(List<Object> entries) {
+      batch.clear();
+      for (Object entry : entries) {
+        ensure(Outbox.maxBytes(entry, codec));
+        Outbox.encode(entry, batch, codec);
+      }
+      try {
+        out.write(batch.array(), 0, batch.position());
+        out.flush();
+      } catch (IOException e) {
+        close();
+        return;
+      }
+      handler.drained();
+    }
+
+    private void ensure(int bytes) {
+      if (batch.remaining() < bytes) {
+        int capacity = Math.max(batch.capacity() * 2, batch.position() + bytes);
+        batch = ByteBuffer.allocate(capacity).put(batch.flip());
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // already gone
+      }
+    }
   }
 }
@@ -3,6 +3,10 @@ package edu.university.go.server;
 import edu.university.go.protocol.Command;
 import edu.university.go.protocol.CommandType;
 
+/**
+ * Parses a command line into a new {@link Command} with string arguments. Connections use the
+ * allocation-free {@link edu.university.go.protocol.StreamingCommandParser} instead.
+ */
 public class CommandParser {
 
   private CommandParser() {
@@ -20,9 +24,18 @@ public class CommandParser {
     CommandType type =
         switch (keyword) {
           case "JOIN" -> CommandType.JOIN;
+          case "WATCH" -> CommandType.WATCH;
+          case "CREATE" -> CommandType.CREATE;
+          case "BOT" -> CommandType.BOT;
+          case "LIST" -> CommandType.LIST;
           case "MOVE" -> CommandType.MOVE;
           case "PASS" -> CommandType.PASS;
           case "RESIGN" -> CommandType.RESIGN;
+          case "UPDATES" -> CommandType.UPDATES;
+          case "RESYNC" -> CommandType.RESYNC;
+          case "PING" -> CommandType.PING;
+          case "PONG" -> CommandType.PONG;
+          case "RESUME" -> CommandType.RESUME;
           case "QUIT" -> CommandType.QUIT;
           default -> CommandType.UNKNOWN;
         };
@@ -0,0 +1,20 @@
+package edu.university.go.server;
+
+import java.util.List;
+
+/**
+ * Outbound side of one client connection, as seen by its {@link ClientHandler}.
+ *
+ * <p>Lines reach it through the handler's {@link Outbox}, which calls {@link #write} from one
+ * thread at a time. {@link #close} may be called from any thread.
+ */
+interface Connection {
+
+  /**
+   * Write a batch at once. Entries are protocol lines ({@code String}) or {@link SharedUpdate}s,
+   * put on the wire with {@link Outbox#encode}.
+   */
+  void write(List<Object> batch);
+
+  void close();
+}
@@ -2,10 +2,61 @@ package edu.university.go.server;
 
 import edu.university.go.board.Board;
 import edu.university.go.game.Game;
+import edu.university.go.game.GameClock;
+import edu.university.go.game.TimeControl;
+import edu.university.go.validators.KoRule;
+import edu.university.go.validators.KoValidator;
+import edu.university.go.validators.SuperkoRule;
+import java.util.function.LongSupplier;
 
 public class GameFactory {
 
   public static Game createGame(int boardSize) {
     return new Game(new Board(boardSize));
   }
+
+  public static Game createGame(int boardSize, KoValidator koRule) {
+    return new Game(new Board(boardSize), koRule);
+  }
+
+  /** A game played on a clock, unless {@code timeControl} is untimed. */
+  public static Game createGame(int boardSize, KoValidator koRule, TimeControl timeControl) {
+    GameClock clock = timeControl.isUntimed() ? null : new GameClock(timeControl);
+    return new Game(new Board(boardSize), koRule, clock);
+  }
+
+  /** As above, with the clock reading {@code millis}. */
+  public static Game createGame(
+      int boardSize, KoValidator koRule, TimeControl timeControl, LongSupplier millis) {
+    GameClock clock = timeControl.isUntimed() ? null : new GameClock(timeControl, millis);
+    return new Game(new Board(boardSize), koRule, clock);
+  }
+
+  /**
+   * Ko rule by name: "simple" (default), "positional" or "situational" superko.
+   *
+   * @throws IllegalArgumentException for an unknown name
+   */
+  public static KoValidator koRule(String name) {
+    return switch (koRuleName(name)) {
+      case "positional" -> new SuperkoRule(SuperkoRule.Mode.POSITIONAL);
+      case "situational" -> new SuperkoRule(SuperkoRule.Mode.SITUATIONAL);
+      default -> new KoRule();
+    };
+  }
+
+  /**
+   * The full name of a ko rule given by name or short alias: "simple", "positional" or
+   * "situational".
+   *
+   * @throws IllegalArgumentException for an unknown name
+   */
+  public static String koRuleName(String name) {
+    return switch (name.toLowerCase()) {
+      case "simple", "ko" -> "simple";
+      case "positional", "psk" -> "positional";
+      case "situational", "ssk" -> "situational";
+      default -> throw new IllegalArgumentException("Unknown ko rule: " + name);
+    };
+  }
 }
@@ -1,31 +1,159 @@
 package edu.university.go.server;
 
+import edu.university.go.archive.GameRecord;
 import edu.university.go.board.Color;
 import edu.university.go.game.*;
+import edu.university.go.protocol.BoardSync;
 import edu.university.go.scoring.GameResult;
+import edu.university.go.scoring.LiveScoreTracker;
 import edu.university.go.scoring.ScoreCalculator;
+import edu.university.go.sgf.SgfWriter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * One game and its players, run as a single-writer actor.
+ *
+ * <p>Client handlers never touch the game directly: {@link #addPlayer}, {@link #removePlayer},
+ * {@link #handleMove}, {@link #handlePass} and {@link #handleResign} only post a task to the
+ * session's {@link Mailbox}, and the tasks run one at a time on the shared session pool. The game,
+ * the player maps and the capture counters are therefore only ever used by one thread at a time and
+ * need no locks. The few fields other threads read for the lobby are volatile.
+ *
+ * <p>Lines sent to players only queue in their outboxes; after each task the session flushes every
+ * player once, so everything one event produces reaches a client in a single write. In a journaled
+ * game, output is held from the moment a record is appended until the journal posts back that the
+ * record is on disk, so no client ever sees a move a crash could take back.
+ *
+ * <p>Spectators get the same stream as the players, but not line by line: what a task broadcasts is
+ * collected and turned into one {@link SharedUpdate} per update style, encoded once and queued for
+ * every spectator alike.
+ *
+ * <p>A player whose connection drops keeps their seat for {@link #RESUME_GRACE_MILLIS} in a started
+ * game, so they can come back with {@code RESUME}; the opponent sees {@code AWAY <color>} and then
+ * {@code BACK <color>}. The game goes on meanwhile, clock included.
+ *
+ * <p>A timed game's clock is watched by one timer on the shared {@link TimingWheel}, set for when
+ * the player to move would run out of time. It only posts a task, so the flag falls on the mailbox
+ * thread like any move.
+ */
 class GameSession implements GameObserver {
 
+  // How long a dropped player's seat is held for them
+  static final long RESUME_GRACE_MILLIS = 60_000;
+
+  private final String id;
   private final Game game;
+  private final Consumer<GameSession> onFinished;
+  private final Mailbox mailbox;
   private final ScoreCalculator scoreCalculator;
+  private final LiveScoreTracker liveScore;
+  private final TimingWheel timers;
   private final Map<String, ClientHandler> players = new HashMap<>();
   private final Map<String, Color> playerColors = new HashMap<>();
+  private final Map<String, ClientHandler> spectators = new LinkedHashMap<>();
+  // Seated players without a connection, with the timer that gives their seat up
+  private final Map<String, TimingWheel.Timeout> away = new HashMap<>();
+  // What the current task broadcast, for text and for delta spectators
+  private final List<String> textStream = new ArrayList<>();
+  private final List<String> deltaStream = new ArrayList<>();
 
   private int capturedByBlack = 0;
   private int capturedByWhite = 0;
   private edu.university.go.board.Board previousBoard = null;
-
+  // Board changes since GAME_STARTED, and the board version the last one was sent for
+  private long boardSeq = 0;
+  private long boardVersion = -1;
+  // Due when the player to move runs out of time; null if the game is untimed or over
+  private TimingWheel.Timeout flagTimer;
+  // The game as archived, once it has ended
+  private GameRecord ended;
+  // Where accepted moves are recorded, if anywhere, and the move being applied
+  private MoveJournal journal;
+  private long journalId;
+  private Move applying;
+  // The last record this session journaled, the last one known to be on disk, and the last one a
+  // callback is due for; clients are held while the first is ahead of the second
+  private long journaled;
+  private long synced;
+  private long awaited;
+  // Tokens the registry holds seats of this game under, so it can drop just those when it ends
+  private final Set<String> resumeTokens = ConcurrentHashMap.newKeySet();
+
+  // Written on the mailbox thread, read by the lobby
+  private volatile int playerCount = 0;
+  private volatile int spectatorCount = 0;
+  private volatile boolean started = false;
+  private volatile boolean finished = false;
+
+  // Runs every task on the calling thread
   GameSession(Game game) {
+    this("default", game, s -> {}, Mailbox.DIRECT);
+  }
+
+  GameSession(String id, Game game, Consumer<GameSession> onFinished, Executor pool) {
+    this(id, game, onFinished, pool, TimingWheel.shared());
+  }
+
+  GameSession(
+      String id, Game game, Consumer<GameSession> onFinished, Executor pool, TimingWheel timers) {
+    this.id = id;
+    this.timers = timers;
     this.game = game;
+    this.onFinished = onFinished;
+    this.mailbox = new Mailbox(pool);
     this.scoreCalculator = new ScoreCalculator(7.5); // Standard komi
+    // Registered first so the estimate is current when this session broadcasts
+    this.liveScore = new LiveScoreTracker(game.getBoard());
+    this.game.addObserver(liveScore);
     this.game.addObserver(this);
   }
 
+  /** Record this game in {@code journal} from now on; set before the session is used. */
+  GameSession journal(MoveJournal journal) {
+    this.journal = journal;
+    this.journalId = Long.parseLong(id);
+    return this;
+  }
+
+  /**
+   * Take over a game rebuilt from the journal, with its moves already played, before the session is
+   * used. Neither player has a connection yet, so both seats are held for them as after a dropped
+   * connection.
+   */
+  void recovered(String blackId, String whiteId) {
+    started = true;
+    boardVersion = game.getBoard().getVersion();
+    countCaptures();
+    for (String playerId : List.of(blackId, whiteId)) {
+      playerColors.put(playerId, playerId.equals(blackId) ? Color.BLACK : Color.WHITE);
+      away.put(playerId, timers.schedule(() -> post(() -> abandon(playerId)), RESUME_GRACE_MILLIS));
+    }
+    playerCount = 2;
+    scheduleFlag();
+  }
+
+  /**
+   * Seat a player. If the game cannot take them they get an ERROR and the handler is told through
+   * {@link ClientHandler#seatRefused}.
+   */
   void addPlayer(String playerId, ClientHandler handler) {
+    post(() -> seat(playerId, handler));
+  }
+
+  private void seat(String playerId, ClientHandler handler) {
     players.put(playerId, handler);
+    if (journaled > synced) {
+      handler.hold();
+    }
 
     int size = game.getBoard().getSize();
     System.out.println("[GameSession] Sending BOARDSIZE " + size + " to player " + playerId);
@@ -36,6 +164,7 @@ class GameSession implements GameObserver {
     playerColors.put(playerId, color);
     System.out.println("[GameSession] Sending COLOR " + assigned + " to player " + playerId);
     handler.send("COLOR " + assigned);
+    handler.onSeated(color);
 
     try {
       game.addPlayer(playerId);
@@ -43,15 +172,302 @@ class GameSession implements GameObserver {
       handler.send("ERROR: " + e.getMessage());
       players.remove(playerId);
       playerColors.remove(playerId);
+      handler.seatRefused(this);
+      handler.release();
+      handler.flush();
+      return;
+    }
+    playerCount = players.size();
+  }
+
+  /** Drop a disconnected player. A session no player but a bot is left in is finished. */
+  void removePlayer(String playerId) {
+    post(() -> unseat(playerId));
+  }
+
+  /**
+   * A player's connection dropped. In a game under way the seat is held for {@link
+   * #RESUME_GRACE_MILLIS}; otherwise the player is removed as by {@link #removePlayer}.
+   */
+  void disconnectPlayer(String playerId, ClientHandler handler) {
+    post(() -> drop(playerId, handler));
+  }
+
+  private void drop(String playerId, ClientHandler handler) {
+    // Already resumed on another connection
+    if (players.get(playerId) != handler) return;
+    if (!started || finished) {
+      unseat(playerId);
+      return;
+    }
+    players.remove(playerId);
+    away.put(playerId, timers.schedule(() -> post(() -> abandon(playerId)), RESUME_GRACE_MILLIS));
+    broadcast("AWAY " + playerColors.get(playerId));
+  }
+
+  private void abandon(String playerId) {
+    if (away.remove(playerId) == null) return;
+    System.out.println("[GameSession] " + playerId + " did not come back to game " + id);
+    if (deserted()) {
+      finish();
+    }
+  }
+
+  /**
+   * Give a player their seat back on a new connection, with the board as it stands. A connection
+   * the seat still had is closed. If the seat is gone the handler gets an ERROR and {@link
+   * ClientHandler#seatRefused}.
+   */
+  void resumePlayer(String playerId, ClientHandler handler) {
+    post(() -> resume(playerId, handler));
+  }
+
+  private void resume(String playerId, ClientHandler handler) {
+    TimingWheel.Timeout grace = away.remove(playerId);
+    ClientHandler previous = players.get(playerId);
+    if (grace == null && previous == null) {
+      handler.send("ERROR: Seat is gone");
+      handler.seatRefused(this);
+      handler.flush();
       return;
     }
+    if (grace != null) {
+      grace.cancel();
+    }
+    players.put(playerId, handler);
+    if (journaled > synced) {
+      handler.hold();
+    }
+    if (previous != null && previous != handler) {
+      previous.close();
+    }
+
+    Color color = playerColors.get(playerId);
+    handler.send("BOARDSIZE " + game.getBoard().getSize());
+    handler.send("COLOR " + color);
+    handler.onSeated(color);
+    if (started) {
+      sendState(handler);
+    }
+    if (grace != null) {
+      broadcast("BACK " + color);
+    }
+  }
+
+  // Run a task in turn, then write out what it sent
+  private void post(Runnable task) {
+    mailbox.execute(
+        () -> {
+          try {
+            task.run();
+          } finally {
+            if (!spectators.isEmpty()) {
+              shareWithSpectators();
+            }
+            if (journaled > synced) {
+              awaitJournal();
+            } else {
+              players.values().forEach(ClientHandler::flush);
+              spectators.values().forEach(ClientHandler::flush);
+            }
+          }
+        });
+  }
+
+  // Have the journal post back once the last record is on disk; clients are released then
+  private void awaitJournal() {
+    if (awaited == journaled) return;
+    long seq = journaled;
+    awaited = seq;
+    journal.whenDurable(seq, () -> post(() -> journalSynced(seq)));
+  }
+
+  private void journalSynced(long seq) {
+    synced = Math.max(synced, seq);
+    if (journaled == synced) {
+      players.values().forEach(ClientHandler::release);
+      spectators.values().forEach(ClientHandler::release);
+    }
+  }
+
+  // Everybody's output waits for the record just appended
+  private void holdFor(long seq) {
+    if (seq == 0) return;
+    if (journaled == synced) {
+      players.values().forEach(ClientHandler::hold);
+      spectators.values().forEach(ClientHandler::hold);
+    }
+    journaled = seq;
+  }
+
+  /** Let a client watch: it gets the board now and then everything the players get. */
+  void addSpectator(String viewerId, ClientHandler handler) {
+    post(() -> watch(viewerId, handler));
+  }
+
+  private void watch(String viewerId, ClientHandler handler) {
+    spectators.put(viewerId, handler);
+    spectatorCount = spectators.size();
+    if (journaled > synced) {
+      handler.hold();
+    }
+    handler.send("BOARDSIZE " + game.getBoard().getSize());
+    if (started) {
+      sendState(handler);
+    }
+  }
+
+  // Encode once what this task broadcast, then queue it for every spectator
+  private void shareWithSpectators() {
+    SharedUpdate text = textStream.isEmpty() ? null : new SharedUpdate(textStream);
+    SharedUpdate delta = deltaStream.isEmpty() ? null : new SharedUpdate(deltaStream);
+    textStream.clear();
+    deltaStream.clear();
+    for (ClientHandler spectator : spectators.values()) {
+      SharedUpdate update = spectator.wantsDeltas() ? delta : text;
+      if (update != null) {
+        spectator.send(update);
+      }
+    }
+  }
+
+  private void unseat(String playerId) {
+    if (spectators.remove(playerId) != null) {
+      spectatorCount = spectators.size();
+      return;
+    }
+    if (players.remove(playerId) == null) return;
+    playerCount = players.size();
+    if (!started) {
+      playerColors.remove(playerId);
+    }
+    if (deserted()) {
+      finish();
+    }
+  }
+
+  /**
+   * Close every connection to the session and finish it where it stands, the game still under way;
+   * for a server that can no longer journal it.
+   */
+  void closeAll() {
+    post(
+        () -> {
+          players.values().forEach(ClientHandler::close);
+          spectators.values().forEach(ClientHandler::close);
+          finish();
+        });
+  }
+
+  // Nobody is seated or coming back but bots, which would otherwise keep the game open forever
+  private boolean deserted() {
+    return away.isEmpty() && players.values().stream().allMatch(BotPlayer.class::isInstance);
+  }
+
+  // Finished before the game ended; a bot still thinking may yet answer, and must not be played
+  private boolean givenUp() {
+    return finished && !game.isOver();
+  }
+
+  private void finish() {
+    if (finished) return;
+    finished = true;
+    cancelFlagTimer();
+    away.values().forEach(TimingWheel.Timeout::cancel);
+    away.clear();
+    onFinished.accept(this);
+  }
+
+  String getId() {
+    return id;
+  }
+
+  /**
+   * The game with its players and result once it has ended, for the archives; null for a game given
+   * up before its end. Read it from the session's thread, e.g. when it finishes.
+   */
+  GameRecord getEndedGame() {
+    return ended;
+  }
+
+  /** Append the game to {@code out} if it has ended; see {@link #getEndedGame}. */
+  boolean writeSgf(SgfWriter out) throws IOException {
+    if (ended == null) return false;
+    out.write(
+        ended.size(), ended.komi(), ended.black(), ended.white(), ended.sgfResult(), ended.moves());
+    return true;
+  }
+
+  // Time and resignation decide before the count; player ids stand for names
+  private GameRecord record(Color timedOut, GameResult count) {
+    List<Move> moves = game.getMoves();
+    Move last = moves.isEmpty() ? null : moves.get(moves.size() - 1);
+    GameRecord.Ending ending = GameRecord.Ending.COUNT;
+    Color winner = count.winner();
+    if (timedOut != null) {
+      ending = GameRecord.Ending.TIME;
+      winner = timedOut.opposite();
+    } else if (last != null && last.isResign()) {
+      ending = GameRecord.Ending.RESIGNATION;
+      winner = last.color().opposite();
+    }
+    String[] names = new String[2];
+    playerColors.forEach((playerId, color) -> names[color.ordinal()] = playerId);
+    return new GameRecord(
+        names[Color.BLACK.ordinal()],
+        names[Color.WHITE.ordinal()],
+        game.getBoard().getSize(),
+        scoreCalculator.getKomi(),
+        new GameResult(count.blackScore(), count.whiteScore(), winner, count.margin()),
+        ending,
+        moves);
+  }
+
+  int getBoardSize() {
+    return game.getBoard().getSize();
+  }
+
+  double getKomi() {
+    return scoreCalculator.getKomi();
+  }
+
+  /** The game, for players that read it on the mailbox thread, like {@link BotPlayer}. */
+  Game getGame() {
+    return game;
+  }
+
+  Set<String> getResumeTokens() {
+    return resumeTokens;
+  }
+
+  int getPlayerCount() {
+    return playerCount;
+  }
+
+  int getSpectatorCount() {
+    return spectatorCount;
+  }
+
+  /** Whether a player can still take a seat. */
+  boolean isOpen() {
+    return !started && !finished && playerCount < 2;
+  }
+
+  boolean isFinished() {
+    return finished;
   }
 
   void handleMove(Move move) {
+    post(() -> applyMove(move));
+  }
+
+  private void applyMove(Move move) {
+    if (givenUp()) return;
     try {
       int blackStonesBefore = countStones(Color.BLACK);
       int whiteStonesBefore = countStones(Color.WHITE);
 
+      applying = move;
       game.makeMove(move);
 
       int blackStonesAfter = countStones(Color.BLACK);
@@ -71,10 +487,23 @@ class GameSession implements GameObserver {
               + capturedByWhite);
 
     } catch (Exception e) {
-      players.get(move.playerId()).send("ERROR: " + e.getMessage());
+      ClientHandler handler = players.get(move.playerId());
+      if (handler != null) {
+        handler.onMoveRefused(move, e.getMessage());
+      }
+    } finally {
+      applying = null;
     }
   }
 
+  // Captures follow from the stones placed and passed and the stones left on the board
+  private void countCaptures() {
+    int countBlack = countStones(Color.BLACK);
+    int countWhite = countStones(Color.WHITE);
+    capturedByBlack = (game.getWhitePlacedStones() - countWhite) + game.getWhitePassStones();
+    capturedByWhite = (game.getBlackPlacedStones() - countBlack) + game.getBlackPassStones();
+  }
+
   private int countStones(Color color) {
     int count = 0;
     edu.university.go.board.Board board = game.getBoard();
@@ -89,57 +518,73 @@ class GameSession implements GameObserver {
   }
 
   void handlePass(String playerId) {
+    post(() -> applyPass(playerId));
+  }
+
+  private void applyPass(String playerId) {
+    if (givenUp()) return;
     try {
       Color playerColor = playerColors.get(playerId);
       if (playerColor == null) {
         throw new IllegalStateException("Player color not found");
       }
       Move pass = Move.pass(playerColor, playerId);
+      applying = pass;
       game.makeMove(pass);
     } catch (Exception e) {
       ClientHandler handler = players.get(playerId);
       if (handler != null) {
         handler.send("ERROR: " + e.getMessage());
-        new Thread(
-                () -> {
-                  try {
-                    Thread.sleep(10);
-                    sendBoard(playerId);
-                  } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                  }
-                })
-            .start();
+        timers.schedule(() -> post(() -> sendBoard(playerId)), 10);
       }
+    } finally {
+      applying = null;
     }
   }
 
   void handleResign(String playerId) {
+    post(() -> applyResign(playerId));
+  }
+
+  private void applyResign(String playerId) {
+    if (givenUp()) return;
     try {
       Color playerColor = playerColors.get(playerId);
       if (playerColor == null) {
         throw new IllegalStateException("Player color not found");
       }
       Move resign = Move.resign(playerColor, playerId);
+      applying = resign;
       game.makeMove(resign);
     } catch (Exception e) {
       ClientHandler handler = players.get(playerId);
       if (handler != null) {
         handler.send("ERROR: " + e.getMessage());
       }
+    } finally {
+      applying = null;
     }
   }
 
   @Override
   public void onGameEvent(GameEvent event) {
-    broadcast("EVENT " + event);
+    if (event == GameEvent.GAME_STARTED) {
+      started = true;
+    }
+    // Before anything goes out, so it is all held for the record
+    if (journal != null) {
+      journal(event);
+    }
+
+    // Delta clients get each event once, after its update
+    players.values().stream().filter(p -> !p.wantsDeltas()).forEach(p -> p.send("EVENT " + event));
+    if (!spectators.isEmpty()) {
+      textStream.add("EVENT " + event);
+    }
 
     if (event == GameEvent.GAME_STARTED || event == GameEvent.MOVE_PLAYED) {
       // Counting captured stones
-      int countBlack = countStones(Color.BLACK);
-      int countWhite = countStones(Color.WHITE);
-      capturedByBlack = (game.getWhitePlacedStones() - countWhite) + game.getWhitePassStones();
-      capturedByWhite = (game.getBlackPlacedStones() - countBlack) + game.getBlackPassStones();
+      countCaptures();
 
       System.out.println(
           "[GameSession] Broadcasting game state - CAPTURED: "
@@ -150,62 +595,244 @@ class GameSession implements GameObserver {
               + game.getCurrentTurn());
 
       // Sending board
-      for (String pid : players.keySet()) {
-        sendBoard(pid);
-      }
+      sendBoardUpdate(event);
 
       // Then state
       broadcast("CAPTURED " + capturedByBlack + " " + capturedByWhite);
       broadcast("TURN " + game.getCurrentTurn());
+      broadcastClock();
+      broadcastScore();
+      players.values().forEach(p -> p.onTurn(game.getCurrentTurn()));
 
       broadcast("EVENT " + event);
+      scheduleFlag();
     } else if (event == GameEvent.GAME_ENDED) {
 
-      int countBlack = countStones(Color.BLACK);
-      int countWhite = countStones(Color.WHITE);
-      capturedByBlack = (game.getWhitePlacedStones() - countWhite) + game.getWhitePassStones();
-      capturedByWhite = (game.getBlackPlacedStones() - countBlack) + game.getBlackPassStones();
+      countCaptures();
 
       System.out.println("[GameSession] Game ended");
+      cancelFlagTimer();
 
       GameResult result =
           scoreCalculator.calculateScore(game.getBoard(), capturedByBlack, capturedByWhite);
       System.out.println("[GameSession] Final result: " + result);
 
-      for (String pid : players.keySet()) {
-        sendBoard(pid);
-      }
+      sendBoardUpdate(event);
 
       broadcast("CAPTURED " + capturedByBlack + " " + capturedByWhite);
       broadcast("TURN " + game.getCurrentTurn());
+      broadcastClock();
 
+      // Losing on time overrides the count
+      Color timedOut = game.getTimedOut();
+      if (timedOut != null) {
+        broadcast("TIMEOUT " + timedOut);
+      }
       String scoreMsg =
           String.format(
               "RESULT %s %.1f %.1f %.1f",
-              result.winner(), result.blackScore(), result.whiteScore(), result.margin());
+              timedOut != null ? timedOut.opposite() : result.winner(),
+              result.blackScore(),
+              result.whiteScore(),
+              result.margin());
       System.out.println("[GameSession] Sending score: " + scoreMsg);
       broadcast(scoreMsg);
+      ended = record(timedOut, result);
 
       broadcast("EVENT " + event);
+      finish();
+    }
+  }
+
+  /**
+   * Text board to classic clients; a snapshot when the game starts, then a delta per board change
+   * to clients that asked for {@link BoardSync} updates. Passes and resignations leave the board
+   * alone and send delta clients nothing.
+   */
+  private void sendBoardUpdate(GameEvent event) {
+    edu.university.go.board.Board b = game.getBoard();
+    String update = null;
+    if (event == GameEvent.GAME_STARTED) {
+      boardSeq = 0;
+      boardVersion = b.getVersion();
+      update = BoardSync.snapshot(boardSeq, b);
+    } else if (b.getVersion() != boardVersion) {
+      boardSeq++;
+      // Anything but a single placement since the last update is sent in full
+      update =
+          b.getVersion() == boardVersion + 1 && b.getLastMove() >= 0
+              ? BoardSync.delta(boardSeq, b)
+              : BoardSync.snapshot(boardSeq, b);
+      boardVersion = b.getVersion();
+    }
+
+    // The text board is formatted once for everybody
+    List<String> board = null;
+    for (ClientHandler player : players.values()) {
+      if (!player.wantsDeltas()) {
+        board = board != null ? board : boardLines();
+        board.forEach(player::send);
+      } else if (update != null) {
+        player.send(update);
+      }
+    }
+    if (!spectators.isEmpty()) {
+      textStream.addAll(board != null ? board : boardLines());
+      if (update != null) {
+        deltaStream.add(update);
+      }
     }
   }
 
+  /** Full snapshot for a delta client that lost track of the board. */
+  void resync(String playerId) {
+    post(
+        () -> {
+          ClientHandler h = member(playerId);
+          if (h != null && started) {
+            h.send(BoardSync.snapshot(boardSeq, game.getBoard()));
+          }
+        });
+  }
+
+  /** The current state for a player or spectator whose outbox overflowed and was emptied. */
+  void refresh(String playerId) {
+    post(
+        () -> {
+          ClientHandler h = member(playerId);
+          if (h != null && started) {
+            sendState(h);
+          }
+        });
+  }
+
+  // Board as snapshot or text, then captures, turn and score
+  private void sendState(ClientHandler h) {
+    if (h.wantsDeltas()) {
+      h.send(BoardSync.snapshot(boardSeq, game.getBoard()));
+    } else {
+      boardLines().forEach(h::send);
+    }
+    h.send("CAPTURED " + capturedByBlack + " " + capturedByWhite);
+    h.send("TURN " + game.getCurrentTurn());
+    if (game.getClock() != null) {
+      h.send(clockLine());
+    }
+    h.send(scoreLine());
+    if (!finished) {
+      h.onTurn(game.getCurrentTurn());
+    }
+  }
+
+  // The seats once the game starts, then each move the game accepted, before anything it causes
+  private void journal(GameEvent event) {
+    if (event == GameEvent.GAME_STARTED) {
+      for (Color color : new Color[] {Color.BLACK, Color.WHITE}) {
+        playerColors.forEach(
+            (playerId, c) -> {
+              ClientHandler h = players.get(playerId);
+              if (c == color && h != null) {
+                holdFor(
+                    journal.seated(
+                        journalId, color, playerId, h.getResumeToken(), h instanceof BotPlayer));
+              }
+            });
+      }
+    } else if (event == GameEvent.MOVE_PLAYED && applying != null) {
+      holdFor(journal.moved(journalId, applying));
+    }
+  }
+
+  // Reset the timer to when the player to move would run out of time
+  private void scheduleFlag() {
+    cancelFlagTimer();
+    GameClock clock = game.getClock();
+    if (clock != null && clock.getRunning() != null) {
+      flagTimer = timers.schedule(() -> post(this::checkFlag), clock.millisUntilFlag());
+    }
+  }
+
+  private void checkFlag() {
+    flagTimer = null;
+    // The game ends through GAME_ENDED; a timer that fired a little early is set again
+    if (!finished && !game.checkTime()) {
+      scheduleFlag();
+    }
+  }
+
+  private void cancelFlagTimer() {
+    if (flagTimer != null) {
+      flagTimer.cancel();
+      flagTimer = null;
+    }
+  }
+
+  // Format: CLOCK blackMillis blackPeriods whiteMillis whitePeriods, main time then byoyomi
+  private void broadcastClock() {
+    if (game.getClock() != null) {
+      broadcast(clockLine());
+    }
+  }
+
+  private String clockLine() {
+    GameClock clock = game.getClock();
+    return "CLOCK "
+        + clock.getMainMillis(Color.BLACK)
+        + " "
+        + clock.getPeriods(Color.BLACK)
+        + " "
+        + clock.getMainMillis(Color.WHITE)
+        + " "
+        + clock.getPeriods(Color.WHITE);
+  }
+
+  private ClientHandler member(String id) {
+    ClientHandler h = players.get(id);
+    return h != null ? h : spectators.get(id);
+  }
+
+  // Format: SCORE blackTerritory whiteTerritory blackArea whiteArea
+  private void broadcastScore() {
+    broadcast(scoreLine());
+  }
+
+  private String scoreLine() {
+    return "SCORE "
+        + liveScore.getBlackTerritory()
+        + " "
+        + liveScore.getWhiteTerritory()
+        + " "
+        + liveScore.getBlackArea()
+        + " "
+        + liveScore.getWhiteArea();
+  }
+
   private void broadcast(String msg) {
     players.values().forEach(p -> p.send(msg));
+    if (!spectators.isEmpty()) {
+      textStream.add(msg);
+      deltaStream.add(msg);
+    }
   }
 
-  void sendBoard(String playerId) {
+  private void sendBoard(String playerId) {
     if (game == null) return;
-    edu.university.go.board.Board b = game.getBoard();
-    int size = b.getSize();
     ClientHandler h = players.get(playerId);
     if (h == null) return;
+    boardLines().forEach(h::send);
+  }
+
+  // The text board: a header of column numbers, one line per row, then an empty line
+  private List<String> boardLines() {
+    edu.university.go.board.Board b = game.getBoard();
+    int size = b.getSize();
+    List<String> lines = new ArrayList<>(size + 2);
 
     StringBuilder header = new StringBuilder("   ");
     for (int x = 0; x < size; x++) {
       header.append(String.format(" %2d", x));
     }
-    h.send(header.toString());
+    lines.add(header.toString());
 
     for (int y = 0; y < size; y++) {
       StringBuilder row = new StringBuilder();
@@ -217,14 +844,20 @@ class GameSession implements GameObserver {
         else if (c == edu.university.go.board.Color.WHITE) ch = 'W';
         row.append(String.format("  %c", ch));
       }
-      h.send(row.toString());
+      lines.add(row.toString());
     }
 
-    h.send("");
+    lines.add("");
+    return lines;
   }
 
   GameSession() {
+    this.id = "test";
+    this.onFinished = s -> {};
+    this.mailbox = new Mailbox(Mailbox.DIRECT);
     this.game = null;
     this.scoreCalculator = new ScoreCalculator(7.5);
+    this.liveScore = null;
+    this.timers = TimingWheel.shared();
   }
 }
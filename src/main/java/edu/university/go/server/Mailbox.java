@@ -0,0 +1,63 @@
+package edu.university.go.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mailbox of a single-writer actor: tasks run one at a time, in submission order, on a thread
+ * borrowed from a shared pool.
+ *
+ * <p>At most one drain of the mailbox is scheduled on the pool at any time, so everything the tasks
+ * touch is confined to whichever thread currently drains it and needs no locks. A drain gives its
+ * thread back after {@link #BATCH} tasks, so one busy actor cannot starve the others sharing the
+ * pool. A task submitted from inside a task runs after it, never nested.
+ */
+final class Mailbox implements Executor {
+
+  // Tasks run per turn on the pool before yielding to other mailboxes
+  static final int BATCH = 64;
+
+  /** Runs tasks on the submitting thread; for tests and single-threaded use. */
+  static final Executor DIRECT = Runnable::run;
+
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final Executor pool;
+
+  Mailbox(Executor pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    tasks.add(task);
+    schedule();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      pool.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    try {
+      Runnable task;
+      for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          System.err.println("[Mailbox] Task failed: " + e);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+      // A task may have arrived after the last poll but before the flag was cleared
+      if (!tasks.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
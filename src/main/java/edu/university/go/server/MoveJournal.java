@@ -0,0 +1,602 @@
+package edu.university.go.server;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of every game on the server, from which {@link SessionRegistry#recover}
+ * rebuilds the live ones after a restart.
+ *
+ * <p>All sessions share one journal, split into segment files of at most {@link #SEGMENT_BYTES}.
+ * Every record is {@link #RECORD_BYTES} long:
+ *
+ * <pre>
+ *  0  long   game id
+ *  8  long   wall clock millis
+ * 16  byte   type: CREATE, SEAT, MOVE, PASS, RESIGN or END
+ * 17  byte   color ordinal, or board size for CREATE
+ * 18  byte   ko rule for CREATE, 1 for the SEAT of a bot
+ * 20  short  x, short y for MOVE
+ * 24  ...    CREATE: main, increment, periods, period of the time control; SEAT: player id and
+ *            resume token, 16 bytes each
+ * 60  int    CRC32C of bytes 0 to 59
+ * </pre>
+ *
+ * <p>Appending only copies the record into a buffer under a lock; a single journal thread writes
+ * whatever has accumulated with one {@link FileChannel#write} and makes it durable with one {@link
+ * FileChannel#force}. The cost of a sync is thus shared by every game that moved while the previous
+ * one ran. Appends never wait: a full buffer is queued for the journal thread and a spare one taken
+ * in its place. If {@link #MAX_BATCHES} are queued, or a write fails, the journal takes no more
+ * records and tells the listener set with {@link #onFailure}.
+ *
+ * <p>Each append returns the record's sequence number, and {@link #whenDurable} runs a callback
+ * once the sync covering it is done, so a caller can hold back what depends on the record without
+ * waiting for it. A crash loses at most the records not yet synced; {@link #sync} waits for
+ * everything appended so far.
+ *
+ * <p>The journal thread also knows which games each segment holds records of, and deletes a full
+ * segment once all of them have ended, so the journal only keeps segments from the oldest live
+ * game's creation on. The segment with the latest CREATE stays too, so the highest game id is never
+ * forgotten. Segments from before the journal was opened are only known once {@link #replay} has
+ * read them.
+ */
+final class MoveJournal implements AutoCloseable {
+
+  static final int RECORD_BYTES = 64;
+  static final long SEGMENT_BYTES = 64L << 20;
+  // Records per buffer, and buffers appenders may fill ahead of the disk before the journal fails
+  static final int BATCH_RECORDS = 4096;
+  static final int MAX_BATCHES = 16;
+
+  static final byte CREATE = 1;
+  static final byte SEAT = 2;
+  static final byte MOVE = 3;
+  static final byte PASS = 4;
+  static final byte RESIGN = 5;
+  static final byte END = 6;
+
+  private static final String[] KO_RULES = {"simple", "positional", "situational"};
+  private static final Color[] COLORS = Color.values();
+
+  private final Path dir;
+  private final long segmentBytes;
+  // Segments before this one were there when the journal was opened
+  private final int firstIndex;
+  private FileChannel segment;
+  private int segmentIndex;
+
+  // Guarded by itself: per segment, the games with records in it that have not ended, and the
+  // segment of the latest CREATE
+  private final Map<Integer, Set<Long>> unfinished = new TreeMap<>();
+  private int latestCreate;
+
+  // Guarded by this: the buffer being appended to, full ones waiting for the journal thread, empty
+  // ones to swap in, and the counts appended and synced
+  private ByteBuffer filling = newBatch();
+  private final Deque<ByteBuffer> full = new ArrayDeque<>();
+  private final Deque<ByteBuffer> spare = new ArrayDeque<>();
+  private long appended;
+  private long durable;
+  private boolean closed;
+  private IOException failure;
+  private volatile Consumer<IOException> onFailure = e -> {};
+  // Guarded by this: callbacks waiting for their record to be synced, lowest sequence first
+  private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+  private record Waiter(long seq, Runnable action) implements Comparable<Waiter> {
+
+    @Override
+    public int compareTo(Waiter other) {
+      return Long.compare(seq, other.seq);
+    }
+  }
+
+  private final CRC32C crc = new CRC32C();
+  private final Thread committer;
+
+  /** Open the journal in {@code dir}, appending to a new segment after any existing ones. */
+  MoveJournal(Path dir) throws IOException {
+    this(dir, SEGMENT_BYTES);
+  }
+
+  // With segments of another size, for tests
+  MoveJournal(Path dir, long segmentBytes) throws IOException {
+    this.dir = Files.createDirectories(dir);
+    this.segmentBytes = segmentBytes;
+    List<Path> existing = segments(dir);
+    segmentIndex = existing.isEmpty() ? 0 : index(existing.get(existing.size() - 1));
+    firstIndex = segmentIndex + 1;
+    openNextSegment();
+    committer = new Thread(this::commitLoop, "journal");
+    committer.setDaemon(true);
+    committer.start();
+  }
+
+  private static ByteBuffer newBatch() {
+    return ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_BYTES).order(ByteOrder.BIG_ENDIAN);
+  }
+
+  /* ===== Appending ===== */
+
+  // Each returns the record's sequence number, from 1 in the order appended, or 0 if the journal
+  // takes no more records
+
+  long created(long gameId, int boardSize, String koRule, TimeControl timeControl) {
+    synchronized (this) {
+      if (!reserve()) return 0;
+      ByteBuffer r = begin(gameId, CREATE, boardSize, koRule(koRule), 0, 0);
+      r.putLong(timeControl.mainMillis())
+          .putLong(timeControl.incrementMillis())
+          .putInt(timeControl.periods())
+          .putLong(timeControl.periodMillis());
+      return end(r);
+    }
+  }
+
+  long seated(long gameId, Color color, String playerId, String resumeToken, boolean bot) {
+    UUID id = UUID.fromString(playerId);
+    byte[] token = HexFormat.of().parseHex(resumeToken);
+    synchronized (this) {
+      if (!reserve()) return 0;
+      ByteBuffer r = begin(gameId, SEAT, color.ordinal(), bot ? 1 : 0, 0, 0);
+      r.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).put(token);
+      return end(r);
+    }
+  }
+
+  long moved(long gameId, Move move) {
+    byte type = move.isPass() ? PASS : move.isResign() ? RESIGN : MOVE;
+    synchronized (this) {
+      if (!reserve()) return 0;
+      return end(begin(gameId, type, move.color().ordinal(), 0, move.x(), move.y()));
+    }
+  }
+
+  long ended(long gameId) {
+    synchronized (this) {
+      if (!reserve()) return 0;
+      return end(begin(gameId, END, 0, 0, 0, 0));
+    }
+  }
+
+  // Room for a record, queuing a full buffer for the journal thread; false if the journal takes no
+  // more, and the record is dropped. Never waits. Caller holds the lock
+  private boolean reserve() {
+    if (closed || failure != null) return false;
+    if (filling.remaining() < RECORD_BYTES) {
+      if (full.size() + 1 >= MAX_BATCHES) {
+        failure = new IOException("Journal fell " + (appended - durable) + " records behind");
+        notifyAll();
+        return false;
+      }
+      full.add(filling);
+      filling = spare.isEmpty() ? newBatch() : spare.poll();
+    }
+    return true;
+  }
+
+  /**
+   * Call {@code listener} once, on the journal thread, if the journal stops taking records because
+   * a write failed or appends ran too far ahead of the disk.
+   */
+  void onFailure(Consumer<IOException> listener) {
+    this.onFailure = listener;
+  }
+
+  // Write a record header into the filling batch, leaving it at the payload
+  private ByteBuffer begin(long gameId, byte type, int a, int b, int x, int y) {
+    return filling
+        .putLong(gameId)
+        .putLong(System.currentTimeMillis())
+        .put(type)
+        .put((byte) a)
+        .put((byte) b)
+        .put((byte) 0)
+        .putShort((short) x)
+        .putShort((short) y);
+  }
+
+  // Zero the rest of the payload, seal the record with its checksum and hand it to the committer;
+  // returns its sequence number
+  private long end(ByteBuffer r) {
+    // Records are aligned in the batch
+    int start = r.position() - r.position() % RECORD_BYTES;
+    while (r.position() < start + RECORD_BYTES - 4) {
+      r.put((byte) 0);
+    }
+    crc.reset();
+    crc.update(r.duplicate().position(start).limit(start + RECORD_BYTES - 4));
+    r.putInt((int) crc.getValue());
+    appended++;
+    notifyAll();
+    return appended;
+  }
+
+  /**
+   * Run {@code action} once record {@code seq} is on disk: at once, on the caller's thread, if it
+   * already is, otherwise on the journal thread right after the sync that covers it. If the journal
+   * fails first, {@code action} never runs.
+   */
+  void whenDurable(long seq, Runnable action) {
+    synchronized (this) {
+      if (seq > durable) {
+        if (failure == null) {
+          waiters.add(new Waiter(seq, action));
+        }
+        return;
+      }
+    }
+    action.run();
+  }
+
+  /** Wait until everything appended so far is on disk. */
+  void sync() throws IOException {
+    synchronized (this) {
+      long target = appended;
+      while (durable < target && failure == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while syncing the journal", e);
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  // Journal thread: write and sync whatever was appended, swapping in spare buffers
+  private void commitLoop() {
+    List<ByteBuffer> batches = new ArrayList<>();
+    List<Runnable> synced = new ArrayList<>();
+    IOException failed;
+    while (true) {
+      long upTo;
+      synchronized (this) {
+        while (filling.position() == 0 && full.isEmpty() && !closed && failure == null) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (failure != null) {
+          failed = failure;
+          waiters.clear();
+          break;
+        }
+        if (filling.position() == 0 && full.isEmpty()) {
+          return;
+        }
+        batches.addAll(full);
+        full.clear();
+        if (filling.position() > 0) {
+          batches.add(filling);
+          filling = spare.isEmpty() ? newBatch() : spare.poll();
+        }
+        upTo = appended;
+      }
+      try {
+        write(batches);
+      } catch (IOException e) {
+        synchronized (this) {
+          failure = e;
+          waiters.clear();
+          notifyAll();
+        }
+        failed = e;
+        break;
+      }
+      synchronized (this) {
+        for (ByteBuffer batch : batches) {
+          batch.clear();
+          spare.add(batch);
+        }
+        durable = upTo;
+        while (!waiters.isEmpty() && waiters.peek().seq() <= upTo) {
+          synced.add(waiters.poll().action());
+        }
+        notifyAll();
+      }
+      batches.clear();
+      for (Runnable action : synced) {
+        try {
+          action.run();
+        } catch (RuntimeException e) {
+          System.err.println("[MoveJournal] Callback failed: " + e);
+        }
+      }
+      synced.clear();
+    }
+    System.err.println("[MoveJournal] Journaling stopped: " + failed.getMessage());
+    onFailure.accept(failed);
+  }
+
+  // One gathering write and one sync for every batch, then what the segments now hold
+  private void write(List<ByteBuffer> batches) throws IOException {
+    ByteBuffer[] buffers = batches.toArray(new ByteBuffer[0]);
+    for (ByteBuffer batch : buffers) {
+      batch.flip();
+    }
+    while (buffers[buffers.length - 1].hasRemaining()) {
+      segment.write(buffers);
+    }
+    segment.force(false);
+    synchronized (unfinished) {
+      for (ByteBuffer batch : buffers) {
+        for (int at = 0; at < batch.limit(); at += RECORD_BYTES) {
+          track(segmentIndex, batch.getLong(at), batch.get(at + 16));
+        }
+      }
+    }
+    if (segment.size() >= segmentBytes) {
+      segment.close();
+      openNextSegment();
+    }
+    dropEnded();
+  }
+
+  private void openNextSegment() throws IOException {
+    int next = segmentIndex + 1;
+    segment =
+        FileChannel.open(
+            segmentPath(next), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    // Under the lock, as replay() drops segments on its own thread
+    synchronized (unfinished) {
+      segmentIndex = next;
+      unfinished.put(next, new HashSet<>());
+    }
+  }
+
+  private Path segmentPath(int index) {
+    return dir.resolve(String.format("journal-%06d.log", index));
+  }
+
+  // A durable record of gameId in the segment; caller holds the unfinished lock
+  private void track(int index, long gameId, byte type) {
+    if (type == END) {
+      for (Set<Long> games : unfinished.values()) {
+        games.remove(gameId);
+      }
+      return;
+    }
+    Set<Long> games = unfinished.get(index);
+    if (games != null) {
+      games.add(gameId);
+    }
+    if (type == CREATE) {
+      latestCreate = Math.max(latestCreate, index);
+    }
+  }
+
+  // Delete the segments, other than the one being written, whose games have all ended
+  private void dropEnded() {
+    synchronized (unfinished) {
+      for (var it = unfinished.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<Integer, Set<Long>> entry = it.next();
+        int index = entry.getKey();
+        if (index == segmentIndex || index == latestCreate || !entry.getValue().isEmpty()) {
+          continue;
+        }
+        it.remove();
+        try {
+          Files.deleteIfExists(segmentPath(index));
+        } catch (IOException e) {
+          System.err.println("[MoveJournal] Could not drop segment " + index + ": " + e);
+        }
+      }
+    }
+  }
+
+  /** Sync what is pending, then stop. */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    segment.close();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /* ===== Reading ===== */
+
+  /**
+   * Pass every intact record in {@code dir} to {@code visitor}, oldest first. A segment is read up
+   * to its first torn or corrupt record, which is what a crash in mid-write leaves behind. The
+   * record is a view that is refilled for the next one.
+   */
+  static void read(Path dir, Consumer<Record> visitor) throws IOException {
+    Record record = new Record();
+    CRC32C check = new CRC32C();
+    for (Path file : segments(dir)) {
+      readSegment(file, record, check, visitor);
+    }
+  }
+
+  /**
+   * Pass the records of the segments that were there when this journal was opened to {@code
+   * visitor}, as {@link #read} does, and drop those whose games have all ended. Call it once,
+   * before the journal is used.
+   */
+  void replay(Consumer<Record> visitor) throws IOException {
+    Map<Integer, Set<Long>> found = new TreeMap<>();
+    int[] lastCreate = {0};
+    Record record = new Record();
+    CRC32C check = new CRC32C();
+    for (Path file : segments(dir)) {
+      int index = index(file);
+      if (index >= firstIndex) continue;
+      Set<Long> games = new HashSet<>();
+      found.put(index, games);
+      readSegment(
+          file,
+          record,
+          check,
+          r -> {
+            if (r.type() == END) {
+              for (Set<Long> earlier : found.values()) {
+                earlier.remove(r.gameId());
+              }
+            } else {
+              games.add(r.gameId());
+              if (r.type() == CREATE) {
+                lastCreate[0] = index;
+              }
+            }
+            visitor.accept(r);
+          });
+    }
+    synchronized (unfinished) {
+      unfinished.putAll(found);
+      latestCreate = Math.max(latestCreate, lastCreate[0]);
+    }
+    dropEnded();
+  }
+
+  private static void readSegment(Path file, Record record, CRC32C check, Consumer<Record> visitor)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long usable = channel.size() - channel.size() % RECORD_BYTES;
+      if (usable == 0) return;
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, usable);
+      for (int at = 0; at < usable; at += RECORD_BYTES) {
+        check.reset();
+        check.update(map.duplicate().position(at).limit(at + RECORD_BYTES - 4));
+        if ((int) check.getValue() != map.getInt(at + RECORD_BYTES - 4)) {
+          System.err.println("[MoveJournal] " + file.getFileName() + " ends at a bad record");
+          break;
+        }
+        visitor.accept(record.at(map, at));
+      }
+    }
+  }
+
+  private static List<Path> segments(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      List<Path> found = new ArrayList<>();
+      files
+          .filter(f -> f.getFileName().toString().matches("journal-\\d{6}\\.log"))
+          .sorted()
+          .forEach(found::add);
+      return found;
+    }
+  }
+
+  private static int index(Path segment) {
+    String name = segment.getFileName().toString();
+    return Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length()));
+  }
+
+  private static int koRule(String name) {
+    String canonical = GameFactory.koRuleName(name);
+    for (int i = 0; i < KO_RULES.length; i++) {
+      if (KO_RULES[i].equals(canonical)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown ko rule: " + name);
+  }
+
+  /** One journal record, read in place. */
+  static final class Record {
+
+    private ByteBuffer buffer;
+    private int at;
+
+    private Record at(ByteBuffer buffer, int at) {
+      this.buffer = buffer;
+      this.at = at;
+      return this;
+    }
+
+    long gameId() {
+      return buffer.getLong(at);
+    }
+
+    long millis() {
+      return buffer.getLong(at + 8);
+    }
+
+    byte type() {
+      return buffer.get(at + 16);
+    }
+
+    Color color() {
+      return COLORS[buffer.get(at + 17)];
+    }
+
+    int boardSize() {
+      return buffer.get(at + 17) & 0xFF;
+    }
+
+    String koRule() {
+      return KO_RULES[buffer.get(at + 18)];
+    }
+
+    int x() {
+      return buffer.getShort(at + 20);
+    }
+
+    int y() {
+      return buffer.getShort(at + 22);
+    }
+
+    TimeControl timeControl() {
+      return new TimeControl(
+          buffer.getLong(at + 24),
+          buffer.getLong(at + 32),
+          buffer.getInt(at + 40),
+          buffer.getLong(at + 44));
+    }
+
+    String playerId() {
+      return new UUID(buffer.getLong(at + 24), buffer.getLong(at + 32)).toString();
+    }
+
+    boolean bot() {
+      return buffer.get(at + 18) != 0;
+    }
+
+    String resumeToken() {
+      byte[] token = new byte[16];
+      buffer.get(at + 40, token);
+      return HexFormat.of().formatHex(token);
+    }
+  }
+}
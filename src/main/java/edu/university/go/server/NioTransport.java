@@ -0,0 +1,396 @@
+package edu.university.go.server;
+
+import edu.university.go.protocol.BinaryCodec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking transport: one acceptor thread and a small pool of selector event loops serve every
+ * client, instead of one thread per socket.
+ *
+ * <p>Each accepted channel is pinned to one loop for its whole life, round robin. The loop owns the
+ * channel's read buffer and splits lines out of it in place; commands are handed to the same {@link
+ * ClientHandler} logic the blocking transport uses, on the loop thread. Outgoing batches are
+ * appended to a per-connection write buffer under its lock and flushed by the owning loop, so a
+ * session can broadcast to players that live on other loops. A batch that would grow the buffer
+ * past its limit is not appended, and the handler's {@link SlowConsumerPolicy} takes over.
+ *
+ * <p>A connection whose first bytes are the {@link BinaryCodec} upgrade is switched to binary
+ * frames both ways; the frames are decoded from the read buffer in place.
+ */
+class NioTransport {
+
+  // Longest command line or frame accepted from a client
+  static final int MAX_LINE = 4096;
+  // Initial and largest size of a connection's pending output
+  private static final int WRITE_BUFFER = 8 * 1024;
+  private static final int MAX_WRITE_BUFFER = 1024 * 1024;
+
+  private final SessionRegistry registry;
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  private final EventLoop[] loops;
+
+  private ServerSocketChannel serverChannel;
+  private Thread acceptor;
+  private volatile boolean running;
+
+  NioTransport(SessionRegistry registry, int loopCount) {
+    this(registry, loopCount, SlowConsumerPolicy.SNAPSHOT);
+  }
+
+  NioTransport(SessionRegistry registry, int loopCount, SlowConsumerPolicy slowConsumerPolicy) {
+    if (loopCount < 1) {
+      throw new IllegalArgumentException("At least one event loop is required");
+    }
+    this.registry = registry;
+    this.slowConsumerPolicy = slowConsumerPolicy;
+    this.loops = new EventLoop[loopCount];
+  }
+
+  /** Bind and start serving in the background; returns the bound port. */
+  int start(int port) throws IOException {
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(port), Server.ACCEPT_BACKLOG);
+    running = true;
+
+    for (int i = 0; i < loops.length; i++) {
+      loops[i] = new EventLoop(Selector.open());
+      Thread thread = new Thread(loops[i], "nio-loop-" + i);
+      thread.setDaemon(true);
+      loops[i].thread = thread;
+      thread.start();
+    }
+
+    acceptor = new Thread(this::acceptLoop, "nio-acceptor");
+    acceptor.start();
+    return getPort();
+  }
+
+  int getPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /** Block until the transport is closed. */
+  void awaitTermination() throws InterruptedException {
+    acceptor.join();
+  }
+
+  void close() throws IOException {
+    running = false;
+    serverChannel.close();
+    for (EventLoop loop : loops) {
+      if (loop != null) {
+        loop.selector.wakeup();
+      }
+    }
+  }
+
+  private void acceptLoop() {
+    int next = 0;
+    while (running) {
+      try {
+        SocketChannel channel = serverChannel.accept();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        loops[next].register(channel);
+        next = (next + 1) % loops.length;
+      } catch (IOException e) {
+        if (running) {
+          System.err.println("[NioTransport] Accept failed: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private final class EventLoop implements Runnable {
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private Thread thread;
+
+    EventLoop(Selector selector) {
+      this.selector = selector;
+    }
+
+    void register(SocketChannel channel) {
+      execute(
+          () -> {
+            NioConnection connection = new NioConnection(this, channel);
+            try {
+              connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (ClosedChannelException e) {
+              return;
+            }
+            connection.handler.opened();
+          });
+    }
+
+    void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    boolean inLoop() {
+      return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          selector.select();
+        } catch (IOException e) {
+          System.err.println("[NioTransport] Select failed: " + e.getMessage());
+          break;
+        }
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          NioConnection connection = (NioConnection) key.attachment();
+          if (!key.isValid()) {
+            connection.close();
+            continue;
+          }
+          if (key.isReadable()) {
+            connection.read();
+          }
+          if (key.isValid() && key.isWritable()) {
+            connection.flush();
+          }
+        }
+      }
+
+      for (SelectionKey key : selector.keys()) {
+        ((NioConnection) key.attachment()).close();
+      }
+      try {
+        selector.close();
+      } catch (IOException ignored) {
+        // shutting down
+      }
+    }
+  }
+
+  private final class NioConnection implements Connection {
+
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final ClientHandler handler;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_LINE);
+    private SelectionKey key;
+    // Loop thread only; set once the first bytes told text from binary
+    private boolean protocolKnown;
+    private BinaryCodec readCodec;
+
+    // Guarded by this; bytes waiting to be written, in write mode
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER);
+    private BinaryCodec writeCodec;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    NioConnection(EventLoop loop, SocketChannel channel) {
+      this.loop = loop;
+      this.channel = channel;
+      this.handler = ClientHandler.inLobby(this, registry).slowConsumers(slowConsumerPolicy);
+    }
+
+    // Loop thread only
+    void read() {
+      int n;
+      try {
+        n = channel.read(readBuffer);
+      } catch (IOException e) {
+        close();
+        return;
+      }
+      if (n < 0) {
+        close();
+        return;
+      }
+      handler.heard();
+
+      if (!protocolKnown && !detectProtocol()) return;
+      if (readCodec != null) {
+        readFrames();
+        return;
+      }
+
+      // Hand over every complete line, then keep the partial tail for the next read
+      byte[] bytes = readBuffer.array();
+      int end = readBuffer.position();
+      int start = 0;
+      for (int i = 0; i < end && !closed; i++) {
+        if (bytes[i] == '\n') {
+          // A trailing '\r' is whitespace to the parser
+          handler.handleLine(readBuffer, start, i);
+          start = i + 1;
+        }
+      }
+      handler.flush();
+      if (closed) return;
+      readBuffer.position(start);
+      readBuffer.limit(end);
+      readBuffer.compact();
+
+      if (!readBuffer.hasRemaining()) {
+        fail("ERROR: Line too long");
+      }
+    }
+
+    // Whether the first bytes are settled; switches to binary on the upgrade bytes
+    private boolean detectProtocol() {
+      int end = readBuffer.position();
+      if (end == 0) return false;
+      if (readBuffer.get(0) != BinaryCodec.MAGIC) {
+        protocolKnown = true;
+        return true;
+      }
+      if (end < 2) return false;
+      if (readBuffer.get(1) != BinaryCodec.VERSION) {
+        fail("ERROR: Unsupported binary protocol version");
+        return false;
+      }
+      readBuffer.position(2).limit(end);
+      readBuffer.compact();
+      readCodec = new BinaryCodec();
+      synchronized (this) {
+        writeCodec = new BinaryCodec();
+      }
+      protocolKnown = true;
+      handler.upgraded();
+      return true;
+    }
+
+    // Decode every complete frame, then keep the partial tail for the next read
+    private void readFrames() {
+      readBuffer.flip();
+      try {
+        while (!closed && readCodec.decodeCommand(readBuffer, handler)) {
+          // handled by the sink
+        }
+      } catch (RuntimeException e) {
+        fail("ERROR: Bad frame");
+        return;
+      }
+      handler.flush();
+      if (closed) return;
+      readBuffer.compact();
+
+      if (!readBuffer.hasRemaining()) {
+        fail("ERROR: Frame too long");
+      }
+    }
+
+    // Last words to the client before closing
+    private void fail(String error) {
+      handler.send(error);
+      handler.flush();
+      close();
+    }
+
+    @Override
+    public void write(List<Object> entries) {
+      boolean full = false;
+      synchronized (this) {
+        if (closed) return;
+        int needed = 0;
+        for (Object entry : entries) {
+          needed += Outbox.maxBytes(entry, writeCodec);
+        }
+        if (writeBuffer.remaining() < needed && !grow(needed)) {
+          full = true;
+        } else {
+          for (Object entry : entries) {
+            Outbox.encode(entry, writeBuffer, writeCodec);
+          }
+          if (flushScheduled) return;
+          flushScheduled = true;
+        }
+      }
+      if (full) {
+        handler.fellBehind();
+      } else if (loop.inLoop()) {
+        flush();
+      } else {
+        loop.execute(this::flush);
+      }
+    }
+
+    private boolean grow(int needed) {
+      int capacity = writeBuffer.capacity();
+      while (capacity - writeBuffer.position() < needed) {
+        capacity *= 2;
+        if (capacity > MAX_WRITE_BUFFER) return false;
+      }
+      ByteBuffer bigger = ByteBuffer.allocate(capacity);
+      writeBuffer.flip();
+      bigger.put(writeBuffer);
+      writeBuffer = bigger;
+      return true;
+    }
+
+    // Loop thread only
+    void flush() {
+      boolean pending;
+      synchronized (this) {
+        flushScheduled = false;
+        if (closed) return;
+        writeBuffer.flip();
+        try {
+          channel.write(writeBuffer);
+        } catch (IOException e) {
+          writeBuffer.clear();
+          loop.execute(this::close);
+          return;
+        }
+        pending = writeBuffer.hasRemaining();
+        writeBuffer.compact();
+      }
+      if (key != null && key.isValid()) {
+        key.interestOps(
+            pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+      }
+      if (!pending) {
+        handler.drained();
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!loop.inLoop()) {
+        loop.execute(this::close);
+        return;
+      }
+      synchronized (this) {
+        if (closed) return;
+        closed = true;
+      }
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // already gone
+      }
+      handler.closed();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package edu.university.go.server;
+
+import edu.university.go.protocol.BinaryCodec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded queue of lines, and {@link SharedUpdate}s, waiting to go out on one {@link Connection}.
+ *
+ * <p>{@link #offer} only queues; {@link #flush} hands everything queued so far to the connection as
+ * one batch, written on the writer executor rather than the caller's thread. A session flushes its
+ * players once per event, so all lines of that event reach the socket in a single write, and a
+ * client that reads slowly only ever blocks its own writer. Batches are written one at a time, in
+ * order.
+ *
+ * <p>Between {@link #hold} and {@link #release} nothing is written, whoever flushes; a session
+ * holds its clients' output that way until what it tells them is journaled.
+ */
+final class Outbox {
+
+  // Changed only between batches, see switchTo
+  private volatile Connection connection;
+  private final int capacity;
+  private final Mailbox writer;
+  private final AtomicBoolean flushPending = new AtomicBoolean();
+
+  // Guarded by this
+  private List<Object> queued = new ArrayList<>();
+  private boolean held;
+  // Writer only; swapped with queued for each batch
+  private List<Object> writing = new ArrayList<>();
+
+  Outbox(Connection connection, int capacity, Executor writers) {
+    this.connection = connection;
+    this.capacity = capacity;
+    this.writer = new Mailbox(writers);
+  }
+
+  /** Queue a line; false, queuing nothing, if {@code capacity} entries are already waiting. */
+  boolean offer(String line) {
+    return add(line);
+  }
+
+  /** Queue a shared update as one entry. */
+  boolean offer(SharedUpdate update) {
+    return add(update);
+  }
+
+  private synchronized boolean add(Object entry) {
+    if (queued.size() >= capacity) {
+      return false;
+    }
+    queued.add(entry);
+    return true;
+  }
+
+  /** Drop everything not yet handed to the connection. */
+  synchronized void clear() {
+    queued.clear();
+  }
+
+  /** Write out what is queued, soon and without blocking the caller; nothing while held. */
+  void flush() {
+    synchronized (this) {
+      if (queued.isEmpty() || held) return;
+    }
+    if (flushPending.compareAndSet(false, true)) {
+      writer.execute(this::writeBatch);
+    }
+  }
+
+  /**
+   * Write later batches to {@code next}, once everything queued so far went to the current
+   * connection; waits for those writes. For a protocol switch, while nothing else is sending.
+   */
+  void switchTo(Connection next) {
+    flush();
+    CountDownLatch written = new CountDownLatch(1);
+    writer.execute(written::countDown);
+    try {
+      written.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    connection = next;
+  }
+
+  /** Keep everything queued from now on, and what is queued already, until {@link #release}. */
+  synchronized void hold() {
+    held = true;
+  }
+
+  /** Let what was held go out, and flush it. */
+  void release() {
+    synchronized (this) {
+      held = false;
+    }
+    flush();
+  }
+
+  void close() {
+    connection.close();
+  }
+
+  private void writeBatch() {
+    flushPending.set(false);
+    List<Object> batch;
+    synchronized (this) {
+      if (held) return;
+      batch = queued;
+      queued = writing;
+    }
+    writing = batch;
+    if (!batch.isEmpty()) {
+      connection.write(batch);
+    }
+    batch.clear();
+  }
+
+  /** Most bytes {@link #encode} writes for {@code entry}; binary frames if {@code codec} is set. */
+  static int maxBytes(Object entry, BinaryCodec codec) {
+    if (entry instanceof SharedUpdate update) {
+      return update.size(codec != null);
+    }
+    return ((String) entry).length() * 3 + 8;
+  }
+
+  /** Append one queued entry to {@code out}, as a text line or a binary frame. */
+  static void encode(Object entry, ByteBuffer out, BinaryCodec codec) {
+    if (entry instanceof SharedUpdate update) {
+      update.copyTo(out, codec != null);
+      return;
+    }
+    String line = (String) entry;
+    if (codec != null) {
+      codec.encodeReply(line, out);
+      return;
+    }
+    // Without an intermediate byte[] for the usual ASCII lines
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c >= 0x80) {
+        out.put(line.substring(i).getBytes(StandardCharsets.UTF_8));
+        break;
+      }
+      out.put((byte) c);
+    }
+    out.put((byte) '\n');
+  }
+}
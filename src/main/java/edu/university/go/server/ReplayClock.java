@@ -0,0 +1,36 @@
+package edu.university.go.server;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Time source of the game clocks of journaled games, in wall clock millis so the times in the
+ * {@link MoveJournal} stay meaningful after a restart.
+ *
+ * <p>While a game is rebuilt it reads the time of the record being replayed, so every move costs
+ * what it cost when it was played. Once live again it runs on from the last record: the time the
+ * server was down is charged to nobody.
+ */
+final class ReplayClock implements LongSupplier {
+
+  private boolean replaying;
+  private long replayMillis;
+  private long offset;
+
+  /** Read {@code millis} until {@link #goLive}. */
+  void replayAt(long millis) {
+    replaying = true;
+    replayMillis = millis;
+  }
+
+  void goLive() {
+    if (replaying) {
+      offset = System.currentTimeMillis() - replayMillis;
+      replaying = false;
+    }
+  }
+
+  @Override
+  public long getAsLong() {
+    return replaying ? replayMillis : System.currentTimeMillis() - offset;
+  }
+}
@@ -1,17 +1,33 @@
 package edu.university.go.server;
 
-import edu.university.go.game.Game;
+import edu.university.go.archive.GameArchive;
+import edu.university.go.game.TimeControl;
+import edu.university.go.sgf.SgfWriter;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 
 public class Server {
 
+  // Pending connections the OS queues for accept
+  static final int ACCEPT_BACKLOG = 1024;
+
   private static Server instance;
 
   private final int port;
   private final int boardSize;
-  private final GameSession session;
+  private final SessionRegistry registry;
+  private final Transport transport;
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  // Null if games are not journaled
+  private final Path journalDir;
+  // Null if finished games are not archived
+  private final Path archiveFile;
+  // Null if finished games are not stored by id
+  private final Path storeDir;
 
   // Singleton constructor
   private Server() {
@@ -20,10 +36,89 @@ public class Server {
 
   // Constructor with parameters
   public Server(int port, int boardSize) {
-    this.port = port;
-    this.boardSize = boardSize;
-    Game game = GameFactory.createGame(boardSize);
-    session = new GameSession(game);
+    this(new Options().port(port).boardSize(boardSize));
+  }
+
+  // Constructor with everything else set as in Options
+  public Server(Options options) {
+    this.port = options.port;
+    this.journalDir = options.journalDir;
+    this.archiveFile = options.archiveFile;
+    this.storeDir = options.storeDir;
+    this.transport = options.transport;
+    this.slowConsumerPolicy = options.slowConsumers;
+    this.boardSize = options.boardSize;
+    GameFactory.koRule(options.koRule); // fail fast on an unknown rule
+    registry = new SessionRegistry(options.boardSize, options.koRule, options.timeControl);
+  }
+
+  /**
+   * How a server is set up, each setting defaulting to what {@link ServerMain} starts with: port
+   * 9999, 19x19 games under the simple ko rule and no clock, blocking transport, slow clients
+   * skipped to the board, and no journal, archive or store.
+   */
+  public static final class Options {
+
+    private int port = 9999;
+    private int boardSize = 19;
+    private String koRule = "simple";
+    private Transport transport = Transport.BLOCKING;
+    private SlowConsumerPolicy slowConsumers = SlowConsumerPolicy.SNAPSHOT;
+    private TimeControl timeControl = TimeControl.NONE;
+    private Path journalDir;
+    private Path archiveFile;
+    private Path storeDir;
+
+    public Options port(int port) {
+      this.port = port;
+      return this;
+    }
+
+    public Options boardSize(int boardSize) {
+      this.boardSize = boardSize;
+      return this;
+    }
+
+    /** A ko rule name, see GameFactory.koRule. */
+    public Options koRule(String koRule) {
+      this.koRule = koRule;
+      return this;
+    }
+
+    public Options transport(Transport transport) {
+      this.transport = transport;
+      return this;
+    }
+
+    /** What to do about clients that read too slowly. */
+    public Options slowConsumers(SlowConsumerPolicy slowConsumers) {
+      this.slowConsumers = slowConsumers;
+      return this;
+    }
+
+    /** The clock new games get, see TimeControl.parse. */
+    public Options timeControl(TimeControl timeControl) {
+      this.timeControl = timeControl;
+      return this;
+    }
+
+    /** A directory to journal games in, and to recover them from on start; null for none. */
+    public Options journal(Path journalDir) {
+      this.journalDir = journalDir;
+      return this;
+    }
+
+    /** An SGF file every finished game is appended to; null for none. */
+    public Options archive(Path archiveFile) {
+      this.archiveFile = archiveFile;
+      return this;
+    }
+
+    /** The directory of a GameArchive every finished game is stored in; null for none. */
+    public Options store(Path storeDir) {
+      this.storeDir = storeDir;
+      return this;
+    }
   }
 
   public static synchronized Server getInstance() {
@@ -34,12 +129,95 @@ public class Server {
   }
 
   public void start() throws IOException {
-    ServerSocket serverSocket = new ServerSocket(port);
-    System.out.println("Go server started on port " + port);
+    if (archiveFile != null) {
+      registry.archive(SgfWriter.append(archiveFile));
+    }
+    if (storeDir != null) {
+      GameArchive store = new GameArchive(storeDir);
+      System.out.println("Game store holds " + store.size() + " games");
+      registry.store(store);
+    }
+    if (journalDir != null) {
+      recover();
+    }
+    if (transport == Transport.NIO) {
+      startNio();
+      return;
+    }
 
+    ServerSocket serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+    System.out.println("Go server started on port " + port + " (" + transport + ")");
+    serve(serverSocket);
+  }
+
+  // Accept loop of the thread-per-connection transports, until the socket is closed
+  void serve(ServerSocket serverSocket) throws IOException {
+    ThreadFactory threads = handlerThreads(transport);
+    Executor writers = handlerWriters(transport);
     while (true) {
       Socket client = serverSocket.accept();
-      new Thread(new ClientHandler(client, session)).start();
+      ClientHandler handler =
+          ClientHandler.inLobby(client, registry)
+              .slowConsumers(slowConsumerPolicy)
+              .writers(writers);
+      threads.newThread(handler).start();
+    }
+  }
+
+  // Rebuild the games the journal has, then journal new ones after them
+  private void recover() throws IOException {
+    registry.journal(new MoveJournal(journalDir));
+    long start = System.nanoTime();
+    int games = registry.recover(journalDir);
+    System.out.println(
+        "[Server] Recovered "
+            + games
+            + " games in "
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms");
+  }
+
+  // A virtual thread per batch of socket writes, or the shared pool of platform writers
+  static Executor handlerWriters(Transport transport) {
+    ThreadFactory virtual = transport == Transport.VIRTUAL ? virtualThreadFactory() : null;
+    if (virtual == null) {
+      return ClientHandler.WRITERS;
+    }
+    return task -> virtual.newThread(task).start();
+  }
+
+  static ThreadFactory handlerThreads(Transport transport) {
+    if (transport == Transport.VIRTUAL) {
+      ThreadFactory virtual = virtualThreadFactory();
+      if (virtual != null) {
+        return virtual;
+      }
+      System.out.println("[Server] Virtual threads need Java 21, using platform threads");
+    }
+    return Thread::new;
+  }
+
+  // Thread.ofVirtual().factory(), looked up reflectively so the build still targets Java 17
+  private static ThreadFactory virtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory)
+          Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  private void startNio() throws IOException {
+    int loops = Runtime.getRuntime().availableProcessors();
+    NioTransport nio = new NioTransport(registry, loops, slowConsumerPolicy);
+    nio.start(port);
+    System.out.println("Go server started on port " + port + " (NIO, " + loops + " loops)");
+    try {
+      nio.awaitTermination();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      nio.close();
     }
   }
 }
@@ -1,45 +1,135 @@
 package edu.university.go.server;
 
+import edu.university.go.game.TimeControl;
 import java.io.IOException;
+import java.nio.file.Path;
 
-/** Server Main Entry Point Default: port=9999, boardSize=19 */
+/**
+ * Server Main Entry Point, set up by named flags such as {@code --port=9999}. Default: port=9999,
+ * size=19, ko=simple, transport=blocking, slow-consumers=snapshot, time=none, journal=none,
+ * archive=none, store=none
+ */
 public class ServerMain {
 
   public static void main(String[] args) throws IOException {
     int port = 9999;
     int boardSize = 19;
+    String koRule = "simple";
+    Transport transport = Transport.BLOCKING;
+    SlowConsumerPolicy slowConsumers = SlowConsumerPolicy.SNAPSHOT;
+    TimeControl timeControl = TimeControl.NONE;
+    Path journalDir = null;
+    Path archiveFile = null;
+    Path storeDir = null;
 
-    if (args.length >= 1) {
-      try {
-        port = Integer.parseInt(args[0]);
-      } catch (NumberFormatException e) {
-        System.out.println("Invalid port: " + args[0]);
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq < 0) {
+        System.out.println("Arguments are --name=value, got: " + arg);
         System.exit(1);
       }
-    }
-
-    if (args.length >= 2) {
-      try {
-        boardSize = Integer.parseInt(args[1]);
-        if (boardSize != 9 && boardSize != 13 && boardSize != 19) {
-          System.out.println("Board size must be 9, 13, or 19");
+      String name = arg.substring(2, eq);
+      String value = arg.substring(eq + 1);
+      switch (name) {
+        case "port" -> {
+          try {
+            port = Integer.parseInt(value);
+          } catch (NumberFormatException e) {
+            System.out.println("Invalid port: " + value);
+            System.exit(1);
+          }
+        }
+        case "size" -> {
+          try {
+            boardSize = Integer.parseInt(value);
+            if (boardSize != 9 && boardSize != 13 && boardSize != 19) {
+              System.out.println("Board size must be 9, 13, or 19");
+              System.exit(1);
+            }
+          } catch (NumberFormatException e) {
+            System.out.println("Invalid board size: " + value);
+            System.exit(1);
+          }
+        }
+        case "ko" -> {
+          koRule = value;
+          try {
+            GameFactory.koRule(koRule);
+          } catch (IllegalArgumentException e) {
+            System.out.println("Ko rule must be simple, positional or situational");
+            System.exit(1);
+          }
+        }
+        case "transport" -> {
+          try {
+            transport = Transport.parse(value);
+          } catch (IllegalArgumentException e) {
+            System.out.println("Transport must be blocking, virtual or nio");
+            System.exit(1);
+          }
+        }
+        case "slow-consumers" -> {
+          try {
+            slowConsumers = SlowConsumerPolicy.parse(value);
+          } catch (IllegalArgumentException e) {
+            System.out.println("Slow consumer policy must be snapshot or disconnect");
+            System.exit(1);
+          }
+        }
+        case "time" -> {
+          try {
+            timeControl = TimeControl.parse(value);
+          } catch (IllegalArgumentException e) {
+            System.out.println(
+                "Time control must be none, fischer:<main>+<inc> or byoyomi:<main>+<n>x<period>");
+            System.exit(1);
+          }
+        }
+        case "journal" -> journalDir = pathOrNone(value);
+        case "archive" -> archiveFile = pathOrNone(value);
+        case "store" -> storeDir = pathOrNone(value);
+        default -> {
+          System.out.println(
+              "Unknown flag --"
+                  + name
+                  + "; use --port, --size, --ko, --transport, --slow-consumers, --time, --journal,"
+                  + " --archive or --store");
           System.exit(1);
         }
-      } catch (NumberFormatException e) {
-        System.out.println("Invalid board size: " + args[1]);
-        System.exit(1);
       }
     }
 
     System.out.println("=== Go Game Server ===");
     System.out.println("Port: " + port);
     System.out.println("Board Size: " + boardSize + "x" + boardSize);
+    System.out.println("Ko Rule: " + koRule);
+    System.out.println("Transport: " + transport);
+    System.out.println("Slow consumers: " + slowConsumers);
+    System.out.println("Time control: " + timeControl);
+    System.out.println("Journal: " + (journalDir != null ? journalDir : "none"));
+    System.out.println("Archive: " + (archiveFile != null ? archiveFile : "none"));
+    System.out.println("Store: " + (storeDir != null ? storeDir : "none"));
 
-    Server server = new Server(port, boardSize);
+    Server server =
+        new Server(
+            new Server.Options()
+                .port(port)
+                .boardSize(boardSize)
+                .koRule(koRule)
+                .transport(transport)
+                .slowConsumers(slowConsumers)
+                .timeControl(timeControl)
+                .journal(journalDir)
+                .archive(archiveFile)
+                .store(storeDir));
     try {
       server.start();
     } catch (IOException e) {
       System.err.println("Server error: " + e.getMessage());
     }
   }
+
+  private static Path pathOrNone(String value) {
+    return value.equals("none") ? null : Path.of(value);
+  }
 }
@@ -0,0 +1,430 @@
+package edu.university.go.server;
+
+import edu.university.go.archive.GameArchive;
+import edu.university.go.archive.GameRecord;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import edu.university.go.sgf.SgfWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lobby of all live game sessions on this server, keyed by game id.
+ *
+ * <p>Sessions are created on demand through {@link GameFactory} and dropped from the registry as
+ * soon as their game ends or their last player leaves, so finished games become garbage once the
+ * client handlers let go of them.
+ *
+ * <p>All sessions run their mailboxes on one shared pool with a thread per core, however many games
+ * are live.
+ *
+ * <p>With a {@link MoveJournal} every game is journaled, and {@link #recover} rebuilds the ones
+ * still under way after a restart. If the journal fails, no new game is created and the live ones
+ * are closed, to be taken up again from what the journal holds once the server restarts.
+ */
+class SessionRegistry {
+
+  private final int defaultBoardSize;
+  private final String defaultKoRule;
+  private final TimeControl defaultTimeControl;
+  private final Executor sessionPool;
+
+  private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong(1);
+
+  // Quick-match sessions waiting for their second player
+  private final Deque<GameSession> waiting = new ArrayDeque<>();
+
+  // Seats by the resume token of their player, for RESUME after a dropped connection
+  private final Map<String, Seat> seats = new ConcurrentHashMap<>();
+
+  // Set before the registry is used, if games are journaled; the failure once it failed
+  private MoveJournal journal;
+  private volatile IOException journalFailure;
+  // Set before the registry is used, if finished games are archived
+  private SgfWriter archive;
+  // Set before the registry is used, if finished games are stored by id
+  private GameArchive store;
+  // Where bots think, and for how long a move
+  private Executor botThinkers = BotPlayer.THINKERS;
+  private long botThinkMillis = BotPlayer.THINK_MILLIS;
+
+  /** A player's place in a session. */
+  record Seat(GameSession session, String playerId) {}
+
+  SessionRegistry(int defaultBoardSize, String defaultKoRule) {
+    this(defaultBoardSize, defaultKoRule, newSessionPool());
+  }
+
+  SessionRegistry(int defaultBoardSize, String defaultKoRule, Executor sessionPool) {
+    this(defaultBoardSize, defaultKoRule, TimeControl.NONE, sessionPool);
+  }
+
+  SessionRegistry(int defaultBoardSize, String defaultKoRule, TimeControl defaultTimeControl) {
+    this(defaultBoardSize, defaultKoRule, defaultTimeControl, newSessionPool());
+  }
+
+  SessionRegistry(
+      int defaultBoardSize,
+      String defaultKoRule,
+      TimeControl defaultTimeControl,
+      Executor sessionPool) {
+    this.defaultBoardSize = defaultBoardSize;
+    this.defaultKoRule = defaultKoRule;
+    this.defaultTimeControl = defaultTimeControl;
+    this.sessionPool = sessionPool;
+  }
+
+  private static Executor newSessionPool() {
+    AtomicLong threads = new AtomicLong();
+    return Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        task -> {
+          Thread thread = new Thread(task, "session-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /** Create a new session with its own id. */
+  GameSession create(int boardSize, String koRule) {
+    return create(boardSize, koRule, defaultTimeControl);
+  }
+
+  /** Create a new session whose game is played on {@code timeControl}. */
+  GameSession create(int boardSize, String koRule, TimeControl timeControl) {
+    refuseUnjournaled();
+    long number = nextId.getAndIncrement();
+    String id = Long.toString(number);
+    GameSession session;
+    if (journal == null) {
+      Game game = GameFactory.createGame(boardSize, GameFactory.koRule(koRule), timeControl);
+      session = new GameSession(id, game, this::remove, sessionPool);
+    } else {
+      ReplayClock clock = new ReplayClock();
+      Game game = GameFactory.createGame(boardSize, GameFactory.koRule(koRule), timeControl, clock);
+      journal.created(number, boardSize, koRule, timeControl);
+      session = new GameSession(id, game, this::remove, sessionPool).journal(journal);
+    }
+    sessions.put(id, session);
+    // Failed meanwhile, after the live sessions were closed
+    if (journalFailure != null) {
+      sessions.remove(id);
+      refuseUnjournaled();
+    }
+    System.out.println("[Registry] Created game " + id + " (" + sessions.size() + " live)");
+    return session;
+  }
+
+  private void refuseUnjournaled() {
+    IOException failure = journalFailure;
+    if (failure != null) {
+      throw new IllegalStateException("Games cannot be recorded: " + failure.getMessage());
+    }
+  }
+
+  GameSession create() {
+    return create(defaultBoardSize, defaultKoRule);
+  }
+
+  int getDefaultBoardSize() {
+    return defaultBoardSize;
+  }
+
+  String getDefaultKoRule() {
+    return defaultKoRule;
+  }
+
+  TimeControl getDefaultTimeControl() {
+    return defaultTimeControl;
+  }
+
+  /**
+   * Session for a player who did not ask for a specific game: the oldest quick-match session still
+   * waiting for an opponent, or a new one. Each quick-match session is handed out exactly twice.
+   */
+  synchronized GameSession quickMatch() {
+    while (!waiting.isEmpty()) {
+      GameSession session = waiting.pollFirst();
+      if (sessions.containsKey(session.getId())) {
+        return session;
+      }
+    }
+    GameSession session = create();
+    waiting.addLast(session);
+    return session;
+  }
+
+  GameSession get(String id) {
+    return sessions.get(id);
+  }
+
+  /** Sessions that still have a free seat, at most {@code limit} of them. */
+  List<GameSession> listOpen(int limit) {
+    List<GameSession> result = new ArrayList<>();
+    for (GameSession session : sessions.values()) {
+      if (result.size() >= limit) break;
+      if (session.isOpen()) {
+        result.add(session);
+      }
+    }
+    return result;
+  }
+
+  Collection<GameSession> all() {
+    return sessions.values();
+  }
+
+  int size() {
+    return sessions.size();
+  }
+
+  /** Remember the seat {@code token} resumes, until the session is removed. */
+  void holdSeat(String token, GameSession session, String playerId) {
+    seats.put(token, new Seat(session, playerId));
+    session.getResumeTokens().add(token);
+    // Removed meanwhile: its tokens may have been dropped already
+    if (sessions.get(session.getId()) != session) {
+      seats.remove(token);
+    }
+  }
+
+  void releaseSeat(String token) {
+    Seat seat = seats.remove(token);
+    if (seat != null) {
+      seat.session().getResumeTokens().remove(token);
+    }
+  }
+
+  /** The seat {@code token} was issued for, or null. */
+  Seat seat(String token) {
+    return seats.get(token);
+  }
+
+  /** Journal every game from now on; set before the registry is used. */
+  void journal(MoveJournal journal) {
+    this.journal = journal;
+    journal.onFailure(this::journalFailed);
+  }
+
+  // On the journal thread
+  private void journalFailed(IOException failure) {
+    journalFailure = failure;
+    System.err.println(
+        "[Registry] Journal failed, closing "
+            + sessions.size()
+            + " games: "
+            + failure.getMessage());
+    sessions.values().forEach(GameSession::closeAll);
+  }
+
+  /**
+   * Append every game that ends from now on to {@code archive}; set before the registry is used.
+   */
+  void archive(SgfWriter archive) {
+    this.archive = archive;
+  }
+
+  /** Store every game that ends from now on in {@code store}; set before the registry is used. */
+  void store(GameArchive store) {
+    this.store = store;
+  }
+
+  /**
+   * Let bots think on {@code thinkers} for {@code thinkMillis} a move; set before the registry is
+   * used.
+   */
+  void bots(Executor thinkers, long thinkMillis) {
+    this.botThinkers = thinkers;
+    this.botThinkMillis = thinkMillis;
+  }
+
+  /** Put a {@link BotPlayer} in the next free seat of {@code session}. */
+  void seatBot(GameSession session) {
+    System.out.println("[Registry] Seating a bot in game " + session.getId());
+    new BotPlayer(session, botThinkers, botThinkMillis).sit();
+  }
+
+  /**
+   * Rebuild every game in the journal in {@code dir} that has not ended, replaying its moves
+   * through {@link Game#makeMove}. Both players of a rebuilt game can come back with the resume
+   * token they had, and a bot's seat is taken again by a new {@link BotPlayer}. Games that never
+   * started are given up, and so are games a journaled move no longer replays in, rather than
+   * published on a position the players never had. Returns the number of games rebuilt.
+   *
+   * <p>The journal is read once, a game being dropped at its END; with a {@link MoveJournal} set,
+   * which must be the one on {@code dir}, it is read through {@link MoveJournal#replay} so the
+   * segments of ended games are dropped as well.
+   */
+  int recover(Path dir) throws IOException {
+    long[] lastId = {0};
+    Map<Long, Replay> replays = new HashMap<>();
+    Consumer<MoveJournal.Record> visitor =
+        r -> {
+          lastId[0] = Math.max(lastId[0], r.gameId());
+          switch (r.type()) {
+            case MoveJournal.CREATE -> replays.put(r.gameId(), new Replay(r));
+            case MoveJournal.END -> replays.remove(r.gameId());
+            default -> {
+              Replay replay = replays.get(r.gameId());
+              if (replay != null) {
+                replay.apply(r);
+              }
+            }
+          }
+        };
+    if (journal != null) {
+      journal.replay(visitor);
+    } else {
+      MoveJournal.read(dir, visitor);
+    }
+    nextId.accumulateAndGet(lastId[0] + 1, Math::max);
+
+    int recovered = 0;
+    for (Map.Entry<Long, Replay> entry : replays.entrySet()) {
+      if (entry.getValue().goLive()) {
+        recovered++;
+      } else if (journal != null) {
+        journal.ended(entry.getKey());
+      }
+    }
+    System.out.println("[Registry] Recovered " + recovered + " games from " + dir);
+    return recovered;
+  }
+
+  // A journaled game being rebuilt, record by record
+  private final class Replay {
+
+    private final ReplayClock clock = new ReplayClock();
+    private final long gameId;
+    private final Game game;
+    // Player id and resume token per seat, black first
+    private final String[] players = new String[2];
+    private final String[] tokens = new String[2];
+    private final boolean[] bots = new boolean[2];
+    // Set by the first record that does not replay; the rest of the game is not played on
+    private boolean broken;
+
+    Replay(MoveJournal.Record create) {
+      gameId = create.gameId();
+      clock.replayAt(create.millis());
+      // Played without a session, which would format every update for nobody
+      game =
+          GameFactory.createGame(
+              create.boardSize(), GameFactory.koRule(create.koRule()), create.timeControl(), clock);
+    }
+
+    void apply(MoveJournal.Record r) {
+      if (broken) return;
+      clock.replayAt(r.millis());
+      int seat = r.color() == Color.BLACK ? 0 : 1;
+      String playerId = players[seat];
+      try {
+        switch (r.type()) {
+          case MoveJournal.SEAT -> {
+            players[seat] = r.playerId();
+            tokens[seat] = r.resumeToken();
+            bots[seat] = r.bot();
+            game.addPlayer(players[seat]);
+          }
+          case MoveJournal.MOVE -> game.makeMove(new Move(r.color(), r.x(), r.y(), playerId));
+          case MoveJournal.PASS -> game.makeMove(Move.pass(r.color(), playerId));
+          case MoveJournal.RESIGN -> game.makeMove(Move.resign(r.color(), playerId));
+          default -> throw new IllegalArgumentException("Unexpected record type " + r.type());
+        }
+      } catch (RuntimeException e) {
+        System.err.println("[Registry] Game " + gameId + " does not replay: " + e.getMessage());
+        broken = true;
+      }
+    }
+
+    // Publish the game if it was under way; false if it never started, or replayed to another
+    // position than the players had
+    boolean goLive() {
+      if (broken || players[0] == null || players[1] == null || game.isOver()) {
+        return false;
+      }
+      clock.goLive();
+      GameSession session =
+          new GameSession(Long.toString(gameId), game, SessionRegistry.this::remove, sessionPool);
+      session.recovered(players[0], players[1]);
+      session.journal(journal);
+      sessions.put(session.getId(), session);
+      // A bot takes its seat straight back; nobody would come with its token
+      for (int i = 0; i < 2; i++) {
+        if (bots[i]) {
+          new BotPlayer(session, botThinkers, botThinkMillis).sitBack(players[i]);
+        } else {
+          holdSeat(tokens[i], session, players[i]);
+        }
+      }
+      return true;
+    }
+  }
+
+  void remove(GameSession session) {
+    if (sessions.remove(session.getId(), session)) {
+      if (archive != null) {
+        archive(session);
+      }
+      if (store != null) {
+        store(session);
+      }
+      if (journal != null) {
+        journal.ended(Long.parseLong(session.getId()));
+      }
+      // Only this game's seats, not a scan of every seat on the server
+      for (String token : session.getResumeTokens()) {
+        seats.remove(token);
+      }
+      System.out.println(
+          "[Registry] Removed game " + session.getId() + " (" + sessions.size() + " live)");
+    }
+  }
+
+  // Before the journal forgets the game, and on disk by then if it is journaled, so a crash in
+  // between cannot lose it
+  private void archive(GameSession session) {
+    try {
+      if (session.writeSgf(archive)) {
+        if (journal != null) {
+          archive.sync();
+        } else {
+          archive.flush();
+        }
+      }
+    } catch (IOException e) {
+      System.out.println(
+          "[Registry] Could not archive game " + session.getId() + ": " + e.getMessage());
+    }
+  }
+
+  private void store(GameSession session) {
+    GameRecord ended = session.getEndedGame();
+    if (ended == null) return;
+    try {
+      long id = store.append(ended);
+      if (journal != null) {
+        store.force();
+      }
+      System.out.println("[Registry] Stored game " + session.getId() + " as " + id);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println(
+          "[Registry] Could not store game " + session.getId() + ": " + e.getMessage());
+    }
+  }
+}
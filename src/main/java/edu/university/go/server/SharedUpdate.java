@@ -0,0 +1,70 @@
+package edu.university.go.server;
+
+import edu.university.go.protocol.BinaryCodec;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Lines encoded once for many connections: everything one game event sends its spectators.
+ *
+ * <p>Both wire forms are kept in read-only buffers, the text lines up front and the binary frames
+ * on first use. Connections copy these bytes into their output instead of formatting and encoding
+ * the lines again, so an event costs the same to encode for one viewer or a thousand. Immutable and
+ * safe to share between threads.
+ */
+final class SharedUpdate {
+
+  private final List<String> lines;
+  private final ByteBuffer text;
+  private volatile ByteBuffer binary;
+
+  SharedUpdate(List<String> lines) {
+    this.lines = List.copyOf(lines);
+    this.text = encode(null);
+  }
+
+  List<String> lines() {
+    return lines;
+  }
+
+  /** Encoded size, as text lines or binary frames. */
+  int size(boolean frames) {
+    return bytes(frames).limit();
+  }
+
+  /** Append the encoded bytes to {@code out}, which must have room for them. */
+  void copyTo(ByteBuffer out, boolean frames) {
+    ByteBuffer bytes = bytes(frames);
+    out.put(out.position(), bytes, 0, bytes.limit());
+    out.position(out.position() + bytes.limit());
+  }
+
+  private ByteBuffer bytes(boolean frames) {
+    if (!frames) {
+      return text;
+    }
+    ByteBuffer b = binary;
+    if (b == null) {
+      synchronized (this) {
+        b = binary;
+        if (b == null) {
+          binary = b = encode(new BinaryCodec());
+        }
+      }
+    }
+    return b;
+  }
+
+  private ByteBuffer encode(BinaryCodec codec) {
+    int max = 0;
+    for (String line : lines) {
+      max += Outbox.maxBytes(line, codec);
+    }
+    ByteBuffer out = ByteBuffer.allocate(max);
+    for (String line : lines) {
+      Outbox.encode(line, out, codec);
+    }
+    out.flip();
+    return out.asReadOnlyBuffer();
+  }
+}
@@ -0,0 +1,21 @@
+package edu.university.go.server;
+
+/** What a connection does once its client falls so far behind that its {@link Outbox} is full. */
+public enum SlowConsumerPolicy {
+  /** Close the connection, leaving its seat as if the client had quit. */
+  DISCONNECT,
+  /**
+   * Throw away the queued lines and send the current board instead: a snapshot to delta clients, a
+   * text board to the others.
+   */
+  SNAPSHOT;
+
+  /** Parse a policy name as given on the command line, case-insensitively. */
+  public static SlowConsumerPolicy parse(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown slow consumer policy: " + name);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package edu.university.go.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel: one thread runs the timers of every session.
+ *
+ * <p>Time is cut into ticks, and a ring of buckets holds the timers due in each. A timer further
+ * away than one turn of the ring counts the turns it still has to wait. Scheduling and cancelling
+ * are O(1) and only touch a queue; the worker moves new timers into their buckets and drops
+ * cancelled ones as it passes them, so no lock is held and no thread is started per timer.
+ *
+ * <p>Timers fire up to a tick late, never early. Tasks run on the wheel's thread and must be short;
+ * sessions only post themselves a task from it.
+ */
+final class TimingWheel {
+
+  static final long TICK_MILLIS = 10;
+  static final int BUCKETS = 512;
+
+  private static final TimingWheel SHARED = new TimingWheel(TICK_MILLIS, BUCKETS, "timers");
+
+  private final long tickNanos;
+  private final Timeout[] buckets;
+  private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+  private final long startNanos = System.nanoTime();
+  // Ticks the worker has processed
+  private long tick;
+
+  TimingWheel(long tickMillis, int buckets, String threadName) {
+    if (tickMillis <= 0 || buckets <= 0) {
+      throw new IllegalArgumentException("Tick and bucket count must be positive");
+    }
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.buckets = new Timeout[buckets];
+    Thread worker = new Thread(this::run, threadName);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /** The wheel all sessions share. */
+  static TimingWheel shared() {
+    return SHARED;
+  }
+
+  /** Run {@code task} on the wheel's thread once {@code delayMillis} have passed. */
+  Timeout schedule(Runnable task, long delayMillis) {
+    long due = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    Timeout timeout = new Timeout(task, Math.max(0, due));
+    added.add(timeout);
+    return timeout;
+  }
+
+  private void run() {
+    while (true) {
+      long next = (tick + 1) * tickNanos;
+      long sleep = next - (System.nanoTime() - startNanos);
+      if (sleep > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+          return;
+        }
+        continue;
+      }
+      place();
+      expire((int) (tick % buckets.length));
+      tick++;
+    }
+  }
+
+  // Move new timers into the bucket of their tick
+  private void place() {
+    Timeout t;
+    while ((t = added.poll()) != null) {
+      if (t.cancelled) continue;
+      // Never behind the tick being processed
+      long due = Math.max(tick, (t.dueNanos + tickNanos - 1) / tickNanos);
+      t.rounds = (due - tick) / buckets.length;
+      int index = (int) (due % buckets.length);
+      t.next = buckets[index];
+      buckets[index] = t;
+    }
+  }
+
+  private void expire(int index) {
+    Timeout previous = null;
+    Timeout t = buckets[index];
+    while (t != null) {
+      Timeout next = t.next;
+      boolean remove = t.cancelled;
+      if (!remove && t.rounds-- <= 0) {
+        remove = true;
+        try {
+          t.task.run();
+        } catch (RuntimeException e) {
+          System.out.println("[TimingWheel] Timer failed: " + e);
+        }
+      }
+      if (remove) {
+        if (previous == null) {
+          buckets[index] = next;
+        } else {
+          previous.next = next;
+        }
+      } else {
+        previous = t;
+      }
+      t = next;
+    }
+  }
+
+  /** Handle of a scheduled task. */
+  static final class Timeout {
+
+    private final Runnable task;
+    private final long dueNanos;
+    // Worker thread only
+    private long rounds;
+    private Timeout next;
+    private volatile boolean cancelled;
+
+    private Timeout(Runnable task, long dueNanos) {
+      this.task = task;
+      this.dueNanos = dueNanos;
+    }
+
+    /** Keep the task from running if it has not yet. */
+    void cancel() {
+      cancelled = true;
+    }
+
+    boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
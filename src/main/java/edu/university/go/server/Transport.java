@@ -0,0 +1,20 @@
+package edu.university.go.server;
+
+/** How the server talks to its sockets. */
+public enum Transport {
+  /** One platform thread per client, blocking on socket reads. */
+  BLOCKING,
+  /** One virtual thread per client, blocking on socket reads; needs Java 21 at runtime. */
+  VIRTUAL,
+  /** A few selector event loops multiplexing all clients, see {@link NioTransport}. */
+  NIO;
+
+  /** Parse a transport name as given on the command line, case-insensitively. */
+  public static Transport parse(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown transport: " + name);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package edu.university.go.sgf;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+
+/**
+ * Receives the games {@link SgfReader} replays. The board and the game info are reused for the next
+ * game, so anything kept past a call has to be copied.
+ */
+public interface SgfListener {
+
+  /** A game begins on {@code board}, already holding its setup stones (e.g. handicap). */
+  default void gameStarted(SgfReader.GameInfo info, Board board) {}
+
+  /** A move was played on the board; a pass has {@code x} and {@code y} of -1. */
+  default void movePlayed(Board board, Color color, int x, int y) {}
+
+  /**
+   * The game is over. {@code complete} is false if replay stopped at an illegal or unreadable move,
+   * or the file ended inside the game; the board then holds the position before that point.
+   */
+  default void gameEnded(Board board, boolean complete) {}
+}
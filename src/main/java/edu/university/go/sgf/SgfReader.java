@@ -0,0 +1,496 @@
+package edu.university.go.sgf;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streams an SGF collection and replays every game in it onto a {@link Board}, for collections far
+ * larger than memory.
+ *
+ * <p>Bytes go through one fixed buffer and a small state machine, so a game never has to be in
+ * memory as a whole. Property identifiers are packed into an int and moves and setup stones are
+ * decoded straight from the bytes of their value. The players and result of a root node are copied,
+ * and become strings only if the listener asks for them. Values of other properties, such as
+ * comments, are skipped without being copied. One board per size is cleared and reused for every
+ * game.
+ *
+ * <p>Only the main line is replayed: the first variation at every branch. Moves are played with
+ * {@link Board#placeStone}, so captures happen, but ko is not checked and the order of colors is
+ * taken as written, as handicap games need. A game stops at its first illegal or unreadable move
+ * and is reported incomplete; the next game is read normally. Bytes outside values that are not SGF
+ * syntax are an error inside a game tree and ignored between them.
+ *
+ * <p>An instance holds the scratch state of one reader and is not thread-safe.
+ */
+public final class SgfReader {
+
+  static final int BUFFER_BYTES = 1 << 16;
+  static final int MAX_SIZE = 52;
+
+  // Property identifiers, letters packed into an int
+  private static final int B = 'B';
+  private static final int W = 'W';
+  private static final int AB = 'A' << 8 | 'B';
+  private static final int AW = 'A' << 8 | 'W';
+  private static final int AE = 'A' << 8 | 'E';
+  private static final int SZ = 'S' << 8 | 'Z';
+  private static final int KM = 'K' << 8 | 'M';
+  private static final int HA = 'H' << 8 | 'A';
+  private static final int PB = 'P' << 8 | 'B';
+  private static final int PW = 'P' << 8 | 'W';
+  private static final int RE = 'R' << 8 | 'E';
+  // Any identifier longer than two letters
+  private static final int LONG_IDENT = 0xFFFF;
+
+  private static final Color[] COLORS = {Color.EMPTY, Color.BLACK, Color.WHITE};
+
+  private final byte[] buffer = new byte[BUFFER_BYTES];
+  private byte[] value = new byte[64];
+  private int valueLength;
+  private final Board[] boards = new Board[MAX_SIZE + 1];
+  private final GameInfo info = new GameInfo();
+
+  // Where the scan is
+  private long offset;
+  private int depth;
+  private int ident;
+  private boolean inIdent;
+  private boolean inValue;
+  private boolean escaped;
+  private boolean collecting;
+  // Past the end of the main line of the current game
+  private boolean skipping;
+
+  // Game and node being read
+  private SgfListener listener;
+  private Board board;
+  private long games;
+  private boolean started;
+  private boolean failed;
+  private boolean inNode;
+  private boolean root;
+  // Setup stones of the node, packed as color << 16 | y << 8 | x
+  private int[] setup = new int[32];
+  private int setupCount;
+  private Color moveColor;
+  private int moveX;
+  private int moveY;
+
+  /** Replay every game in {@code file}; returns how many were read. */
+  public long read(Path file, SgfListener listener) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      return read(in, listener);
+    }
+  }
+
+  /** Replay every game in {@code in}, to its end; returns how many were read. */
+  public long read(InputStream in, SgfListener listener) throws IOException {
+    this.listener = listener;
+    offset = 0;
+    depth = 0;
+    games = 0;
+    inIdent = inValue = escaped = skipping = inNode = started = false;
+
+    int n;
+    while ((n = in.read(buffer)) >= 0) {
+      scan(n);
+      offset += n;
+    }
+    // A file cut short inside a game, e.g. by a crash while it was appended
+    if (depth > 0) {
+      inValue = false;
+      endNode();
+      endGame(false);
+    }
+    this.listener = null;
+    return games;
+  }
+
+  // One buffer full, in a method of its own so it is compiled early rather than only on stack
+  private void scan(int n) {
+    for (int i = 0; i < n; i++) {
+      if (inValue) {
+        i = value(i, n);
+      } else if (buffer[i] == ';' && isMoveNode(i, n)) {
+        // The bulk of a game, taken whole; the same as reading it byte by byte
+        endNode();
+        inNode = true;
+        inIdent = false;
+        ident = buffer[i + 1];
+        value[0] = buffer[i + 3];
+        value[1] = buffer[i + 4];
+        valueLength = 2;
+        property();
+        i += 5;
+      } else {
+        scan(buffer[i], i);
+      }
+    }
+  }
+
+  // Whether buffer[i] starts a node such as ";B[pd]" in the main line
+  private boolean isMoveNode(int i, int n) {
+    return i + 5 < n
+        && depth > 0
+        && !skipping
+        && (buffer[i + 1] == 'B' || buffer[i + 1] == 'W')
+        && buffer[i + 2] == '['
+        && buffer[i + 3] != '\\'
+        && buffer[i + 4] != '\\'
+        && buffer[i + 5] == ']';
+  }
+
+  private void scan(byte c, int i) {
+    switch (c) {
+      case '[' -> {
+        inIdent = false;
+        inValue = true;
+        valueLength = 0;
+        collecting = inNode && wanted(ident);
+      }
+      case ';' -> {
+        inIdent = false;
+        endNode();
+        inNode = depth > 0 && !skipping;
+      }
+      case '(' -> {
+        inIdent = false;
+        endNode();
+        if (depth++ == 0) {
+          startGame();
+        }
+      }
+      case ')' -> {
+        inIdent = false;
+        endNode();
+        if (--depth == 0) {
+          endGame(true);
+        } else if (depth < 0) {
+          throw new IllegalArgumentException("Unbalanced ')' at byte " + (offset + i));
+        } else {
+          // The first variation is over, so is the main line
+          skipping = true;
+        }
+      }
+      default -> {
+        if (c >= 'A' && c <= 'Z') {
+          ident = !inIdent ? c : ident > 0xFF ? LONG_IDENT : ident << 8 | c;
+          inIdent = true;
+        } else if (depth > 0 && (c < 'a' || c > 'z') && (c & 0xFF) > ' ') {
+          // Lower case letters were allowed in identifiers before FF[4] and are ignored, and so is
+          // anything between game trees, such as a byte order mark
+          throw new IllegalArgumentException(
+              "Unexpected '" + (char) (c & 0xFF) + "' at byte " + (offset + i));
+        }
+      }
+    }
+  }
+
+  // Take the bytes of a value from buffer[i] on, up to its closing bracket or the end of what was
+  // read; returns the index of the last byte taken
+  private int value(int i, int n) {
+    for (; i < n; i++) {
+      byte c = buffer[i];
+      if (escaped) {
+        escaped = false;
+        // An escaped line break is a soft one and not part of the text
+        if (c == '\n' || c == '\r') continue;
+      } else if (c == '\\') {
+        escaped = true;
+        continue;
+      } else if (c == ']') {
+        inValue = false;
+        if (collecting) {
+          property();
+        }
+        return i;
+      }
+      if (collecting) {
+        if (valueLength == value.length) {
+          value = Arrays.copyOf(value, valueLength * 2);
+        }
+        value[valueLength++] = c;
+      }
+    }
+    return n - 1;
+  }
+
+  private boolean wanted(int ident) {
+    return switch (ident) {
+      case B, W, AB, AW, AE -> true;
+      case SZ, KM, HA, PB, PW, RE -> root;
+      default -> false;
+    };
+  }
+
+  private void property() {
+    switch (ident) {
+      case B, W -> move(ident == B ? Color.BLACK : Color.WHITE);
+      case AB -> setup(1);
+      case AW -> setup(2);
+      case AE -> setup(0);
+      case SZ -> info.size = size();
+      case KM -> info.komi = decimal();
+      case HA -> info.handicap = Math.max(0, integer(0, valueLength));
+      case PB -> info.black.set(value, valueLength);
+      case PW -> info.white.set(value, valueLength);
+      case RE -> info.result.set(value, valueLength);
+      default -> {}
+    }
+  }
+
+  private void move(Color color) {
+    if (moveColor != null) {
+      // Two moves in one node
+      failed = true;
+      return;
+    }
+    moveColor = color;
+    if (valueLength == 0 || (valueLength == 2 && value[0] == 't' && value[1] == 't' && small())) {
+      moveX = moveY = -1;
+    } else if (valueLength == 2 && coordinate(value[0]) >= 0 && coordinate(value[1]) >= 0) {
+      moveX = coordinate(value[0]);
+      moveY = coordinate(value[1]);
+    } else {
+      failed = true;
+    }
+  }
+
+  // "tt" is a pass on boards up to 19x19, where it is off the board
+  private boolean small() {
+    return info.size <= 19;
+  }
+
+  // A point, or a rectangle of them written "aa:cc"
+  private void setup(int color) {
+    int x0;
+    int y0;
+    int x1;
+    int y1;
+    if (valueLength == 2) {
+      x0 = x1 = coordinate(value[0]);
+      y0 = y1 = coordinate(value[1]);
+    } else if (valueLength == 5 && value[2] == ':') {
+      x0 = coordinate(value[0]);
+      y0 = coordinate(value[1]);
+      x1 = coordinate(value[3]);
+      y1 = coordinate(value[4]);
+    } else {
+      failed = true;
+      return;
+    }
+    if (x0 < 0 || y0 < 0 || x1 < x0 || y1 < y0) {
+      failed = true;
+      return;
+    }
+    for (int y = y0; y <= y1; y++) {
+      for (int x = x0; x <= x1; x++) {
+        if (setupCount == setup.length) {
+          setup = Arrays.copyOf(setup, setupCount * 2);
+        }
+        setup[setupCount++] = color << 16 | y << 8 | x;
+      }
+    }
+  }
+
+  private void startGame() {
+    info.reset();
+    root = true;
+    started = false;
+    failed = false;
+    skipping = false;
+    setupCount = 0;
+    moveColor = null;
+  }
+
+  // Apply the node just read: its setup stones, then its move; the game starts after the setup of
+  // its root node
+  private void endNode() {
+    if (!inNode) return;
+    inNode = false;
+    boolean first = root;
+    if (first) {
+      root = false;
+      begin();
+    }
+    if (!failed) {
+      for (int i = 0; i < setupCount && !failed; i++) {
+        int x = setup[i] & 0xFF;
+        int y = setup[i] >> 8 & 0xFF;
+        if (board.isInside(x, y)) {
+          board.setColor(x, y, COLORS[setup[i] >> 16]);
+        } else {
+          failed = true;
+        }
+      }
+    }
+    if (first && started) {
+      listener.gameStarted(info, board);
+    }
+    if (moveColor != null && !failed) {
+      if (moveX < 0 || board.placeStone(moveColor, moveX, moveY)) {
+        listener.movePlayed(board, moveColor, moveX, moveY);
+      } else {
+        failed = true;
+      }
+    }
+    setupCount = 0;
+    moveColor = null;
+  }
+
+  // The root node is read: the board of its size is cleared for the game
+  private void begin() {
+    int size = info.size;
+    if (size < 1 || size > MAX_SIZE) {
+      // Nothing to replay the game on; it is skipped
+      failed = true;
+      return;
+    }
+    if (boards[size] == null) {
+      boards[size] = new Board(size);
+    } else {
+      boards[size].clear();
+    }
+    board = boards[size];
+    started = true;
+    games++;
+  }
+
+  private void endGame(boolean complete) {
+    if (started) {
+      listener.gameEnded(board, complete && !failed);
+    }
+    started = false;
+    skipping = false;
+  }
+
+  // Square boards only; "19:19" is allowed
+  private int size() {
+    for (int i = 0; i < valueLength; i++) {
+      if (value[i] == ':') {
+        int width = integer(0, i);
+        return width == integer(i + 1, valueLength) ? width : -1;
+      }
+    }
+    return integer(0, valueLength);
+  }
+
+  // The digits of value[from, to), or -1
+  private int integer(int from, int to) {
+    int number = 0;
+    for (int i = from; i < to; i++) {
+      if (value[i] < '0' || value[i] > '9' || number > 100_000_000) return -1;
+      number = number * 10 + value[i] - '0';
+    }
+    return to > from ? number : -1;
+  }
+
+  // A decimal such as "6.5" or "-0.5"; 0 if the value is not one
+  private double decimal() {
+    int i = valueLength > 0 && (value[0] == '-' || value[0] == '+') ? 1 : 0;
+    long digits = 0;
+    int decimals = -1;
+    for (int start = i; i < valueLength; i++) {
+      byte c = value[i];
+      if (c >= '0' && c <= '9' && digits < 100_000_000_000L) {
+        digits = digits * 10 + c - '0';
+        decimals += decimals >= 0 ? 1 : 0;
+      } else if (c == '.' && decimals < 0 && i > start) {
+        decimals = 0;
+      } else {
+        return 0;
+      }
+    }
+    double number = digits / Math.pow(10, Math.max(decimals, 0));
+    return valueLength > 0 && value[0] == '-' ? -number : number;
+  }
+
+  private static int coordinate(byte c) {
+    if (c >= 'a' && c <= 'z') return c - 'a';
+    if (c >= 'A' && c <= 'Z') return c - 'A' + 26;
+    return -1;
+  }
+
+  /** Root properties of the game being read; reused for the next game. */
+  public static final class GameInfo {
+
+    private int size;
+    private double komi;
+    private int handicap;
+    private final Text black = new Text();
+    private final Text white = new Text();
+    private final Text result = new Text();
+
+    private void reset() {
+      size = 19;
+      komi = 0;
+      handicap = 0;
+      black.clear();
+      white.clear();
+      result.clear();
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public double getKomi() {
+      return komi;
+    }
+
+    public int getHandicap() {
+      return handicap;
+    }
+
+    /** Name of the black player, or null. */
+    public String getBlack() {
+      return black.get();
+    }
+
+    /** Name of the white player, or null. */
+    public String getWhite() {
+      return white.get();
+    }
+
+    /** Result as written, e.g. {@code W+R}, or null. */
+    public String getResult() {
+      return result.get();
+    }
+  }
+
+  // A text value kept as bytes, decoded only if asked for
+  private static final class Text {
+
+    private byte[] bytes = new byte[32];
+    private int length = -1;
+    private String decoded;
+
+    private void set(byte[] from, int count) {
+      if (count > bytes.length) {
+        bytes = new byte[count];
+      }
+      System.arraycopy(from, 0, bytes, 0, count);
+      length = count;
+      decoded = null;
+    }
+
+    private void clear() {
+      length = -1;
+      decoded = null;
+    }
+
+    private String get() {
+      if (length < 0) return null;
+      if (decoded == null) {
+        decoded = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+      return decoded;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package edu.university.go.sgf;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes games as SGF (FF[4]), one game tree per call, so that a file written game after game is an
+ * SGF collection {@link SgfReader} can stream back.
+ *
+ * <p>Points are written as two letters, column first, with {@code a} for 0; a pass is an empty
+ * value. A resignation is not a move in SGF and only shows in the result. Each game is formatted
+ * into a reused buffer and handed to the underlying writer in one call; calls from several threads
+ * do not interleave.
+ *
+ * <p>A writer {@linkplain #append opened on a file} can also {@link #sync} it to disk.
+ */
+public final class SgfWriter implements Closeable, Flushable {
+
+  private final Writer out;
+  // The file under out, if it was opened here
+  private final FileChannel file;
+  private final StringBuilder game = new StringBuilder(4096);
+
+  public SgfWriter(Writer out) {
+    this(out, null);
+  }
+
+  private SgfWriter(Writer out, FileChannel file) {
+    this.out = out;
+    this.file = file;
+  }
+
+  /** A writer appending to {@code path}, which is created if there is none. */
+  public static SgfWriter append(Path path) throws IOException {
+    FileChannel file =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    return new SgfWriter(
+        new BufferedWriter(Channels.newWriter(file, StandardCharsets.UTF_8)), file);
+  }
+
+  /**
+   * Append one game. {@code result} is in SGF form, e.g. {@code B+R}, {@code W+T} or {@code B+3.5},
+   * or null if unknown; player names may be null too.
+   */
+  public synchronized void write(
+      int size, double komi, String black, String white, String result, List<Move> moves)
+      throws IOException {
+    if (size < 1 || size > 52) {
+      throw new IllegalArgumentException("SGF boards are 1 to 52 points wide: " + size);
+    }
+    game.setLength(0);
+    game.append("(;GM[1]FF[4]CA[UTF-8]AP[go-game]SZ[").append(size).append(']');
+    game.append("KM[").append(String.format(Locale.ROOT, "%.1f", komi)).append(']');
+    text("PB", black);
+    text("PW", white);
+    text("RE", result);
+    for (Move move : moves) {
+      if (move.isResign()) continue;
+      game.append(';').append(move.color() == Color.BLACK ? 'B' : 'W');
+      game.append('[');
+      if (!move.isPass()) {
+        game.append(coordinate(move.x())).append(coordinate(move.y()));
+      }
+      game.append(']');
+    }
+    game.append(")\n");
+    out.append(game);
+  }
+
+  // A text property, with the characters SGF reserves escaped
+  private void text(String property, String value) {
+    if (value == null) return;
+    game.append(property).append('[');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ']' || c == '\\') {
+        game.append('\\');
+      }
+      game.append(c);
+    }
+    game.append(']');
+  }
+
+  static char coordinate(int c) {
+    return (char) (c < 26 ? 'a' + c : 'A' + c - 26);
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    out.flush();
+  }
+
+  /** Flush, and put what was written on disk if this writer was opened on a file. */
+  public synchronized void sync() throws IOException {
+    out.flush();
+    if (file != null) {
+      file.force(false);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    out.close();
+  }
+}
@@ -7,17 +7,18 @@ import edu.university.go.board.Color;
  * Ko Rule Validator
  *
  * <p>The Ko rule prevents immediate recapture that recreates the previous board state. We store the
- * board state BEFORE each move, then after a move is made, we check if the new board state matches
- * the board state from TWO moves ago.
+ * Zobrist hash of the board BEFORE each move, then check whether the hash a new move would produce
+ * matches the hash from TWO moves ago. No board is cloned or compared cell by cell.
  */
-public class KoRule {
+public class KoRule implements KoValidator {
 
-  private Board boardBeforePreviousMove; // Board state before the move 2 turns ago
+  private long hashBeforePreviousMove; // Position hash before the move 2 turns ago
+  private boolean hasHistory = false;
 
   /**
-   * Check if placing a stone at (x, y) would violate the Ko rule. This simulates the placement and
-   * checks if the resulting board matches the board from TWO moves ago (immediate repeat of
-   * position).
+   * Check if placing a stone at (x, y) would violate the Ko rule. This computes the hash of the
+   * resulting position and checks if it matches the position from TWO moves ago (immediate repeat
+   * of position).
    *
    * @param currentBoard The board before the move
    * @param x Row coordinate
@@ -25,40 +26,52 @@ public class KoRule {
    * @param color Stone color to place
    * @return true if Ko violation, false otherwise
    */
+  @Override
   public boolean isKoViolation(Board currentBoard, int x, int y, Color color) {
-    if (boardBeforePreviousMove == null) {
+    if (!hasHistory) {
       return false;
     }
 
-    // Simulate the move
-    Board simulated = currentBoard.clone();
-    boolean placed = simulated.placeStone(color, x, y);
-
-    if (!placed) {
+    if (!currentBoard.isLegal(color, x, y)) {
       return false; // Move is invalid anyway
     }
 
-    // Check if the board after this move matches the board from 2 moves ago
-    // If yes, this would be an immediate recapture (Ko violation)
-    return simulated.equals(boardBeforePreviousMove);
+    // If the position after this move matches the one from 2 moves ago,
+    // this would be an immediate recapture (Ko violation)
+    return currentBoard.hashAfter(color, x, y) == hashBeforePreviousMove;
   }
 
   /**
    * Update the Ko rule state after a valid move has been made. This should be called BEFORE the
    * next move is attempted.
    *
-   * <p>We shift the board states: - boardBeforePreviousMove {@literal <-} current board
-   *
    * @param boardBeforeThisMove The board state BEFORE the move that just happened
    */
   public void updateState(Board boardBeforeThisMove) {
-    // The board before this move becomes the reference for Ko detection
-    // (it will be the board from 2 moves ago after the opponent moves)
-    this.boardBeforePreviousMove = boardBeforeThisMove.clone();
+    updateState(boardBeforeThisMove.getHash());
+  }
+
+  /**
+   * Same as {@link #updateState(Board)}, taking the position hash directly so callers do not need
+   * to keep a copy of the board.
+   *
+   * @param hashBeforeThisMove {@link Board#getHash()} captured BEFORE the move that just happened
+   */
+  public void updateState(long hashBeforeThisMove) {
+    // The position before this move becomes the reference for Ko detection
+    // (it will be the position from 2 moves ago after the opponent moves)
+    this.hashBeforePreviousMove = hashBeforeThisMove;
+    this.hasHistory = true;
+  }
+
+  @Override
+  public void updateState(long hashBeforeThisMove, Color mover) {
+    updateState(hashBeforeThisMove);
   }
 
   /** Reset Ko rule state (e.g., at game start) */
+  @Override
   public void reset() {
-    this.boardBeforePreviousMove = null;
+    this.hasHistory = false;
   }
 }
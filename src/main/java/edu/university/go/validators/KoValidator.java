@@ -0,0 +1,61 @@
+package edu.university.go.validators;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.util.BitSet;
+
+/**
+ * Repetition rule checked by the game before every stone placement.
+ *
+ * <p>Implementations only see position hashes ({@link Board#getHash()}), never board copies, so
+ * checking and updating cost a handful of XORs and lookups per move.
+ */
+public interface KoValidator {
+
+  /**
+   * Check if placing a stone at (x, y) would repeat a forbidden position.
+   *
+   * @param currentBoard The board before the move
+   * @param x Row coordinate
+   * @param y Column coordinate
+   * @param color Stone color to place
+   * @return true if the move is a repetition, false otherwise
+   */
+  boolean isKoViolation(Board currentBoard, int x, int y, Color color);
+
+  /**
+   * Record a stone placement that has just been made.
+   *
+   * @param hashBeforeThisMove {@link Board#getHash()} captured BEFORE the move
+   * @param mover Color that made the move
+   */
+  void updateState(long hashBeforeThisMove, Color mover);
+
+  /**
+   * Record a pass. Only rules that track the player to move care about passes.
+   *
+   * @param board The (unchanged) board at the time of the pass
+   * @param mover Color that passed
+   */
+  default void onPass(Board board, Color mover) {}
+
+  /**
+   * {@link Board#legalMoves(Color)} with repetitions removed. Only points that are already legal
+   * are checked, and each check is a hash computation, so no move is simulated on a copy.
+   *
+   * @return the board's reusable move set, indexed {@code y * size + x}
+   */
+  default BitSet legalMoves(Board board, Color color) {
+    BitSet moves = board.legalMoves(color);
+    int size = board.getSize();
+    for (int i = moves.nextSetBit(0); i >= 0; i = moves.nextSetBit(i + 1)) {
+      if (isKoViolation(board, i % size, i / size, color)) {
+        moves.clear(i);
+      }
+    }
+    return moves;
+  }
+
+  /** Reset state (e.g., at game start) */
+  void reset();
+}
@@ -0,0 +1,86 @@
+package edu.university.go.validators;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive {@code long} values with linear probing.
+ *
+ * <p>Zero is used as the empty-slot marker and tracked separately, since the empty board hashes to
+ * zero. The table doubles when half full, so a game of a few hundred moves fits in a few kilobytes.
+ */
+final class LongHashSet {
+
+  private long[] slots;
+  private int mask;
+  private int size = 0;
+  private boolean containsZero = false;
+
+  LongHashSet(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    slots = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  boolean contains(long value) {
+    if (value == 0L) return containsZero;
+    int i = slot(value);
+    while (true) {
+      long v = slots[i];
+      if (v == value) return true;
+      if (v == 0L) return false;
+      i = (i + 1) & mask;
+    }
+  }
+
+  /** Adds a value, returning false if it was already present. */
+  boolean add(long value) {
+    if (value == 0L) {
+      if (containsZero) return false;
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int i = slot(value);
+    while (true) {
+      long v = slots[i];
+      if (v == value) return false;
+      if (v == 0L) break;
+      i = (i + 1) & mask;
+    }
+    slots[i] = value;
+    if (++size * 2 > slots.length) {
+      grow();
+    }
+    return true;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(slots, 0L);
+    size = 0;
+    containsZero = false;
+  }
+
+  private void grow() {
+    long[] old = slots;
+    slots = new long[old.length * 2];
+    mask = slots.length - 1;
+    for (long v : old) {
+      if (v == 0L) continue;
+      int i = slot(v);
+      while (slots[i] != 0L) {
+        i = (i + 1) & mask;
+      }
+      slots[i] = v;
+    }
+  }
+
+  // Zobrist hashes are already uniform, a multiplicative spread is enough
+  private int slot(long value) {
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,199 @@
+package edu.university.go.ai;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MctsEngineTest {
+
+  private static final int B = PlayoutBoard.BLACK;
+  private static final int W = PlayoutBoard.WHITE;
+
+  @Test
+  void playoutBoardCapturesAndKeepsSimpleKo() {
+    PlayoutBoard board = new PlayoutBoard(9);
+    // White at (1, 1) surrounded on three sides, a ko shape to its right
+    play(board, B, 1, 0);
+    play(board, B, 0, 1);
+    play(board, B, 1, 2);
+    play(board, W, 1, 1);
+    play(board, W, 2, 0);
+    play(board, W, 2, 2);
+    play(board, W, 3, 1);
+    int empty = board.emptyCount();
+
+    play(board, B, 2, 1);
+    assertEquals(PlayoutBoard.EMPTY, board.cells[board.cell(1, 1)]);
+    assertEquals(empty, board.emptyCount());
+    assertEquals(board.cell(1, 1), board.koPoint());
+    assertFalse(board.isLegal(W, board.cell(1, 1)));
+
+    // Elsewhere and back: the ko is open again, and retaking it captures
+    play(board, W, 7, 7);
+    play(board, B, 6, 6);
+    assertTrue(board.isLegal(W, board.cell(1, 1)));
+    play(board, W, 1, 1);
+    assertEquals(PlayoutBoard.EMPTY, board.cells[board.cell(2, 1)]);
+  }
+
+  @Test
+  void playoutBoardRefusesSuicideAndKnowsEyes() {
+    PlayoutBoard board = new PlayoutBoard(9);
+    play(board, B, 1, 0);
+    play(board, B, 0, 1);
+    play(board, B, 1, 1);
+    assertFalse(board.isLegal(W, board.cell(0, 0)));
+    assertTrue(board.isEye(B, board.cell(0, 0)));
+    assertFalse(board.isEye(W, board.cell(0, 0)));
+
+    // An opponent diagonal is one too many on the edge, not in the middle
+    play(board, B, 4, 3);
+    play(board, B, 3, 4);
+    play(board, B, 5, 4);
+    play(board, B, 4, 5);
+    play(board, W, 3, 3);
+    assertTrue(board.isEye(B, board.cell(4, 4)));
+    play(board, W, 5, 5);
+    assertFalse(board.isEye(B, board.cell(4, 4)));
+    assertFalse(board.isLegal(W, board.cell(4, 4)));
+
+    play(board, B, 6, 0);
+    play(board, B, 8, 0);
+    play(board, B, 7, 1);
+    assertTrue(board.isEye(B, board.cell(7, 0)));
+    play(board, W, 6, 1);
+    assertFalse(board.isEye(B, board.cell(7, 0)));
+  }
+
+  @Test
+  void playoutsFillEverythingButEyes() {
+    MctsEngine engine = new MctsEngine(7.5, 11);
+    for (int game = 0; game < 20; game++) {
+      PlayoutBoard board = new PlayoutBoard(9);
+      engine.playout(board, B, 0);
+      for (int y = 0; y < 9; y++) {
+        for (int x = 0; x < 9; x++) {
+          int p = board.cell(x, y);
+          if (board.cells[p] != PlayoutBoard.EMPTY) continue;
+          for (int color : new int[] {B, W}) {
+            assertTrue(board.isEye(color, p) || !board.isLegal(color, p), x + "," + y);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void randomMovesAreUniformOverThePlayablePoints() {
+    PlayoutBoard board = new PlayoutBoard(5);
+    // Walls on column 1 and row 1 leave Black an eye at (0, 0) and 15 points to play
+    for (int i = 0; i < 5; i++) {
+      play(board, B, 1, i);
+      if (i != 1) play(board, B, i, 1);
+    }
+    PlayoutRandom random = new PlayoutRandom(17);
+    int[] counts = new int[board.cells.length];
+    int draws = 45_000;
+    for (int i = 0; i < draws; i++) {
+      counts[board.randomMove(B, random)]++;
+    }
+
+    assertEquals(0, counts[board.cell(0, 0)]);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 5; x++) {
+        int p = board.cell(x, y);
+        if (board.cells[p] == PlayoutBoard.EMPTY && !board.isEye(B, p)) {
+          // A point after a refused one in the empty list would be drawn twice as often
+          assertEquals(draws / 15, counts[p], draws / 150, x + "," + y);
+        }
+      }
+    }
+  }
+
+  @Test
+  void copiesABoardWithItsChains() {
+    Random random = new Random(3);
+    Board board = new Board(9);
+    Color color = Color.BLACK;
+    for (int i = 0; i < 60; i++) {
+      BitSet legal = board.legalMoves(color);
+      int point = legal.nextSetBit(random.nextInt(81));
+      if (point < 0) point = legal.nextSetBit(0);
+      board.placeStone(color, point % 9, point / 9);
+      color = color.opposite();
+    }
+    PlayoutBoard copy = PlayoutBoard.from(board);
+    for (int y = 0; y < 9; y++) {
+      for (int x = 0; x < 9; x++) {
+        assertEquals(PlayoutBoard.code(board.get(x, y)), copy.cells[copy.cell(x, y)]);
+        // Legal on both alike, so liberties were counted the same
+        int p = copy.cell(x, y);
+        assertEquals(board.isLegal(color, x, y), copy.isLegal(PlayoutBoard.code(color), p));
+      }
+    }
+  }
+
+  @Test
+  void winsACapturingRaceOfOneLiberty() {
+    PlayoutBoard board = new PlayoutBoard(9);
+    // White fills rows 0 to 4 but (8, 4), Black row 5, White row 6, rows 7 and 8 open. Both inner
+    // groups have (8, 4) as their last liberty: Black takes 44 stones there and wins, anything
+    // else and White takes the black row and the board
+    for (int y = 0; y <= 6; y++) {
+      for (int x = 0; x < 9; x++) {
+        if (x == 8 && y == 4) continue;
+        play(board, y == 5 ? B : W, x, y);
+      }
+    }
+    BitSet all = new BitSet();
+    all.set(0, 81);
+
+    MctsEngine.Choice choice =
+        new MctsEngine(7.5, 5).search(board, B, all, false, Long.MAX_VALUE, 10_000);
+
+    assertEquals(10_000, choice.playouts());
+    assertEquals(8, choice.x());
+    assertEquals(4, choice.y());
+    assertTrue(choice.winRate() > 0.5, "win rate " + choice.winRate());
+  }
+
+  @Test
+  void keepsToTheBudgetAndTheAllowedPoints() {
+    Board board = new Board(19);
+    BitSet allowed = new BitSet();
+    allowed.set(3 * 19 + 3);
+    allowed.set(15 * 19 + 15);
+
+    long start = System.nanoTime();
+    MctsEngine.Choice choice =
+        new MctsEngine(7.5).choose(board, Color.BLACK, allowed, false, start + 100_000_000);
+    long millis = (System.nanoTime() - start) / 1_000_000;
+
+    assertTrue(millis < 1000, millis + " ms");
+    assertTrue(choice.playouts() > 0);
+    // A pass is always allowed
+    assertTrue(
+        choice.isPass() || choice.x() == choice.y() && (choice.x() == 3 || choice.x() == 15),
+        choice.toString());
+  }
+
+  @Test
+  void playsAtOnceWhenTheDeadlineHasPassed() {
+    BitSet all = new BitSet();
+    all.set(0, 81);
+
+    MctsEngine.Choice choice =
+        new MctsEngine(7.5, 5).choose(new Board(9), Color.BLACK, all, false, System.nanoTime());
+
+    assertEquals(1, choice.playouts());
+  }
+
+  private static void play(PlayoutBoard board, int color, int x, int y) {
+    assertTrue(board.isLegal(color, board.cell(x, y)), x + "," + y);
+    board.play(color, board.cell(x, y));
+  }
+}
@@ -0,0 +1,67 @@
+package edu.university.go.ai;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.util.BitSet;
+
+/**
+ * Random playouts per second on one core, alone and as part of a full {@link MctsEngine} search.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.ai.PlayoutBenchmark \
+ *   -Dexec.args="5000"
+ * </pre>
+ *
+ * <p>The argument is the time to measure each line for, in milliseconds. Bare playouts copy the
+ * empty board and play it out to the end; searches think about the opening move for that long and
+ * report the playouts they managed, tree walks and board copies included.
+ */
+public class PlayoutBenchmark {
+
+  public static void main(String[] args) {
+    long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+    System.out.println("size,kind,playouts,playoutsPerSecPerCore");
+    for (int size : new int[] {9, 13, 19}) {
+      // Warm up, then measure
+      playouts(size, millis / 5);
+      playouts(size, millis);
+      search(size, millis / 5, false);
+      search(size, millis, true);
+    }
+  }
+
+  private static void playouts(int size, long millis) {
+    MctsEngine engine = new MctsEngine(7.5, 42);
+    PlayoutBoard empty = new PlayoutBoard(size);
+    PlayoutBoard board = new PlayoutBoard(size);
+    long count = 0;
+    long start = System.nanoTime();
+    long deadline = start + millis * 1_000_000;
+    long now;
+    do {
+      board.copyFrom(empty);
+      engine.playout(board, PlayoutBoard.BLACK, 0);
+      count++;
+    } while ((now = System.nanoTime()) < deadline);
+    report(size, "playout", count, now - start);
+  }
+
+  private static void search(int size, long millis, boolean print) {
+    BitSet all = new BitSet();
+    all.set(0, size * size);
+    long start = System.nanoTime();
+    long deadline = start + millis * 1_000_000;
+    MctsEngine.Choice choice =
+        new MctsEngine(7.5, 42).choose(new Board(size), Color.BLACK, all, false, deadline);
+    if (print) {
+      report(size, "search", choice.playouts(), System.nanoTime() - start);
+    }
+  }
+
+  private static void report(int size, String kind, long count, long nanos) {
+    System.out.printf("%d,%s,%d,%.0f%n", size, kind, count, count / (nanos / 1e9));
+  }
+}
@@ -0,0 +1,117 @@
+package edu.university.go.archive;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.scoring.GameResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Appending to a large {@link GameArchive}, then replaying games picked at random from it, with the
+ * heap in use after each.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.archive.GameArchiveBenchmark \
+ *   -Dexec.args="1000000 200"
+ * </pre>
+ *
+ * <p>The arguments are the number of games and the moves per game, random 19x19 games written to a
+ * temporary directory. A few hundred distinct games are appended over and over, so writing is not
+ * held up by generating them.
+ */
+public class GameArchiveBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+    int length = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    Random random = new Random(42);
+    List<GameRecord> distinct = new ArrayList<>();
+    for (int g = 0; g < 500; g++) {
+      distinct.add(randomGame(random, length, "black" + g, "white" + g));
+    }
+
+    Path dir = Files.createTempDirectory("archive");
+    try (GameArchive archive = new GameArchive(dir)) {
+      long start = System.nanoTime();
+      for (long id = 0; id < games; id++) {
+        archive.append(distinct.get((int) (id % distinct.size())));
+      }
+      long appended = System.nanoTime() - start;
+      long bytes = Files.size(dir.resolve("games.dat")) + Files.size(dir.resolve("games.idx"));
+      long heapAfterAppend = heapUsed();
+
+      Board board = new Board(19);
+      int replays = 200_000;
+      long best = Long.MAX_VALUE;
+      long moves = 0;
+      for (int run = 0; run < 3; run++) {
+        moves = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < replays; i++) {
+          moves += archive.replay(Math.floorMod(random.nextLong(), games), board);
+        }
+        best = Math.min(best, System.nanoTime() - start);
+      }
+
+      System.out.println("games,mb,bytesPerGame,appendsPerSec,usPerReplay,movesPerSec,heapMb");
+      System.out.printf(
+          "%d,%d,%d,%.0f,%.1f,%.0f,%d%n",
+          games,
+          bytes >> 20,
+          bytes / games,
+          games / (appended / 1e9),
+          best / 1e3 / replays,
+          moves / (best / 1e9),
+          Math.max(heapAfterAppend, heapUsed()) >> 20);
+    } finally {
+      try (Stream<Path> files = Files.walk(dir)) {
+        for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private static GameRecord randomGame(Random random, int length, String black, String white) {
+    Board board = new Board(19);
+    List<Move> moves = new ArrayList<>();
+    Color color = Color.BLACK;
+    for (int i = 0; i < length; i++) {
+      BitSet legal = board.legalMoves(color);
+      int count = legal.cardinality();
+      if (count == 0) break;
+      int point = legal.nextSetBit(0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        point = legal.nextSetBit(point + 1);
+      }
+      board.placeStone(color, point % 19, point / 19);
+      moves.add(new Move(color, point % 19, point / 19, color == Color.BLACK ? black : white));
+      color = color.opposite();
+    }
+    return new GameRecord(
+        black,
+        white,
+        19,
+        6.5,
+        new GameResult(180, 181.5, Color.WHITE, 1.5),
+        GameRecord.Ending.COUNT,
+        moves);
+  }
+
+  private static long heapUsed() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,133 @@
+package edu.university.go.archive;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.Move;
+import edu.university.go.scoring.GameResult;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameArchiveTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void readsBackWhatWasAppended() throws IOException {
+    Game game = play(9, new int[][] {{2, 3}, {4, 4}, {6, 6}});
+    game.makeMove(Move.pass(Color.WHITE, "w"));
+    game.makeMove(Move.resign(Color.BLACK, "b"));
+    GameRecord record =
+        new GameRecord(
+            "b",
+            "w",
+            9,
+            6.5,
+            new GameResult(10, 20.5, Color.WHITE, 10.5),
+            GameRecord.Ending.RESIGNATION,
+            game.getMoves());
+
+    try (GameArchive archive = new GameArchive(dir)) {
+      assertEquals(0, archive.append(record));
+      assertEquals(1, archive.append(named(record, null, "wé")));
+
+      assertEquals(2, archive.size());
+      assertEquals(record, archive.read(0));
+      assertNull(archive.read(1).black());
+      assertEquals("wé", archive.read(1).white());
+      assertEquals("W+R", archive.read(0).sgfResult());
+      assertThrows(IllegalArgumentException.class, () -> archive.read(2));
+    }
+  }
+
+  @Test
+  void replaysToTheSamePosition() throws IOException {
+    Game game = play(9, new int[][] {{1, 0}, {0, 0}, {0, 1}, {4, 4}, {8, 8}, {8, 7}, {7, 8}});
+    Board board = new Board(9);
+
+    try (GameArchive archive = new GameArchive(dir)) {
+      archive.append(counted(game));
+      archive.append(counted(play(9, new int[][] {{4, 4}})));
+
+      assertEquals(7, archive.replay(0, board));
+      assertEquals(game.getBoard(), board);
+      assertEquals(game.getBoard().getHash(), board.getHash());
+      assertEquals(1, archive.replay(1, board));
+      assertThrows(IllegalArgumentException.class, () -> archive.replay(0, new Board(19)));
+    }
+  }
+
+  @Test
+  void reopeningDropsATornLastGame() throws IOException {
+    GameRecord record = counted(play(9, new int[][] {{2, 2}, {3, 3}}));
+    try (GameArchive archive = new GameArchive(dir)) {
+      archive.append(record);
+      archive.append(record);
+    }
+    try (FileChannel data = FileChannel.open(dir.resolve("games.dat"), StandardOpenOption.WRITE)) {
+      data.truncate(data.size() - 1);
+    }
+
+    try (GameArchive archive = new GameArchive(dir)) {
+      assertEquals(1, archive.size());
+      assertEquals(record, archive.read(0));
+      assertEquals(1, archive.append(record));
+      assertEquals(record, archive.read(1));
+    }
+  }
+
+  @Test
+  void gamesAcrossManyMappedRegions() throws IOException {
+    // Regions smaller than one game, so most start in one region and end in the next
+    try (GameArchive archive = new GameArchive(dir, 64)) {
+      Board board = new Board(19);
+      for (int i = 0; i < 50; i++) {
+        Game game = play(19, new int[][] {{i % 19, i / 19}, {18 - i % 19, 18}});
+        archive.append(counted(game));
+        assertEquals(2, archive.replay(i, board));
+        assertEquals(game.getBoard(), board);
+      }
+      assertEquals(counted(play(19, new int[][] {{0, 0}, {18, 18}})), archive.read(0));
+    }
+  }
+
+  private static Game play(int size, int[][] points) {
+    Game game = new Game(new Board(size));
+    game.addPlayer("b");
+    game.addPlayer("w");
+    for (int i = 0; i < points.length; i++) {
+      Color color = i % 2 == 0 ? Color.BLACK : Color.WHITE;
+      game.makeMove(new Move(color, points[i][0], points[i][1], i % 2 == 0 ? "b" : "w"));
+    }
+    return game;
+  }
+
+  private static GameRecord counted(Game game) {
+    return new GameRecord(
+        "b",
+        "w",
+        game.getBoard().getSize(),
+        7.5,
+        new GameResult(3, 7.5, Color.WHITE, 4.5),
+        GameRecord.Ending.COUNT,
+        List.copyOf(game.getMoves()));
+  }
+
+  private static GameRecord named(GameRecord record, String black, String white) {
+    return new GameRecord(
+        black,
+        white,
+        record.size(),
+        record.komi(),
+        record.result(),
+        record.ending(),
+        record.moves());
+  }
+}
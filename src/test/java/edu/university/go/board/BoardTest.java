@@ -2,6 +2,8 @@ package edu.university.go.board;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 class BoardTest {
@@ -27,6 +29,19 @@ class BoardTest {
     assertEquals(Color.BLACK, board.get(4, 4));
   }
 
+  @Test
+  void offBoardPoints_areRejected() {
+    Board board = new Board(9);
+
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> board.get(-1, 0));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> board.get(9, 0));
+    // Would be a cell of the next row in the padded array
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> board.get(10, 3));
+    assertFalse(board.isLegal(Color.BLACK, 9, 0));
+    assertFalse(board.placeStone(Color.BLACK, -1, 4));
+    assertEquals(List.of(new Point(0, 0)), board.neighbors(new Point(-1, 0)));
+  }
+
   @Test
   void placeStone_onOccupiedIntersection_fails() {
     Board board = new Board(9);
@@ -122,4 +137,216 @@ class BoardTest {
     assertEquals(Color.EMPTY, board.get(2, 2));
     assertEquals(Color.BLACK, board.get(2, 3));
   }
+
+  @Test
+  void getCapturedStones_doesNotModifyBoard() {
+    Board board = new Board(5);
+
+    board.placeStone(Color.WHITE, 0, 0);
+    board.placeStone(Color.WHITE, 1, 0);
+    board.placeStone(Color.BLACK, 2, 0);
+    board.placeStone(Color.BLACK, 0, 1);
+
+    Board before = board.clone();
+
+    assertEquals(2, board.getCapturedStones(Color.BLACK, 1, 1).size());
+    assertEquals(before, board);
+    assertEquals(Color.EMPTY, board.get(1, 1));
+  }
+
+  @Test
+  void clone_isIndependentCopy() {
+    Board board = new Board(9);
+    board.placeStone(Color.BLACK, 3, 3);
+
+    Board copy = board.clone();
+    copy.placeStone(Color.WHITE, 4, 4);
+
+    assertEquals(Color.BLACK, copy.get(3, 3));
+    assertEquals(Color.EMPTY, board.get(4, 4));
+    assertNotEquals(board, copy);
+  }
+
+  @Test
+  void mergedChain_sharesLiberties() {
+    Board board = new Board(5);
+
+    board.placeStone(Color.BLACK, 1, 1);
+    board.placeStone(Color.BLACK, 3, 1);
+    board.placeStone(Color.BLACK, 2, 1); // joins both stones
+
+    Chain chain = board.getChain(new Point(1, 1));
+
+    assertEquals(3, chain.size());
+    assertEquals(8, chain.getLiberties(board).size());
+    assertFalse(chain.isCaptured(board));
+  }
+
+  @Test
+  void staleChain_answersFromItsOwnStones() {
+    Board board = new Board(9);
+    board.placeStone(Color.WHITE, 4, 4);
+    Chain chain = board.getChain(new Point(4, 4));
+
+    // The chain on the board grows, the snapshot does not
+    board.placeStone(Color.WHITE, 4, 5);
+    assertEquals(6, board.getChain(new Point(4, 4)).getLiberties(board).size());
+    assertEquals(
+        Set.of(new Point(3, 4), new Point(5, 4), new Point(4, 3)), chain.getLiberties(board));
+
+    // Its own stones are surrounded, though the chain at the anchor is not
+    board.placeStone(Color.BLACK, 3, 4);
+    board.placeStone(Color.BLACK, 5, 4);
+    board.placeStone(Color.BLACK, 4, 3);
+    assertTrue(chain.isCaptured(board));
+    assertFalse(board.getChain(new Point(4, 4)).isCaptured(board));
+  }
+
+  @Test
+  void handBuiltChain_rejectsPointsOffTheBoard() {
+    Chain chain = new Chain(Color.BLACK);
+    chain.add(new Point(0, 0));
+
+    assertThrows(IllegalArgumentException.class, () -> chain.add(new Point(-1, 2)));
+    assertThrows(IllegalArgumentException.class, () -> chain.add(new Point(3, Point.MAX_SIZE)));
+    assertEquals(1, chain.size());
+  }
+
+  @Test
+  void setColor_thenPlaceStone_keepsChainsConsistent() {
+    Board board = new Board(5);
+
+    board.setColor(0, 0, Color.WHITE);
+    board.setColor(1, 0, Color.WHITE);
+    board.setColor(2, 0, Color.BLACK);
+
+    assertTrue(board.placeStone(Color.BLACK, 0, 1));
+    assertTrue(board.placeStone(Color.BLACK, 1, 1));
+
+    assertEquals(Color.EMPTY, board.get(0, 0));
+    assertEquals(Color.EMPTY, board.get(1, 0));
+  }
+
+  @Test
+  void hash_dependsOnlyOnPosition() {
+    Board a = new Board(9);
+    Board b = new Board(9);
+
+    a.placeStone(Color.BLACK, 2, 2);
+    a.placeStone(Color.WHITE, 6, 6);
+    b.placeStone(Color.WHITE, 6, 6);
+    b.placeStone(Color.BLACK, 2, 2);
+
+    assertEquals(a.getHash(), b.getHash());
+    assertNotEquals(new Board(9).getHash(), a.getHash());
+  }
+
+  @Test
+  void hashAfter_matchesHashOfPlayedMove() {
+    Board board = new Board(5);
+
+    board.placeStone(Color.WHITE, 2, 2);
+    board.placeStone(Color.BLACK, 2, 1);
+    board.placeStone(Color.BLACK, 1, 2);
+    board.placeStone(Color.BLACK, 3, 2);
+
+    long expected = board.hashAfter(Color.BLACK, 2, 3);
+    board.placeStone(Color.BLACK, 2, 3); // captures (2, 2)
+
+    assertEquals(expected, board.getHash());
+  }
+
+  @Test
+  void playAndUndo_restoresPositionExactly() {
+    Board board = new Board(5);
+
+    board.placeStone(Color.WHITE, 2, 2);
+    board.placeStone(Color.BLACK, 2, 1);
+    board.placeStone(Color.BLACK, 1, 2);
+    board.placeStone(Color.BLACK, 3, 2);
+    Board before = board.clone();
+
+    UndoRecord capture = board.play(Color.BLACK, 2, 3);
+    assertNotNull(capture);
+    assertEquals(1, capture.capturedCount());
+    assertEquals(Color.EMPTY, board.get(2, 2));
+
+    UndoRecord next = board.play(Color.WHITE, 0, 0);
+    board.undo(next);
+    board.undo(capture);
+
+    assertEquals(before, board);
+    assertEquals(before.getHash(), board.getHash());
+    assertEquals(Color.WHITE, board.get(2, 2));
+    assertEquals(1, board.getChain(new Point(2, 2)).getLiberties(board).size());
+  }
+
+  @Test
+  void play_illegalMoveReturnsNull() {
+    Board board = new Board(5);
+    board.placeStone(Color.BLACK, 1, 1);
+
+    assertNull(board.play(Color.WHITE, 1, 1));
+    assertNull(board.play(Color.WHITE, 7, 7));
+  }
+
+  @Test
+  void koPoint_setAfterSingleStoneCapture() {
+    Board board = new Board(9);
+
+    board.placeStone(Color.BLACK, 1, 0);
+    board.placeStone(Color.BLACK, 0, 1);
+    board.placeStone(Color.BLACK, 1, 2);
+    board.placeStone(Color.WHITE, 2, 0);
+    board.placeStone(Color.WHITE, 3, 1);
+    board.placeStone(Color.WHITE, 2, 2);
+    board.placeStone(Color.BLACK, 2, 1);
+    board.placeStone(Color.WHITE, 1, 1); // captures (2, 1)
+
+    assertEquals(1 * 9 + 2, board.getKoPoint());
+  }
+
+  @Test
+  void legalMoves_excludesOccupiedAndSuicidePoints() {
+    Board board = new Board(5);
+
+    assertEquals(25, board.legalMoves(Color.BLACK).cardinality());
+
+    board.placeStone(Color.WHITE, 2, 1);
+    board.placeStone(Color.WHITE, 1, 2);
+    board.placeStone(Color.WHITE, 3, 2);
+    board.placeStone(Color.WHITE, 2, 3);
+
+    assertEquals(20, board.legalMoves(Color.BLACK).cardinality());
+    assertFalse(board.legalMoves(Color.BLACK).get(2 * 5 + 2), "Suicide point");
+    assertTrue(board.legalMoves(Color.WHITE).get(2 * 5 + 2), "Own eye is legal");
+  }
+
+  @Test
+  void clear_leavesAnEmptyBoardThatPlaysNormally() {
+    Board board = new Board(5);
+    long emptyHash = board.getHash();
+    board.placeStone(Color.WHITE, 1, 0);
+    board.placeStone(Color.BLACK, 0, 0);
+    board.placeStone(Color.WHITE, 0, 1); // captures (0, 0)
+
+    board.clear();
+
+    assertEquals(emptyHash, board.getHash());
+    assertEquals(-1, board.getKoPoint());
+    assertEquals(Color.EMPTY, board.get(1, 0));
+    assertEquals(25, board.legalMoves(Color.BLACK).cardinality());
+    assertTrue(board.placeStone(Color.BLACK, 1, 0));
+    assertTrue(board.placeStone(Color.WHITE, 0, 0));
+    assertTrue(board.placeStone(Color.BLACK, 0, 1)); // captures (0, 0)
+    assertEquals(Color.EMPTY, board.get(0, 0));
+  }
+
+  @Test
+  void pointOf_returnsCanonicalInstances() {
+    assertSame(Point.of(3, 4), Point.of(3, 4));
+    assertEquals(4 * 9 + 3, Point.of(3, 4).index(9));
+    assertSame(Point.of(3, 4), Point.fromIndex(4 * 9 + 3, 9));
+    assertEquals(new Point(3, 4), Point.of(3, 4));
+  }
 }
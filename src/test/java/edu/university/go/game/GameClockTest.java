@@ -0,0 +1,79 @@
+package edu.university.go.game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import org.junit.jupiter.api.Test;
+
+class GameClockTest {
+
+  private long now = 0;
+
+  @Test
+  void fischerAddsTheIncrementAfterEveryMove() {
+    GameClock clock = new GameClock(TimeControl.fischer(10_000, 2_000), () -> now);
+    clock.start(Color.BLACK);
+
+    now += 3_000;
+    clock.punch(Color.BLACK);
+    assertEquals(9_000, clock.getMainMillis(Color.BLACK));
+    assertEquals(Color.WHITE, clock.getRunning());
+
+    now += 9_999;
+    assertFalse(clock.hasFlagFallen());
+    now += 1;
+    assertTrue(clock.hasFlagFallen());
+  }
+
+  @Test
+  void byoyomiKeepsThePeriodAMoveIsMadeIn() {
+    GameClock clock = new GameClock(TimeControl.byoyomi(1_000, 3, 5_000), () -> now);
+    clock.start(Color.BLACK);
+
+    // Into the second period
+    now += 8_000;
+    assertEquals(0, clock.getMainMillis(Color.BLACK));
+    assertEquals(2, clock.getPeriods(Color.BLACK));
+    clock.punch(Color.BLACK);
+    assertEquals(2, clock.getPeriods(Color.BLACK));
+
+    clock.punch(Color.WHITE);
+    now += 4_999;
+    clock.punch(Color.BLACK);
+    assertEquals(2, clock.getPeriods(Color.BLACK));
+
+    clock.punch(Color.WHITE);
+    assertEquals(10_000, clock.millisUntilFlag());
+    now += 10_000;
+    assertTrue(clock.hasFlagFallen());
+  }
+
+  @Test
+  void gameEndsWhenTheMoverHasFlagged() {
+    Game game =
+        new Game(
+            new Board(9),
+            new edu.university.go.validators.KoRule(),
+            new GameClock(TimeControl.fischer(1_000, 0), () -> now));
+    game.addPlayer("b");
+    game.addPlayer("w");
+    game.makeMove(new Move(Color.BLACK, 2, 2, "b"));
+
+    now += 1_000;
+    game.makeMove(new Move(Color.WHITE, 3, 3, "w"));
+
+    assertEquals(Color.WHITE, game.getTimedOut());
+    assertEquals(Color.EMPTY, game.getBoard().get(3, 3));
+    assertThrows(IllegalStateException.class, () -> game.makeMove(Move.pass(Color.BLACK, "b")));
+  }
+
+  @Test
+  void parsesTheWrittenForms() {
+    assertEquals(TimeControl.fischer(300_000, 5_000), TimeControl.parse("fischer:300+5"));
+    assertEquals(TimeControl.byoyomi(600_000, 5, 30_000), TimeControl.parse("BYOYOMI:600+5x30"));
+    assertEquals("byoyomi:600+5x30", TimeControl.parse("byoyomi:600+5x30").toString());
+    assertTrue(TimeControl.parse("none").isUntimed());
+    assertThrows(IllegalArgumentException.class, () -> TimeControl.parse("fischer:300"));
+  }
+}
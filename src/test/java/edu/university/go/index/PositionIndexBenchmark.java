@@ -0,0 +1,133 @@
+package edu.university.go.index;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.sgf.SgfWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Building a {@link PositionIndex} over a large SGF collection, then looking positions up in it.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.index.PositionIndexBenchmark \
+ *   -Dexec.args="256 8"
+ * </pre>
+ *
+ * <p>The arguments are the size of the collection in MB, random 19x19 games of 200 moves written to
+ * a temporary directory, and the number of threads to build with (all cores by default). Lookups
+ * are of positions from the middle of those games, each found in many of them.
+ */
+public class PositionIndexBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 256;
+    int threads =
+        args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    Random random = new Random(42);
+    List<List<Move>> distinct = new ArrayList<>();
+    for (int g = 0; g < 500; g++) {
+      distinct.add(randomGame(random));
+    }
+
+    Path dir = Files.createTempDirectory("index");
+    try {
+      Path sgf = dir.resolve("collection.sgf");
+      write(sgf, distinct, megabytes << 20);
+      long bytes = Files.size(sgf);
+
+      long start = System.nanoTime();
+      try (PositionIndex index = PositionIndex.build(List.of(sgf), dir.resolve("index"), threads)) {
+        long built = System.nanoTime() - start;
+        long indexBytes =
+            Files.size(dir.resolve("index").resolve(PositionIndex.POSITIONS))
+                + Files.size(dir.resolve("index").resolve(PositionIndex.PATTERNS));
+
+        List<Board> queries = new ArrayList<>();
+        for (int q = 0; q < 1000; q++) {
+          List<Move> moves = distinct.get(random.nextInt(distinct.size()));
+          Board board = new Board(19);
+          for (Move move : moves.subList(0, 20 + random.nextInt(100))) {
+            board.placeStone(move.color(), move.x(), move.y());
+          }
+          queries.add(board);
+        }
+        long best = Long.MAX_VALUE;
+        long hits = 0;
+        for (int run = 0; run < 5; run++) {
+          hits = 0;
+          start = System.nanoTime();
+          for (Board board : queries) {
+            hits += index.findPosition(board, 100).size();
+          }
+          best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.println("mb,games,threads,buildMbPerSec,indexMb,usPerLookup,hitsPerLookup");
+        System.out.printf(
+            "%d,%d,%d,%.0f,%d,%.1f,%d%n",
+            bytes >> 20,
+            index.games(),
+            threads,
+            bytes / 1048576.0 / (built / 1e9),
+            indexBytes >> 20,
+            best / 1e3 / queries.size(),
+            hits / queries.size());
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(dir)) {
+        for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  // The distinct games, repeated up to the size asked for
+  private static void write(Path file, List<List<Move>> games, long bytes) throws IOException {
+    StringWriter distinct = new StringWriter();
+    SgfWriter sgf = new SgfWriter(distinct);
+    for (int g = 0; g < games.size(); g++) {
+      sgf.write(19, 6.5, "black" + g, "white" + g, "B+R", games.get(g));
+    }
+    String chunk = distinct.toString();
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (long written = 0; written < bytes; written += chunk.length()) {
+        out.write(chunk);
+      }
+    }
+  }
+
+  private static List<Move> randomGame(Random random) {
+    Board board = new Board(19);
+    List<Move> moves = new ArrayList<>();
+    Color color = Color.BLACK;
+    for (int i = 0; i < 200; i++) {
+      BitSet legal = board.legalMoves(color);
+      int count = legal.cardinality();
+      if (count == 0) break;
+      int point = legal.nextSetBit(0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        point = legal.nextSetBit(point + 1);
+      }
+      board.placeStone(color, point % 19, point / 19);
+      moves.add(new Move(color, point % 19, point / 19, color.name()));
+      color = color.opposite();
+    }
+    return moves;
+  }
+}
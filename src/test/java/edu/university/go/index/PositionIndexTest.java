@@ -0,0 +1,195 @@
+package edu.university.go.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.index.PositionIndex.Hit;
+import edu.university.go.sgf.SgfWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PositionIndexTest {
+
+  @TempDir Path dir;
+
+  // Black's fifth move takes white's stone at (1, 0), and black's seventh fills its point
+  private static final int[][] GAME = {{1, 1}, {1, 0}, {0, 0}, {5, 5}, {2, 0}, {3, 3}, {1, 0}};
+
+  @Test
+  void findsAPositionInEveryRotationAndReflection() throws IOException {
+    Path sgf = dir.resolve("games.sgf");
+    try (Writer out = Files.newBufferedWriter(sgf, StandardCharsets.UTF_8)) {
+      SgfWriter writer = new SgfWriter(out);
+      writer.write(9, 6.5, "b", "w", "B+R", moves(GAME, 0));
+      writer.write(9, 6.5, "b", "w", "B+R", moves(GAME, 5));
+      writer.write(9, 6.5, "b", "w", "B+R", moves(new int[][] {{4, 4}, {0, 0}}, 0));
+    }
+
+    try (PositionIndex index = PositionIndex.build(List.of(sgf), dir.resolve("index"), 2)) {
+      assertEquals(3, index.games());
+      Board board = new Board(9);
+      for (int i = 0; i < 5; i++) {
+        board.placeStone(i % 2 == 0 ? Color.BLACK : Color.WHITE, GAME[i][0], GAME[i][1]);
+      }
+      assertEquals(1, board.getLastCapturedCount());
+      assertEquals(List.of(new Hit(0, 5), new Hit(1, 5)), index.findPosition(board, 10));
+      assertEquals(List.of(new Hit(0, 5)), index.findPosition(board, 1));
+      assertEquals(List.of(), index.findPosition(new Board(9), 10));
+
+      // Only the 5x5 square around (1, 0) counts, the edge included
+      board.placeStone(Color.WHITE, 8, 8);
+      board.placeStone(Color.BLACK, 1, 0);
+      assertEquals(List.of(new Hit(0, 7), new Hit(1, 7)), index.findPattern(board, 1, 0, 10));
+      assertThrows(IllegalArgumentException.class, () -> index.findPattern(board, 4, 4, 10));
+      assertEquals(new PositionIndex.Source(sgf.toAbsolutePath(), 1), index.source(1));
+    }
+  }
+
+  @Test
+  void handicapStonesAreMoveZero() throws IOException {
+    Path sgf = dir.resolve("handicap.sgf");
+    Files.writeString(sgf, "(;SZ[9]HA[2]AB[cc][gg];W[ee];B[ce])");
+
+    try (PositionIndex index = PositionIndex.build(List.of(sgf), dir.resolve("index"), 1)) {
+      Board board = new Board(9);
+      board.setColor(2, 6, Color.BLACK);
+      board.setColor(6, 2, Color.BLACK);
+      assertEquals(List.of(new Hit(0, 0)), index.findPosition(board, 10));
+      board.placeStone(Color.WHITE, 4, 4);
+      assertEquals(List.of(new Hit(0, 1)), index.findPosition(board, 10));
+    }
+  }
+
+  @Test
+  void splittingAndSmallRunsGiveTheSameIndex() throws IOException {
+    Random random = new Random(7);
+    Path collections = Files.createDirectory(dir.resolve("collections"));
+    List<List<Move>> games = new ArrayList<>();
+    for (int f = 0; f < 3; f++) {
+      try (Writer out =
+          Files.newBufferedWriter(collections.resolve(f + ".sgf"), StandardCharsets.UTF_8)) {
+        SgfWriter writer = new SgfWriter(out);
+        // The first file is empty
+        for (int g = 0; f > 0 && g < 40; g++) {
+          List<Move> moves = randomGame(random, 30);
+          games.add(moves);
+          writer.write(9, 6.5, "b]" + g, "w", "B+R", moves);
+        }
+      }
+    }
+
+    new IndexBuilder(dir.resolve("whole"), 1, 1 << 16, Long.MAX_VALUE).build(List.of(collections));
+    new IndexBuilder(dir.resolve("split"), 3, 64, 1).build(List.of(collections));
+
+    try (PositionIndex whole = new PositionIndex(dir.resolve("whole"));
+        PositionIndex split = new PositionIndex(dir.resolve("split"))) {
+      assertEquals(80, split.games());
+      assertEquals(
+          Files.readAllBytes(dir.resolve("whole").resolve(PositionIndex.POSITIONS)).length,
+          Files.readAllBytes(dir.resolve("split").resolve(PositionIndex.POSITIONS)).length);
+      for (int g = 0; g < games.size(); g += 7) {
+        Board board = new Board(9);
+        for (Move move : games.get(g)) {
+          board.placeStone(move.color(), move.x(), move.y());
+        }
+        List<Hit> hits = split.findPosition(board, 100);
+        assertEquals(whole.findPosition(board, 100), hits);
+        assertTrue(hits.contains(new Hit(g, games.get(g).size())), hits.toString());
+      }
+      assertEquals(collections.resolve("2.sgf").toAbsolutePath(), split.source(45).collection());
+      assertEquals(5, split.source(45).game());
+      assertEquals(0, split.source(0).game());
+      assertThrows(IllegalArgumentException.class, () -> split.source(80));
+    }
+    assertFalse(Files.exists(dir.resolve("split").resolve("runs")));
+  }
+
+  @Test
+  void sortsPairsAddedInValueOrderByKeyThenValue() {
+    Random random = new Random(3);
+    int count = 5000;
+    long[] pairs = new long[2 * count];
+    for (int i = 0; i < count; i++) {
+      pairs[2 * i] = random.nextBoolean() ? random.nextInt(50) - 25 : random.nextLong();
+      pairs[2 * i + 1] = i;
+    }
+
+    Runs.sort(pairs, count, new long[2 * count]);
+
+    for (int i = 1; i < count; i++) {
+      long key = pairs[2 * i];
+      long previous = pairs[2 * i - 2];
+      assertTrue(key > previous || key == previous && pairs[2 * i + 1] >= pairs[2 * i - 1]);
+    }
+  }
+
+  @Test
+  void findsTheFirstPairOfAKeyAcrossSamplesAndRegions() throws IOException {
+    Random random = new Random(5);
+    int count = 1000;
+    long[] pairs = new long[2 * count];
+    for (int i = 0; i < count; i++) {
+      pairs[2 * i] = random.nextInt(200) - 100;
+      pairs[2 * i + 1] = i;
+    }
+    Path run = dir.resolve("run");
+    Runs.write(pairs, count, new long[2 * count], run);
+
+    // Regions of 4 pairs, a sample every 3
+    try (PairFile file = new PairFile(run, 64, 3)) {
+      assertEquals(count, file.size());
+      for (long key = -102; key <= 102; key++) {
+        long expected = 0;
+        while (expected < count && pairs[2 * (int) expected] < key) expected++;
+        assertEquals(expected, file.first(key), "key " + key);
+        if (expected < count) {
+          assertEquals(pairs[2 * (int) expected + 1], file.value(expected));
+        }
+      }
+    }
+  }
+
+  // The moves of points, under symmetry s
+  private static List<Move> moves(int[][] points, int s) {
+    List<Move> moves = new ArrayList<>();
+    for (int i = 0; i < points.length; i++) {
+      int x = (s & 1) != 0 ? points[i][1] : points[i][0];
+      int y = (s & 1) != 0 ? points[i][0] : points[i][1];
+      if ((s & 2) != 0) x = 8 - x;
+      if ((s & 4) != 0) y = 8 - y;
+      Color color = i % 2 == 0 ? Color.BLACK : Color.WHITE;
+      moves.add(new Move(color, x, y, color.name()));
+    }
+    return moves;
+  }
+
+  private static List<Move> randomGame(Random random, int length) {
+    Board board = new Board(9);
+    List<Move> moves = new ArrayList<>();
+    Color color = Color.BLACK;
+    for (int i = 0; i < length; i++) {
+      BitSet legal = board.legalMoves(color);
+      int count = legal.cardinality();
+      if (count == 0) break;
+      int point = legal.nextSetBit(0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        point = legal.nextSetBit(point + 1);
+      }
+      board.placeStone(color, point % 9, point / 9);
+      moves.add(new Move(color, point % 9, point / 9, color.name()));
+      color = color.opposite();
+    }
+    return moves;
+  }
+}
@@ -0,0 +1,186 @@
+package edu.university.go.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Color;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BinaryCodecTest {
+
+  private final BinaryCodec codec = new BinaryCodec();
+
+  @Test
+  void repliesRoundTripToTheSameText() {
+    String[] lines = {
+      "CONNECTED 0f8fad5b-d9cb-469f-a165-70867728950e",
+      "JOINED 12",
+      "CREATED 7",
+      "BOARDSIZE 19",
+      "COLOR WHITE",
+      "TURN BLACK",
+      "CAPTURED 0 130",
+      "SCORE 12 3 45 38",
+      "EVENT MOVE_PLAYED",
+      "RESULT WHITE 180.0 188.5 8.5",
+      "ERROR: Ko rule violation",
+      "GAMES 2",
+      "GAME 3 13 1",
+      "UPDATES DELTA",
+      "SNAPSHOT 4 5 B.W..........W.......B...",
+      "DELTA 9 W 360 0 1 19",
+      " 3  .  .  B  .",
+      "",
+      "RESULT WHITE 1,5 0,0 1,5",
+      "COLOR PURPLE",
+      "pössible ünicode ☃ 𝄞",
+    };
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    for (String line : lines) {
+      codec.encodeReply(line, buffer);
+    }
+    buffer.flip();
+
+    for (String line : lines) {
+      StringBuilder decoded = new StringBuilder();
+      assertTrue(codec.decodeReply(buffer, decoded));
+      assertEquals(line, decoded.toString());
+    }
+    assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  void commonRepliesAreCompact() {
+    assertEquals(3, encodedReplySize("TURN WHITE"));
+    assertEquals(6, encodedReplySize("DELTA 120 B 180"));
+    assertEquals(4 + 91, encodedReplySize("SNAPSHOT 0 19 " + ".".repeat(361)));
+  }
+
+  @Test
+  void commandsDecodeIntoTheSink() {
+    String[] commands = {
+      "MOVE 3 15 BLACK",
+      "move 4 4 WHITE",
+      "PASS",
+      "RESIGN",
+      "LIST",
+      "JOIN",
+      "JOIN 42",
+      "CREATE",
+      "CREATE 13",
+      "CREATE 9 positional",
+      "UPDATES DELTA",
+      "RESYNC",
+      "MOVE -1 2 BLACK",
+      "HELLO there"
+    };
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    for (String command : commands) {
+      codec.encodeCommand(command, buffer);
+    }
+    buffer.flip();
+
+    Recorder sink = new Recorder();
+    while (codec.decodeCommand(buffer, sink)) {
+      // recorded
+    }
+
+    assertEquals(
+        List.of(
+            "move 3 15 BLACK",
+            "move 4 4 WHITE",
+            "pass",
+            "resign",
+            "list",
+            "join ",
+            "join 42",
+            "create 0 ",
+            "create 13 ",
+            "create 9 positional",
+            "updates true",
+            "resync",
+            "text MOVE -1 2 BLACK",
+            "text HELLO there"),
+        sink.calls);
+  }
+
+  @Test
+  void partialFrameIsLeftForLater() {
+    ByteBuffer full = ByteBuffer.allocate(64);
+    codec.encodeCommand("MOVE 3 15 BLACK", full);
+    full.flip();
+
+    ByteBuffer partial = ByteBuffer.allocate(64);
+    partial.put(full.array(), 0, full.limit() - 1).flip();
+    Recorder sink = new Recorder();
+
+    assertFalse(codec.decodeCommand(partial, sink));
+    assertEquals(0, partial.position());
+    assertTrue(sink.calls.isEmpty());
+  }
+
+  @Test
+  void unknownOpcodeIsRejected() {
+    ByteBuffer buffer = ByteBuffer.wrap(new byte[] {1, 0x30});
+
+    assertThrows(IllegalArgumentException.class, () -> codec.decodeCommand(buffer, new Recorder()));
+  }
+
+  private int encodedReplySize(String line) {
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    codec.encodeReply(line, buffer);
+    return buffer.position();
+  }
+
+  private static class Recorder implements CommandSink {
+
+    final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void move(int x, int y, Color color) {
+      calls.add("move " + x + " " + y + " " + color);
+    }
+
+    @Override
+    public void pass() {
+      calls.add("pass");
+    }
+
+    @Override
+    public void resign() {
+      calls.add("resign");
+    }
+
+    @Override
+    public void list() {
+      calls.add("list");
+    }
+
+    @Override
+    public void join(CharSequence gameId) {
+      calls.add("join " + gameId);
+    }
+
+    @Override
+    public void create(int boardSize, CharSequence koRule) {
+      calls.add("create " + boardSize + " " + koRule);
+    }
+
+    @Override
+    public void updates(boolean delta) {
+      calls.add("updates " + delta);
+    }
+
+    @Override
+    public void resync() {
+      calls.add("resync");
+    }
+
+    @Override
+    public void text(CharSequence line) {
+      calls.add("text " + line);
+    }
+  }
+}
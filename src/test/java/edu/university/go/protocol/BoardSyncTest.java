@@ -0,0 +1,63 @@
+package edu.university.go.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import org.junit.jupiter.api.Test;
+
+class BoardSyncTest {
+
+  @Test
+  void deltasKeepClientBoardInStep() {
+    Board server = new Board(5);
+    Board client = new Board(5);
+    BoardSync sync = new BoardSync();
+    assertTrue(sync.apply(BoardSync.snapshot(0, server), client));
+
+    // White stone at (0,0) is captured by black's second move
+    int[][] moves = {{1, 0}, {0, 0}, {0, 1}};
+    Color color = Color.BLACK;
+    long seq = 0;
+    for (int[] m : moves) {
+      assertTrue(server.placeStone(color, m[0], m[1]));
+      assertTrue(sync.apply(BoardSync.delta(++seq, server), client));
+      color = color.opposite();
+    }
+
+    assertEquals("DELTA 3 B 5 0", BoardSync.delta(3, server));
+    assertEquals(server, client);
+    assertEquals(3, sync.getSequence());
+  }
+
+  @Test
+  void gapIsRejectedUntilNextSnapshot() {
+    Board server = new Board(5);
+    Board client = new Board(5);
+    BoardSync sync = new BoardSync();
+
+    server.placeStone(Color.BLACK, 2, 2);
+    assertFalse(sync.apply(BoardSync.delta(1, server), client), "no snapshot yet");
+
+    sync.apply(BoardSync.snapshot(1, server), client);
+    server.placeStone(Color.WHITE, 3, 3);
+    server.placeStone(Color.BLACK, 1, 1);
+    assertFalse(sync.apply(BoardSync.delta(3, server), client), "delta 2 was missed");
+    assertEquals(Color.EMPTY, client.get(1, 1));
+
+    assertTrue(sync.apply(BoardSync.snapshot(3, server), client));
+    assertEquals(server, client);
+  }
+
+  @Test
+  void malformedUpdateIsRejected() {
+    Board client = new Board(5);
+    BoardSync sync = new BoardSync();
+    sync.apply(BoardSync.snapshot(0, new Board(5)), client);
+
+    assertFalse(sync.apply("DELTA 1 B 99", client));
+    assertFalse(sync.apply("DELTA 1 B 3 x", client));
+    assertFalse(sync.apply("SNAPSHOT 0 9 ...", client));
+    assertEquals(new Board(5), client);
+  }
+}
@@ -0,0 +1,115 @@
+package edu.university.go.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.university.go.server.CommandParser;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class StreamingCommandParserTest {
+
+  private final StreamingCommandParser parser = new StreamingCommandParser();
+  private final Command command = new Command();
+
+  @Test
+  void agreesWithTheSplittingParser() {
+    String[] lines = {
+      "MOVE 3 4 BLACK",
+      "  move\t-1 +7   WHITE \r",
+      "JOIN 12",
+      "join",
+      "CREATE 19 superko",
+      "create x",
+      "UPDATES delta",
+      "PASS",
+      "RESIGN now",
+      "LIST",
+      "RESYNC",
+      "QUIT",
+      "HELLO there",
+      "",
+      "   ",
+      "MOVE 2147483647 -2147483648 WHITE",
+      "MOVE 2147483648 00000000003 EMPTY",
+    };
+    for (String line : lines) {
+      Command expected = CommandParser.parse(line);
+      assertEquals(expected.getType(), parser.parse(line, command), line);
+      assertArrayEquals(expected.getArgs(), command.getArgs(), line);
+      for (int i = 0; i < expected.getArgs().length; i++) {
+        assertEquals(isInt(expected.getArg(i)), command.isInt(i), line);
+        if (command.isInt(i)) {
+          assertEquals(Integer.parseInt(expected.getArg(i)), command.getInt(i), line);
+        }
+      }
+    }
+  }
+
+  @Test
+  void parsesBytesInPlaceAndReusesTheHolder() {
+    ByteBuffer buffer =
+        ByteBuffer.wrap("JOIN 5\nMOVE 8 0 WHITE\r\n".getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(CommandType.JOIN, parser.parse(buffer, 0, 6, command));
+    assertEquals("5", command.getArg(0));
+
+    assertEquals(CommandType.MOVE, parser.parse(buffer, 7, 22, command));
+    assertEquals(3, command.getArgCount());
+    assertEquals(8, command.getInt(0));
+    assertEquals(0, command.getInt(1));
+    assertTrue(command.argEquals(2, "WHITE"));
+    assertFalse(command.argEquals(2, "white"));
+    assertTrue(command.argEqualsIgnoreCase(2, "white"));
+    assertThrows(IndexOutOfBoundsException.class, () -> command.getInt(3));
+  }
+
+  @Test
+  void countsArgumentsItDoesNotKeep() {
+    parser.parse("MOVE 1 2 3 4 5 6 7 8 9 10", command);
+    assertEquals(10, command.getArgCount());
+    assertEquals(Command.MAX_ARGS, command.getArgs().length);
+    assertEquals(8, command.getInt(7));
+  }
+
+  @Test
+  void movesDoNotAllocate() {
+    assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported()
+            && bean.isThreadAllocatedMemoryEnabled());
+    com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    ByteBuffer buffer = ByteBuffer.wrap("MOVE 15 3 WHITE".getBytes(StandardCharsets.US_ASCII));
+    long id = Thread.currentThread().getId();
+    long sum = parse(buffer, 10_000);
+
+    long before = bean.getThreadAllocatedBytes(id);
+    sum += parse(buffer, 100_000);
+    long allocated = bean.getThreadAllocatedBytes(id) - before;
+
+    assertEquals(110_000L * 18, sum);
+    // Allow for the measurement itself, far below one object per command
+    assertTrue(allocated < 10_000, "allocated " + allocated + " bytes");
+  }
+
+  private long parse(ByteBuffer buffer, int times) {
+    long sum = 0;
+    for (int i = 0; i < times; i++) {
+      parser.parse(buffer, 0, buffer.limit(), command);
+      sum += command.getInt(0) + command.getInt(1);
+    }
+    return sum;
+  }
+
+  private static boolean isInt(String s) {
+    try {
+      Integer.parseInt(s);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package edu.university.go.scoring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.GameEvent;
+import edu.university.go.game.Move;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LiveScoreTrackerTest {
+
+  @Test
+  @DisplayName("Incremental estimate matches a full rescore after every move")
+  void testMatchesFullScoreAfterEachMove() {
+    Random random = new Random(42);
+    for (int size : new int[] {5, 9, 19}) {
+      Board board = new Board(size);
+      LiveScoreTracker tracker = new LiveScoreTracker(board);
+      RegionScorer scorer = new RegionScorer(size);
+
+      Color color = Color.BLACK;
+      for (int i = 0; i < size * size * 3; i++) {
+        if (board.placeStone(color, random.nextInt(size), random.nextInt(size))) {
+          color = color.opposite();
+        }
+        tracker.onGameEvent(GameEvent.MOVE_PLAYED);
+        scorer.score(board);
+
+        assertEquals(scorer.getBlackTerritory(), tracker.getBlackTerritory());
+        assertEquals(scorer.getWhiteTerritory(), tracker.getWhiteTerritory());
+        assertEquals(scorer.getBlackStones() + scorer.getBlackTerritory(), tracker.getBlackArea());
+        assertEquals(scorer.getWhiteStones() + scorer.getWhiteTerritory(), tracker.getWhiteArea());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Tracker resynchronizes after raw board edits")
+  void testResyncAfterSetColor() {
+    Board board = new Board(5);
+    LiveScoreTracker tracker = new LiveScoreTracker(board);
+
+    board.setColor(2, 2, Color.WHITE);
+    board.setColor(0, 0, Color.WHITE);
+    tracker.sync();
+
+    assertEquals(23, tracker.getWhiteTerritory());
+    assertEquals(25, tracker.getWhiteArea());
+  }
+
+  @Test
+  @DisplayName("Tracker follows a game as an observer")
+  void testObservesGame() {
+    Board board = new Board(9);
+    Game game = new Game(board);
+    LiveScoreTracker tracker = new LiveScoreTracker(board);
+    game.addObserver(tracker);
+
+    game.addPlayer("p1");
+    game.addPlayer("p2");
+    game.makeMove(new Move(Color.BLACK, 4, 4, "p1"));
+
+    assertEquals(80, tracker.getBlackTerritory());
+    assertEquals(81, tracker.getBlackArea());
+  }
+}
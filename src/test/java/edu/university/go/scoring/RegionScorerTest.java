@@ -0,0 +1,64 @@
+package edu.university.go.scoring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RegionScorerTest {
+
+  @Test
+  @DisplayName("Owner masks for territory, dame and stones")
+  void testOwnerMasks() {
+    /*
+     * . B . W .
+     * . B . W .
+     * . B . W .
+     * . B . W .
+     * . B . W .
+     */
+    Board board = new Board(5);
+    for (int y = 0; y < 5; y++) {
+      board.placeStone(Color.BLACK, 1, y);
+      board.placeStone(Color.WHITE, 3, y);
+    }
+
+    RegionScorer scorer = new RegionScorer(5);
+    scorer.score(board);
+
+    assertEquals(5, scorer.getBlackTerritory());
+    assertEquals(5, scorer.getWhiteTerritory());
+    assertEquals(5, scorer.getBlackStones());
+    assertEquals(5, scorer.getWhiteStones());
+    assertEquals(RegionScorer.BLACK_MASK, scorer.getOwnerMask(0));
+    assertEquals(RegionScorer.BLACK_MASK, scorer.getOwnerMask(1));
+    assertEquals(RegionScorer.BLACK_MASK | RegionScorer.WHITE_MASK, scorer.getOwnerMask(2));
+    assertEquals(RegionScorer.WHITE_MASK, scorer.getOwnerMask(4 * 5 + 4));
+  }
+
+  @Test
+  @DisplayName("Scorer can be reused after the board changes")
+  void testReuse() {
+    Board board = new Board(5);
+    RegionScorer scorer = new RegionScorer(5);
+
+    scorer.score(board);
+    assertEquals(0, scorer.getBlackTerritory());
+    assertEquals(0, scorer.getOwnerMask(12));
+
+    board.placeStone(Color.BLACK, 2, 2);
+    scorer.score(board);
+    assertEquals(24, scorer.getBlackTerritory());
+    assertEquals(0, scorer.getWhiteTerritory());
+  }
+
+  @Test
+  @DisplayName("Scorer rejects boards of another size")
+  void testRejectsOtherSize() {
+    RegionScorer scorer = new RegionScorer(9);
+
+    assertThrows(IllegalArgumentException.class, () -> scorer.score(new Board(5)));
+  }
+}
@@ -2,7 +2,16 @@ package edu.university.go.server;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import edu.university.go.client.Client;
 import edu.university.go.game.Move;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
 class ClientHandlerTest {
@@ -17,6 +26,131 @@ class ClientHandlerTest {
     assertTrue(session.errorSent);
   }
 
+  @Test
+  void blockingTransportUpgradesToBinary() throws Exception {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    try (ServerSocket server = new ServerSocket(0)) {
+      Thread accept =
+          new Thread(
+              () -> {
+                try {
+                  ClientHandler.inLobby(server.accept(), registry).run();
+                } catch (IOException ignored) {
+                  // test over
+                }
+              });
+      accept.setDaemon(true);
+      accept.start();
+
+      Client client = new Client("localhost", server.getLocalPort(), true);
+      client.connect();
+      try {
+        assertTrue(client.receive().startsWith("CONNECTED "));
+        client.send("LIST");
+        assertEquals("GAMES 0", client.receive());
+        client.send("MOVE 1 1 BLACK");
+        assertTrue(client.receive().startsWith("ERROR: Not in a game"));
+      } finally {
+        client.close();
+      }
+    }
+  }
+
+  @Test
+  void resumeGivesTheSeatBackOnANewConnection() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    OutboxTest.RecordingConnection first = new OutboxTest.RecordingConnection();
+    OutboxTest.RecordingConnection white = new OutboxTest.RecordingConnection();
+    ClientHandler black = ClientHandler.inLobby(first, registry);
+    black.opened();
+    String token = first.batches.get(0).get(0).toString().split(" ")[2];
+    black.handleCommand("CREATE 9");
+    String id = registry.all().iterator().next().getId();
+    ClientHandler.inLobby(white, registry).handleCommand("JOIN " + id);
+
+    black.closed();
+    assertEquals(List.of("AWAY BLACK"), white.batches.get(white.batches.size() - 1));
+
+    OutboxTest.RecordingConnection second = new OutboxTest.RecordingConnection();
+    ClientHandler back = ClientHandler.inLobby(second, registry);
+    back.handleCommand("RESUME " + token);
+    List<Object> resumed = second.batches.get(0);
+    assertEquals(List.of("RESUMED " + id, "BOARDSIZE 9", "COLOR BLACK"), resumed.subList(0, 3));
+    assertTrue(resumed.contains("TURN BLACK"));
+    assertEquals(List.of("BACK BLACK"), white.batches.get(white.batches.size() - 1));
+
+    back.handleCommand("MOVE 4 4 BLACK");
+    List<Object> moved = white.batches.get(white.batches.size() - 1);
+    assertEquals("EVENT MOVE_PLAYED", moved.get(moved.size() - 1));
+
+    OutboxTest.RecordingConnection other = new OutboxTest.RecordingConnection();
+    ClientHandler.inLobby(other, registry).handleCommand("RESUME 0123");
+    assertEquals(List.of("ERROR: Nothing to resume"), other.batches.get(0));
+    assertFalse(registry.get(id).isFinished());
+  }
+
+  @Test
+  void silentClientsArePingedThenClosed() throws InterruptedException {
+    List<Object> written = new CopyOnWriteArrayList<>();
+    CountDownLatch closed = new CountDownLatch(1);
+    Connection connection =
+        new Connection() {
+          @Override
+          public void write(List<Object> batch) {
+            written.addAll(batch);
+          }
+
+          @Override
+          public void close() {
+            closed.countDown();
+          }
+        };
+    ClientHandler handler =
+        ClientHandler.inLobby(connection, null)
+            .heartbeats(new TimingWheel(5, 8, "test-timers"), 20);
+    handler.opened();
+
+    assertTrue(closed.await(5, TimeUnit.SECONDS));
+    assertTrue(written.contains("PING"), written.toString());
+  }
+
+  @Test
+  void botTakesTheSecondSeatAndAnswersMoves() throws InterruptedException {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    ExecutorService thinkers = Executors.newSingleThreadExecutor();
+    registry.bots(thinkers, 20);
+    List<Object> written = new CopyOnWriteArrayList<>();
+    // Once when the game starts, once after the bot's answer
+    CountDownLatch blackToPlay = new CountDownLatch(2);
+    Connection connection =
+        new Connection() {
+          @Override
+          public void write(List<Object> batch) {
+            written.addAll(batch);
+            batch.stream().filter("TURN BLACK"::equals).forEach(line -> blackToPlay.countDown());
+          }
+
+          @Override
+          public void close() {}
+        };
+    try {
+      ClientHandler human = ClientHandler.inLobby(connection, registry);
+      human.handleCommand("BOT 9");
+      assertTrue(written.contains("COLOR BLACK"), written.toString());
+      assertTrue(written.contains("EVENT GAME_STARTED"), written.toString());
+
+      human.handleCommand("MOVE 4 4 BLACK");
+
+      assertTrue(blackToPlay.await(5, TimeUnit.SECONDS), written.toString());
+      assertTrue(written.contains("TURN WHITE"));
+      GameSession session = registry.all().iterator().next();
+      assertEquals(2, session.getPlayerCount());
+      assertFalse(session.isFinished());
+    } finally {
+      thinkers.shutdownNow();
+    }
+  }
+
   static class FakeSession extends GameSession {
 
     boolean errorSent = false;
@@ -0,0 +1,86 @@
+package edu.university.go.server;
+
+import edu.university.go.board.Color;
+import edu.university.go.protocol.Command;
+import edu.university.go.protocol.StreamingCommandParser;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH comparison of {@link CommandParser} with {@link StreamingCommandParser} on a move command,
+ * each followed by reading the move the way {@link ClientHandler} does.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.server.CommandParserBenchmark
+ * </pre>
+ *
+ * The {@code gc} profiler is on, so {@code gc.alloc.rate.norm} shows the bytes allocated per
+ * command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandParserBenchmark {
+
+  private static final String LINE = "MOVE 15 3 WHITE";
+
+  private final ByteBuffer bytes =
+      ByteBuffer.wrap((LINE + "\r\n").getBytes(StandardCharsets.US_ASCII));
+  private final StreamingCommandParser parser = new StreamingCommandParser();
+  private final Command command = new Command();
+
+  @Benchmark
+  public void splitParser(Blackhole bh) {
+    Command c = CommandParser.parse(LINE);
+    String[] args = c.getArgs();
+    bh.consume(c.getType());
+    bh.consume(Integer.parseInt(args[0]));
+    bh.consume(Integer.parseInt(args[1]));
+    bh.consume(Color.valueOf(args[2]));
+  }
+
+  @Benchmark
+  public void streamingFromString(Blackhole bh) {
+    consume(parser.parse(LINE, command), bh);
+  }
+
+  @Benchmark
+  public void streamingFromBuffer(Blackhole bh) {
+    consume(parser.parse(bytes, 0, bytes.limit() - 1, command), bh);
+  }
+
+  private void consume(Object type, Blackhole bh) {
+    bh.consume(type);
+    bh.consume(command.getInt(0));
+    bh.consume(command.getInt(1));
+    bh.consume(command.argEquals(2, "WHITE") ? Color.WHITE : Color.BLACK);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(
+            new OptionsBuilder()
+                .include(CommandParserBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,239 @@
+package edu.university.go.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Loopback benchmark of the server transports with many idle and active connections.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.server.ConnectionBenchmark \
+ *   -Dexec.args="virtual 10000,50000,100000 5"
+ * </pre>
+ *
+ * <p>Arguments: transport ({@code blocking}, {@code virtual} or {@code nio}), a comma separated
+ * list of connection counts, and the seconds spent in each of the idle and active phases. Each run
+ * opens all connections from one selector thread, spread over several 127.0.0.x source addresses so
+ * 100k connections do not exhaust the ephemeral ports of one address. The idle phase reports
+ * connect time, live platform threads and used heap once every client got its {@code CONNECTED}
+ * line; the active phase has every connection send {@code LIST} and wait for the reply, round after
+ * round, and reports requests per second. Client and server share the JVM, so heap figures include
+ * the client side, which is the same for every transport.
+ *
+ * <p>Needs a file descriptor limit above twice the connection count ({@code ulimit -n}), and the
+ * blocking transport at 50k+ connections typically needs a larger {@code ulimit -u} and {@code
+ * vm.max_map_count}; a run that cannot create its threads is reported as failed.
+ */
+public class ConnectionBenchmark {
+
+  private static final int SOURCE_ADDRESSES = 16;
+  private static final long WAIT_MILLIS = 120_000;
+  private static final byte[] LIST = "LIST\n".getBytes(StandardCharsets.US_ASCII);
+
+  public static void main(String[] args) throws Exception {
+    Transport transport = Transport.parse(args.length > 0 ? args[0] : "virtual");
+    String counts = args.length > 1 ? args[1] : "10000,50000,100000";
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    System.out.println(
+        "transport,connections,connectMs,platformThreads,heapMb,requestsPerSec,meanRoundMs");
+    for (String count : counts.split(",")) {
+      run(transport, Integer.parseInt(count.trim()), seconds);
+    }
+  }
+
+  private static void run(Transport transport, int connections, int seconds) throws Exception {
+    SessionRegistry registry = new SessionRegistry(9, "simple");
+    ServerHandle server = ServerHandle.start(transport, registry);
+    long baseHeap = usedHeap();
+
+    try (LoadClient client = new LoadClient()) {
+      long start = System.nanoTime();
+      client.connect(server.port, connections, server);
+      if (!client.awaitLines(connections, server)) {
+        System.out.println(transport + "," + connections + ",FAILED " + server.failure);
+        return;
+      }
+      long connectMs = (System.nanoTime() - start) / 1_000_000;
+
+      Thread.sleep(seconds * 1000L);
+      int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+      long heapMb = (usedHeap() - baseHeap) / (1024 * 1024);
+
+      // Active: every connection does one LIST round trip per round
+      long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+      long activeStart = System.nanoTime();
+      long expected = connections;
+      int rounds = 0;
+      while (System.nanoTime() < deadline) {
+        client.sendToAll(LIST);
+        expected += connections;
+        if (!client.awaitLines(expected, server)) {
+          System.out.println(transport + "," + connections + ",FAILED " + server.failure);
+          return;
+        }
+        rounds++;
+      }
+      double activeSec = (System.nanoTime() - activeStart) / 1e9;
+
+      System.out.printf(
+          "%s,%d,%d,%d,%d,%.0f,%.1f%n",
+          transport,
+          connections,
+          connectMs,
+          threads,
+          heapMb,
+          rounds * (double) connections / activeSec,
+          rounds == 0 ? 0 : activeSec * 1000 / rounds);
+    } finally {
+      server.close();
+      Thread.sleep(1000); // let handler threads see EOF before the next run
+    }
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime rt = Runtime.getRuntime();
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+  /** The server under test, in this JVM, on an ephemeral port. */
+  private static final class ServerHandle {
+
+    private ServerSocket socket;
+    private NioTransport nio;
+    private int port;
+    private volatile Throwable failure;
+
+    static ServerHandle start(Transport transport, SessionRegistry registry) throws IOException {
+      ServerHandle handle = new ServerHandle();
+      if (transport == Transport.NIO) {
+        handle.nio = new NioTransport(registry, Runtime.getRuntime().availableProcessors());
+        handle.port = handle.nio.start(0);
+        return handle;
+      }
+
+      handle.socket = new ServerSocket(0, 4096);
+      handle.port = handle.socket.getLocalPort();
+      Server server =
+          new Server(new Server.Options().port(handle.port).boardSize(9).transport(transport));
+      Thread acceptor =
+          new Thread(
+              () -> {
+                try {
+                  server.serve(handle.socket);
+                } catch (Throwable t) {
+                  if (!handle.socket.isClosed()) {
+                    handle.failure = t;
+                  }
+                }
+              },
+              "bench-acceptor");
+      acceptor.setDaemon(true);
+      acceptor.start();
+      return handle;
+    }
+
+    void close() throws IOException {
+      if (nio != null) {
+        nio.close();
+      } else {
+        socket.close();
+      }
+    }
+  }
+
+  /** Many client connections driven by one selector; only counts received lines. */
+  private static final class LoadClient implements AutoCloseable {
+
+    private final Selector selector = Selector.open();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+    private SocketChannel[] channels = new SocketChannel[0];
+    private long lines;
+
+    LoadClient() throws IOException {}
+
+    void connect(int port, int count, ServerHandle server) throws IOException {
+      channels = new SocketChannel[count];
+      for (int i = 0; i < count && server.failure == null; i++) {
+        SocketChannel channel = SocketChannel.open();
+        channel.bind(new InetSocketAddress("127.0.0." + (2 + i % SOURCE_ADDRESSES), 0));
+        channel.connect(new InetSocketAddress("127.0.0.1", port));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        channels[i] = channel;
+        if ((i & 1023) == 0) {
+          poll(0);
+        }
+      }
+    }
+
+    void sendToAll(byte[] message) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(message);
+      for (SocketChannel channel : channels) {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+
+    boolean awaitLines(long target, ServerHandle server) throws IOException {
+      long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+      while (lines < target) {
+        if (server.failure != null || System.currentTimeMillis() > deadline) {
+          return false;
+        }
+        poll(100);
+      }
+      return true;
+    }
+
+    private void poll(long timeout) throws IOException {
+      if (timeout == 0) {
+        selector.selectNow();
+      } else {
+        selector.select(timeout);
+      }
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        readBuffer.clear();
+        if (((SocketChannel) key.channel()).read(readBuffer) < 0) {
+          key.cancel();
+          continue;
+        }
+        byte[] bytes = readBuffer.array();
+        for (int i = 0; i < readBuffer.position(); i++) {
+          if (bytes[i] == '\n') {
+            lines++;
+          }
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (SocketChannel channel : channels) {
+        if (channel != null) {
+          channel.close();
+        }
+      }
+      selector.close();
+    }
+  }
+}
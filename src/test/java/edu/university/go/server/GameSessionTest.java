@@ -5,7 +5,15 @@ import static org.junit.jupiter.api.Assertions.*;
 import edu.university.go.board.Board;
 import edu.university.go.board.Color;
 import edu.university.go.game.Game;
+import edu.university.go.game.GameClock;
 import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import edu.university.go.validators.KoRule;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
 class GameSessionTest {
@@ -48,9 +56,127 @@ class GameSessionTest {
     assertTrue(c1.receivedErrorMessage, "Should have received an ERROR message");
   }
 
+  @Test
+  void deltaClientGetsSnapshotThenOneLinePerMove() {
+    Game game = new Game(new Board(9));
+    GameSession session = new GameSession(game);
+
+    FakeClient c1 = new FakeClient();
+    FakeClient c2 = new FakeClient();
+    c2.handleCommand("UPDATES DELTA");
+    session.addPlayer("p1", c1);
+    session.addPlayer("p2", c2);
+
+    assertTrue(c2.received.stream().anyMatch(m -> m.startsWith("SNAPSHOT 0 9 ")));
+    c1.received.clear();
+    c2.received.clear();
+
+    session.handleMove(new Move(Color.BLACK, 4, 4, "p1"));
+
+    assertEquals("DELTA 1 B 40", c2.received.get(0));
+    assertEquals(1, c2.received.stream().filter(m -> m.startsWith("EVENT")).count());
+    assertTrue(c1.received.size() > 10, "text client still gets the whole board");
+    assertTrue(c2.received.stream().noneMatch(m -> m.contains(" .  .")));
+  }
+
+  @Test
+  void spectatorsShareOneEncodedUpdatePerEvent() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    OutboxTest.RecordingConnection black = new OutboxTest.RecordingConnection();
+    OutboxTest.RecordingConnection white = new OutboxTest.RecordingConnection();
+    OutboxTest.RecordingConnection viewer1 = new OutboxTest.RecordingConnection();
+    OutboxTest.RecordingConnection viewer2 = new OutboxTest.RecordingConnection();
+    ClientHandler blackPlayer = ClientHandler.inLobby(black, registry);
+    blackPlayer.handleCommand("CREATE 9");
+    String id = registry.all().iterator().next().getId();
+    ClientHandler.inLobby(white, registry).handleCommand("JOIN " + id);
+    ClientHandler watcher = ClientHandler.inLobby(viewer1, registry);
+    watcher.handleCommand("WATCH " + id);
+    ClientHandler.inLobby(viewer2, registry).handleCommand("WATCH " + id);
+
+    List<Object> joined = viewer1.batches.get(0);
+    assertEquals("WATCHING " + id, joined.get(0));
+    assertEquals("BOARDSIZE 9", joined.get(1));
+    assertTrue(joined.contains("TURN BLACK"));
+    assertEquals(2, registry.get(id).getSpectatorCount());
+
+    blackPlayer.handleCommand("MOVE 4 4 BLACK");
+
+    List<Object> seen1 = viewer1.batches.get(viewer1.batches.size() - 1);
+    List<Object> seen2 = viewer2.batches.get(viewer2.batches.size() - 1);
+    assertEquals(1, seen1.size());
+    assertSame(seen1.get(0), seen2.get(0));
+    SharedUpdate update = (SharedUpdate) seen1.get(0);
+    assertEquals(white.batches.get(white.batches.size() - 1), update.lines());
+
+    watcher.handleCommand("MOVE 5 5 WHITE");
+    assertEquals(
+        List.of("ERROR: Spectators cannot play"), viewer1.batches.get(viewer1.batches.size() - 1));
+  }
+
+  @Test
+  void flagFallEndsTheGame() throws InterruptedException {
+    Game game = new Game(new Board(9), new KoRule(), new GameClock(TimeControl.fischer(100, 0)));
+    GameSession session = new GameSession(game);
+    TimedClient c1 = new TimedClient();
+    TimedClient c2 = new TimedClient();
+    session.addPlayer("p1", c1);
+    session.addPlayer("p2", c2);
+    assertTrue(c2.received.stream().anyMatch(m -> m.startsWith("CLOCK ")));
+
+    assertTrue(c2.ended.await(5, TimeUnit.SECONDS));
+
+    assertTrue(c2.received.contains("TIMEOUT BLACK"), c2.received.toString());
+    assertTrue(c2.received.stream().anyMatch(m -> m.startsWith("RESULT WHITE ")));
+    assertEquals("EVENT GAME_ENDED", c2.received.get(c2.received.size() - 1));
+  }
+
+  @Test
+  void gameLeftToABotIsGivenUp() {
+    Game game = new Game(new Board(9));
+    List<GameSession> finished = new ArrayList<>();
+    GameSession session = new GameSession("1", game, finished::add, Mailbox.DIRECT);
+    List<Runnable> searches = new ArrayList<>();
+    session.addPlayer("p1", new FakeClient());
+    new BotPlayer(session, searches::add, 20).sit();
+    session.handleMove(new Move(Color.BLACK, 4, 4, "p1"));
+    assertEquals(1, searches.size());
+
+    session.removePlayer("p1");
+
+    assertEquals(List.of(session), finished);
+    assertTrue(session.isFinished());
+    // The bot's answer comes too late to be played
+    searches.get(0).run();
+    assertEquals(1, game.getMoves().size());
+    session.handleResign("p1");
+    assertFalse(game.isOver());
+  }
+
+  // Collects from whichever thread the clock's timer ends the game on
+  static class TimedClient extends ClientHandler {
+
+    final List<String> received = new CopyOnWriteArrayList<>();
+    // The event comes before and after the final state
+    final CountDownLatch ended = new CountDownLatch(2);
+
+    TimedClient() {
+      super(null, null);
+    }
+
+    @Override
+    void send(String msg) {
+      received.add(msg);
+      if (msg.equals("EVENT GAME_ENDED")) {
+        ended.countDown();
+      }
+    }
+  }
+
   static class FakeClient extends ClientHandler {
 
     String lastMessage;
+    final List<String> received = new ArrayList<>();
     boolean receivedErrorMessage = false;
 
     FakeClient() {
@@ -60,6 +186,7 @@ class GameSessionTest {
     @Override
     void send(String msg) {
       lastMessage = msg;
+      received.add(msg);
       if (msg.startsWith("ERROR")) {
         receivedErrorMessage = true;
       }
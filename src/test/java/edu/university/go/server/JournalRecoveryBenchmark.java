@@ -0,0 +1,121 @@
+package edu.university.go.server;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Time to rebuild a server's games from its {@link MoveJournal}.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.server.JournalRecoveryBenchmark \
+ *   -Dexec.args="10000 100 0"
+ * </pre>
+ *
+ * <p>Arguments: live games, moves per game, at most 100, and games that were played to the end
+ * before the live ones started. Every game is 19x19 under Fischer time, and its moves are
+ * interleaved with the other games' as on a busy server. Reports the records appended, the time to
+ * append and sync them, the size of the segments the journal kept, and the time {@link
+ * SessionRegistry#recover} takes to replay them, best of three after a warm-up.
+ */
+public class JournalRecoveryBenchmark {
+
+  // Records appended between waits for the disk
+  private static final int PACE = MoveJournal.BATCH_RECORDS * MoveJournal.MAX_BATCHES / 2;
+
+  public static void main(String[] args) throws IOException {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int moves = Math.min(args.length > 1 ? Integer.parseInt(args[1]) : 100, 100);
+    int ended = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+    Path dir = Files.createTempDirectory("journal");
+    try {
+      long start = System.nanoTime();
+      try (MoveJournal journal = new MoveJournal(dir)) {
+        write(journal, 1, ended, moves, true);
+        write(journal, ended + 1, games, moves, false);
+        journal.sync();
+      }
+      long writeMs = (System.nanoTime() - start) / 1_000_000;
+      long records = (long) ended * (moves + 4) + (long) games * (moves + 3);
+      long bytes = size(dir);
+
+      int recovered = recover(dir);
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < 3; run++) {
+        start = System.nanoTime();
+        recovered = recover(dir);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+
+      System.out.println(
+          "games,movesPerGame,endedGames,records,writeMs,journalMb,recoveredGames,recoverMs");
+      System.out.printf(
+          "%d,%d,%d,%d,%d,%.1f,%d,%d%n",
+          games, moves, ended, records, writeMs, bytes / 1048576.0, recovered, best / 1_000_000);
+    } finally {
+      try (Stream<Path> files = Files.walk(dir)) {
+        files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+      }
+    }
+  }
+
+  // As a server does on start, with the journal open so the segments of ended games are dropped
+  private static int recover(Path dir) throws IOException {
+    SessionRegistry registry = new SessionRegistry(19, "simple", Mailbox.DIRECT);
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      registry.journal(journal);
+      return registry.recover(dir);
+    }
+  }
+
+  private static long size(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.mapToLong(f -> f.toFile().length()).sum();
+    }
+  }
+
+  // Games from firstId on with stones on the points of even coordinates, which never touch, so
+  // every move is legal. Far faster than any server appends, so it waits for the disk now and then
+  // rather than run further ahead of it than the journal allows
+  private static void write(MoveJournal journal, long firstId, int games, int moves, boolean end)
+      throws IOException {
+    String[] players = new String[games * 2];
+    for (int g = 0; g < games; g++) {
+      journal.created(firstId + g, 19, "simple", TimeControl.fischer(3_600_000, 10_000));
+      for (int seat = 0; seat < 2; seat++) {
+        players[g * 2 + seat] = UUID.randomUUID().toString();
+        byte[] token = new byte[16];
+        ThreadLocalRandom.current().nextBytes(token);
+        Color color = seat == 0 ? Color.BLACK : Color.WHITE;
+        journal.seated(
+            firstId + g, color, players[g * 2 + seat], HexFormat.of().formatHex(token), false);
+      }
+    }
+    for (int m = 0; m < moves; m++) {
+      Color color = m % 2 == 0 ? Color.BLACK : Color.WHITE;
+      for (int g = 0; g < games; g++) {
+        String player = players[g * 2 + m % 2];
+        journal.moved(firstId + g, new Move(color, 2 * (m % 10), 2 * (m / 10), player));
+        if (((long) m * games + g) % PACE == PACE - 1) {
+          journal.sync();
+        }
+      }
+    }
+    if (end) {
+      for (int g = 0; g < games; g++) {
+        journal.ended(firstId + g);
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class MailboxTest {
+
+  @Test
+  void tasksRunOneAtATimeInOrder() throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    int mailboxes = 8;
+    int perSender = 5_000;
+    List<List<Integer>> seen = new ArrayList<>();
+    AtomicInteger overlaps = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(mailboxes * 2 * perSender);
+
+    try {
+      List<Thread> senders = new ArrayList<>();
+      for (int m = 0; m < mailboxes; m++) {
+        Mailbox mailbox = new Mailbox(pool);
+        List<Integer> log = new ArrayList<>(); // unsynchronized on purpose
+        AtomicInteger running = new AtomicInteger();
+        seen.add(log);
+        for (int sender = 0; sender < 2; sender++) {
+          int base = sender * perSender;
+          senders.add(
+              new Thread(
+                  () -> {
+                    for (int i = 0; i < perSender; i++) {
+                      int value = base + i;
+                      mailbox.execute(
+                          () -> {
+                            if (running.incrementAndGet() != 1) overlaps.incrementAndGet();
+                            log.add(value);
+                            running.decrementAndGet();
+                            done.countDown();
+                          });
+                    }
+                  }));
+        }
+      }
+      senders.forEach(Thread::start);
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(0, overlaps.get());
+    for (List<Integer> log : seen) {
+      assertEquals(2 * perSender, log.size());
+      // Each sender's tasks keep their relative order
+      int lastLow = -1;
+      int lastHigh = perSender - 1;
+      for (int value : log) {
+        if (value < perSender) {
+          assertTrue(value > lastLow);
+          lastLow = value;
+        } else {
+          assertTrue(value > lastHigh);
+          lastHigh = value;
+        }
+      }
+    }
+  }
+
+  @Test
+  void taskPostedFromATaskRunsAfterIt() {
+    Mailbox mailbox = new Mailbox(Mailbox.DIRECT);
+    List<String> order = new ArrayList<>();
+
+    mailbox.execute(
+        () -> {
+          mailbox.execute(() -> order.add("inner"));
+          order.add("outer");
+        });
+
+    assertEquals(List.of("outer", "inner"), order);
+  }
+}
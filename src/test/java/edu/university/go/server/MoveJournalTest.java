@@ -0,0 +1,181 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MoveJournalTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void readsBackWhatWasAppended() throws IOException {
+    String player = UUID.randomUUID().toString();
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      journal.created(7, 19, "ssk", TimeControl.byoyomi(600_000, 5, 30_000));
+      journal.seated(7, Color.WHITE, player, "00112233445566778899aabbccddeeff", true);
+      journal.moved(7, new Move(Color.BLACK, 3, 15, player));
+      journal.moved(7, Move.pass(Color.WHITE, player));
+      journal.ended(7);
+      journal.sync();
+    }
+
+    List<String> seen = new ArrayList<>();
+    MoveJournal.read(dir, r -> seen.add(describe(r)));
+
+    assertEquals(
+        List.of(
+            "7 CREATE 19 situational byoyomi:600+5x30",
+            "7 SEAT WHITE " + player + " 00112233445566778899aabbccddeeff bot",
+            "7 MOVE BLACK 3 15",
+            "7 PASS WHITE",
+            "7 END"),
+        seen);
+  }
+
+  @Test
+  void stopsAtATornRecord() throws IOException {
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      for (int i = 0; i < 3; i++) {
+        journal.moved(1, new Move(Color.BLACK, i, i, "p"));
+      }
+    }
+    Path segment = dir.resolve("journal-000001.log");
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      // Corrupt the second record, then leave half a record at the end
+      channel.write(ByteBuffer.wrap(new byte[] {42}), MoveJournal.RECORD_BYTES + 20);
+      channel.write(ByteBuffer.allocate(MoveJournal.RECORD_BYTES / 2), channel.size());
+    }
+
+    List<String> seen = new ArrayList<>();
+    MoveJournal.read(dir, r -> seen.add(describe(r)));
+
+    assertEquals(List.of("1 MOVE BLACK 0 0"), seen);
+  }
+
+  @Test
+  void reopeningStartsANewSegment() throws IOException {
+    new MoveJournal(dir).close();
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      journal.ended(3);
+    }
+
+    List<String> seen = new ArrayList<>();
+    MoveJournal.read(dir, r -> seen.add(describe(r)));
+
+    assertEquals(List.of("3 END"), seen);
+    assertTrue(dir.resolve("journal-000002.log").toFile().length() > 0);
+  }
+
+  @Test
+  void dropsSegmentsWhoseGamesHaveAllEnded() throws IOException {
+    // A segment per record: 1 has game 1's CREATE, 2 game 2's, 3 game 1's END
+    try (MoveJournal journal = new MoveJournal(dir, MoveJournal.RECORD_BYTES)) {
+      journal.created(1, 9, "simple", TimeControl.NONE);
+      journal.sync();
+      journal.created(2, 9, "simple", TimeControl.NONE);
+      journal.sync();
+      journal.ended(1);
+      journal.sync();
+
+      assertFalse(Files.exists(dir.resolve("journal-000001.log")));
+      assertTrue(Files.exists(dir.resolve("journal-000002.log")));
+      assertFalse(Files.exists(dir.resolve("journal-000003.log")));
+    }
+
+    List<String> seen = new ArrayList<>();
+    MoveJournal.read(dir, r -> seen.add(describe(r)));
+    assertEquals(List.of("2 CREATE 9 simple none"), seen);
+  }
+
+  @Test
+  void replayDropsOldSegmentsOnceTheirGamesEnd() throws IOException {
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      journal.created(1, 9, "simple", TimeControl.NONE);
+      journal.created(2, 9, "simple", TimeControl.NONE);
+      journal.ended(1);
+    }
+
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      List<String> seen = new ArrayList<>();
+      journal.replay(r -> seen.add(describe(r)));
+      assertEquals(List.of("1 CREATE 9 simple none", "2 CREATE 9 simple none", "1 END"), seen);
+      // Game 2 is still live there
+      assertTrue(Files.exists(dir.resolve("journal-000001.log")));
+
+      journal.ended(2);
+      journal.created(3, 9, "simple", TimeControl.NONE);
+      journal.sync();
+      assertFalse(Files.exists(dir.resolve("journal-000001.log")));
+    }
+  }
+
+  @Test
+  void appendsRunAheadOfTheDiskByWholeBuffers() throws IOException {
+    int records = 3 * MoveJournal.BATCH_RECORDS;
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      for (int i = 0; i < records; i++) {
+        journal.moved(i, new Move(Color.BLACK, i % 19, i / 19 % 19, "p"));
+      }
+      journal.sync();
+    }
+
+    long[] seen = {0};
+    MoveJournal.read(dir, r -> assertEquals(seen[0]++, r.gameId()));
+    assertEquals(records, seen[0]);
+  }
+
+  @Test
+  void stopsTakingRecordsOnceAWriteFails() throws Exception {
+    CompletableFuture<IOException> failed = new CompletableFuture<>();
+    MoveJournal journal = new MoveJournal(dir, MoveJournal.RECORD_BYTES);
+    journal.onFailure(failed::complete);
+    // Taken, so the journal cannot move on to it after its first record
+    Files.createFile(dir.resolve("journal-000002.log"));
+    journal.created(1, 9, "simple", TimeControl.NONE);
+
+    assertNotNull(failed.get(5, TimeUnit.SECONDS));
+    journal.created(2, 9, "simple", TimeControl.NONE);
+    assertThrows(IOException.class, journal::sync);
+    assertThrows(IOException.class, journal::close);
+    List<String> seen = new ArrayList<>();
+    MoveJournal.read(dir, r -> seen.add(describe(r)));
+    assertEquals(List.of("1 CREATE 9 simple none"), seen);
+  }
+
+  private static String describe(MoveJournal.Record r) {
+    String head = r.gameId() + " ";
+    return switch (r.type()) {
+      case MoveJournal.CREATE ->
+          head + "CREATE " + r.boardSize() + " " + r.koRule() + " " + r.timeControl();
+      case MoveJournal.SEAT ->
+          head
+              + "SEAT "
+              + r.color()
+              + " "
+              + r.playerId()
+              + " "
+              + r.resumeToken()
+              + (r.bot() ? " bot" : "");
+      case MoveJournal.MOVE -> head + "MOVE " + r.color() + " " + r.x() + " " + r.y();
+      case MoveJournal.PASS -> head + "PASS " + r.color();
+      case MoveJournal.RESIGN -> head + "RESIGN " + r.color();
+      default -> head + "END";
+    };
+  }
+}
@@ -0,0 +1,140 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NioTransportTest {
+
+  private NioTransport transport;
+  private int port;
+
+  @BeforeEach
+  void start() throws IOException {
+    transport = new NioTransport(new SessionRegistry(9, "simple"), 2);
+    port = transport.start(0);
+  }
+
+  @AfterEach
+  void stop() throws IOException {
+    transport.close();
+  }
+
+  @Test
+  void playersOnDifferentLoopsShareAGame() throws IOException {
+    try (Client black = new Client(port);
+        Client white = new Client(port)) {
+      assertTrue(black.readLine().startsWith("CONNECTED "));
+      assertTrue(white.readLine().startsWith("CONNECTED "));
+
+      black.write("JOIN\n");
+      black.await("COLOR BLACK");
+      white.write("JOIN\n");
+      white.await("COLOR WHITE");
+      black.await("EVENT GAME_STARTED");
+
+      black.write("MOVE 2 3 BLACK\n");
+      white.await("EVENT MOVE_PLAYED");
+      white.await("TURN WHITE");
+    }
+  }
+
+  @Test
+  void linesSplitAcrossPacketsAreReassembled() throws IOException {
+    try (Client client = new Client(port)) {
+      client.readLine();
+
+      client.write("LI");
+      client.write("ST\r\nLIST\n");
+
+      assertEquals("GAMES 0", client.readLine());
+      assertEquals("GAMES 0", client.readLine());
+    }
+  }
+
+  @Test
+  void overlongLineClosesTheConnection() throws IOException {
+    try (Client client = new Client(port)) {
+      client.readLine();
+
+      client.write("X".repeat(NioTransport.MAX_LINE));
+
+      assertEquals("ERROR: Line too long", client.readLine());
+      assertNull(client.readLine());
+    }
+  }
+
+  @Test
+  void binaryClientPlaysAgainstTextClient() throws IOException {
+    edu.university.go.client.Client black =
+        new edu.university.go.client.Client("localhost", port, true);
+    try (Client white = new Client(port)) {
+      black.connect();
+      assertTrue(black.receive().startsWith("CONNECTED "));
+      white.readLine();
+
+      black.send("UPDATES DELTA");
+      assertEquals("UPDATES DELTA", black.receive());
+      black.send("CREATE 9");
+      String id = black.receive().substring("CREATED ".length());
+      white.write("JOIN " + id + "\n");
+      white.await("EVENT GAME_STARTED");
+
+      black.send("MOVE 4 4 BLACK");
+      white.await("EVENT MOVE_PLAYED");
+      String line;
+      while (!(line = black.receive()).startsWith("DELTA ")) {
+        // skip the game start
+      }
+      assertEquals("DELTA 1 B 40", line);
+    } finally {
+      black.close();
+    }
+  }
+
+  private static final class Client implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final OutputStream out;
+
+    Client(int port) throws IOException {
+      socket = new Socket("localhost", port);
+      socket.setSoTimeout(5000);
+      in =
+          new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      out = socket.getOutputStream();
+    }
+
+    String readLine() throws IOException {
+      return in.readLine();
+    }
+
+    void write(String text) throws IOException {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    }
+
+    void await(String expected) throws IOException {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.equals(expected)) return;
+      }
+      fail("Connection closed before " + expected);
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.Move;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class OutboxTest {
+
+  @Test
+  void oneWritePerFlush() {
+    RecordingConnection connection = new RecordingConnection();
+    Outbox outbox = new Outbox(connection, 8, Mailbox.DIRECT);
+
+    assertTrue(outbox.offer("TURN WHITE"));
+    assertTrue(outbox.offer("EVENT MOVE_PLAYED"));
+    assertTrue(connection.batches.isEmpty());
+    outbox.flush();
+    outbox.flush();
+
+    assertEquals(List.of(List.of("TURN WHITE", "EVENT MOVE_PLAYED")), connection.batches);
+  }
+
+  @Test
+  void refusesLinesPastItsCapacity() {
+    Outbox outbox = new Outbox(new RecordingConnection(), 2, Mailbox.DIRECT);
+
+    assertTrue(outbox.offer("a"));
+    assertTrue(outbox.offer("b"));
+    assertFalse(outbox.offer("c"));
+    outbox.clear();
+    assertTrue(outbox.offer("c"));
+  }
+
+  @Test
+  void sharedUpdatesCopyTheirEncodingOnce() {
+    SharedUpdate update = new SharedUpdate(List.of("TURN WHITE", "EVENT MOVE_PLAYED"));
+    ByteBuffer out = ByteBuffer.allocate(64);
+
+    Outbox.encode(update, out, null);
+    Outbox.encode("GAMES 0", out, null);
+
+    assertEquals(
+        "TURN WHITE\nEVENT MOVE_PLAYED\nGAMES 0\n",
+        new String(out.array(), 0, out.position(), StandardCharsets.UTF_8));
+    assertTrue(update.size(true) < update.size(false));
+  }
+
+  @Test
+  void sessionWritesEachEventAsOneBatch() {
+    Game game = new Game(new Board(9));
+    GameSession session = new GameSession(game);
+    RecordingConnection black = new RecordingConnection();
+    RecordingConnection white = new RecordingConnection();
+    session.addPlayer("b", ClientHandler.inLobby(black, null));
+    session.addPlayer("w", ClientHandler.inLobby(white, null));
+    black.batches.clear();
+
+    session.handleMove(new Move(Color.BLACK, 4, 4, "b"));
+
+    assertEquals(1, black.batches.size());
+    List<Object> lines = black.batches.get(0);
+    assertEquals("EVENT MOVE_PLAYED", lines.get(0));
+    assertEquals("EVENT MOVE_PLAYED", lines.get(lines.size() - 1));
+  }
+
+  @Test
+  void disconnectPolicyClosesAnOverflowingClient() {
+    RecordingConnection connection = new RecordingConnection();
+    ClientHandler handler =
+        ClientHandler.inLobby(connection, null).slowConsumers(SlowConsumerPolicy.DISCONNECT);
+
+    for (int i = 0; i <= ClientHandler.OUTBOX_CAPACITY; i++) {
+      handler.send("GAMES 0");
+    }
+    handler.flush();
+
+    assertTrue(connection.closed);
+    assertTrue(connection.batches.isEmpty());
+  }
+
+  @Test
+  void snapshotPolicySkipsToTheBoardOnceDrained() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    RecordingConnection connection = new RecordingConnection();
+    ClientHandler slow = ClientHandler.inLobby(connection, registry);
+    slow.handleCommand("UPDATES DELTA");
+    slow.handleCommand("CREATE 9");
+    String id = registry.all().iterator().next().getId();
+    ClientHandler.inLobby(new RecordingConnection(), registry).handleCommand("JOIN " + id);
+    connection.batches.clear();
+
+    for (int i = 0; i <= ClientHandler.OUTBOX_CAPACITY; i++) {
+      slow.send("stale");
+    }
+    slow.send("dropped while behind");
+    slow.flush();
+    assertTrue(connection.batches.isEmpty());
+
+    slow.drained();
+
+    assertEquals(1, connection.batches.size());
+    List<Object> lines = connection.batches.get(0);
+    assertTrue(lines.get(0).toString().startsWith("SNAPSHOT 0 9 "), lines.get(0).toString());
+    assertEquals(List.of("CAPTURED 0 0", "TURN BLACK"), lines.subList(1, 3));
+    assertFalse(connection.closed);
+  }
+
+  static class RecordingConnection implements Connection {
+
+    // Written from whichever thread flushes
+    final List<List<Object>> batches = new CopyOnWriteArrayList<>();
+    volatile boolean closed;
+
+    @Override
+    public void write(List<Object> batch) {
+      batches.add(new ArrayList<>(batch));
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
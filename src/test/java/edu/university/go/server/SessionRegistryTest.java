@@ -0,0 +1,358 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.archive.GameArchive;
+import edu.university.go.archive.GameRecord;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import edu.university.go.game.TimeControl;
+import edu.university.go.sgf.SgfWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SessionRegistryTest {
+
+  @Test
+  void quickMatchPairsPlayersIntoOneGame() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+
+    GameSession first = registry.quickMatch();
+    GameSession second = registry.quickMatch();
+    GameSession third = registry.quickMatch();
+
+    assertSame(first, second);
+    assertNotSame(first, third);
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  void journaledGamesAreRebuiltAfterARestart(@TempDir Path dir) throws Exception {
+    SessionRegistry before = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    MoveJournal journal = new MoveJournal(dir);
+    before.journal(journal);
+    OutboxTest.RecordingConnection black = new OutboxTest.RecordingConnection();
+    ClientHandler alice = ClientHandler.inLobby(black, before);
+    ClientHandler bob = ClientHandler.inLobby(new OutboxTest.RecordingConnection(), before);
+    alice.handleCommand("CREATE 9 psk fischer:600+5");
+    String id = before.all().iterator().next().getId();
+    bob.handleCommand("JOIN " + id);
+    alice.handleCommand("MOVE 2 2 BLACK");
+    bob.handleCommand("MOVE 6 6 WHITE");
+    alice.handleCommand("MOVE 9 9 BLACK"); // refused, not journaled
+    alice.handleCommand("MOVE 2 3 BLACK");
+    // A second game that ends is not rebuilt
+    ClientHandler carol = ClientHandler.inLobby(new OutboxTest.RecordingConnection(), before);
+    carol.handleCommand("CREATE 9");
+    carol.closed();
+    journal.close();
+
+    SessionRegistry after = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    assertEquals(1, after.recover(dir));
+
+    GameSession rebuilt = after.get(id);
+    assertNotNull(rebuilt);
+    OutboxTest.RecordingConnection back = new OutboxTest.RecordingConnection();
+    ClientHandler.inLobby(back, after).handleCommand("RESUME " + alice.getResumeToken());
+    List<Object> resumed = back.batches.get(0);
+    assertEquals(List.of("RESUMED " + id, "BOARDSIZE 9", "COLOR BLACK"), resumed.subList(0, 3));
+    assertTrue(resumed.contains("TURN WHITE"), resumed.toString());
+    assertTrue(resumed.stream().anyMatch(line -> line.toString().startsWith("CLOCK ")));
+    assertTrue(resumed.contains(" 3   .  .  B  .  .  .  .  .  ."), resumed.toString());
+
+    // New games continue the numbering
+    assertNotEquals(id, after.create().getId());
+    assertNotEquals("2", after.create().getId());
+  }
+
+  @Test
+  void gamesThatNoLongerReplayAreGivenUp(@TempDir Path dir) throws Exception {
+    String black = UUID.randomUUID().toString();
+    String white = UUID.randomUUID().toString();
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      journal.created(5, 9, "simple", TimeControl.NONE);
+      journal.seated(5, Color.BLACK, black, "00112233445566778899aabbccddeeff", false);
+      journal.seated(5, Color.WHITE, white, "ffeeddccbbaa99887766554433221100", false);
+      journal.moved(5, new Move(Color.BLACK, 2, 2, black));
+      // On the stone just played, then a move that would replay fine after it
+      journal.moved(5, new Move(Color.WHITE, 2, 2, white));
+      journal.moved(5, new Move(Color.BLACK, 3, 3, black));
+    }
+
+    SessionRegistry after = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    try (MoveJournal journal = new MoveJournal(dir)) {
+      after.journal(journal);
+      assertEquals(0, after.recover(dir));
+    }
+
+    assertNull(after.get("5"));
+    List<Byte> types = new ArrayList<>();
+    MoveJournal.read(dir, r -> types.add(r.type()));
+    assertEquals(MoveJournal.END, types.get(types.size() - 1));
+  }
+
+  @Test
+  void playersHearOfAMoveOnlyOnceItIsJournaled(@TempDir Path dir) throws Exception {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    MoveJournal journal = new MoveJournal(dir);
+    registry.journal(journal);
+    List<Integer> movesOnDisk = new CopyOnWriteArrayList<>();
+    List<Thread> writers = new CopyOnWriteArrayList<>();
+    CountDownLatch whiteToPlay = new CountDownLatch(1);
+    Connection watching =
+        new Connection() {
+          @Override
+          public void write(List<Object> batch) {
+            if (!batch.contains("TURN WHITE")) return;
+            List<Byte> types = new ArrayList<>();
+            try {
+              MoveJournal.read(dir, r -> types.add(r.type()));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            movesOnDisk.add((int) types.stream().filter(t -> t == MoveJournal.MOVE).count());
+            writers.add(Thread.currentThread());
+            whiteToPlay.countDown();
+          }
+
+          @Override
+          public void close() {}
+        };
+    ClientHandler alice = ClientHandler.inLobby(new OutboxTest.RecordingConnection(), registry);
+    ClientHandler bob = ClientHandler.inLobby(watching, registry);
+    alice.handleCommand("CREATE 9");
+    bob.handleCommand("JOIN " + registry.all().iterator().next().getId());
+    alice.handleCommand("MOVE 4 4 BLACK");
+
+    assertTrue(whiteToPlay.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of(1), movesOnDisk);
+    // Not written along with the move, whatever the session's pool, but once the sync was done
+    assertNotSame(Thread.currentThread(), writers.get(0));
+    journal.close();
+  }
+
+  @Test
+  void aFailedJournalClosesTheGamesAndRefusesNewOnes(@TempDir Path dir) throws Exception {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    MoveJournal journal = new MoveJournal(dir, MoveJournal.RECORD_BYTES);
+    registry.journal(journal);
+    OutboxTest.RecordingConnection black = new OutboxTest.RecordingConnection();
+    ClientHandler.inLobby(black, registry).handleCommand("CREATE 9");
+    GameSession session = registry.all().iterator().next();
+    journal.sync();
+
+    // The journal cannot move on to its next segment
+    Files.createFile(dir.resolve("journal-000003.log"));
+    journal.created(99, 9, "simple", TimeControl.NONE);
+    for (int i = 0; i < 500 && !black.closed; i++) {
+      Thread.sleep(10);
+    }
+
+    assertTrue(black.closed);
+    assertTrue(session.isFinished());
+    assertEquals(0, registry.size());
+    RecordingClient late = new RecordingClient(registry);
+    late.handleCommand("CREATE 9");
+    assertTrue(
+        late.messages.get(0).startsWith("ERROR: Games cannot be recorded"),
+        late.messages.toString());
+    assertThrows(IOException.class, journal::close);
+  }
+
+  @Test
+  void journaledBotGamesComeBackWithTheirBot(@TempDir Path dir) throws Exception {
+    ExecutorService thinkers = Executors.newSingleThreadExecutor();
+    try {
+      SessionRegistry before = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+      MoveJournal journal = new MoveJournal(dir);
+      before.journal(journal);
+      before.bots(thinkers, 20);
+      OutboxTest.RecordingConnection first = new OutboxTest.RecordingConnection();
+      ClientHandler human = ClientHandler.inLobby(first, before);
+      human.handleCommand("BOT 9");
+      // The game start goes out once the bot's seat is journaled
+      for (int i = 0; i < 500 && first.batches.size() < 2; i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(
+          first.batches.stream().anyMatch(b -> b.contains("EVENT GAME_STARTED")),
+          first.batches.toString());
+      journal.close();
+
+      SessionRegistry after = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+      after.bots(thinkers, 20);
+      assertEquals(1, after.recover(dir));
+      // Once on resuming, once after the bot's answer
+      CountDownLatch blackToPlay = new CountDownLatch(2);
+      Connection back =
+          new Connection() {
+            @Override
+            public void write(List<Object> batch) {
+              batch.stream().filter("TURN BLACK"::equals).forEach(line -> blackToPlay.countDown());
+            }
+
+            @Override
+            public void close() {}
+          };
+      ClientHandler resumed = ClientHandler.inLobby(back, after);
+      resumed.handleCommand("RESUME " + human.getResumeToken());
+      resumed.handleCommand("MOVE 4 4 BLACK");
+
+      assertTrue(blackToPlay.await(5, TimeUnit.SECONDS));
+    } finally {
+      thinkers.shutdownNow();
+    }
+  }
+
+  @Test
+  void lobbyCommandsCreateJoinAndList() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    RecordingClient alice = new RecordingClient(registry);
+    RecordingClient bob = new RecordingClient(registry);
+
+    alice.handleCommand("CREATE 13 positional");
+    String id = alice.messages.get(0).substring("CREATED ".length());
+    assertTrue(alice.messages.contains("BOARDSIZE 13"));
+
+    bob.handleCommand("LIST");
+    assertTrue(bob.messages.contains("GAMES 1"));
+    assertTrue(bob.messages.contains("GAME " + id + " 13 1"));
+
+    bob.handleCommand("JOIN " + id);
+    assertTrue(bob.messages.contains("JOINED " + id));
+    assertTrue(bob.messages.contains("COLOR WHITE"));
+    assertTrue(registry.listOpen(10).isEmpty());
+  }
+
+  @Test
+  void commandsOutsideAGameAreRejected() {
+    RecordingClient client = new RecordingClient(new SessionRegistry(9, "simple", Mailbox.DIRECT));
+
+    client.handleCommand("MOVE 1 1 BLACK");
+    client.handleCommand("JOIN 42");
+
+    assertTrue(client.messages.get(0).startsWith("ERROR"));
+    assertTrue(client.messages.get(1).startsWith("ERROR"));
+  }
+
+  @Test
+  void finishedGameIsRemoved() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    RecordingClient black = new RecordingClient(registry);
+    RecordingClient white = new RecordingClient(registry);
+
+    black.handleCommand("JOIN");
+    white.handleCommand("JOIN");
+    assertEquals(1, registry.size());
+
+    black.handleCommand("RESIGN");
+
+    assertEquals(0, registry.size());
+    black.handleCommand("MOVE 1 1 BLACK");
+    assertTrue(black.messages.get(black.messages.size() - 1).startsWith("ERROR: Not in a game"));
+  }
+
+  @Test
+  void finishedGameDropsOnlyItsOwnSeats() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    RecordingClient black = new RecordingClient(registry);
+    RecordingClient white = new RecordingClient(registry);
+    RecordingClient other = new RecordingClient(registry);
+    black.handleCommand("JOIN");
+    white.handleCommand("JOIN");
+    other.handleCommand("CREATE 9");
+    assertNotNull(registry.seat(black.getResumeToken()));
+
+    black.handleCommand("RESIGN");
+
+    assertNull(registry.seat(black.getResumeToken()));
+    assertNull(registry.seat(white.getResumeToken()));
+    assertNotNull(registry.seat(other.getResumeToken()));
+  }
+
+  @Test
+  void finishedGamesAreArchivedAsSgf() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    StringWriter archive = new StringWriter();
+    registry.archive(new SgfWriter(archive));
+    RecordingClient black = new RecordingClient(registry);
+    RecordingClient white = new RecordingClient(registry);
+    black.handleCommand("JOIN");
+    white.handleCommand("JOIN");
+
+    black.handleCommand("MOVE 2 3 BLACK");
+    white.handleCommand("PASS");
+    black.handleCommand("RESIGN");
+    // Given up before its end, so not archived
+    new RecordingClient(registry).handleCommand("CREATE 9");
+    registry.all().forEach(session -> registry.remove(session));
+
+    String sgf = archive.toString();
+    assertTrue(sgf.startsWith("(;GM[1]FF[4]CA[UTF-8]AP[go-game]SZ[9]KM[7.5]PB["), sgf);
+    assertTrue(sgf.endsWith("RE[W+R];B[cd];W[])\n"), sgf);
+    assertEquals(0, sgf.lastIndexOf("(;"), sgf);
+  }
+
+  @Test
+  void finishedGamesAreStoredById(@TempDir Path dir) throws IOException {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    try (GameArchive store = new GameArchive(dir)) {
+      registry.store(store);
+      RecordingClient black = new RecordingClient(registry);
+      RecordingClient white = new RecordingClient(registry);
+      black.handleCommand("JOIN");
+      white.handleCommand("JOIN");
+
+      black.handleCommand("MOVE 2 3 BLACK");
+      white.handleCommand("RESIGN");
+      new RecordingClient(registry).handleCommand("CREATE 9");
+      registry.all().forEach(session -> registry.remove(session));
+
+      assertEquals(1, store.size());
+      GameRecord game = store.read(0);
+      assertEquals(GameRecord.Ending.RESIGNATION, game.ending());
+      assertEquals(Color.BLACK, game.result().winner());
+      assertEquals(2, game.moves().size());
+      assertEquals("B+R", game.sgfResult());
+    }
+  }
+
+  @Test
+  void abandonedWaitingGameIsRemoved() {
+    SessionRegistry registry = new SessionRegistry(9, "simple", Mailbox.DIRECT);
+    GameSession session = registry.quickMatch();
+    session.addPlayer("p1", new RecordingClient(registry));
+
+    session.removePlayer("p1");
+
+    assertEquals(0, registry.size());
+    assertNotSame(session, registry.quickMatch());
+  }
+
+  static class RecordingClient extends ClientHandler {
+
+    final List<String> messages = new ArrayList<>();
+
+    RecordingClient(SessionRegistry registry) {
+      super(null, registry, null);
+    }
+
+    @Override
+    void send(String msg) {
+      messages.add(msg);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package edu.university.go.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  @Test
+  void firesTasksNoEarlierThanTheirDelay() throws InterruptedException {
+    // A small ring, so the longer delays wrap around it
+    TimingWheel wheel = new TimingWheel(5, 4, "test-timers");
+    int[] delays = {0, 3, 20, 45, 120};
+    CountDownLatch fired = new CountDownLatch(delays.length);
+    long start = System.nanoTime();
+    AtomicBoolean early = new AtomicBoolean();
+
+    for (int delay : delays) {
+      wheel.schedule(
+          () -> {
+            if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(delay)) {
+              early.set(true);
+            }
+            fired.countDown();
+          },
+          delay);
+    }
+
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertFalse(early.get());
+  }
+
+  @Test
+  void cancelledTasksDoNotRun() throws InterruptedException {
+    TimingWheel wheel = new TimingWheel(5, 8, "test-timers");
+    AtomicBoolean ran = new AtomicBoolean();
+    CountDownLatch later = new CountDownLatch(1);
+
+    TimingWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 20);
+    timeout.cancel();
+    wheel.schedule(later::countDown, 60);
+
+    assertTrue(later.await(5, TimeUnit.SECONDS));
+    assertFalse(ran.get());
+    assertTrue(timeout.isCancelled());
+  }
+}
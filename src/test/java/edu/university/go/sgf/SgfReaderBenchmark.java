@@ -0,0 +1,128 @@
+package edu.university.go.sgf;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Move;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of {@link SgfReader} on a large SGF collection, against reading the same file without
+ * parsing it.
+ *
+ * <p>Not a unit test; run it by hand, e.g.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=edu.university.go.sgf.SgfReaderBenchmark \
+ *   -Dexec.args="1024"
+ * </pre>
+ *
+ * <p>The argument is the size of the collection in MB, written to a temporary file of random 19x19
+ * games of 200 moves. Both passes read it from the page cache, best of three, so the raw pass is
+ * the ceiling the reader is measured against.
+ */
+public class SgfReaderBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 1024;
+    Path file = Files.createTempFile("collection", ".sgf");
+    try {
+      long games = write(file, megabytes << 20);
+      long bytes = Files.size(file);
+
+      long raw = Long.MAX_VALUE;
+      long parsed = Long.MAX_VALUE;
+      long moves = 0;
+      for (int run = 0; run < 3; run++) {
+        long start = System.nanoTime();
+        readRaw(file);
+        raw = Math.min(raw, System.nanoTime() - start);
+
+        long[] counted = new long[1];
+        start = System.nanoTime();
+        long read =
+            new SgfReader()
+                .read(
+                    file,
+                    new SgfListener() {
+                      @Override
+                      public void movePlayed(Board board, Color color, int x, int y) {
+                        counted[0]++;
+                      }
+                    });
+        parsed = Math.min(parsed, System.nanoTime() - start);
+        moves = counted[0];
+        if (read != games) {
+          throw new IllegalStateException("Read " + read + " of " + games + " games");
+        }
+      }
+
+      System.out.println("mb,games,moves,rawMbPerSec,parsedMbPerSec,movesPerSec");
+      System.out.printf(
+          "%d,%d,%d,%.0f,%.0f,%.0f%n",
+          bytes >> 20,
+          games,
+          moves,
+          bytes / 1048576.0 / (raw / 1e9),
+          bytes / 1048576.0 / (parsed / 1e9),
+          moves / (parsed / 1e9));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  // A few hundred distinct games, repeated up to the size asked for
+  private static long write(Path file, long bytes) throws IOException {
+    Random random = new Random(42);
+    StringWriter distinct = new StringWriter();
+    SgfWriter sgf = new SgfWriter(distinct);
+    for (int g = 0; g < 500; g++) {
+      sgf.write(19, 6.5, "black" + g, "white" + g, "B+R", randomGame(random));
+    }
+    String chunk = distinct.toString();
+    long games = 0;
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (long written = 0; written < bytes; written += chunk.length()) {
+        out.write(chunk);
+        games += 500;
+      }
+    }
+    return games;
+  }
+
+  private static List<Move> randomGame(Random random) {
+    Board board = new Board(19);
+    List<Move> moves = new ArrayList<>();
+    Color color = Color.BLACK;
+    for (int i = 0; i < 200; i++) {
+      BitSet legal = board.legalMoves(color);
+      int count = legal.cardinality();
+      if (count == 0) break;
+      int point = legal.nextSetBit(0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        point = legal.nextSetBit(point + 1);
+      }
+      board.placeStone(color, point % 19, point / 19);
+      moves.add(new Move(color, point % 19, point / 19, color.name()));
+      color = color.opposite();
+    }
+    return moves;
+  }
+
+  private static void readRaw(Path file) throws IOException {
+    byte[] buffer = new byte[SgfReader.BUFFER_BYTES];
+    try (InputStream in = Files.newInputStream(file)) {
+      while (in.read(buffer) >= 0) {}
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package edu.university.go.sgf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SgfReaderTest {
+
+  private final SgfReader reader = new SgfReader();
+  private final RecordingListener listener = new RecordingListener();
+
+  @Test
+  void replaysTheMainLineOfEveryGame() throws IOException {
+    String sgf =
+        "\uFEFF(;FF[4]GM[1]SZ[9]KM[6.5]PB[Alice]PW[B\\]ob]RE[B+R]C[a (comment); B[aa\\] is no move]\n"
+            + "  ;B[cd];W[]\n"
+            + "  (;B[ee]  ;W[tt] (;B[ff]) (;B[gg]))\n"
+            + "  (;B[hh]C[second variation]))\n"
+            + "(;SZ[13]CoPyright[old style]FF[3];W[ab])";
+
+    assertEquals(2, reader.read(trickle(sgf), listener));
+
+    assertEquals(
+        List.of(
+            "start 9 6.5 Alice B]ob B+R",
+            "BLACK 2 3",
+            "WHITE pass",
+            "BLACK 4 4",
+            "WHITE pass",
+            "BLACK 5 5",
+            "end true",
+            "start 13 0.0 null null null",
+            "WHITE 0 1",
+            "end true"),
+        listener.events);
+  }
+
+  @Test
+  void setupStonesAreOnTheBoardWhenTheGameStarts() throws IOException {
+    String sgf = "(;SZ[5]HA[2]AB[ab][ba]AW[cc:dd];W[aa])";
+
+    reader.read(trickle(sgf), listener);
+
+    assertEquals(6, listener.stonesAtStart);
+    // White's move into the corner is suicide
+    assertEquals(List.of("start 5 0.0 null null null", "end false"), listener.events);
+    assertEquals(Color.WHITE, listener.board.get(3, 3));
+  }
+
+  @Test
+  void anIllegalMoveStopsOnlyItsGame() throws IOException {
+    String sgf = "(;SZ[9];B[aa];W[aa];B[bb]) (;SZ[9];B[ba];W[aa];B[ab]) (;SZ[9];B[ee]";
+
+    assertEquals(3, reader.read(trickle(sgf), listener));
+
+    assertEquals(
+        List.of(
+            "start 9 0.0 null null null",
+            "BLACK 0 0",
+            "end false",
+            "start 9 0.0 null null null",
+            "BLACK 1 0",
+            "WHITE 0 0",
+            "BLACK 0 1",
+            "end true",
+            "start 9 0.0 null null null",
+            "BLACK 4 4",
+            "end false"),
+        listener.events);
+    // One board for every game of a size, cleared in between
+    assertEquals(1, listener.boards.stream().distinct().count());
+    assertEquals(Color.EMPTY, listener.board.get(1, 0));
+    assertEquals(Color.BLACK, listener.board.get(4, 4));
+  }
+
+  @Test
+  void rejectsStrayBytesInsideAGame() {
+    assertThrows(
+        IllegalArgumentException.class, () -> reader.read(trickle("(;SZ[9];B[aa]+)"), listener));
+    assertThrows(IllegalArgumentException.class, () -> reader.read(trickle("(;B[aa]))"), listener));
+  }
+
+  // Hands the reader a few bytes at a time, so tokens straddle its reads
+  private static InputStream trickle(String sgf) {
+    return new ByteArrayInputStream(sgf.getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+  }
+
+  static class RecordingListener implements SgfListener {
+
+    final List<String> events = new ArrayList<>();
+    final List<Board> boards = new ArrayList<>();
+    Board board;
+    int stonesAtStart;
+
+    @Override
+    public void gameStarted(SgfReader.GameInfo info, Board board) {
+      this.board = board;
+      boards.add(board);
+      stonesAtStart = 0;
+      for (int y = 0; y < board.getSize(); y++) {
+        for (int x = 0; x < board.getSize(); x++) {
+          if (board.get(x, y) != Color.EMPTY) stonesAtStart++;
+        }
+      }
+      events.add(
+          "start "
+              + info.getSize()
+              + " "
+              + info.getKomi()
+              + " "
+              + info.getBlack()
+              + " "
+              + info.getWhite()
+              + " "
+              + info.getResult());
+    }
+
+    @Override
+    public void movePlayed(Board board, Color color, int x, int y) {
+      events.add(color + (x < 0 ? " pass" : " " + x + " " + y));
+    }
+
+    @Override
+    public void gameEnded(Board board, boolean complete) {
+      events.add("end " + complete);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package edu.university.go.sgf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.Move;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SgfWriterTest {
+
+  @Test
+  void writesTheMoveHistoryOfAGame() throws IOException {
+    Game game = new Game(new Board(9));
+    game.addPlayer("b");
+    game.addPlayer("w");
+    game.makeMove(new Move(Color.BLACK, 2, 3, "b"));
+    game.makeMove(Move.pass(Color.WHITE, "w"));
+    game.makeMove(Move.resign(Color.BLACK, "b"));
+    StringWriter out = new StringWriter();
+
+    new SgfWriter(out).write(9, 6.5, "Al]ce", null, "W+R", game.getMoves());
+
+    assertEquals(
+        "(;GM[1]FF[4]CA[UTF-8]AP[go-game]SZ[9]KM[6.5]PB[Al\\]ce]RE[W+R];B[cd];W[])\n",
+        out.toString());
+  }
+
+  @Test
+  void appendsToAFileAndSyncsIt(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("games.sgf");
+    for (int i = 0; i < 2; i++) {
+      try (SgfWriter writer = SgfWriter.append(file)) {
+        writer.write(9, 6.5, null, null, null, List.of());
+        writer.sync();
+        assertEquals(i + 1, Files.readAllLines(file).size());
+      }
+    }
+  }
+
+  @Test
+  void readsBackToTheSamePosition() throws IOException {
+    Game game = new Game(new Board(9));
+    game.addPlayer("b");
+    game.addPlayer("w");
+    int[][] moves = {{1, 0}, {0, 0}, {0, 1}, {4, 4}, {8, 8}, {8, 7}, {7, 8}};
+    for (int i = 0; i < moves.length; i++) {
+      Color color = i % 2 == 0 ? Color.BLACK : Color.WHITE;
+      game.makeMove(new Move(color, moves[i][0], moves[i][1], i % 2 == 0 ? "b" : "w"));
+    }
+    StringWriter out = new StringWriter();
+    SgfWriter writer = new SgfWriter(out);
+    writer.write(9, 7.5, "b", "w", "B+2.5", game.getMoves());
+    writer.write(9, 7.5, "b", "w", "B+2.5", game.getMoves());
+
+    Board[] replayed = new Board[1];
+    long games =
+        new SgfReader()
+            .read(
+                new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)),
+                new SgfListener() {
+                  @Override
+                  public void gameEnded(Board board, boolean complete) {
+                    assertTrue(complete);
+                    replayed[0] = board.clone();
+                  }
+                });
+
+    assertEquals(2, games);
+    assertEquals(game.getBoard(), replayed[0]);
+    assertEquals(game.getBoard().getHash(), replayed[0].getHash());
+  }
+}
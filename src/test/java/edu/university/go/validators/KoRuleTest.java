@@ -139,4 +139,22 @@ class KoRuleTest {
     boolean isKo = validator.isKoViolation(boardMove8, 1, 1, Color.WHITE);
     assertFalse(isKo, "Recapture after opponent plays elsewhere should not violate Ko");
   }
+
+  @Test
+  @DisplayName("Ko-aware legal moves exclude the immediate recapture")
+  void testLegalMovesExcludeKoRecapture() {
+    int[][] moves = {{1, 0}, {2, 0}, {0, 1}, {3, 1}, {1, 2}, {2, 2}, {2, 1}, {1, 1}};
+    Color color = Color.BLACK;
+    for (int[] m : moves) {
+      long before = board.getHash();
+      board.placeStone(color, m[0], m[1]);
+      validator.updateState(before);
+      color = color.opposite();
+    }
+
+    // White captured at (2, 1); Black may not retake yet
+    assertTrue(board.legalMoves(Color.BLACK).get(1 * 9 + 2));
+    assertFalse(validator.legalMoves(board, Color.BLACK).get(1 * 9 + 2));
+    assertTrue(validator.legalMoves(board, Color.BLACK).get(4 * 9 + 4));
+  }
 }
@@ -0,0 +1,103 @@
+package edu.university.go.validators;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.university.go.board.Board;
+import edu.university.go.board.Color;
+import edu.university.go.game.Game;
+import edu.university.go.game.Move;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SuperkoRuleTest {
+
+  private Board board;
+
+  @BeforeEach
+  void setUp() {
+    /*
+     * . B W .
+     * B W . W
+     * . B W .
+     */
+    board = new Board(9);
+    board.placeStone(Color.BLACK, 1, 0);
+    board.placeStone(Color.BLACK, 0, 1);
+    board.placeStone(Color.BLACK, 1, 2);
+    board.placeStone(Color.WHITE, 1, 1);
+    board.placeStone(Color.WHITE, 2, 0);
+    board.placeStone(Color.WHITE, 3, 1);
+    board.placeStone(Color.WHITE, 2, 2);
+  }
+
+  @Test
+  @DisplayName("Empty history allows every move")
+  void testEmptyHistoryAllowsMove() {
+    SuperkoRule rule = new SuperkoRule(SuperkoRule.Mode.POSITIONAL);
+
+    assertFalse(rule.isKoViolation(board, 2, 1, Color.BLACK));
+  }
+
+  @Test
+  @DisplayName("Positional superko rejects any earlier position")
+  void testPositionalRejectsEarlierPosition() {
+    SuperkoRule rule = new SuperkoRule(SuperkoRule.Mode.POSITIONAL);
+
+    // Pretend the position after Black's capture was already seen earlier in the game
+    Board after = board.clone();
+    after.placeStone(Color.BLACK, 2, 1);
+    rule.updateState(after.getHash(), Color.BLACK);
+    rule.updateState(board.getHash(), Color.WHITE);
+
+    assertTrue(rule.isKoViolation(board, 2, 1, Color.BLACK));
+    assertFalse(rule.isKoViolation(board, 5, 5, Color.BLACK));
+  }
+
+  @Test
+  @DisplayName("Situational superko also compares the player to move")
+  void testSituationalComparesPlayerToMove() {
+    Board after = board.clone();
+    after.placeStone(Color.BLACK, 2, 1);
+
+    SuperkoRule sameSide = new SuperkoRule(SuperkoRule.Mode.SITUATIONAL);
+    sameSide.updateState(after.getHash(), Color.WHITE); // seen with White to move
+    assertTrue(sameSide.isKoViolation(board, 2, 1, Color.BLACK));
+
+    SuperkoRule otherSide = new SuperkoRule(SuperkoRule.Mode.SITUATIONAL);
+    otherSide.updateState(after.getHash(), Color.BLACK); // seen with Black to move
+    assertFalse(otherSide.isKoViolation(board, 2, 1, Color.BLACK));
+  }
+
+  @Test
+  @DisplayName("Game with superko rejects immediate ko recapture")
+  void testGameRejectsKoRecapture() {
+    Game game = new Game(new Board(9), new SuperkoRule(SuperkoRule.Mode.POSITIONAL));
+    game.addPlayer("b");
+    game.addPlayer("w");
+
+    game.makeMove(new Move(Color.BLACK, 1, 0, "b"));
+    game.makeMove(new Move(Color.WHITE, 2, 0, "w"));
+    game.makeMove(new Move(Color.BLACK, 0, 1, "b"));
+    game.makeMove(new Move(Color.WHITE, 3, 1, "w"));
+    game.makeMove(new Move(Color.BLACK, 1, 2, "b"));
+    game.makeMove(new Move(Color.WHITE, 2, 2, "w"));
+    game.makeMove(new Move(Color.BLACK, 2, 1, "b"));
+    game.makeMove(new Move(Color.WHITE, 1, 1, "w")); // captures (2, 1)
+
+    assertEquals(Color.EMPTY, game.getBoard().get(2, 1));
+    assertThrows(
+        IllegalStateException.class, () -> game.makeMove(new Move(Color.BLACK, 2, 1, "b")));
+  }
+
+  @Test
+  @DisplayName("History grows past its initial capacity")
+  void testHistoryGrows() {
+    SuperkoRule rule = new SuperkoRule(SuperkoRule.Mode.POSITIONAL);
+    for (long h = 0; h < 2000; h++) {
+      rule.updateState(h * 0x9E3779B97F4A7C15L, Color.BLACK);
+    }
+
+    assertEquals(2000, rule.positionCount());
+  }
+}